@@ -0,0 +1,87 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the approximate analytics with the exact queries they stand in for. The query cache is disabled so the
+ * exact word count does its full search on every call, and addThenRemoveNovel shows what keeping the sketches up
+ * to date adds to each change.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class AnalyticsBenchmark
+{
+    private static final String STORE_NAME = "Benchmark Books";
+    private static final int NO_CACHE = 0;
+    private static final double FAILURE_PROBABILITY = 0.01;
+    private static final int YEAR = 1950;
+
+    @Param({"1000000", "10000000"})
+    public int inventorySize;
+
+    @Param({"0.01", "0.001"})
+    public double relativeError;
+
+    private Bookstore bookstore;
+    private Novel extraNovel;
+
+    /**
+     * Builds the Bookstore and its sketches for this inventory size and error bound.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.bookstore = new Bookstore(STORE_NAME, SyntheticCatalogue.generate(this.inventorySize));
+        this.bookstore.setQueryCacheCapacity(NO_CACHE);
+        this.bookstore.enableApproximateAnalytics(this.relativeError, FAILURE_PROBABILITY);
+        this.extraNovel = new Novel("A Benchmark Title", SyntheticCatalogue.COMMON_AUTHOR, YEAR);
+    }
+
+    @Benchmark
+    public int howManyBooksContain()
+    {
+        return this.bookstore.howManyBooksContain(SyntheticCatalogue.COMMON_WORD);
+    }
+
+    @Benchmark
+    public int estimateBooksContaining()
+    {
+        return this.bookstore.estimateBooksContaining(SyntheticCatalogue.COMMON_WORD);
+    }
+
+    @Benchmark
+    public long estimateDistinctAuthors()
+    {
+        return this.bookstore.estimateDistinctAuthors();
+    }
+
+    @Benchmark
+    public boolean addThenRemoveNovel()
+    {
+        this.bookstore.addNovel(this.extraNovel);
+
+        return this.bookstore.removeNovel(this.extraNovel);
+    }
+}
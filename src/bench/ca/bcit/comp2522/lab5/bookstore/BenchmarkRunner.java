@@ -0,0 +1,39 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler always enabled, so every result reports gc.alloc.rate and
+ * gc.alloc.rate.norm alongside its timing. Accepts the usual JMH command line options, for example a benchmark
+ * name pattern or "-p inventorySize=10000".
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class BenchmarkRunner
+{
+    private BenchmarkRunner()
+    {
+    }
+
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException
+    {
+        final Options commandLineOptions;
+        final Options options;
+
+        commandLineOptions = new CommandLineOptions(args);
+        options = new OptionsBuilder().parent(commandLineOptions)
+                                      .addProfiler(GCProfiler.class)
+                                      .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,312 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks every public Bookstore query over synthetic inventories of increasing size. The print queries write
+ * to a discarding stream so the benchmark measures the Bookstore rather than the console. Every query runs once
+ * without the query cache, so repeated calls measure the query itself rather than cache hits, and once more with a
+ * cache as a separate variant. Pass "-p queryCacheCapacity=0" to skip the cached variant,
+ * "-p parallelThreshold=2147483647" to compare against purely sequential scans, and
+ * "-p metricsEnabled=true,false" to measure the cost of recording metrics.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class BookstoreBenchmark
+{
+    private static final String STORE_NAME = "Benchmark Books";
+    private static final String SHORT_WORD = "he";
+    private static final String TITLE_PREFIX = "The Sil";
+    private static final int DECADE = 1950;
+    private static final int YEAR = 1950;
+    private static final int FIRST_YEAR = 1940;
+    private static final int LAST_YEAR = 1950;
+    private static final int TITLE_LENGTH = 15;
+    private static final int NUM_AUTHORS = 10;
+    private static final int TOP_K = 20;
+    private static final int FIRST_HISTOGRAM_YEAR = 1900;
+    private static final int LAST_HISTOGRAM_YEAR = 2026;
+    private static final int PAGE_SIZE = 20;
+    private static final int DEEP_PAGE_DIVISOR = 2;
+
+    @Param({"100", "10000", "1000000"})
+    public int inventorySize;
+
+    @Param({"50000"})
+    public int parallelThreshold;
+
+    @Param({"0", "256"})
+    public int queryCacheCapacity;
+
+    @Param({"false"})
+    public boolean metricsEnabled;
+
+    private List<Novel> novels;
+    private Bookstore bookstore;
+    private Novel extraNovel;
+    private Novel deepPageCursor;
+    private Novel lastVisited;
+    private Consumer<Novel> visitor;
+    private PrintStream originalOut;
+    private TitleWriter discardingWriter;
+
+    /**
+     * Builds the Bookstore for this inventory size and silences System.out.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.novels = SyntheticCatalogue.generate(this.inventorySize);
+        this.bookstore = new Bookstore(STORE_NAME, this.novels);
+        this.bookstore.setParallelThreshold(this.parallelThreshold);
+        this.bookstore.setQueryCacheCapacity(this.queryCacheCapacity);
+
+        if (this.metricsEnabled)
+        {
+            this.bookstore.setMetrics(new BookstoreMetrics());
+        }
+        this.extraNovel = new Novel("A Benchmark Title", SyntheticCatalogue.COMMON_AUTHOR, YEAR);
+        this.visitor = novel -> this.lastVisited = novel;
+        this.deepPageCursor = this.bookstore.getBooksInAlphaOrder(this.inventorySize / DEEP_PAGE_DIVISOR + 1)
+                                            .getLast();
+        this.originalOut = System.out;
+
+        this.discardingWriter = new TitleWriter(Channels.newChannel(OutputStream.nullOutputStream()),
+                                                StandardCharsets.UTF_8);
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Restores System.out.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        System.setOut(this.originalOut);
+    }
+
+    @Benchmark
+    public void printAllTitles()
+    {
+        this.bookstore.printAllTitles();
+    }
+
+    @Benchmark
+    public void printAllTitlesToWriter() throws IOException
+    {
+        this.bookstore.printAllTitles(this.discardingWriter);
+        this.discardingWriter.flush();
+    }
+
+    @Benchmark
+    public void printBookTitle()
+    {
+        this.bookstore.printBookTitle(SyntheticCatalogue.COMMON_WORD);
+    }
+
+    @Benchmark
+    public void printTitlesInAlphaOrder()
+    {
+        this.bookstore.printTitlesInAlphaOrder();
+    }
+
+    @Benchmark
+    public void printGroupByDecade()
+    {
+        this.bookstore.printGroupByDecade(DECADE);
+    }
+
+    @Benchmark
+    public String getLongest()
+    {
+        return this.bookstore.getLongest();
+    }
+
+    @Benchmark
+    public boolean isThereABookWrittenIn()
+    {
+        return this.bookstore.isThereABookWrittenIn(YEAR);
+    }
+
+    @Benchmark
+    public int howManyBooksContain()
+    {
+        return this.bookstore.howManyBooksContain(SyntheticCatalogue.COMMON_WORD);
+    }
+
+    @Benchmark
+    public int howManyBooksContainShortWord()
+    {
+        return this.bookstore.howManyBooksContain(SHORT_WORD);
+    }
+
+    @Benchmark
+    public double whichPercentWrittenBetween()
+    {
+        return this.bookstore.whichPercentWrittenBetween(FIRST_YEAR, LAST_YEAR);
+    }
+
+    @Benchmark
+    public Novel getOldestBook()
+    {
+        return this.bookstore.getOldestBook();
+    }
+
+    @Benchmark
+    public List<Novel> getBooksThisLength()
+    {
+        return this.bookstore.getBooksThisLength(TITLE_LENGTH);
+    }
+
+    @Benchmark
+    public List<Novel> getBooksStartingWith()
+    {
+        return this.bookstore.getBooksStartingWith(TITLE_PREFIX);
+    }
+
+    @Benchmark
+    public List<Novel> getBooksBy()
+    {
+        return this.bookstore.getBooksBy(SyntheticCatalogue.COMMON_AUTHOR);
+    }
+
+    @Benchmark
+    public int howManyBooksBy()
+    {
+        return this.bookstore.howManyBooksBy(SyntheticCatalogue.COMMON_AUTHOR);
+    }
+
+    @Benchmark
+    public List<String> getMostProlificAuthors()
+    {
+        return this.bookstore.getMostProlificAuthors(NUM_AUTHORS);
+    }
+
+    @Benchmark
+    public List<Novel> queryTitleYearAndLength()
+    {
+        return this.bookstore.query()
+                             .titleContains(SyntheticCatalogue.COMMON_WORD)
+                             .publishedBetween(FIRST_YEAR, LAST_YEAR)
+                             .titleLength(TITLE_LENGTH)
+                             .toList();
+    }
+
+    @Benchmark
+    public Novel queryFirstMatch()
+    {
+        return this.bookstore.query()
+                             .titleContainsIgnoreCase(SHORT_WORD)
+                             .limit(1)
+                             .stream()
+                             .findFirst()
+                             .orElse(null);
+    }
+
+    @Benchmark
+    public List<Novel> sortNovelsByTitle()
+    {
+        final List<Novel> sortedNovels;
+        sortedNovels = new ArrayList<>(this.novels);
+
+        Collections.sort(sortedNovels);
+
+        return sortedNovels;
+    }
+
+    @Benchmark
+    public int forEachBookContaining()
+    {
+        return this.bookstore.forEachBookContaining(SyntheticCatalogue.COMMON_WORD, this.visitor);
+    }
+
+    @Benchmark
+    public int forEachBookThisLength()
+    {
+        return this.bookstore.forEachBookThisLength(TITLE_LENGTH, this.visitor);
+    }
+
+    @Benchmark
+    public int forEachBookBy()
+    {
+        return this.bookstore.forEachBookBy(SyntheticCatalogue.COMMON_AUTHOR, this.visitor);
+    }
+
+    @Benchmark
+    public List<Novel> getBooksInDecade()
+    {
+        return this.bookstore.getBooksInDecade(DECADE);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> getBooksPerDecade()
+    {
+        return this.bookstore.getBooksPerDecade(FIRST_HISTOGRAM_YEAR, LAST_HISTOGRAM_YEAR);
+    }
+
+    @Benchmark
+    public List<Novel> getOldestBooks()
+    {
+        return this.bookstore.getOldestBooks(TOP_K);
+    }
+
+    @Benchmark
+    public List<Novel> getLongestBooks()
+    {
+        return this.bookstore.getLongestBooks(TOP_K);
+    }
+
+    @Benchmark
+    public List<Novel> getFirstPageInAlphaOrder()
+    {
+        return this.bookstore.getBooksInAlphaOrder(PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Novel> getDeepPageInAlphaOrder()
+    {
+        return this.bookstore.getBooksInAlphaOrderAfter(this.deepPageCursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public boolean addThenRemoveNovel()
+    {
+        this.bookstore.addNovel(this.extraNovel);
+
+        return this.bookstore.removeNovel(this.extraNovel);
+    }
+}
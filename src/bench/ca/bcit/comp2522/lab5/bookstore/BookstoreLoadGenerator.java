@@ -0,0 +1,473 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Drives a BookstoreServer with many concurrent connections on virtual threads and reports throughput and
+ * latency percentiles. Each connection pipelines a batch of requests from a fixed mix of queries, waits for all of
+ * their responses and repeats. Latencies from the warm-up period are discarded.
+ * <p>
+ * With an interval, each connection sends a batch on a fixed schedule, one interval after the last batch was due,
+ * for an offered load of about connections * pipelineDepth / interval requests a second; the connections'
+ * schedules are staggered across one interval so they do not arrive in step. A request's latency runs from when
+ * its batch was due to be sent, not from when it was sent, so a stalled server is charged for the batches that
+ * could not be sent on time while a connection waited for earlier responses, rather than those batches simply
+ * going unmeasured.
+ * <p>
+ * With no interval every connection sends its next batch as soon as the last one is answered, which measures the
+ * server saturated: latency then runs from when the batch was sent, and is the number of requests queued divided
+ * by throughput.
+ * <p>
+ * Run with "local connections seconds pipelineDepth intervalMillis inventorySize" to start a server in the same
+ * JVM, or run "serve port inventorySize" in one JVM and "host port connections seconds pipelineDepth
+ * intervalMillis" in another. Each connection needs a file descriptor at both ends, so above a few thousand
+ * connections use two JVMs and check that "ulimit -n" allows them.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class BookstoreLoadGenerator
+{
+    private static final String STORE_NAME = "Benchmark Books";
+    private static final String LOCAL_MODE = "local";
+    private static final String SERVE_MODE = "serve";
+    private static final String LOCAL_HOST = "localhost";
+    private static final int DEFAULT_CONNECTIONS = 1000;
+    private static final int DEFAULT_SECONDS = 10;
+    private static final int DEFAULT_PIPELINE_DEPTH = 4;
+    private static final int DEFAULT_INTERVAL_MILLIS = 0;
+    private static final int DEFAULT_INVENTORY_SIZE = 100_000;
+    private static final long WARM_UP_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final long WAIT_FOR_CLIENTS_SECONDS = 60L;
+    private static final String OK = "OK ";
+    private static final String LINE_SEPARATOR = "\n";
+    private static final int MEASURE_FROM = 0;
+    private static final int MEASURE_UNTIL = 1;
+    private static final double MEDIAN = 0.50;
+    private static final double P99 = 0.99;
+    private static final double P999 = 0.999;
+    private static final double NANOS_PER_MICRO = 1_000.0;
+    private static final String[] REQUESTS = {
+        "isThereABookWrittenIn 1950",
+        "howManyBooksContain " + SyntheticCatalogue.COMMON_WORD,
+        "getBooksThisLength 40",
+        "howManyBooksBy " + SyntheticCatalogue.COMMON_AUTHOR,
+        "whichPercentWrittenBetween 1900 1950",
+        "getOldestBooks 10",
+        "getBooksInAlphaOrder 10",
+        "getBooksPerDecade 1900 1950"
+    };
+    private static final byte[][] ENCODED_REQUESTS = encodeRequests();
+
+    /*
+     * Counts latencies into buckets that are about 3% wide, so percentiles can be read off without keeping every
+     * latency. Values below SUB_BUCKETS * 2 nanoseconds get a bucket each; above that, each power of two is split
+     * into SUB_BUCKETS buckets.
+     */
+    private static final class LatencyHistogram
+    {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = Long.SIZE * SUB_BUCKETS;
+        private static final int HIGHEST_BIT = Long.SIZE - 1;
+
+        private final AtomicLongArray counts;
+        private final AtomicLong maxNanos;
+
+        /*
+         * Constructs a new, empty LatencyHistogram.
+         */
+        LatencyHistogram()
+        {
+            this.counts = new AtomicLongArray(BUCKETS);
+            this.maxNanos = new AtomicLong();
+        }
+
+        /*
+         * Counts one latency. Safe to call from many threads at once.
+         */
+        void record(final long nanos)
+        {
+            this.counts.incrementAndGet(bucketOf(nanos));
+            this.maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /*
+         * Returns the number of latencies counted.
+         */
+        long count()
+        {
+            long count;
+            count = 0L;
+
+            for (int bucket = 0; bucket < BUCKETS; bucket++)
+            {
+                count += this.counts.get(bucket);
+            }
+
+            return count;
+        }
+
+        /*
+         * Returns the lowest value in the bucket holding the given fraction of the latencies, in nanoseconds.
+         */
+        long percentile(final double fraction)
+        {
+            final long rank;
+            long seen;
+
+            rank = (long) Math.ceil(fraction * count());
+            seen = 0L;
+
+            for (int bucket = 0; bucket < BUCKETS; bucket++)
+            {
+                seen += this.counts.get(bucket);
+
+                if (seen >= rank)
+                {
+                    return lowestValueIn(bucket);
+                }
+            }
+
+            return this.maxNanos.get();
+        }
+
+        /*
+         * Returns the highest latency counted, exactly, in nanoseconds.
+         */
+        long max()
+        {
+            return this.maxNanos.get();
+        }
+
+        /*
+         * Finds the bucket a latency is counted in.
+         */
+        private static int bucketOf(final long nanos)
+        {
+            final int shift;
+            shift = Math.max(0, HIGHEST_BIT - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS);
+
+            return shift * SUB_BUCKETS + (int) (nanos >>> shift);
+        }
+
+        /*
+         * Returns the lowest latency counted in a bucket.
+         */
+        private static long lowestValueIn(final int bucket)
+        {
+            final int shift;
+            shift = Math.max(0, bucket / SUB_BUCKETS - 1);
+
+            return (long) (bucket - shift * SUB_BUCKETS) << shift;
+        }
+    }
+
+    private BookstoreLoadGenerator()
+    {
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        if (args.length > 0 &&
+            args[0].equals(SERVE_MODE))
+        {
+            final BookstoreServer server;
+            server = startServer(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+
+            System.out.println("Serving " + args[2] + " books on port " + server.getPort());
+        }
+        else if (args.length == 0 ||
+                 args[0].equals(LOCAL_MODE))
+        {
+            final int connections;
+            final int seconds;
+            final int pipelineDepth;
+            final int intervalMillis;
+            final int inventorySize;
+
+            connections = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CONNECTIONS;
+            seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+            pipelineDepth = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PIPELINE_DEPTH;
+            intervalMillis = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_INTERVAL_MILLIS;
+            inventorySize = args.length > 5 ? Integer.parseInt(args[5]) : DEFAULT_INVENTORY_SIZE;
+
+            try (final BookstoreServer server = startServer(0, inventorySize))
+            {
+                run(LOCAL_HOST, server.getPort(), connections, seconds, pipelineDepth, intervalMillis);
+            }
+        }
+        else
+        {
+            run(args[0],
+                Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]),
+                Integer.parseInt(args[4]),
+                args.length > 5 ? Integer.parseInt(args[5]) : DEFAULT_INTERVAL_MILLIS);
+        }
+    }
+
+    /*
+     * Starts a server over a synthetic inventory, allowing one query per processor to run at once.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @param inventorySize the number of Novels to stock
+     *
+     * @return the started server
+     */
+    private static BookstoreServer startServer(final int port,
+                                               final int inventorySize) throws IOException
+    {
+        final ConcurrentBookstore bookstore;
+        final BookstoreServer server;
+
+        bookstore = new ConcurrentBookstore(STORE_NAME,
+                                            SyntheticCatalogue.generate(inventorySize),
+                                            ConcurrentBookstore.DEFAULT_BATCH_SIZE);
+        server = new BookstoreServer(bookstore, Integer.MAX_VALUE, Runtime.getRuntime().availableProcessors());
+
+        server.start(port);
+
+        return server;
+    }
+
+    /*
+     * Opens every connection, lets them run through the warm-up and measured periods, then prints the results.
+     *
+     * @param host the server's host
+     * @param port the server's port
+     * @param connections the number of connections to open
+     * @param seconds how long to measure for, after the warm-up
+     * @param pipelineDepth the number of requests each connection sends before reading responses
+     * @param intervalMillis how often each connection sends a batch, or 0 to send as soon as the last is answered
+     */
+    private static void run(final String host,
+                            final int port,
+                            final int connections,
+                            final int seconds,
+                            final int pipelineDepth,
+                            final int intervalMillis) throws InterruptedException
+    {
+        final LatencyHistogram latencies;
+        final AtomicLong errors;
+        final AtomicLong failedConnections;
+        final CountDownLatch connected;
+        final CountDownLatch started;
+        final long[] measurementWindow;
+
+        latencies = new LatencyHistogram();
+        errors = new AtomicLong();
+        failedConnections = new AtomicLong();
+        connected = new CountDownLatch(connections);
+        started = new CountDownLatch(1);
+        measurementWindow = new long[2];
+
+        try (final ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int client = 0; client < connections; client++)
+            {
+                final int firstRequest;
+                final long firstSendOffsetNanos;
+
+                firstRequest = client % REQUESTS.length;
+                firstSendOffsetNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis) * client / connections;
+
+                clients.submit(() ->
+                {
+                    try (final Socket socket = new Socket(host, port))
+                    {
+                        socket.setTcpNoDelay(true);
+                        connected.countDown();
+                        started.await();
+
+                        drive(socket,
+                              firstRequest,
+                              pipelineDepth,
+                              intervalMillis,
+                              measurementWindow[MEASURE_FROM] - WARM_UP_NANOS + firstSendOffsetNanos,
+                              measurementWindow,
+                              latencies,
+                              errors);
+                    }
+                    catch (final IOException | InterruptedException e)
+                    {
+                        failedConnections.incrementAndGet();
+                        connected.countDown();
+                    }
+
+                    return null;
+                });
+            }
+
+            connected.await(WAIT_FOR_CLIENTS_SECONDS, TimeUnit.SECONDS);
+
+            measurementWindow[MEASURE_FROM] = System.nanoTime() + WARM_UP_NANOS;
+            measurementWindow[MEASURE_UNTIL] = measurementWindow[MEASURE_FROM] + TimeUnit.SECONDS.toNanos(seconds);
+            started.countDown();
+        }
+
+        System.out.printf("connections=%d pipelineDepth=%d intervalMillis=%d seconds=%d failedConnections=%d%n",
+                          connections,
+                          pipelineDepth,
+                          intervalMillis,
+                          seconds,
+                          failedConnections.get());
+        System.out.printf("requests=%d errors=%d throughput=%.0f requests/s%n",
+                          latencies.count(),
+                          errors.get(),
+                          latencies.count() / (double) seconds);
+        System.out.printf("p50=%.0f us p99=%.0f us p99.9=%.0f us max=%.0f us%n",
+                          latencies.percentile(MEDIAN) / NANOS_PER_MICRO,
+                          latencies.percentile(P99) / NANOS_PER_MICRO,
+                          latencies.percentile(P999) / NANOS_PER_MICRO,
+                          latencies.max() / NANOS_PER_MICRO);
+    }
+
+    /*
+     * Sends batches of pipelined requests on one connection until the measured period ends, recording the latency
+     * of every request in a batch due during the measured period. Each batch's send time is fixed before it is
+     * written: with an interval it is when the schedule says the batch is due, even if the connection is late
+     * because earlier responses were slow, and without one it is when the batch is written.
+     *
+     * @param socket the connection
+     * @param firstRequest the position in REQUESTS to start the mix from
+     * @param pipelineDepth the number of requests per batch
+     * @param intervalMillis how often to send a batch, or 0 to send as soon as the last is answered
+     * @param firstSendNanos when the first batch is due, in System.nanoTime() terms
+     * @param measurementWindow when the measured period starts and ends, in System.nanoTime() terms
+     * @param latencies where to record latencies
+     * @param errors counts error responses in the measured period
+     */
+    private static void drive(final Socket socket,
+                              final int firstRequest,
+                              final int pipelineDepth,
+                              final int intervalMillis,
+                              final long firstSendNanos,
+                              final long[] measurementWindow,
+                              final LatencyHistogram latencies,
+                              final AtomicLong errors) throws IOException, InterruptedException
+    {
+        final BufferedReader in;
+        final OutputStream out;
+        final long intervalNanos;
+        long dueNanos;
+        int nextRequest;
+
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new BufferedOutputStream(socket.getOutputStream());
+        intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        dueNanos = firstSendNanos;
+        nextRequest = firstRequest;
+
+        while (dueNanos < measurementWindow[MEASURE_UNTIL])
+        {
+            final long sentNanos;
+            final long earlyNanos;
+
+            earlyNanos = dueNanos - System.nanoTime();
+
+            if (earlyNanos > 0)
+            {
+                Thread.sleep(Duration.ofNanos(earlyNanos));
+            }
+
+            sentNanos = intervalNanos == 0 ? System.nanoTime() : dueNanos;
+
+            for (int request = 0; request < pipelineDepth; request++)
+            {
+                out.write(ENCODED_REQUESTS[nextRequest]);
+                nextRequest = (nextRequest + 1) % ENCODED_REQUESTS.length;
+            }
+
+            out.flush();
+
+            for (int request = 0; request < pipelineDepth; request++)
+            {
+                final boolean succeeded;
+                final long receivedNanos;
+
+                succeeded = readResponse(in);
+                receivedNanos = System.nanoTime();
+
+                if (sentNanos >= measurementWindow[MEASURE_FROM])
+                {
+                    latencies.record(receivedNanos - sentNanos);
+
+                    if (!succeeded)
+                    {
+                        errors.incrementAndGet();
+                    }
+                }
+            }
+
+            dueNanos = sentNanos + intervalNanos;
+        }
+    }
+
+    /*
+     * Reads one response, skipping over its result lines.
+     *
+     * @param in the connection's input
+     *
+     * @return true if the response was OK, false if it was an error
+     */
+    private static boolean readResponse(final BufferedReader in) throws IOException
+    {
+        final String status;
+        status = in.readLine();
+
+        if (status == null)
+        {
+            throw new IOException("Server closed the connection.");
+        }
+
+        if (!status.startsWith(OK))
+        {
+            return false;
+        }
+
+        final int rows;
+        rows = Integer.parseInt(status.substring(OK.length()));
+
+        for (int row = 0; row < rows; row++)
+        {
+            in.readLine();
+        }
+
+        return true;
+    }
+
+    /*
+     * Encodes each request in the mix as a UTF-8 line.
+     *
+     * @return the encoded requests, in mix order
+     */
+    private static byte[][] encodeRequests()
+    {
+        final byte[][] encoded;
+        encoded = new byte[REQUESTS.length][];
+
+        for (int request = 0; request < REQUESTS.length; request++)
+        {
+            encoded[request] = (REQUESTS[request] + LINE_SEPARATOR).getBytes(StandardCharsets.UTF_8);
+        }
+
+        return encoded;
+    }
+}
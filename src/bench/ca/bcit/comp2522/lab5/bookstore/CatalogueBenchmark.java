@@ -0,0 +1,98 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures chain-wide Catalogue queries as the same inventory is split across more shards. Each query is
+ * scattered to every shard on a fixed pool with one thread per processor, so the shard count trades per-shard
+ * work against scatter and merge overhead.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class CatalogueBenchmark
+{
+    private static final String CATALOGUE_NAME = "Benchmark Branch";
+    private static final int FIRST_YEAR = 1940;
+    private static final int LAST_YEAR = 1950;
+
+    @Param({"1000000"})
+    public int inventorySize;
+
+    @Param({"1", "4", "16"})
+    public int shardCount;
+
+    private ExecutorService executor;
+    private Catalogue catalogue;
+
+    /**
+     * Builds the Catalogue for this shard count.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final List<Novel> novels;
+        novels = SyntheticCatalogue.generate(this.inventorySize);
+
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.catalogue = Catalogue.partitionedByHash(CATALOGUE_NAME, novels, this.shardCount, this.executor);
+    }
+
+    /**
+     * Stops the shard executor.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        this.executor.shutdown();
+    }
+
+    @Benchmark
+    public Novel getOldestBook()
+    {
+        return this.catalogue.getOldestBook();
+    }
+
+    @Benchmark
+    public double whichPercentWrittenBetween()
+    {
+        return this.catalogue.whichPercentWrittenBetween(FIRST_YEAR, LAST_YEAR);
+    }
+
+    @Benchmark
+    public long howManyBooksContain()
+    {
+        return this.catalogue.howManyBooksContain(SyntheticCatalogue.COMMON_WORD);
+    }
+
+    @Benchmark
+    public List<Novel> getBooksContaining()
+    {
+        return this.catalogue.getBooksContaining(SyntheticCatalogue.COMMON_WORD);
+    }
+}
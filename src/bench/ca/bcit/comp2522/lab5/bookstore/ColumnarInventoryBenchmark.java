@@ -0,0 +1,148 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares full scans over a ColumnarInventory with the same scans over a List of Novel objects. Setup also
+ * reports the approximate heap footprint per Novel of each layout on standard error.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class ColumnarInventoryBenchmark
+{
+    private static final int TITLE_LENGTH = 15;
+    private static final int GC_PASSES = 3;
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int inventorySize;
+
+    private List<Novel> novels;
+    private ColumnarInventory columnarInventory;
+
+    /**
+     * Builds both layouts and reports how much heap each one retains per Novel.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final long heapBeforeNovels;
+        final long heapBeforeColumns;
+        final long heapAfterColumns;
+
+        heapBeforeNovels = usedHeap();
+        this.novels = SyntheticCatalogue.generate(this.inventorySize);
+        heapBeforeColumns = usedHeap();
+
+        this.columnarInventory = new ColumnarInventory();
+
+        for (final Novel novel : this.novels)
+        {
+            this.columnarInventory.add(novel);
+        }
+
+        heapAfterColumns = usedHeap();
+
+        System.err.printf("%nBytes per novel: objects %.1f, columns %.1f%n",
+                          (double) (heapBeforeColumns - heapBeforeNovels) / this.inventorySize,
+                          (double) (heapAfterColumns - heapBeforeColumns) / this.inventorySize);
+    }
+
+    @Benchmark
+    public Novel getOldestBookObjects()
+    {
+        Novel oldestNovel;
+        oldestNovel = this.novels.getFirst();
+
+        for (final Novel novel : this.novels)
+        {
+            if (novel.getYearPublished() < oldestNovel.getYearPublished())
+            {
+                oldestNovel = novel;
+            }
+        }
+
+        return oldestNovel;
+    }
+
+    @Benchmark
+    public Novel getOldestBookColumns()
+    {
+        return this.columnarInventory.getOldestBook();
+    }
+
+    @Benchmark
+    public int howManyBooksContainObjects()
+    {
+        int numBooksContainingWord;
+        numBooksContainingWord = 0;
+
+        for (final Novel novel : this.novels)
+        {
+            if (novel.getTitle().contains(SyntheticCatalogue.COMMON_WORD))
+            {
+                numBooksContainingWord++;
+            }
+        }
+
+        return numBooksContainingWord;
+    }
+
+    @Benchmark
+    public int howManyBooksContainColumns()
+    {
+        return this.columnarInventory.howManyBooksContain(SyntheticCatalogue.COMMON_WORD);
+    }
+
+    @Benchmark
+    public String getLongestColumns()
+    {
+        return this.columnarInventory.getLongest();
+    }
+
+    @Benchmark
+    public List<Novel> getBooksThisLengthColumns()
+    {
+        return this.columnarInventory.getBooksThisLength(TITLE_LENGTH);
+    }
+
+    /*
+     * Estimates the heap in use after asking the JVM to collect garbage.
+     *
+     * @return the approximate number of bytes of live heap
+     */
+    private static long usedHeap()
+    {
+        final Runtime runtime;
+        runtime = Runtime.getRuntime();
+
+        for (int pass = 0; pass < GC_PASSES; pass++)
+        {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
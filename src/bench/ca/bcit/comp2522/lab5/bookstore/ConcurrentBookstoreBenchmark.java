@@ -0,0 +1,123 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Stresses a ConcurrentBookstore with readers and a writer running at the same time, and measures how read
+ * throughput scales with threads. For read scaling, run the read-only benchmarks at several thread counts, for
+ * example "-t 1", "-t 2", and so on up to "-t 32". The readWhileWriting group runs three readers against one
+ * writer that keeps adding and removing stock, publishing a new snapshot every batchSize changes.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class ConcurrentBookstoreBenchmark
+{
+    private static final String STORE_NAME = "Benchmark Books";
+    private static final int TITLE_LENGTH = 15;
+    private static final int EXTRA_NOVELS = 4096;
+    private static final int EXTRA_YEAR = 1999;
+    private static final int READER_THREADS = 3;
+    private static final int WRITER_THREADS = 1;
+
+    @Param({"10000", "1000000"})
+    public int inventorySize;
+
+    @Param({"1024"})
+    public int batchSize;
+
+    private ConcurrentBookstore bookstore;
+    private List<Novel> extraNovels;
+    private int nextExtraNovel;
+    private boolean removing;
+
+    /**
+     * Builds the ConcurrentBookstore and the Novels the writer adds and removes.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final List<Novel> novels;
+        novels = SyntheticCatalogue.generate(this.inventorySize);
+
+        this.bookstore = new ConcurrentBookstore(STORE_NAME, novels, this.batchSize);
+        this.extraNovels = new ArrayList<>(EXTRA_NOVELS);
+
+        for (int count = 0; count < EXTRA_NOVELS; count++)
+        {
+            this.extraNovels.add(new Novel("Extra Stock " + count, SyntheticCatalogue.COMMON_AUTHOR, EXTRA_YEAR));
+        }
+    }
+
+    @Benchmark
+    public int howManyBooksContain()
+    {
+        return this.bookstore.howManyBooksContain(SyntheticCatalogue.COMMON_WORD);
+    }
+
+    @Benchmark
+    public List<Novel> getBooksThisLength()
+    {
+        return this.bookstore.getBooksThisLength(TITLE_LENGTH);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(READER_THREADS)
+    public int readWhileWritingReader()
+    {
+        return this.bookstore.howManyBooksBy(SyntheticCatalogue.COMMON_AUTHOR) +
+               this.bookstore.howManyBooksContain(SyntheticCatalogue.COMMON_WORD);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(WRITER_THREADS)
+    public void readWhileWritingWriter()
+    {
+        final Novel novel;
+        novel = this.extraNovels.get(this.nextExtraNovel);
+
+        if (this.removing)
+        {
+            this.bookstore.removeNovel(novel);
+        }
+        else
+        {
+            this.bookstore.addNovel(novel);
+        }
+
+        this.nextExtraNovel++;
+
+        if (this.nextExtraNovel == EXTRA_NOVELS)
+        {
+            this.nextExtraNovel = 0;
+            this.removing = !this.removing;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures ingest throughput under sustained write load: each iteration starts from an empty Bookstore recovered
+ * from a new MutationLog and adds Novels as fast as it can, syncing the log every syncEvery additions and starting
+ * a background compaction every COMPACT_EVERY additions. addNovelUnlogged adds the same Novels to a Bookstore with
+ * no log, for comparison. The log is written under java.io.tmpdir, so set that to a directory on the disk being
+ * measured; on a RAM-backed file system every fsync is free.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MutationLogBenchmark
+{
+    private static final String STORE_NAME = "Benchmark Books";
+    private static final String DIRECTORY_PREFIX = "mutation-log";
+    private static final int TEMPLATE_COUNT = 4096;
+    private static final int COMPACT_EVERY = 1 << 18;
+
+    @Param({"1", "64", "4096"})
+    public int syncEvery;
+
+    private List<Novel> templates;
+    private ExecutorService compactor;
+    private Path directory;
+    private MutationLog mutationLog;
+    private Bookstore loggedBookstore;
+    private Bookstore unloggedBookstore;
+    private CompletableFuture<Void> compaction;
+    private int additions;
+
+    /**
+     * Generates the titles, authors and years the added Novels are copied from, and starts the compaction thread.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.templates = SyntheticCatalogue.generate(TEMPLATE_COUNT);
+        this.compactor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Recovers an empty Bookstore from a new log directory, and makes an empty Bookstore with no log.
+     *
+     * @throws IOException if the log cannot be created
+     */
+    @Setup(Level.Iteration)
+    public void startIteration() throws IOException
+    {
+        this.directory = Files.createTempDirectory(DIRECTORY_PREFIX);
+        this.mutationLog = MutationLog.open(this.directory);
+        this.loggedBookstore = this.mutationLog.recover(STORE_NAME);
+        this.unloggedBookstore = new Bookstore(STORE_NAME, Collections.emptyList());
+        this.compaction = CompletableFuture.completedFuture(null);
+        this.additions = 0;
+    }
+
+    /**
+     * Closes the log, waits for the last compaction and deletes the log directory.
+     *
+     * @throws IOException if the log cannot be closed or deleted
+     */
+    @TearDown(Level.Iteration)
+    public void endIteration() throws IOException
+    {
+        this.mutationLog.close();
+        this.compaction.join();
+
+        try (final Stream<Path> files = Files.walk(this.directory))
+        {
+            for (final Path file : files.sorted(Comparator.reverseOrder()).toList())
+            {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Stops the compaction thread.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        this.compactor.shutdown();
+    }
+
+    @Benchmark
+    public void addNovel() throws IOException
+    {
+        this.loggedBookstore.addNovel(nextNovel());
+
+        if (this.additions % this.syncEvery == 0)
+        {
+            this.mutationLog.sync();
+        }
+
+        if (this.additions % COMPACT_EVERY == 0)
+        {
+            this.compaction = this.mutationLog.compact(this.compactor);
+        }
+    }
+
+    @Benchmark
+    public void addNovelUnlogged()
+    {
+        this.unloggedBookstore.addNovel(nextNovel());
+    }
+
+    /*
+     * Copies the next template into a new Novel, as if a new record had been read.
+     *
+     * @return the Novel to add
+     */
+    private Novel nextNovel()
+    {
+        final Novel template;
+        template = this.templates.get(this.additions % TEMPLATE_COUNT);
+
+        this.additions++;
+
+        return new Novel(template.getTitle(), template.getAuthorName(), template.getYearPublished());
+    }
+}
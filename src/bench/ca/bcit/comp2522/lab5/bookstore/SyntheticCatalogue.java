@@ -0,0 +1,135 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible inventories of made-up Novels for benchmarking. Titles are built from a small vocabulary
+ * so substring searches have realistic hit rates, and authors are drawn from a pool so that each writes several
+ * Novels.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class SyntheticCatalogue
+{
+    static final String COMMON_WORD = "Heart";
+    static final String COMMON_AUTHOR = "Margaret Morrison";
+    static final int FIRST_YEAR = 1600;
+    static final int LAST_YEAR = 2026;
+
+    private static final long SEED = 2522L;
+    private static final int MIN_TITLE_WORDS = 1;
+    private static final int MAX_TITLE_WORDS = 6;
+    private static final int NOVELS_PER_AUTHOR = 4;
+
+    private static final String[] TITLE_WORDS = {
+        "The", "a", "of", "and", "Heart", "Night", "House", "River", "Sun", "Lord", "Blind", "Golden", "Death",
+        "Summer", "Road", "Man", "Woman", "Children", "Fire", "Sea", "Winter", "Garden", "Silent", "Lost", "City",
+        "War", "Light", "Dark", "Iron", "Glass", "Stone", "Wind", "Song", "Hunter", "Dream", "Empire", "Mountain"
+    };
+    private static final String[] FIRST_NAMES = {
+        "Saul", "Toni", "George", "Margaret", "Thomas", "Evelyn", "Philip", "Virginia", "James", "Zadie", "Ralph",
+        "Joan", "Kazuo", "Doris", "William", "Iris", "Henry", "Muriel", "Richard", "Flannery"
+    };
+    private static final String[] LAST_NAMES = {
+        "Bellow", "Morrison", "Orwell", "Atwood", "Pynchon", "Waugh", "Roth", "Woolf", "Baldwin", "Smith",
+        "Ellison", "Didion", "Ishiguro", "Lessing", "Faulkner", "Murdoch", "Green", "Spark", "Wright", "O'Connor"
+    };
+
+    private SyntheticCatalogue()
+    {
+    }
+
+    /**
+     * Generates the given number of Novels. The same size always generates the same Novels.
+     *
+     * @param size the number of Novels to generate
+     *
+     * @return a List of generated Novels
+     */
+    static List<Novel> generate(final int size)
+    {
+        final Random random;
+        final int authorCount;
+        final List<Novel> novels;
+
+        random = new Random(SEED);
+        authorCount = Math.max(1, size / NOVELS_PER_AUTHOR);
+        novels = new ArrayList<>(size);
+
+        for (int count = 0; count < size; count++)
+        {
+            final String title;
+            final String authorName;
+            final int yearPublished;
+
+            title = generateTitle(random);
+            authorName = authorName(random.nextInt(authorCount));
+            yearPublished = FIRST_YEAR + random.nextInt(LAST_YEAR - FIRST_YEAR + 1);
+
+            novels.add(new Novel(title, authorName, yearPublished));
+        }
+
+        return novels;
+    }
+
+    /*
+     * Generates a title of a few words from the vocabulary.
+     *
+     * @param random the source of randomness
+     *
+     * @return the generated title
+     */
+    private static String generateTitle(final Random random)
+    {
+        final StringBuilder title;
+        final int wordCount;
+
+        title = new StringBuilder();
+        wordCount = MIN_TITLE_WORDS + random.nextInt(MAX_TITLE_WORDS - MIN_TITLE_WORDS + 1);
+
+        for (int word = 0; word < wordCount; word++)
+        {
+            if (word > 0)
+            {
+                title.append(' ');
+            }
+
+            title.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        }
+
+        return title.toString();
+    }
+
+    /*
+     * Builds the name of the author with the given number. Numbers past the first FIRST_NAMES.length *
+     * LAST_NAMES.length authors get a numeric suffix so every number has a distinct name.
+     *
+     * @param authorNumber the author's number
+     *
+     * @return the author's name
+     */
+    private static String authorName(final int authorNumber)
+    {
+        final int namePairs;
+        final String firstName;
+        final String lastName;
+        final int generation;
+
+        namePairs = FIRST_NAMES.length * LAST_NAMES.length;
+        firstName = FIRST_NAMES[authorNumber % FIRST_NAMES.length];
+        lastName = LAST_NAMES[(authorNumber / FIRST_NAMES.length) % LAST_NAMES.length];
+        generation = authorNumber / namePairs;
+
+        if (generation == 0)
+        {
+            return firstName + " " + lastName;
+        }
+
+        return firstName + " " + lastName + " " + generation;
+    }
+}
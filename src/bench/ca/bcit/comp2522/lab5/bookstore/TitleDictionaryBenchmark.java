@@ -0,0 +1,175 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures autocomplete and fuzzy lookups on a TitleDictionary of millions of titles. The fuzzy queries are a
+ * stocked title with its second character dropped, looked up within one and within two edits. Setup also reports on
+ * standard error how many bytes per Novel the dictionary retains next to how many characters its titles hold and
+ * how many bytes their Strings retain.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class TitleDictionaryBenchmark
+{
+    private static final String PREFIX = "golden h";
+    private static final int SUGGESTIONS = 10;
+    private static final int ONE_EDIT = 1;
+    private static final int TWO_EDITS = 2;
+    private static final int DROPPED_CHARACTER = 1;
+    private static final int GC_PASSES = 3;
+    private static final int STRING_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int OBJECT_ALIGNMENT_BYTES = 8;
+    private static final int MAX_LATIN1_CHAR = 0xFF;
+
+    @Param({"1000000", "4000000"})
+    public int inventorySize;
+
+    private List<Novel> novels;
+    private TitleDictionary titleDictionary;
+    private String misspelledTitle;
+
+    /**
+     * Builds the dictionary, picks the misspelled title and reports the dictionary's footprint next to the titles'.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final String title;
+        final long heapBeforeDictionary;
+        final long heapAfterDictionary;
+        final long titleStringBytes;
+        long titleChars;
+
+        this.novels = SyntheticCatalogue.generate(this.inventorySize);
+        title = this.novels.get(this.inventorySize / 2).getTitle();
+        this.misspelledTitle = title.substring(0, DROPPED_CHARACTER) + title.substring(DROPPED_CHARACTER + 1);
+        titleChars = 0;
+
+        for (final Novel novel : this.novels)
+        {
+            titleChars += novel.getTitle().length();
+        }
+
+        titleStringBytes = titleStringBytes(this.novels);
+        heapBeforeDictionary = usedHeap();
+        this.titleDictionary = new TitleDictionary(this.novels);
+        heapAfterDictionary = usedHeap();
+
+        System.err.printf("%nTitles %d, states %d, transitions %d%n",
+                          this.titleDictionary.getTitleCount(),
+                          this.titleDictionary.getStateCount(),
+                          this.titleDictionary.getTransitionCount());
+        System.err.printf("Per novel: title chars %.1f, title String bytes %.1f, dictionary bytes %.1f (arrays %.1f)%n",
+                          (double) titleChars / this.inventorySize,
+                          (double) titleStringBytes / this.inventorySize,
+                          (double) (heapAfterDictionary - heapBeforeDictionary) / this.inventorySize,
+                          (double) this.titleDictionary.getMemoryBytes() / this.inventorySize);
+    }
+
+    @Benchmark
+    public List<String> completeTitle()
+    {
+        return this.titleDictionary.completeTitle(PREFIX, SUGGESTIONS);
+    }
+
+    @Benchmark
+    public int howManyBooksStartWith()
+    {
+        return this.titleDictionary.howManyBooksStartWith(PREFIX);
+    }
+
+    @Benchmark
+    public List<Novel> getBooksSimilarToOneEdit()
+    {
+        return this.titleDictionary.getBooksSimilarTo(this.misspelledTitle, ONE_EDIT);
+    }
+
+    @Benchmark
+    public List<Novel> getBooksSimilarToTwoEdits()
+    {
+        return this.titleDictionary.getBooksSimilarTo(this.misspelledTitle, TWO_EDITS);
+    }
+
+    /*
+     * Adds up the heap each Novel's title String retains, laid out as on a 64-bit JVM with compressed pointers:
+     * the String object itself, and its byte array with one byte per char, or two if any char needs more than one.
+     *
+     * @param novels the Novels whose titles to measure
+     *
+     * @return the number of bytes the title Strings retain
+     */
+    private static long titleStringBytes(final List<Novel> novels)
+    {
+        long bytes;
+        bytes = 0L;
+
+        for (final Novel novel : novels)
+        {
+            final String title;
+            final boolean latin1;
+            final int bytesPerChar;
+
+            title = novel.getTitle();
+            latin1 = title.chars().allMatch(character -> character <= MAX_LATIN1_CHAR);
+            bytesPerChar = latin1 ? Byte.BYTES : Character.BYTES;
+            bytes += STRING_BYTES + align(ARRAY_HEADER_BYTES + (long) title.length() * bytesPerChar);
+        }
+
+        return bytes;
+    }
+
+    /*
+     * Rounds an object's size up to the JVM's object alignment.
+     *
+     * @param bytes the object's unaligned size
+     *
+     * @return the heap the object takes
+     */
+    private static long align(final long bytes)
+    {
+        return (bytes + OBJECT_ALIGNMENT_BYTES - 1) / OBJECT_ALIGNMENT_BYTES * OBJECT_ALIGNMENT_BYTES;
+    }
+
+    /*
+     * Estimates the heap in use after asking the JVM to collect garbage.
+     *
+     * @return the approximate number of bytes of live heap
+     */
+    private static long usedHeap()
+    {
+        final Runtime runtime;
+        runtime = Runtime.getRuntime();
+
+        for (int pass = 0; pass < GC_PASSES; pass++)
+        {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,206 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Approximate statistics for a Bookstore, kept up to date as Novels are added and removed. A Count-Min sketch
+ * counts the titles containing each word, and a HyperLogLog estimates the number of distinct authors. Both are
+ * sized by the error bound alone, so the sketch takes the same memory for a hundred Novels as for a hundred
+ * million.
+ * <p>
+ * Words are the runs of letters and digits in a title, compared with exact case, and a title containing a word
+ * more than once counts once. Removing a Novel takes its words out of the Count-Min sketch, but a HyperLogLog
+ * cannot forget, so removed Novels' authors stay in the distinct author estimate.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class AnalyticsSketch
+{
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIX_MULTIPLIER_1 = 0xff51afd7ed558ccdL;
+    private static final long MIX_MULTIPLIER_2 = 0xc4ceb9fe1a85ec53L;
+    private static final int MIX_SHIFT = 33;
+    private static final int ADDED = 1;
+    private static final int REMOVED = -1;
+
+    private final CountMinSketch titleWords;
+    private final HyperLogLog authors;
+
+    /**
+     * Constructs a new, empty AnalyticsSketch.
+     *
+     * @param relativeError the error bound for both sketches, as a fraction
+     * @param failureProbability the chance a word count exceeds its error bound
+     */
+    AnalyticsSketch(final double relativeError,
+                    final double failureProbability)
+    {
+        this.titleWords = new CountMinSketch(relativeError, failureProbability);
+        this.authors = new HyperLogLog(relativeError);
+    }
+
+    /*
+     * Constructs an AnalyticsSketch with the same counts and registers as another.
+     *
+     * @param original the sketch to copy
+     */
+    private AnalyticsSketch(final AnalyticsSketch original)
+    {
+        this.titleWords = original.titleWords.copy();
+        this.authors = original.authors.copy();
+    }
+
+    /**
+     * Copies the sketch, so the copy can be changed without affecting this one.
+     *
+     * @return a new AnalyticsSketch with the same estimates
+     */
+    AnalyticsSketch copy()
+    {
+        return new AnalyticsSketch(this);
+    }
+
+    /**
+     * Records a Novel being added to the inventory.
+     *
+     * @param novel the Novel that was added
+     */
+    void add(final Novel novel)
+    {
+        countWords(novel.getTitle(), ADDED);
+        this.authors.add(hash(novel.getAuthorName()));
+    }
+
+    /**
+     * Records a Novel being removed from the inventory. Only the word counts change.
+     *
+     * @param novel the Novel that was removed
+     */
+    void remove(final Novel novel)
+    {
+        countWords(novel.getTitle(), REMOVED);
+    }
+
+    /**
+     * Estimates the number of titles containing the given word. The estimate is never too low.
+     *
+     * @param word the word to count, matched as a whole word with exact case
+     *
+     * @return the estimated number of titles
+     */
+    int estimateTitlesContaining(final String word)
+    {
+        return this.titleWords.estimate(hash(word));
+    }
+
+    /**
+     * Estimates the number of distinct authors of every Novel added.
+     *
+     * @return the estimated number of authors
+     */
+    long estimateDistinctAuthors()
+    {
+        return this.authors.estimate();
+    }
+
+    /**
+     * Returns the memory held by both sketches.
+     *
+     * @return the size of the sketches in bytes
+     */
+    long getMemoryBytes()
+    {
+        return this.titleWords.getMemoryBytes() + this.authors.getMemoryBytes();
+    }
+
+    /*
+     * Adds to or takes from the count of each distinct word in a title.
+     *
+     * @param title the title to split into words
+     * @param delta ADDED or REMOVED
+     */
+    private void countWords(final String title,
+                            final int delta)
+    {
+        final List<String> words;
+        int index;
+
+        words = new ArrayList<>();
+        index = 0;
+
+        while (index < title.length())
+        {
+            if (!isWordCodePoint(title, index))
+            {
+                index += Character.charCount(title.codePointAt(index));
+                continue;
+            }
+
+            final int wordStart;
+            final String word;
+
+            wordStart = index;
+
+            while (index < title.length() &&
+                   isWordCodePoint(title, index))
+            {
+                index += Character.charCount(title.codePointAt(index));
+            }
+
+            word = title.substring(wordStart, index);
+
+            if (!words.contains(word))
+            {
+                words.add(word);
+                this.titleWords.add(hash(word), delta);
+            }
+        }
+    }
+
+    /*
+     * Determines whether the code point at an index of a title is part of a word.
+     *
+     * @param title the title
+     * @param index the index of the code point
+     *
+     * @return true if the code point is a letter or digit, false otherwise
+     */
+    private static boolean isWordCodePoint(final String title,
+                                           final int index)
+    {
+        return Character.isLetterOrDigit(title.codePointAt(index));
+    }
+
+    /*
+     * Hashes a String to 64 bits with FNV-1a over its chars, followed by the MurmurHash3 finalizer so every bit of
+     * the result depends on every char.
+     *
+     * @param text the String to hash
+     *
+     * @return the 64-bit hash
+     */
+    private static long hash(final String text)
+    {
+        long hash;
+        hash = FNV_OFFSET_BASIS;
+
+        for (int index = 0; index < text.length(); index++)
+        {
+            hash ^= text.charAt(index);
+            hash *= FNV_PRIME;
+        }
+
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER_1;
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER_2;
+        hash ^= hash >>> MIX_SHIFT;
+
+        return hash;
+    }
+}
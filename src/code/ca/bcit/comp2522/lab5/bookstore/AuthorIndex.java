@@ -0,0 +1,197 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Indexes the Novels in a Bookstore by author. Every distinct author name is given an integer ID the first time it
+ * is seen, and each ID has a posting list of that author's Novels in inventory order.
+ * <p>
+ * A copy of the index shares its posting lists with the original, marking every one as shared in both, and an
+ * index copies a shared posting list before its first change to it.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class AuthorIndex
+{
+    private static final int NO_BOOKS = 0;
+
+    private final Map<String, Integer> authorIds;
+    private final List<String> authorNames;
+    private final List<List<Novel>> postings;
+    private final BitSet sharedPostings;
+
+    /**
+     * Constructs a new, empty AuthorIndex.
+     */
+    AuthorIndex()
+    {
+        this.authorIds = new HashMap<>();
+        this.authorNames = new ArrayList<>();
+        this.postings = new ArrayList<>();
+        this.sharedPostings = new BitSet();
+    }
+
+    /*
+     * Constructs an AuthorIndex holding the same authors and Novels as another, sharing its posting lists.
+     *
+     * @param original the index to copy
+     */
+    private AuthorIndex(final AuthorIndex original)
+    {
+        this.authorIds = new HashMap<>(original.authorIds);
+        this.authorNames = new ArrayList<>(original.authorNames);
+        this.postings = new ArrayList<>(original.postings);
+        this.sharedPostings = new BitSet();
+
+        this.sharedPostings.set(0, this.postings.size());
+        original.sharedPostings.set(0, original.postings.size());
+    }
+
+    /**
+     * Copies the index, sharing its posting lists until either index changes them.
+     *
+     * @return a new AuthorIndex holding the same authors and Novels
+     */
+    AuthorIndex copy()
+    {
+        return new AuthorIndex(this);
+    }
+
+    /**
+     * Adds a Novel to its author's posting list, assigning the author an ID if they are new.
+     *
+     * @param novel the Novel to index
+     */
+    void add(final Novel novel)
+    {
+        final String authorName;
+        final Integer existingId;
+
+        authorName = novel.getAuthorName();
+        existingId = this.authorIds.get(authorName);
+
+        if (existingId != null)
+        {
+            ownedPosting(existingId).add(novel);
+            return;
+        }
+
+        final List<Novel> posting;
+        posting = new ArrayList<>();
+        posting.add(novel);
+
+        this.authorIds.put(authorName, this.authorNames.size());
+        this.authorNames.add(authorName);
+        this.postings.add(posting);
+    }
+
+    /**
+     * Removes a Novel from its author's posting list. The author keeps their ID.
+     *
+     * @param novel the Novel to stop indexing
+     */
+    void remove(final Novel novel)
+    {
+        final Integer authorId;
+        authorId = this.authorIds.get(novel.getAuthorName());
+
+        if (authorId != null)
+        {
+            ownedPosting(authorId).remove(novel);
+        }
+    }
+
+    /**
+     * Returns the Novels written by the given author.
+     *
+     * @param authorName the author's name, matched exactly
+     *
+     * @return a read-only view of the author's Novels in inventory order, empty if the author is unknown
+     */
+    List<Novel> booksBy(final String authorName)
+    {
+        final Integer authorId;
+        authorId = this.authorIds.get(authorName);
+
+        if (authorId == null)
+        {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(this.postings.get(authorId));
+    }
+
+    /**
+     * Returns the names of the authors with the most Novels, most prolific first. Authors with the same number of
+     * Novels are ordered by when they were first indexed.
+     *
+     * @param count the maximum number of authors to return
+     *
+     * @return the names of up to count authors who have at least one Novel
+     */
+    List<String> mostProlific(final int count)
+    {
+        final Comparator<Integer> byProlificness;
+        final PriorityQueue<Integer> leastProlificFirst;
+        final List<String> mostProlificAuthors;
+
+        byProlificness = Comparator.<Integer>comparingInt(authorId -> this.postings.get(authorId).size())
+                                   .thenComparing(Comparator.reverseOrder());
+        leastProlificFirst = new PriorityQueue<>(byProlificness);
+
+        for (int authorId = 0; authorId < this.authorNames.size() && count > NO_BOOKS; authorId++)
+        {
+            if (this.postings.get(authorId).size() == NO_BOOKS)
+            {
+                continue;
+            }
+
+            leastProlificFirst.add(authorId);
+
+            if (leastProlificFirst.size() > count)
+            {
+                leastProlificFirst.poll();
+            }
+        }
+
+        mostProlificAuthors = new ArrayList<>(leastProlificFirst.size());
+
+        while (!leastProlificFirst.isEmpty())
+        {
+            mostProlificAuthors.add(this.authorNames.get(leastProlificFirst.poll()));
+        }
+
+        Collections.reverse(mostProlificAuthors);
+
+        return mostProlificAuthors;
+    }
+
+    /*
+     * Returns an author's posting list that this index may change, copying it first if it is shared with another
+     * index.
+     *
+     * @param authorId the author's ID
+     *
+     * @return the author's posting list, owned by this index
+     */
+    private List<Novel> ownedPosting(final int authorId)
+    {
+        if (this.sharedPostings.get(authorId))
+        {
+            this.postings.set(authorId, new ArrayList<>(this.postings.get(authorId)));
+            this.sharedPostings.clear(authorId);
+        }
+
+        return this.postings.get(authorId);
+    }
+}
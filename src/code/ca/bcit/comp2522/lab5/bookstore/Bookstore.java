@@ -1,8 +1,19 @@
 package ca.bcit.comp2522.lab5.bookstore;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Collections;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import ca.bcit.comp2522.lab5.bookstore.BookstoreMetrics.Query;
 
 /**
  * Represents the entire contents of the bookstore. A Bookstore holds Novels. Contains a main() method which
@@ -15,313 +26,1685 @@ import java.util.Collections;
  */
 public final class Bookstore
 {
-    private static final int MIN_NUM_BOOKS_CONTAINING_WORD = 0;
-    private static final int MIN_BOOKS_IN_RANGE = 0;
     private static final int YEARS_PER_DECADE = 10;
     private static final int YEARS_PER_CENTURY = 100;
     private static final double NONE_PERCENTAGE = 0.0;
     private static final double PERCENT_CONVERSION_FACTOR = 100.0;
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+    private static final int MIN_PARALLEL_THRESHOLD = 1;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int DEFAULT_QUERY_CACHE_CAPACITY = 256;
+    private static final long INITIAL_INVENTORY_VERSION = 0L;
+    private static final long NOT_TIMED = 0L;
+    private static final int NO_ROWS = 0;
+    private static final int ONE_ROW = 1;
+    private static final int OLDEST = 1;
+    private static final int MIN_COUNT = 0;
+    private static final double MIN_ERROR_BOUND = 0.0;
+    private static final double MAX_ERROR_BOUND = 1.0;
+    private static final String HOW_MANY_BOOKS_CONTAIN = "howManyBooksContain";
+    private static final String WHICH_PERCENT_WRITTEN_BETWEEN = "whichPercentWrittenBetween";
+    private static final String GET_OLDEST_BOOK = "getOldestBook";
+    private static final String GET_MOST_PROLIFIC_AUTHORS = "getMostProlificAuthors";
+
+    /*
+     * Writes the output of a print method to an Appendable.
+     */
+    @FunctionalInterface
+    private interface TitlePrinter
+    {
+        void printTo(Appendable out) throws IOException;
+    }
 
     private final String storeName;
     private final List<Novel> inventory;
+    private final YearIndex yearIndex;
+    private final TitleIndex titleIndex;
+    private final TitleOrder titleOrder;
+    private final AuthorIndex authorIndex;
+    private final TitleLengthIndex titleLengthIndex;
+    private final PeriodIndex decadeIndex;
+    private final PeriodIndex centuryIndex;
+    private final QueryCache queryCache;
+
+    private int parallelThreshold;
+    private long inventoryVersion;
+    private BookstoreMetrics metrics;
+    private AnalyticsSketch analyticsSketch;
+    private MutationLog mutationLog;
+
+    /**
+     * Constructs a new Bookstore with the given name and a predetermined initial inventory of Novels.
+     *
+     * @param storeName The name of the Bookstore to construct
+     */
+    public Bookstore(final String storeName)
+    {
+        this(storeName, Collections.emptyList());
+
+        populateInventory();
+    }
+
+    /**
+     * Constructs a new Bookstore with the given name, stocked with the given Novels in order.
+     *
+     * @param storeName The name of the Bookstore to construct
+     * @param novels The Novels to stock the Bookstore with
+     */
+    public Bookstore(final String storeName,
+                     final Collection<Novel> novels)
+    {
+        this(storeName, novels, null);
+    }
+
+    /*
+     * Constructs a new Bookstore with the given name, stocked with the given Novels in order, whose alphabetical
+     * order of title is already known, such as a Bookstore reloaded from a snapshot.
+     *
+     * @param storeName The name of the Bookstore to construct
+     * @param novels The Novels to stock the Bookstore with
+     * @param novelsInTitleOrder The same Novels in alphabetical order of title, as a stable sort of novels would
+     *                           leave them, or null to sort them here
+     */
+    Bookstore(final String storeName,
+              final Collection<Novel> novels,
+              final List<Novel> novelsInTitleOrder)
+    {
+        validateStoreName(storeName);
+        validateNovels(novels);
+
+        this.storeName = storeName;
+
+        this.inventory = new ArrayList<>();
+        this.yearIndex = new YearIndex();
+        this.titleIndex = new TitleIndex();
+        this.titleOrder = new TitleOrder();
+        this.authorIndex = new AuthorIndex();
+        this.titleLengthIndex = new TitleLengthIndex();
+        this.decadeIndex = new PeriodIndex(YEARS_PER_DECADE);
+        this.centuryIndex = new PeriodIndex(YEARS_PER_CENTURY);
+        this.queryCache = new QueryCache(DEFAULT_QUERY_CACHE_CAPACITY);
+        this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        this.inventoryVersion = INITIAL_INVENTORY_VERSION;
+        this.metrics = null;
+        this.mutationLog = null;
+
+        for (final Novel novel : novels)
+        {
+            validateNovel(novel);
+            validateNotStocked(novel);
+
+            this.inventory.add(novel);
+
+            indexNovelUnordered(novel);
+        }
+
+        if (novelsInTitleOrder == null)
+        {
+            this.titleOrder.addAll(this.inventory);
+        }
+        else
+        {
+            this.titleOrder.addAllSorted(novelsInTitleOrder);
+        }
+    }
+
+    /*
+     * Constructs a new Bookstore holding the same inventory, indexes, metrics and analytics as another, with an
+     * empty query cache of the same capacity and no MutationLog. The indexes share their largest parts with the
+     * original's until either Bookstore changes them, so copying costs a pass over the inventory rather than a
+     * rebuild of every index.
+     *
+     * @param original the Bookstore to copy
+     */
+    private Bookstore(final Bookstore original)
+    {
+        this.storeName = original.storeName;
+
+        this.inventory = new ArrayList<>(original.inventory);
+        this.yearIndex = original.yearIndex.copy();
+        this.titleIndex = original.titleIndex.copy();
+        this.titleOrder = original.titleOrder.copy();
+        this.authorIndex = original.authorIndex.copy();
+        this.titleLengthIndex = original.titleLengthIndex.copy();
+        this.decadeIndex = original.decadeIndex.copy();
+        this.centuryIndex = original.centuryIndex.copy();
+        this.queryCache = new QueryCache(original.queryCache.statistics().getCapacity());
+        this.parallelThreshold = original.parallelThreshold;
+        this.inventoryVersion = original.inventoryVersion;
+        this.metrics = original.metrics;
+        this.mutationLog = null;
+
+        if (original.analyticsSketch == null)
+        {
+            this.analyticsSketch = null;
+        }
+        else
+        {
+            this.analyticsSketch = original.analyticsSketch.copy();
+        }
+    }
+
+    /**
+     * Accessor for the name of this Bookstore.
+     *
+     * @return the store name
+     */
+    public String getStoreName()
+    {
+        return this.storeName;
+    }
+
+    /**
+     * Returns the number of Novels in the inventory.
+     *
+     * @return the inventory size
+     */
+    public int size()
+    {
+        return this.inventory.size();
+    }
+
+    /**
+     * Sets the inventory size at which full-scan queries switch from a sequential loop to a parallel reduction over
+     * the common fork-join pool. Both paths return exactly the same results.
+     *
+     * @param parallelThreshold the smallest inventory size to scan in parallel
+     */
+    public void setParallelThreshold(final int parallelThreshold)
+    {
+        validateParallelThreshold(parallelThreshold);
+
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Sets the most query results the bookstore caches. Results are cached by query and arguments, roughly the
+     * least recently used result is evicted when the cache is full, and every cached result is dropped when the
+     * inventory changes.
+     *
+     * @param capacity the most results to cache; 0 disables caching
+     */
+    public void setQueryCacheCapacity(final int capacity)
+    {
+        this.queryCache.setCapacity(capacity);
+    }
+
+    /**
+     * Returns the query cache's hit, miss and eviction counts.
+     *
+     * @return a snapshot of the query cache's statistics
+     */
+    public QueryCacheStatistics getQueryCacheStatistics()
+    {
+        return this.queryCache.statistics();
+    }
+
+    /**
+     * Starts recording query metrics into the given BookstoreMetrics, or stops recording them if it is null. While
+     * no metrics are set, queries record nothing. Metrics must be set before the Bookstore is shared between
+     * threads.
+     *
+     * @param metrics where to record query metrics, or null to stop recording
+     */
+    public void setMetrics(final BookstoreMetrics metrics)
+    {
+        this.metrics = metrics;
+
+        if (metrics != null)
+        {
+            metrics.recordInventorySize(this.inventory.size());
+        }
+    }
+
+    /**
+     * Starts keeping approximate analytics, sketched from the current inventory and kept up to date as books are
+     * added and removed. The sketches take memory set by the error bounds alone: about e / relativeError times
+     * ln(1 / failureProbability) counters for word counts, and (1.04 / relativeError) squared bytes for distinct
+     * authors. Enabling analytics again rebuilds the sketches with the new bounds.
+     *
+     * @param relativeError the most a word count may be too high, as a fraction of all title words, and the
+     *                      standard error of the distinct author count, as a fraction of the true count
+     * @param failureProbability the chance a word count exceeds its bound
+     */
+    public void enableApproximateAnalytics(final double relativeError,
+                                           final double failureProbability)
+    {
+        validateErrorBound(relativeError);
+        validateErrorBound(failureProbability);
+
+        final AnalyticsSketch sketch;
+        sketch = new AnalyticsSketch(relativeError, failureProbability);
+
+        for (final Novel novel : this.inventory)
+        {
+            sketch.add(novel);
+        }
+
+        this.analyticsSketch = sketch;
+    }
+
+    /**
+     * Stops keeping approximate analytics and frees the sketches.
+     */
+    public void disableApproximateAnalytics()
+    {
+        this.analyticsSketch = null;
+    }
+
+    /**
+     * Starts a query over the whole inventory. Conditions added to the query are checked together in one pass
+     * when a result is asked for, so the Bookstore must not be changed until the query has finished.
+     *
+     * @return a NovelQuery that matches every Novel until conditions are added
+     */
+    public NovelQuery query()
+    {
+        return new NovelQuery(Collections.unmodifiableList(this.inventory),
+                              this.yearIndex,
+                              this.titleIndex,
+                              this.authorIndex,
+                              this.titleLengthIndex,
+                              scanInParallel());
+    }
+
+    /**
+     * Adds a Novel to the bookstore's inventory. Each Novel instance may only be stocked once; add a separate
+     * Novel for each copy of a book. If the Bookstore was recovered from a MutationLog, the addition is logged
+     * before it is made.
+     *
+     * @param novel the Novel to add
+     *
+     * @throws UncheckedIOException if the addition cannot be logged, in which case it is not made
+     */
+    public void addNovel(final Novel novel)
+    {
+        validateNovel(novel);
+        validateNotStocked(novel);
+
+        if (this.mutationLog != null)
+        {
+            this.mutationLog.logAddition(this.inventory.size(), novel);
+        }
+
+        this.inventory.add(novel);
+
+        indexNovel(novel);
+    }
+
+    /**
+     * Removes a Novel from the bookstore's inventory. The Novel is matched by identity, not by its contents. If
+     * the Bookstore was recovered from a MutationLog, the removal is logged before it is made.
+     *
+     * @param novel the Novel to remove
+     *
+     * @return true if the Novel was in the inventory and has been removed, false otherwise
+     *
+     * @throws UncheckedIOException if the removal cannot be logged, in which case it is not made
+     */
+    public boolean removeNovel(final Novel novel)
+    {
+        validateNovel(novel);
+
+        if (!this.titleIndex.contains(novel))
+        {
+            return false;
+        }
+
+        final int row;
+        row = indexOfNovel(novel);
+
+        if (this.mutationLog != null)
+        {
+            this.mutationLog.logRemoval(row, novel);
+        }
+
+        this.inventory.remove(row);
+
+        unindexNovel(novel);
+
+        return true;
+    }
+
+    /**
+     * Prints the title of every novel in the bookstore in all UPPERCASE.
+     */
+    public void printAllTitles()
+    {
+        printToConsole(this::printAllTitles);
+    }
+
+    /**
+     * Writes the title of every novel in the bookstore in all UPPERCASE, one per line. Titles are upper-cased one
+     * character at a time as they are written, so no upper-case copy of any title is made; characters whose upper
+     * case is more than one character long, such as the German sharp s, are left as they are.
+     *
+     * @param out where to write the titles
+     *
+     * @throws IOException if the titles cannot be written
+     */
+    public void printAllTitles(final Appendable out) throws IOException
+    {
+        final long startNanos;
+        startNanos = startQuery();
+
+        for (final Novel novel : this.inventory)
+        {
+            appendUpperCase(out, novel.getTitle());
+            out.append(LINE_SEPARATOR);
+        }
+
+        recordRowsScanned(Query.PRINT_ALL_TITLES, this.inventory.size());
+        finishQuery(Query.PRINT_ALL_TITLES, startNanos, this.inventory.size());
+    }
+
+    /**
+     * Prints the titles of all books that contain the given String
+     *
+     * @param title the String to search for in the book titles
+     */
+    public void printBookTitle(final String title)
+    {
+        printToConsole(out -> printBookTitle(title, out));
+    }
+
+    /**
+     * Writes the titles of all books that contain the given String, ignoring case, one per line.
+     *
+     * @param title the String to search for in the book titles
+     * @param out where to write the titles
+     *
+     * @throws IOException if the titles cannot be written
+     */
+    public void printBookTitle(final String title,
+                               final Appendable out) throws IOException
+    {
+        final long startNanos;
+        final NovelQuery booksContainingTitle;
+        final List<Novel> matches;
+
+        startNanos = startQuery();
+        booksContainingTitle = query().titleContainsIgnoreCase(title);
+        matches = booksContainingTitle.toList();
+
+        for (final Novel novel : matches)
+        {
+            final String novelTitle;
+            novelTitle = novel.getTitle();
+
+            out.append(novelTitle).append(LINE_SEPARATOR);
+        }
+
+        recordRowsScanned(Query.PRINT_BOOK_TITLE, booksContainingTitle.candidateCount());
+        finishQuery(Query.PRINT_BOOK_TITLE, startNanos, matches.size());
+    }
+
+    /**
+     * Prints all titles in alphabetical order. The alphabetical order is maintained as Novels are added and
+     * removed, so nothing is copied or sorted here. The original inventory instance variable is not changed.
+     */
+    public void printTitlesInAlphaOrder()
+    {
+        printToConsole(this::printTitlesInAlphaOrder);
+    }
+
+    /**
+     * Writes all titles in alphabetical order, one per line.
+     *
+     * @param out where to write the titles
+     *
+     * @throws IOException if the titles cannot be written
+     */
+    public void printTitlesInAlphaOrder(final Appendable out) throws IOException
+    {
+        final long startNanos;
+        final List<Novel> alphabeticalInventory;
+
+        startNanos = startQuery();
+        alphabeticalInventory = this.titleOrder.inOrder();
+
+        for (final Novel novel : alphabeticalInventory)
+        {
+            final String title;
+            title = novel.getTitle();
+
+            out.append(title).append(LINE_SEPARATOR);
+        }
+
+        recordRowsScanned(Query.PRINT_TITLES_IN_ALPHA_ORDER, alphabeticalInventory.size());
+        finishQuery(Query.PRINT_TITLES_IN_ALPHA_ORDER, startNanos, alphabeticalInventory.size());
+    }
+
+    /**
+     * Returns all books in the bookstore whose titles start with the given prefix, ignoring case.
+     *
+     * @param prefix the start of the titles to find
+     *
+     * @return a List of the matching novels in alphabetical order of title
+     */
+    public List<Novel> getBooksStartingWith(final String prefix)
+    {
+        final long startNanos;
+        final List<Novel> matches;
+
+        startNanos = startQuery();
+        matches = List.copyOf(this.titleOrder.startingWith(prefix));
+
+        recordRowsScanned(Query.GET_BOOKS_STARTING_WITH, matches.size());
+        finishQuery(Query.GET_BOOKS_STARTING_WITH, startNanos, matches.size());
+
+        return matches;
+    }
+
+    /**
+     * Returns the first books in alphabetical order of title, without sorting or copying the rest of the inventory.
+     *
+     * @param count the most books to return
+     *
+     * @return a read-only List of up to count novels in alphabetical order of title
+     */
+    public List<Novel> getBooksInAlphaOrder(final int count)
+    {
+        return getBooksInAlphaOrderAfter(null, count);
+    }
+
+    /**
+     * Returns the next page of books in alphabetical order of title, following the last book of the previous page.
+     * Each page is found by binary search on the cursor's title, so deep pages cost no more than the first. If the
+     * cursor has been removed since its page was returned, paging carries on after its title.
+     *
+     * @param cursor the last novel of the previous page, or null for the first page
+     * @param count the most books to return
+     *
+     * @return a read-only List of up to count novels in alphabetical order of title
+     */
+    public List<Novel> getBooksInAlphaOrderAfter(final Novel cursor,
+                                                 final int count)
+    {
+        validateCount(count);
+
+        final long startNanos;
+        final List<Novel> page;
+
+        startNanos = startQuery();
+        page = this.titleOrder.page(cursor, count);
+
+        recordRowsScanned(Query.GET_BOOKS_IN_ALPHA_ORDER, page.size());
+        finishQuery(Query.GET_BOOKS_IN_ALPHA_ORDER, startNanos, page.size());
+
+        return page;
+    }
+
+    /**
+     * Prints the titles of all books in the bookstore that were printed in the given decade. A decade is
+     * considered to extend from the zeroth to ninth year; for example, books printed from 2000 to 2009, inclusive,
+     * are considered to have been printed in the 2000s.
+     *
+     * @param decade The decade of books to print, as an integer year. This value will be rounded down to the nearest
+     *               decade, so the function will consider the target decade to be the decade containing the input year.
+     */
+    public void printGroupByDecade(final int decade)
+    {
+        printToConsole(out -> printGroupByDecade(decade, out));
+    }
+
+    /**
+     * Writes the titles of all books in the bookstore that were printed in the given decade, one per line. The
+     * decade is interpreted the same way as by printGroupByDecade(int).
+     *
+     * @param decade The decade of books to print, as an integer year.
+     * @param out where to write the titles
+     *
+     * @throws IOException if the titles cannot be written
+     */
+    public void printGroupByDecade(final int decade,
+                                   final Appendable out) throws IOException
+    {
+        final long startNanos;
+        final List<Novel> booksInDecade;
+
+        startNanos = startQuery();
+        booksInDecade = this.decadeIndex.publishedIn(decade);
+
+        for (final Novel novel : booksInDecade)
+        {
+            out.append(novel.getTitle()).append(LINE_SEPARATOR);
+        }
+
+        recordRowsScanned(Query.PRINT_GROUP_BY_DECADE, booksInDecade.size());
+        finishQuery(Query.PRINT_GROUP_BY_DECADE, startNanos, booksInDecade.size());
+    }
+
+    /**
+     * Returns all books in the bookstore that were printed in the decade containing the given year. Decades run
+     * from the zeroth to the ninth year, so 1955 gives the books printed from 1950 to 1959, inclusive.
+     *
+     * @param year any year in the decade
+     *
+     * @return a read-only List of the decade's novels in inventory order
+     */
+    public List<Novel> getBooksInDecade(final int year)
+    {
+        final long startNanos;
+        final List<Novel> booksInDecade;
+
+        startNanos = startQuery();
+        booksInDecade = List.copyOf(this.decadeIndex.publishedIn(year));
+
+        recordRowsScanned(Query.GET_BOOKS_IN_DECADE, booksInDecade.size());
+        finishQuery(Query.GET_BOOKS_IN_DECADE, startNanos, booksInDecade.size());
+
+        return booksInDecade;
+    }
+
+    /**
+     * Returns all books in the bookstore that were printed in the century containing the given year. Centuries run
+     * from the zeroth to the ninety-ninth year, so 1955 gives the books printed from 1900 to 1999, inclusive.
+     *
+     * @param year any year in the century
+     *
+     * @return a read-only List of the century's novels in inventory order
+     */
+    public List<Novel> getBooksInCentury(final int year)
+    {
+        final long startNanos;
+        final List<Novel> booksInCentury;
+
+        startNanos = startQuery();
+        booksInCentury = List.copyOf(this.centuryIndex.publishedIn(year));
+
+        recordRowsScanned(Query.GET_BOOKS_IN_CENTURY, booksInCentury.size());
+        finishQuery(Query.GET_BOOKS_IN_CENTURY, startNanos, booksInCentury.size());
+
+        return booksInCentury;
+    }
+
+    /**
+     * Counts the books printed in each decade from the decade containing firstYear to the decade containing
+     * lastYear. The counts are kept up to date as books are added and removed, so each decade costs constant time
+     * however large the inventory is.
+     *
+     * @param firstYear a year in the first decade to count
+     * @param lastYear a year in the last decade to count
+     *
+     * @return a read-only Map from the first year of each decade to its number of books, in chronological order,
+     *         including decades with no books
+     */
+    public Map<Integer, Integer> getBooksPerDecade(final int firstYear,
+                                                   final int lastYear)
+    {
+        final long startNanos;
+        final Map<Integer, Integer> booksPerDecade;
+
+        startNanos = startQuery();
+        booksPerDecade = this.decadeIndex.countsBetween(firstYear, lastYear);
+
+        finishQuery(Query.GET_BOOKS_PER_DECADE, startNanos, booksPerDecade.size());
+
+        return booksPerDecade;
+    }
+
+    /**
+     * Counts the books printed in each century from the century containing firstYear to the century containing
+     * lastYear, in constant time per century.
+     *
+     * @param firstYear a year in the first century to count
+     * @param lastYear a year in the last century to count
+     *
+     * @return a read-only Map from the first year of each century to its number of books, in chronological order,
+     *         including centuries with no books
+     */
+    public Map<Integer, Integer> getBooksPerCentury(final int firstYear,
+                                                    final int lastYear)
+    {
+        final long startNanos;
+        final Map<Integer, Integer> booksPerCentury;
+
+        startNanos = startQuery();
+        booksPerCentury = this.centuryIndex.countsBetween(firstYear, lastYear);
+
+        finishQuery(Query.GET_BOOKS_PER_CENTURY, startNanos, booksPerCentury.size());
+
+        return booksPerCentury;
+    }
+
+    /**
+     * Returns the longest title in the inventory. When several titles share the longest length, the first one
+     * stocked is returned.
+     *
+     * @return the String of the longest book title
+     */
+    public String getLongest()
+    {
+        final long startNanos;
+        final Novel longestNovel;
+
+        startNanos = startQuery();
+        longestNovel = this.titleLengthIndex.longest();
+
+        finishQuery(Query.GET_LONGEST, startNanos, ONE_ROW);
+
+        return longestNovel.getTitle();
+    }
+
+    /**
+     * Returns the books with the longest titles, longest first. Books with titles of the same length are listed in
+     * the order they were stocked. Only the posting lists of the longest lengths are read.
+     *
+     * @param count the most books to return
+     *
+     * @return a read-only List of up to count novels
+     */
+    public List<Novel> getLongestBooks(final int count)
+    {
+        validateCount(count);
+
+        final long startNanos;
+        final List<Novel> longestBooks;
+
+        startNanos = startQuery();
+        longestBooks = List.copyOf(this.titleLengthIndex.longest(count));
+
+        recordRowsScanned(Query.GET_LONGEST_BOOKS, longestBooks.size());
+        finishQuery(Query.GET_LONGEST_BOOKS, startNanos, longestBooks.size());
+
+        return longestBooks;
+    }
+
+    /**
+     * Determines whether the bookstore has a book written in the given year.
+     *
+     * @param year the year to find a book written in
+     *
+     * @return true if the bookstore has a book written that year, false otherwise.
+     */
+    public boolean isThereABookWrittenIn(final int year)
+    {
+        final long startNanos;
+        final boolean bookWrittenInYear;
+
+        startNanos = startQuery();
+        bookWrittenInYear = this.yearIndex.contains(year);
+
+        finishQuery(Query.IS_THERE_A_BOOK_WRITTEN_IN, startNanos, NO_ROWS);
+
+        return bookWrittenInYear;
+    }
+
+    /**
+     * Returns the number of book titles containing a provided String word.
+     *
+     * @param word is the String that book titles contain
+     *
+     * @return int representing number of books containing word
+     */
+    public int howManyBooksContain(final String word)
+    {
+        final long startNanos;
+        final int booksContainingWord;
+
+        startNanos = startQuery();
+        booksContainingWord = this.queryCache.get(this.inventoryVersion,
+                                                  () -> countBooksContaining(word),
+                                                  HOW_MANY_BOOKS_CONTAIN, word);
+
+        finishQuery(Query.HOW_MANY_BOOKS_CONTAIN, startNanos, NO_ROWS);
+
+        return booksContainingWord;
+    }
+
+    /**
+     * Estimates the number of book titles containing the given word, without looking at the inventory. Unlike
+     * howManyBooksContain, the word must appear as a whole word: a run of letters and digits, matched with exact
+     * case. The estimate is never too low, and is too high by more than the relative error times the number of
+     * words in all titles only with the failure probability given when analytics were enabled.
+     *
+     * @param word the word to count
+     *
+     * @return the estimated number of books whose titles contain word
+     *
+     * @throws IllegalStateException if approximate analytics are not enabled
+     */
+    public int estimateBooksContaining(final String word)
+    {
+        validateWord(word);
+
+        final long startNanos;
+        final int booksContainingWord;
+
+        startNanos = startQuery();
+        booksContainingWord = requireAnalyticsSketch().estimateTitlesContaining(word);
+
+        finishQuery(Query.ESTIMATE_BOOKS_CONTAINING, startNanos, NO_ROWS);
+
+        return booksContainingWord;
+    }
+
+    /**
+     * Estimates the number of distinct authors in the bookstore, within the relative error given when analytics
+     * were enabled. Authors of books removed since then are still counted.
+     *
+     * @return the estimated number of distinct authors
+     *
+     * @throws IllegalStateException if approximate analytics are not enabled
+     */
+    public long estimateDistinctAuthors()
+    {
+        final long startNanos;
+        final long distinctAuthors;
+
+        startNanos = startQuery();
+        distinctAuthors = requireAnalyticsSketch().estimateDistinctAuthors();
+
+        finishQuery(Query.ESTIMATE_DISTINCT_AUTHORS, startNanos, NO_ROWS);
+
+        return distinctAuthors;
+    }
+
+    /*
+     * Returns the analytics sketch, if approximate analytics are enabled.
+     *
+     * @return the analytics sketch
+     */
+    private AnalyticsSketch requireAnalyticsSketch()
+    {
+        if (this.analyticsSketch == null)
+        {
+            throw new IllegalStateException("Approximate analytics are not enabled.");
+        }
+
+        return this.analyticsSketch;
+    }
+
+    /**
+     * Determines what percentage of the bookstore's inventory was written between firstYear and lastYear,
+     * inclusive.
+     *
+     * @param firstYear The beginning year of the range.
+     * @param lastYear The final year of the range.
+     *
+     * @return The percentage of the bookstore's inventory that was published within the given range of years.
+     */
+    public double whichPercentWrittenBetween(final int firstYear,
+                                             final int lastYear)
+    {
+        final long startNanos;
+        final double percentWritten;
+
+        startNanos = startQuery();
+        percentWritten = this.queryCache.get(this.inventoryVersion,
+                                             () -> percentWrittenBetween(firstYear, lastYear),
+                                             WHICH_PERCENT_WRITTEN_BETWEEN, firstYear, lastYear);
+
+        finishQuery(Query.WHICH_PERCENT_WRITTEN_BETWEEN, startNanos, NO_ROWS);
+
+        return percentWritten;
+    }
+
+    /**
+     * Returns the oldest book in the inventory based on publishing year.
+     *
+     * @return Novel with oldest publishing year
+     */
+    public Novel getOldestBook()
+    {
+        final long startNanos;
+        final Novel oldestBook;
+
+        startNanos = startQuery();
+        oldestBook = this.queryCache.get(this.inventoryVersion,
+                                         this::findOldestBook,
+                                         GET_OLDEST_BOOK);
+
+        finishQuery(Query.GET_OLDEST_BOOK, startNanos, ONE_ROW);
+
+        return oldestBook;
+    }
+
+    /**
+     * Returns the oldest books in the inventory, oldest first. Books published in the same year are listed in the
+     * order they were stocked. The year index finds the publishing year of the last book to return, so a single
+     * pass over the inventory keeps no more than count books.
+     *
+     * @param count the most books to return
+     *
+     * @return a read-only List of up to count novels
+     */
+    public List<Novel> getOldestBooks(final int count)
+    {
+        validateCount(count);
+
+        final long startNanos;
+        final List<Novel> oldestBooks;
+
+        startNanos = startQuery();
+        oldestBooks = findOldestBooks(Math.min(count, this.inventory.size()));
+
+        finishQuery(Query.GET_OLDEST_BOOKS, startNanos, oldestBooks.size());
+
+        return oldestBooks;
+    }
+
+    /*
+     * Collects the oldest books in one pass over the inventory. Every book published before the cutoff year is
+     * kept, along with the first books from the cutoff year that are needed to make up the count.
+     *
+     * @param count the number of books to collect, no more than the inventory size
+     *
+     * @return a read-only List of the count oldest novels, oldest first
+     */
+    private List<Novel> findOldestBooks(final int count)
+    {
+        if (count == MIN_COUNT)
+        {
+            return List.of();
+        }
+
+        final int cutoffYear;
+        final List<Novel> oldestBooks;
+        int cutoffYearSlots;
+        int novelsExamined;
+
+        cutoffYear = this.yearIndex.yearOfNthOldest(count);
+        oldestBooks = new ArrayList<>(count);
+        cutoffYearSlots = count - this.yearIndex.countBetween(Novel.MIN_YEAR_PUBLISHED, cutoffYear - 1);
+        novelsExamined = 0;
+
+        for (final Novel novel : this.inventory)
+        {
+            if (oldestBooks.size() == count)
+            {
+                break;
+            }
+
+            final int novelPublishingYear;
+            novelPublishingYear = novel.getYearPublished();
+            novelsExamined++;
+
+            if (novelPublishingYear < cutoffYear)
+            {
+                oldestBooks.add(novel);
+            }
+            else if (novelPublishingYear == cutoffYear &&
+                     cutoffYearSlots > 0)
+            {
+                oldestBooks.add(novel);
+                cutoffYearSlots--;
+            }
+        }
+
+        oldestBooks.sort(Comparator.comparingInt(Novel::getYearPublished));
+
+        recordRowsScanned(Query.GET_OLDEST_BOOKS, novelsExamined);
+
+        return List.copyOf(oldestBooks);
+    }
+
+    /*
+     * Counts the books whose titles contain a word, matching case exactly.
+     *
+     * @param word the String titles must contain
+     *
+     * @return the number of matching books
+     */
+    private int countBooksContaining(final String word)
+    {
+        final NovelQuery booksContainingWord;
+        booksContainingWord = query().titleContains(word);
+
+        recordRowsScanned(Query.HOW_MANY_BOOKS_CONTAIN, booksContainingWord.candidateCount());
+
+        return booksContainingWord.count();
+    }
+
+    /*
+     * Computes what percentage of the bookstore's inventory was written between firstYear and lastYear, inclusive.
+     *
+     * @param firstYear the beginning year of the range
+     * @param lastYear the final year of the range
+     *
+     * @return the percentage of the inventory published within the range
+     */
+    private double percentWrittenBetween(final int firstYear,
+                                         final int lastYear)
+    {
+        if (lastYear < firstYear)
+        {
+            return NONE_PERCENTAGE;
+        }
+
+        final int totalBooks;
+        final int booksInRange;
+
+        totalBooks = this.inventory.size();
+        booksInRange = query().publishedBetween(firstYear, lastYear)
+                              .count();
+
+        final double ratio;
+        ratio = (double) booksInRange / totalBooks;
+
+        return ratio * PERCENT_CONVERSION_FACTOR;
+    }
+
+    /*
+     * Finds the oldest book without scanning the inventory. The year index gives the oldest year of publication,
+     * and only that year's decade is searched, in inventory order, for the first book published in it.
+     *
+     * @return the first Novel with the oldest publishing year
+     */
+    private Novel findOldestBook()
+    {
+        final int oldestYear;
+        final List<Novel> oldestDecade;
+
+        oldestYear = this.yearIndex.yearOfNthOldest(OLDEST);
+        oldestDecade = this.decadeIndex.publishedIn(oldestYear);
+
+        for (int position = 0; position < oldestDecade.size(); position++)
+        {
+            final Novel novel;
+            novel = oldestDecade.get(position);
+
+            if (novel.getYearPublished() == oldestYear)
+            {
+                recordRowsScanned(Query.GET_OLDEST_BOOK, position + 1);
+
+                return novel;
+            }
+        }
+
+        throw new NoSuchElementException("The inventory is empty.");
+    }
+
+    /**
+     * Returns all books in the bookstore whose titles are of the given length.
+     *
+     * @param titleLength the length of titles to get books of
+     *
+     * @return a read-only List of the novels the bookstore has that have titles of the given length
+     */
+    public List<Novel> getBooksThisLength(final int titleLength)
+    {
+        final long startNanos;
+        final NovelQuery booksOfLength;
+        final List<Novel> matches;
+
+        startNanos = startQuery();
+        booksOfLength = query().titleLength(titleLength);
+        matches = booksOfLength.toList();
+
+        recordRowsScanned(Query.GET_BOOKS_THIS_LENGTH, booksOfLength.candidateCount());
+        finishQuery(Query.GET_BOOKS_THIS_LENGTH, startNanos, matches.size());
+
+        return matches;
+    }
+
+    /**
+     * Passes every book whose title contains the given word, ignoring case, to the visitor in inventory order. Unlike
+     * the query methods, nothing is allocated for an ASCII word: trigram postings are walked slot by slot and each
+     * title's collation key is searched for the word directly, so no List, Iterator, Stream or String is created.
+     * Other words allocate a single collation key for the call. The visitor must not change the bookstore.
+     *
+     * @param word the String to search for in the book titles
+     * @param visitor receives each matching novel
+     *
+     * @return the number of novels passed to the visitor
+     */
+    public int forEachBookContaining(final String word,
+                                     final Consumer<? super Novel> visitor)
+    {
+        validateWord(word);
+        validateVisitor(visitor);
+
+        final long startNanos;
+        final PostingList candidates;
+        final byte[] wordKey;
+        int matches;
+
+        startNanos = startQuery();
+        candidates = this.titleIndex.smallestPostingFor(word);
+        matches = NO_ROWS;
+
+        if (CollationKey.isAscii(word))
+        {
+            wordKey = null;
+        }
+        else
+        {
+            wordKey = CollationKey.of(word);
+        }
+
+        if (candidates == null)
+        {
+            for (int position = 0; position < this.inventory.size(); position++)
+            {
+                matches += visitIfTitleContains(this.inventory.get(position), word, wordKey, visitor);
+            }
+
+            recordRowsScanned(Query.FOR_EACH_BOOK_CONTAINING, this.inventory.size());
+        }
+        else
+        {
+            for (int slot = 0; slot < candidates.slotCount(); slot++)
+            {
+                final Novel candidate;
+                candidate = candidates.novelAt(slot);
+
+                if (candidate != null)
+                {
+                    matches += visitIfTitleContains(candidate, word, wordKey, visitor);
+                }
+            }
+
+            recordRowsScanned(Query.FOR_EACH_BOOK_CONTAINING, candidates.size());
+        }
+
+        finishQuery(Query.FOR_EACH_BOOK_CONTAINING, startNanos, matches);
+
+        return matches;
+    }
+
+    /**
+     * Passes every book whose title is of the given length to the visitor in inventory order, reading the title
+     * length index in place rather than copying it. The visitor must not change the bookstore.
+     *
+     * @param titleLength the length of titles to visit books of
+     * @param visitor receives each matching novel
+     *
+     * @return the number of novels passed to the visitor
+     */
+    public int forEachBookThisLength(final int titleLength,
+                                     final Consumer<? super Novel> visitor)
+    {
+        validateVisitor(visitor);
+
+        final long startNanos;
+        final int matches;
+
+        startNanos = startQuery();
+        matches = visitAll(this.titleLengthIndex.withLength(titleLength), visitor);
+
+        recordRowsScanned(Query.FOR_EACH_BOOK_THIS_LENGTH, matches);
+        finishQuery(Query.FOR_EACH_BOOK_THIS_LENGTH, startNanos, matches);
+
+        return matches;
+    }
+
+    /**
+     * Passes every book written by the given author to the visitor in inventory order, reading the author index in
+     * place rather than copying it. The visitor must not change the bookstore.
+     *
+     * @param authorName the name of the author, matched exactly
+     * @param visitor receives each of the author's novels
+     *
+     * @return the number of novels passed to the visitor
+     */
+    public int forEachBookBy(final String authorName,
+                             final Consumer<? super Novel> visitor)
+    {
+        validateVisitor(visitor);
+
+        final long startNanos;
+        final int matches;
+
+        startNanos = startQuery();
+        matches = visitAll(this.authorIndex.booksBy(authorName), visitor);
+
+        recordRowsScanned(Query.FOR_EACH_BOOK_BY, matches);
+        finishQuery(Query.FOR_EACH_BOOK_BY, startNanos, matches);
+
+        return matches;
+    }
+
+    /*
+     * Passes a novel to a visitor if its title contains a word, ignoring case.
+     *
+     * @param novel the novel to check
+     * @param word the String to search for
+     * @param wordKey the word's collation key, or null if the word is ASCII and is matched without a key
+     * @param visitor receives the novel if it matches
+     *
+     * @return ONE_ROW if the novel was visited, NO_ROWS otherwise
+     */
+    private static int visitIfTitleContains(final Novel novel,
+                                            final String word,
+                                            final byte[] wordKey,
+                                            final Consumer<? super Novel> visitor)
+    {
+        final boolean titleContainsWord;
+
+        if (wordKey == null)
+        {
+            titleContainsWord = CollationKey.containsAscii(novel.getCollationKey(), word);
+        }
+        else
+        {
+            titleContainsWord = CollationKey.contains(novel.getCollationKey(), wordKey);
+        }
+
+        if (!titleContainsWord)
+        {
+            return NO_ROWS;
+        }
+
+        visitor.accept(novel);
+
+        return ONE_ROW;
+    }
+
+    /*
+     * Passes every novel in a List to a visitor, by position so no Iterator is created.
+     *
+     * @param novels the novels to visit
+     * @param visitor receives each novel
+     *
+     * @return the number of novels visited
+     */
+    private static int visitAll(final List<Novel> novels,
+                                final Consumer<? super Novel> visitor)
+    {
+        for (int position = 0; position < novels.size(); position++)
+        {
+            visitor.accept(novels.get(position));
+        }
+
+        return novels.size();
+    }
+
+    /**
+     * Returns all books in the bookstore written by the given author.
+     *
+     * @param authorName the name of the author, matched exactly
+     *
+     * @return a List of the author's novels in inventory order
+     */
+    public List<Novel> getBooksBy(final String authorName)
+    {
+        final long startNanos;
+        final NovelQuery booksByAuthor;
+        final List<Novel> matches;
+
+        startNanos = startQuery();
+        booksByAuthor = query().writtenBy(authorName);
+        matches = booksByAuthor.toList();
+
+        recordRowsScanned(Query.GET_BOOKS_BY, booksByAuthor.candidateCount());
+        finishQuery(Query.GET_BOOKS_BY, startNanos, matches.size());
+
+        return matches;
+    }
+
+    /**
+     * Returns the number of books in the bookstore written by the given author.
+     *
+     * @param authorName the name of the author, matched exactly
+     *
+     * @return int representing number of books by the author
+     */
+    public int howManyBooksBy(final String authorName)
+    {
+        final long startNanos;
+        final List<Novel> booksByAuthor;
+
+        startNanos = startQuery();
+        booksByAuthor = this.authorIndex.booksBy(authorName);
+
+        finishQuery(Query.HOW_MANY_BOOKS_BY, startNanos, NO_ROWS);
+
+        return booksByAuthor.size();
+    }
 
     /**
-     * Constructs a new Bookstore with the given name and a predetermined initial inventory of Novels.
+     * Returns the authors with the most books in the bookstore, most prolific first. Authors with the same number
+     * of books are listed in the order their first book was stocked.
      *
-     * @param storeName The name of the Bookstore to construct
+     * @param numAuthors the maximum number of authors to return
+     *
+     * @return a read-only List of up to numAuthors author names
      */
-    public Bookstore(final String storeName)
+    public List<String> getMostProlificAuthors(final int numAuthors)
     {
-        validateStoreName(storeName);
+        final long startNanos;
+        final List<String> mostProlificAuthors;
 
-        this.storeName = storeName;
+        startNanos = startQuery();
+        mostProlificAuthors = this.queryCache.get(this.inventoryVersion,
+                                                  () -> List.copyOf(this.authorIndex.mostProlific(numAuthors)),
+                                                  GET_MOST_PROLIFIC_AUTHORS, numAuthors);
 
-        this.inventory = new ArrayList<>();
+        finishQuery(Query.GET_MOST_PROLIFIC_AUTHORS, startNanos, NO_ROWS);
 
-        populateInventory();
+        return mostProlificAuthors;
     }
 
     /**
-     * Prints the title of every novel in the bookstore in all UPPERCASE.
+     * Copies the bookstore's inventory into a ColumnarInventory, preserving inventory order.
+     *
+     * @return a ColumnarInventory holding every novel in the bookstore
      */
-    public void printAllTitles()
+    public ColumnarInventory toColumnar()
     {
+        final ColumnarInventory columnarInventory;
+        columnarInventory = new ColumnarInventory();
+
         for (final Novel novel : this.inventory)
         {
-            final String titleUpperCase;
-            titleUpperCase = novel.getTitle().toUpperCase();
-            System.out.println(titleUpperCase);
+            columnarInventory.add(novel);
         }
+
+        return columnarInventory;
     }
 
     /**
-     * Prints the titles of all books that contain the given String
+     * Builds a TitleDictionary of the bookstore's inventory for autocomplete and fuzzy title lookup. The dictionary
+     * is a copy: later changes to the inventory do not reach it.
      *
-     * @param title the String to search for in the book titles
+     * @return a TitleDictionary holding every novel in the bookstore
      */
-    public void printBookTitle(final String title)
+    public TitleDictionary toTitleDictionary()
     {
-        for (final Novel novel : this.inventory)
-        {
-            final String novelTitle;
-            final String novelTitleLower;
-            final String titleLower;
-
-            novelTitle = novel.getTitle();
-            novelTitleLower = novelTitle.toLowerCase();
-            titleLower = title.toLowerCase();
-
-            if (novelTitleLower.contains(titleLower))
-            {
-                System.out.println(novelTitle);
-            }
-        }
+        return new TitleDictionary(this.inventory);
     }
 
-    /**
-     * Prints all titles in alphabetical order, uses Collections.sort() to sort a copy of inventory alphabetically.
-     * The original inventory instance variable is not changed.
+    /*
+     * Returns the bookstore's inventory, in the order the Novels were stocked.
+     *
+     * @return a read-only view of the inventory
      */
-    public void printTitlesInAlphaOrder()
+    List<Novel> getInventory()
     {
-        final List<Novel> alphabeticalInventory;
-        alphabeticalInventory = new ArrayList<>();
-
-        alphabeticalInventory.addAll(this.inventory);
-
-        Collections.sort(alphabeticalInventory);
+        return Collections.unmodifiableList(this.inventory);
+    }
 
-        for (final Novel novel : alphabeticalInventory)
-        {
-            final String title;
-            title = novel.getTitle();
+    /*
+     * Returns the bookstore's inventory in alphabetical order of title.
+     *
+     * @return a read-only view of the inventory in title order
+     */
+    List<Novel> getInventoryInTitleOrder()
+    {
+        return this.titleOrder.inOrder();
+    }
 
-            System.out.println(title);
-        }
+    /*
+     * Starts logging every change to the inventory in the given MutationLog before it is made. Only the log the
+     * Bookstore was recovered from may be set, so that replaying the log always rebuilds this inventory.
+     *
+     * @param mutationLog the log to record changes in
+     */
+    void setMutationLog(final MutationLog mutationLog)
+    {
+        this.mutationLog = mutationLog;
+    }
 
+    /*
+     * Determines whether a Novel instance is in the inventory.
+     *
+     * @param novel the Novel to look for
+     *
+     * @return true if the Novel is stocked, false otherwise
+     */
+    boolean isStocked(final Novel novel)
+    {
+        return this.titleIndex.contains(novel);
     }
 
     /**
-     * Prints the titles of all books in the bookstore that were printed in the given decade. A decade is
-     * considered to extend from the zeroth to ninth year; for example, books printed from 2000 to 2009, inclusive,
-     * are considered to have been printed in the 2000s.
+     * Copies the Bookstore, so the copy can be changed while this Bookstore is still being queried. This
+     * Bookstore must not be changed while the copy is made, and its own changes afterwards do not affect the copy.
      *
-     * @param decade The decade of books to print, as an integer year. This value will be rounded down to the nearest
-     *               decade, so the function will consider the target decade to be the decade containing the input year.
+     * @return a new Bookstore with the same inventory, indexes, settings and query cache capacity, and no
+     *         MutationLog
      */
-    public void printGroupByDecade(final int decade)
+    Bookstore copy()
     {
-        final int decadeStart;
-        final int decadeEnd;
-
-        decadeStart = (decade / YEARS_PER_CENTURY) * YEARS_PER_CENTURY;
-        decadeEnd = decadeStart + YEARS_PER_DECADE;
+        return new Bookstore(this);
+    }
 
-        for (final Novel novel : inventory)
+    /**
+     * Removes every stocked Novel in the given Set from the inventory in one pass, keeping the rest in order.
+     * Removals are not logged, so the Bookstore must not have a MutationLog.
+     *
+     * @param novels the Novels to remove, matched by identity
+     */
+    void removeNovels(final Set<Novel> novels)
+    {
+        if (this.mutationLog != null)
         {
-            final int yearPublished;
-            final String title;
+            throw new IllegalStateException("Bulk removals cannot be logged.");
+        }
 
-            yearPublished = novel.getYearPublished();
+        final List<Novel> removed;
+        removed = new ArrayList<>();
 
-            if (decadeStart <= yearPublished &&
-                decadeEnd > yearPublished)
+        this.inventory.removeIf(novel ->
+        {
+            if (novels.contains(novel))
             {
-                title = novel.getTitle();
-
-                System.out.println(title);
+                removed.add(novel);
+                return true;
             }
-        }
 
+            return false;
+        });
 
+        for (final Novel novel : removed)
+        {
+            unindexNovel(novel);
+        }
     }
 
-    /**
-     * Returns the longest title in the inventory.
+    /*
+     * Validates the Bookstore's name. A store name is valid if it is not null or blank.
      *
-     * @return the String of the longest book title
+     * @param storeName the store name to validate
      */
-    public String getLongest()
+    private static void validateStoreName(final String storeName)
     {
-        String longestTitle;
-        longestTitle = this.inventory.getFirst().getTitle();
-
-        for (final Novel novel : this.inventory)
+        if (storeName == null ||
+            storeName.isBlank())
         {
-            final int longestTitleLength;
-            final int novelTitleLength;
+            throw new IllegalArgumentException("Invalid store name.");
+        }
+    }
 
-            longestTitleLength = longestTitle.length();
-            novelTitleLength = novel.getTitle().length();
+    /*
+     * Validates the number of books asked for by a top-k or paging query. A count is valid if it is not negative.
+     *
+     * @param count the count to validate
+     */
+    private static void validateCount(final int count)
+    {
+        if (count < MIN_COUNT)
+        {
+            throw new IllegalArgumentException("Invalid count.");
+        }
+    }
 
-            if (novelTitleLength > longestTitleLength)
-            {
-                longestTitle = novel.getTitle();
-            }
+    /*
+     * Validates a word to search for or count. A word is valid if it is not null.
+     *
+     * @param word the word to validate
+     */
+    private static void validateWord(final String word)
+    {
+        if (word == null)
+        {
+            throw new IllegalArgumentException("Invalid word.");
         }
+    }
 
-        return longestTitle;
+    /*
+     * Validates a visitor passed to a forEach query. A visitor is valid if it is not null.
+     *
+     * @param visitor the visitor to validate
+     */
+    private static void validateVisitor(final Consumer<? super Novel> visitor)
+    {
+        if (visitor == null)
+        {
+            throw new IllegalArgumentException("Invalid visitor.");
+        }
     }
 
-    /**
-     * Determines whether the bookstore has a book written in the given year.
+    /*
+     * Validates an error bound for approximate analytics. A bound is valid if it is strictly between 0 and 1.
      *
-     * @param year the year to find a book written in
+     * @param errorBound the bound to validate
+     */
+    private static void validateErrorBound(final double errorBound)
+    {
+        if (!(errorBound > MIN_ERROR_BOUND &&
+              errorBound < MAX_ERROR_BOUND))
+        {
+            throw new IllegalArgumentException("Invalid error bound.");
+        }
+    }
+
+    /*
+     * Validates a parallel threshold. A threshold is valid if it is at least MIN_PARALLEL_THRESHOLD.
      *
-     * @return true if the bookstore has a book written that year, false otherwise.
+     * @param parallelThreshold the threshold to validate
      */
-    public boolean isThereABookWrittenIn(final int year)
+    private static void validateParallelThreshold(final int parallelThreshold)
     {
-        for (final Novel novel : this.inventory)
+        if (parallelThreshold < MIN_PARALLEL_THRESHOLD)
         {
-            final int yearPublished;
+            throw new IllegalArgumentException("Invalid parallel threshold.");
+        }
+    }
 
-            yearPublished = novel.getYearPublished();
+    /*
+     * Writes to System.out through a TitleWriter, so output is encoded in batches rather than line by line.
+     *
+     * @param printer writes the output to the Appendable it is given
+     */
+    private static void printToConsole(final TitlePrinter printer)
+    {
+        final TitleWriter console;
+        console = new TitleWriter(Channels.newChannel(System.out), System.out.charset());
 
-            if (year == yearPublished)
-            {
-                return true;
-            }
+        try
+        {
+            printer.printTo(console);
+            console.flush();
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
         }
-
-        return false;
     }
 
-    /**
-     * Returns the number of book titles containing a provided String word.
-     *
-     * @param word is the String that book titles contain
+    /*
+     * Appends a String in upper case, one code point at a time, without building an upper-case copy of it.
      *
-     * @return int representing number of books containing word
+     * @param out where to append the String
+     * @param text the String to append
      */
-    public int howManyBooksContain(final String word)
+    private static void appendUpperCase(final Appendable out,
+                                        final String text) throws IOException
     {
-        int numBooksContainingWord;
-        numBooksContainingWord = MIN_NUM_BOOKS_CONTAINING_WORD;
-
-        for (final Novel novel : this.inventory)
+        for (int index = 0; index < text.length(); )
         {
-            final String novelTitle;
-            novelTitle = novel.getTitle();
+            final int codePoint;
+            final int upperCaseCodePoint;
+
+            codePoint = text.codePointAt(index);
+            upperCaseCodePoint = Character.toUpperCase(codePoint);
 
-            if (novelTitle.contains(word))
+            if (Character.isBmpCodePoint(upperCaseCodePoint))
             {
-                numBooksContainingWord++;
+                out.append((char) upperCaseCodePoint);
+            }
+            else
+            {
+                out.append(Character.highSurrogate(upperCaseCodePoint))
+                   .append(Character.lowSurrogate(upperCaseCodePoint));
             }
-        }
 
-        return numBooksContainingWord;
+            index += Character.charCount(codePoint);
+        }
     }
 
-    /**
-     * Determines what percentage of the bookstore's inventory was written between firstYear and lastYear,
-     * inclusive.
-     *
-     * @param firstYear The beginning year of the range.
-     * @param lastYear The final year of the range.
+    /*
+     * Reads the clock at the start of a query, if metrics are being recorded.
      *
-     * @return The percentage of the bookstore's inventory that was published within the given range of years.
+     * @return the start time in nanoseconds, or NOT_TIMED if metrics are not being recorded
      */
-    public double whichPercentWrittenBetween(final int firstYear,
-                                             final int lastYear)
+    private long startQuery()
     {
-        if (lastYear < firstYear)
+        if (this.metrics == null)
         {
-            return NONE_PERCENTAGE;
+            return NOT_TIMED;
         }
 
-        final int totalBooks;
-        int booksInRange;
-
-        totalBooks = this.inventory.size();
-        booksInRange = MIN_BOOKS_IN_RANGE;
+        return System.nanoTime();
+    }
 
-        for (final Novel novel : this.inventory)
+    /*
+     * Records a completed query call, if metrics are being recorded.
+     *
+     * @param query the query that completed
+     * @param startNanos the time returned by startQuery when the call began
+     * @param rowsReturned the number of Novels the call returned or printed
+     */
+    private void finishQuery(final Query query,
+                             final long startNanos,
+                             final int rowsReturned)
+    {
+        if (this.metrics != null)
         {
-            final int yearPublished;
-            yearPublished = novel.getYearPublished();
-
-            if (yearPublished >= firstYear &&
-                yearPublished <= lastYear)
-            {
-                booksInRange++;
-            }
+            this.metrics.recordCall(query, System.nanoTime() - startNanos, rowsReturned);
         }
+    }
 
-        final double ratio;
-        ratio = (double) booksInRange / totalBooks;
+    /*
+     * Records Novels a query examined one at a time, if metrics are being recorded.
+     *
+     * @param query the query that examined the Novels
+     * @param rowsScanned the number of Novels examined
+     */
+    private void recordRowsScanned(final Query query,
+                                   final int rowsScanned)
+    {
+        if (this.metrics != null)
+        {
+            this.metrics.recordRowsScanned(query, rowsScanned);
+        }
+    }
 
-        return ratio * PERCENT_CONVERSION_FACTOR;
+    /*
+     * Determines whether full-scan queries should run in parallel for the current inventory size.
+     *
+     * @return true if the inventory is at least the parallel threshold, false otherwise
+     */
+    private boolean scanInParallel()
+    {
+        return this.inventory.size() >= this.parallelThreshold;
     }
 
-    /**
-     * Returns the oldest book in the inventory based on publishing year.
+    /*
+     * Validates a Novel passed to the Bookstore. A Novel is valid if it is not null.
      *
-     * @return Novel with oldest publishing year
+     * @param novel the Novel to validate
      */
-    public Novel getOldestBook()
+    private static void validateNovel(final Novel novel)
     {
-        Novel oldestNovel;
-        oldestNovel = this.inventory.getFirst();
+        if (novel == null)
+        {
+            throw new IllegalArgumentException("Invalid novel.");
+        }
+    }
 
-        for (final Novel novel : this.inventory)
+    /*
+     * Validates a collection of Novels passed to the Bookstore. A collection is valid if it is not null.
+     *
+     * @param novels the collection to validate
+     */
+    private static void validateNovels(final Collection<Novel> novels)
+    {
+        if (novels == null)
         {
-            final int oldestNovelPublishingYear;
-            final int novelPublishingYear;
+            throw new IllegalArgumentException("Invalid novels.");
+        }
+    }
 
-            oldestNovelPublishingYear = oldestNovel.getYearPublished();
-            novelPublishingYear = novel.getYearPublished();
+    /*
+     * Validates that a Novel is not already in the inventory, since each Novel instance may only be stocked once.
+     *
+     * @param novel the Novel to validate
+     */
+    private void validateNotStocked(final Novel novel)
+    {
+        if (this.titleIndex.contains(novel))
+        {
+            throw new IllegalArgumentException("Novel is already in the inventory.");
+        }
+    }
 
-            if (novelPublishingYear < oldestNovelPublishingYear)
+    /*
+     * Finds the position of a Novel in the inventory by identity.
+     *
+     * @param novel the Novel to find
+     *
+     * @return the position of the Novel in the inventory
+     */
+    private int indexOfNovel(final Novel novel)
+    {
+        for (int position = 0; position < this.inventory.size(); position++)
+        {
+            if (this.inventory.get(position) == novel)
             {
-                oldestNovel = novel;
+                return position;
             }
         }
 
-        return oldestNovel;
+        throw new IllegalStateException("Stocked novel missing from inventory.");
     }
 
-    /**
-     * Returns all books in the bookstore whose titles are of the given length.
-     *
-     * @param titleLength the length of titles to get books of
+    /*
+     * Adds a Novel that has just been added to the inventory to every index.
      *
-     * @return a List of the novels the bookstore has that have titles of the given length
+     * @param novel the Novel to index
      */
-    public List<Novel> getBooksThisLength(final int titleLength)
+    private void indexNovel(final Novel novel)
     {
-        final List<Novel> novelsOfLength;
-
-        novelsOfLength = new ArrayList<>();
+        indexNovelUnordered(novel);
 
-        for (final Novel novel : this.inventory)
-        {
-            final String title;
-            final int currentTitleLength;
+        this.titleOrder.add(novel);
+    }
 
-            title = novel.getTitle();
-            currentTitleLength = title.length();
+    /*
+     * Adds a Novel that has just been added to the inventory to every index except the title order, which the
+     * constructor sorts once after stocking every Novel instead.
+     *
+     * @param novel the Novel to index
+     */
+    private void indexNovelUnordered(final Novel novel)
+    {
+        this.inventoryVersion++;
+        this.yearIndex.add(novel);
+        this.titleIndex.add(novel);
+        this.authorIndex.add(novel);
+        this.titleLengthIndex.add(novel);
+        this.decadeIndex.add(novel);
+        this.centuryIndex.add(novel);
 
-            if (currentTitleLength == titleLength)
-            {
-                novelsOfLength.add(novel);
-            }
+        if (this.analyticsSketch != null)
+        {
+            this.analyticsSketch.add(novel);
         }
 
-        return novelsOfLength;
+        if (this.metrics != null)
+        {
+            this.metrics.recordInventorySize(this.inventory.size());
+        }
     }
 
     /*
-     * Validates the Bookstore's name. A store name is valid if it is not null or blank.
+     * Removes a Novel that has just been removed from the inventory from every index.
      *
-     * @param storeName the store name to validate
+     * @param novel the Novel to stop indexing
      */
-    private static void validateStoreName(final String storeName)
+    private void unindexNovel(final Novel novel)
     {
-        if (storeName == null ||
-            storeName.isBlank())
+        this.inventoryVersion++;
+        this.yearIndex.remove(novel);
+        this.titleIndex.remove(novel);
+        this.titleOrder.remove(novel);
+        this.authorIndex.remove(novel);
+        this.titleLengthIndex.remove(novel);
+        this.decadeIndex.remove(novel);
+        this.centuryIndex.remove(novel);
+
+        if (this.analyticsSketch != null)
         {
-            throw new IllegalArgumentException("Invalid store name.");
+            this.analyticsSketch.remove(novel);
+        }
+
+        if (this.metrics != null)
+        {
+            this.metrics.recordInventorySize(this.inventory.size());
         }
     }
 
@@ -330,7 +1713,10 @@ public final class Bookstore
      */
     private void populateInventory()
     {
-        Collections.addAll(inventory,
+        final List<Novel> classics;
+        classics = new ArrayList<>();
+
+        Collections.addAll(classics,
             new Novel("The Adventures of Augie March", "Saul Bellow", 1953),
             new Novel("All the King’s Men", "Robert Penn Warren", 1946),
             new Novel("American Pastoral", "Philip Roth", 1997),
@@ -432,6 +1818,11 @@ public final class Bookstore
             new Novel("White Teeth", "Zadie Smith", 2000),
             new Novel("Wide Sargasso Sea", "Jean Rhys", 1966)
         );
+
+        for (final Novel novel : classics)
+        {
+            addNovel(novel);
+        }
     }
 
     public static void main(final String[] args)
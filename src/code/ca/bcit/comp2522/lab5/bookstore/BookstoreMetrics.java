@@ -0,0 +1,422 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records how often each Bookstore query runs, how long it takes and how much work it does. Metrics are opt-in:
+ * a Bookstore only records them once it has been given a BookstoreMetrics, and without one each query pays a
+ * single null check.
+ * <p>
+ * Latencies are kept in a log-linear histogram per query, in the style of HdrHistogram: every power of two is
+ * split into eight equal buckets, so a reported percentile is at most 12.5% above the true value. Recording a
+ * call only increments counters in preallocated arrays, never allocates, and is safe from many threads at once.
+ * <p>
+ * Rows scanned counts the Novels a query examined one at a time; index lookups that never look at individual
+ * Novels, and results served from the query cache, scan none. Rows returned counts the Novels a query returned or
+ * printed; queries that answer with a count or a yes or no return none.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class BookstoreMetrics implements BookstoreMetricsMXBean
+{
+    private static final String JMX_DOMAIN = "ca.bcit.comp2522.lab5.bookstore";
+    private static final String JMX_TYPE = "BookstoreMetrics";
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKETS - 1;
+    private static final int HIGHEST_BIT = Long.SIZE - 2;
+    private static final int BUCKETS_PER_QUERY = (HIGHEST_BIT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final double MEDIAN = 0.5;
+    private static final double P99 = 0.99;
+    private static final long NO_LATENCY = 0L;
+
+    /**
+     * The Bookstore query methods whose calls are recorded.
+     */
+    public enum Query
+    {
+        PRINT_ALL_TITLES("printAllTitles"),
+        PRINT_BOOK_TITLE("printBookTitle"),
+        PRINT_TITLES_IN_ALPHA_ORDER("printTitlesInAlphaOrder"),
+        GET_BOOKS_STARTING_WITH("getBooksStartingWith"),
+        GET_BOOKS_IN_ALPHA_ORDER("getBooksInAlphaOrder"),
+        PRINT_GROUP_BY_DECADE("printGroupByDecade"),
+        GET_BOOKS_IN_DECADE("getBooksInDecade"),
+        GET_BOOKS_IN_CENTURY("getBooksInCentury"),
+        GET_BOOKS_PER_DECADE("getBooksPerDecade"),
+        GET_BOOKS_PER_CENTURY("getBooksPerCentury"),
+        GET_LONGEST("getLongest"),
+        GET_LONGEST_BOOKS("getLongestBooks"),
+        IS_THERE_A_BOOK_WRITTEN_IN("isThereABookWrittenIn"),
+        HOW_MANY_BOOKS_CONTAIN("howManyBooksContain"),
+        ESTIMATE_BOOKS_CONTAINING("estimateBooksContaining"),
+        ESTIMATE_DISTINCT_AUTHORS("estimateDistinctAuthors"),
+        WHICH_PERCENT_WRITTEN_BETWEEN("whichPercentWrittenBetween"),
+        GET_OLDEST_BOOK("getOldestBook"),
+        GET_OLDEST_BOOKS("getOldestBooks"),
+        GET_BOOKS_THIS_LENGTH("getBooksThisLength"),
+        GET_BOOKS_BY("getBooksBy"),
+        FOR_EACH_BOOK_CONTAINING("forEachBookContaining"),
+        FOR_EACH_BOOK_THIS_LENGTH("forEachBookThisLength"),
+        FOR_EACH_BOOK_BY("forEachBookBy"),
+        HOW_MANY_BOOKS_BY("howManyBooksBy"),
+        GET_MOST_PROLIFIC_AUTHORS("getMostProlificAuthors");
+
+        private final String methodName;
+
+        Query(final String methodName)
+        {
+            this.methodName = methodName;
+        }
+
+        /**
+         * Accessor for the name of the Bookstore method this query is recorded for.
+         *
+         * @return the method name
+         */
+        public String getMethodName()
+        {
+            return this.methodName;
+        }
+    }
+
+    private static final Query[] QUERIES = Query.values();
+
+    private final AtomicLongArray callCounts;
+    private final AtomicLongArray rowsScanned;
+    private final AtomicLongArray rowsReturned;
+    private final AtomicLongArray latencyBuckets;
+
+    private volatile int inventorySize;
+
+    /**
+     * Constructs a new BookstoreMetrics with nothing recorded.
+     */
+    public BookstoreMetrics()
+    {
+        this.callCounts = new AtomicLongArray(QUERIES.length);
+        this.rowsScanned = new AtomicLongArray(QUERIES.length);
+        this.rowsReturned = new AtomicLongArray(QUERIES.length);
+        this.latencyBuckets = new AtomicLongArray(QUERIES.length * BUCKETS_PER_QUERY);
+    }
+
+    /**
+     * Records a completed call to a query method.
+     *
+     * @param query the query that was called
+     * @param latencyNanos how long the call took, in nanoseconds
+     * @param returned the number of Novels the call returned or printed
+     */
+    void recordCall(final Query query,
+                    final long latencyNanos,
+                    final long returned)
+    {
+        final int queryIndex;
+        queryIndex = query.ordinal();
+
+        this.callCounts.incrementAndGet(queryIndex);
+        this.rowsReturned.addAndGet(queryIndex, returned);
+        this.latencyBuckets.incrementAndGet(queryIndex * BUCKETS_PER_QUERY + bucketOf(latencyNanos));
+    }
+
+    /**
+     * Records Novels a query method examined one at a time.
+     *
+     * @param query the query that examined the Novels
+     * @param scanned the number of Novels examined
+     */
+    void recordRowsScanned(final Query query,
+                           final long scanned)
+    {
+        this.rowsScanned.addAndGet(query.ordinal(), scanned);
+    }
+
+    /**
+     * Records the current number of Novels in the inventory.
+     *
+     * @param size the inventory size
+     */
+    void recordInventorySize(final int size)
+    {
+        this.inventorySize = size;
+    }
+
+    /**
+     * Returns the number of completed calls to a query method.
+     *
+     * @param query the query to report on
+     *
+     * @return the call count
+     */
+    public long getCallCount(final Query query)
+    {
+        return this.callCounts.get(query.ordinal());
+    }
+
+    /**
+     * Returns the latency below which the given fraction of a query method's calls completed.
+     *
+     * @param query the query to report on
+     * @param quantile the fraction of calls, between 0.0 and 1.0
+     *
+     * @return the latency in nanoseconds, or 0 if the query has not been called
+     */
+    public long getLatencyNanos(final Query query,
+                                final double quantile)
+    {
+        if (quantile < 0.0 ||
+            quantile > 1.0)
+        {
+            throw new IllegalArgumentException("Invalid quantile.");
+        }
+
+        final int firstBucket;
+        long totalCalls;
+
+        firstBucket = query.ordinal() * BUCKETS_PER_QUERY;
+        totalCalls = 0;
+
+        for (int bucket = 0; bucket < BUCKETS_PER_QUERY; bucket++)
+        {
+            totalCalls += this.latencyBuckets.get(firstBucket + bucket);
+        }
+
+        if (totalCalls == 0)
+        {
+            return NO_LATENCY;
+        }
+
+        final long targetCalls;
+        long callsSoFar;
+
+        targetCalls = Math.max(1L, (long) Math.ceil(quantile * totalCalls));
+        callsSoFar = 0;
+
+        for (int bucket = 0; bucket < BUCKETS_PER_QUERY; bucket++)
+        {
+            callsSoFar += this.latencyBuckets.get(firstBucket + bucket);
+
+            if (callsSoFar >= targetCalls)
+            {
+                return highestValueIn(bucket);
+            }
+        }
+
+        return highestValueIn(BUCKETS_PER_QUERY - 1);
+    }
+
+    @Override
+    public Map<String, Long> getCallCounts()
+    {
+        return byMethodName(this.callCounts);
+    }
+
+    @Override
+    public Map<String, Long> getRowsScanned()
+    {
+        return byMethodName(this.rowsScanned);
+    }
+
+    @Override
+    public Map<String, Long> getRowsReturned()
+    {
+        return byMethodName(this.rowsReturned);
+    }
+
+    @Override
+    public Map<String, Long> getMedianLatencyNanos()
+    {
+        return latenciesByMethodName(MEDIAN);
+    }
+
+    @Override
+    public Map<String, Long> getP99LatencyNanos()
+    {
+        return latenciesByMethodName(P99);
+    }
+
+    @Override
+    public int getInventorySize()
+    {
+        return this.inventorySize;
+    }
+
+    @Override
+    public void reset()
+    {
+        clear(this.callCounts);
+        clear(this.rowsScanned);
+        clear(this.rowsReturned);
+        clear(this.latencyBuckets);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under the given store name.
+     *
+     * @param storeName the name to register the metrics under
+     *
+     * @return the name the metrics were registered as
+     *
+     * @throws IllegalStateException if the metrics cannot be registered, for example because the name is taken
+     */
+    public ObjectName registerMBean(final String storeName)
+    {
+        if (storeName == null ||
+            storeName.isBlank())
+        {
+            throw new IllegalArgumentException("Invalid store name.");
+        }
+
+        try
+        {
+            final MBeanServer server;
+            final ObjectName name;
+
+            server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName(JMX_DOMAIN + ":type=" + JMX_TYPE + ",name=" + ObjectName.quote(storeName));
+
+            server.registerMBean(this, name);
+
+            return name;
+        }
+        catch (final JMException e)
+        {
+            throw new IllegalStateException("Could not register metrics for " + storeName + ".", e);
+        }
+    }
+
+    /**
+     * Unregisters metrics registered by registerMBean.
+     *
+     * @param name the name returned by registerMBean
+     *
+     * @throws IllegalStateException if nothing is registered under the name
+     */
+    public static void unregisterMBean(final ObjectName name)
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        catch (final JMException e)
+        {
+            throw new IllegalStateException("Could not unregister " + name + ".", e);
+        }
+    }
+
+    /*
+     * Returns the histogram bucket a latency falls in. Latencies below SUB_BUCKETS get a bucket each; above that,
+     * each power of two is split into SUB_BUCKETS buckets by the bits just below its highest bit.
+     *
+     * @param latencyNanos the latency, in nanoseconds
+     *
+     * @return the bucket index within a query's histogram
+     */
+    private static int bucketOf(final long latencyNanos)
+    {
+        final long latency;
+        latency = Math.max(0L, latencyNanos);
+
+        if (latency < SUB_BUCKETS)
+        {
+            return (int) latency;
+        }
+
+        final int highestBit;
+        final int subBucket;
+
+        highestBit = Long.SIZE - 1 - Long.numberOfLeadingZeros(latency);
+        subBucket = (int) (latency >>> (highestBit - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+
+        return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /*
+     * Returns the highest latency that falls in a histogram bucket.
+     *
+     * @param bucket the bucket index within a query's histogram
+     *
+     * @return the highest latency in the bucket, in nanoseconds
+     */
+    private static long highestValueIn(final int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+
+        final int highestBit;
+        final int subBucket;
+        final long lowestValue;
+
+        highestBit = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        subBucket = bucket % SUB_BUCKETS;
+        lowestValue = (long) (SUB_BUCKETS + subBucket) << (highestBit - SUB_BUCKET_BITS);
+
+        return lowestValue + (1L << (highestBit - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /*
+     * Copies per-query counters into a map keyed by method name.
+     *
+     * @param counters the counters, indexed by query ordinal
+     *
+     * @return a read-only map from method name to counter value, in declaration order
+     */
+    private static Map<String, Long> byMethodName(final AtomicLongArray counters)
+    {
+        final Map<String, Long> values;
+        values = new LinkedHashMap<>();
+
+        for (final Query query : QUERIES)
+        {
+            values.put(query.getMethodName(), counters.get(query.ordinal()));
+        }
+
+        return Collections.unmodifiableMap(values);
+    }
+
+    /*
+     * Computes a latency percentile for every query.
+     *
+     * @param quantile the fraction of calls, between 0.0 and 1.0
+     *
+     * @return a read-only map from method name to latency in nanoseconds, in declaration order
+     */
+    private Map<String, Long> latenciesByMethodName(final double quantile)
+    {
+        final Map<String, Long> latencies;
+        latencies = new LinkedHashMap<>();
+
+        for (final Query query : QUERIES)
+        {
+            latencies.put(query.getMethodName(), getLatencyNanos(query, quantile));
+        }
+
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    /*
+     * Sets every counter in an array back to zero.
+     *
+     * @param counters the counters to clear
+     */
+    private static void clear(final AtomicLongArray counters)
+    {
+        for (int index = 0; index < counters.length(); index++)
+        {
+            counters.set(index, 0L);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of BookstoreMetrics. Every map is keyed by the name of a Bookstore query method.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public interface BookstoreMetricsMXBean
+{
+    /**
+     * Returns the number of completed calls to each query method.
+     *
+     * @return the call count of each query method
+     */
+    Map<String, Long> getCallCounts();
+
+    /**
+     * Returns the number of Novels each query method has examined one at a time.
+     *
+     * @return the rows scanned by each query method
+     */
+    Map<String, Long> getRowsScanned();
+
+    /**
+     * Returns the number of Novels each query method has returned or printed.
+     *
+     * @return the rows returned by each query method
+     */
+    Map<String, Long> getRowsReturned();
+
+    /**
+     * Returns the median latency of each query method, in nanoseconds.
+     *
+     * @return the median latency of each query method
+     */
+    Map<String, Long> getMedianLatencyNanos();
+
+    /**
+     * Returns the 99th percentile latency of each query method, in nanoseconds.
+     *
+     * @return the 99th percentile latency of each query method
+     */
+    Map<String, Long> getP99LatencyNanos();
+
+    /**
+     * Returns the number of Novels in the inventory.
+     *
+     * @return the inventory size
+     */
+    int getInventorySize();
+
+    /**
+     * Clears every count and latency recorded so far. The inventory size is kept.
+     */
+    void reset();
+}
@@ -0,0 +1,846 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves a ConcurrentBookstore's queries over TCP with a line protocol, on one virtual thread per connection.
+ * Each request is one line holding a query method's name and its arguments separated by spaces, such as
+ * "isThereABookWrittenIn 1950" or "howManyBooksBy Charles Dickens"; a String argument runs to the end of the line.
+ * Each response starts with "OK n" followed by n lines of results, or is a single "ERROR message" line. Novels are
+ * sent as their title, author and year separated by tabs, and backslashes, tabs and line breaks inside a field or
+ * argument are escaped as \\, \t, \n and \r. A request longer than MAX_REQUEST_CHARS is answered with an error
+ * and the connection is closed, so a client cannot make the server buffer an endless line.
+ * <p>
+ * Clients may pipeline requests, sending many before reading any responses. Responses are answered in order and
+ * buffered while more requests are already waiting to be read, then flushed together, so a pipelined batch costs
+ * one write rather than one per request.
+ * <p>
+ * Virtual threads let every connection block cheaply, but the queries themselves need a processor. At most
+ * maxConcurrentQueries queries run at once and the rest wait their turn in arrival order; a waiting connection
+ * stops reading, so its requests back up in the socket and slow its client down. Once maxConnections clients are
+ * connected, new ones wait in the listen backlog until one leaves. If accepting a client fails while the server is
+ * still open, for example because the process has run out of file descriptors, the server waits a moment and
+ * tries again, waiting longer after each failure in a row.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class BookstoreServer implements Closeable
+{
+    /**
+     * The port the server listens on when run on its own and no port is given.
+     */
+    public static final int DEFAULT_PORT = 2522;
+
+    /**
+     * The most characters a request line may hold.
+     */
+    public static final int MAX_REQUEST_CHARS = 1 << 13;
+
+    private static final String SERVER_STORE_NAME = "Bookstore Server";
+    private static final int MIN_LIMIT = 1;
+    private static final int MIN_PORT = 0;
+    private static final int MAX_PORT = 65535;
+    private static final int BACKLOG = 4096;
+    private static final int WRITE_BUFFER_CHARS = 1 << 14;
+    private static final long SHUTDOWN_SECONDS = 5L;
+    private static final long FIRST_ACCEPT_BACKOFF_MILLIS = 10L;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1_000L;
+    private static final int BACKOFF_GROWTH_FACTOR = 2;
+    private static final int PORT_ARGUMENT = 0;
+    private static final String ARGUMENT_SEPARATOR = " ";
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final String LINE_SEPARATOR = "\n";
+    private static final String OK = "OK ";
+    private static final String ERROR = "ERROR ";
+    private static final char ESCAPE = '\\';
+    private static final int ONE_ROW = 1;
+    private static final int READ_BUFFER_CHARS = MAX_REQUEST_CHARS;
+    private static final String ACCEPT_THREAD_NAME = "bookstore-server-accept";
+    private static final String SIZE = "size";
+    private static final String IS_THERE_A_BOOK_WRITTEN_IN = "isThereABookWrittenIn";
+    private static final String HOW_MANY_BOOKS_CONTAIN = "howManyBooksContain";
+    private static final String ESTIMATE_BOOKS_CONTAINING = "estimateBooksContaining";
+    private static final String ESTIMATE_DISTINCT_AUTHORS = "estimateDistinctAuthors";
+    private static final String WHICH_PERCENT_WRITTEN_BETWEEN = "whichPercentWrittenBetween";
+    private static final String GET_OLDEST_BOOK = "getOldestBook";
+    private static final String GET_OLDEST_BOOKS = "getOldestBooks";
+    private static final String GET_LONGEST = "getLongest";
+    private static final String GET_LONGEST_BOOKS = "getLongestBooks";
+    private static final String GET_BOOKS_THIS_LENGTH = "getBooksThisLength";
+    private static final String GET_BOOKS_STARTING_WITH = "getBooksStartingWith";
+    private static final String GET_BOOKS_IN_ALPHA_ORDER = "getBooksInAlphaOrder";
+    private static final String GET_BOOKS_IN_DECADE = "getBooksInDecade";
+    private static final String GET_BOOKS_IN_CENTURY = "getBooksInCentury";
+    private static final String GET_BOOKS_PER_DECADE = "getBooksPerDecade";
+    private static final String GET_BOOKS_PER_CENTURY = "getBooksPerCentury";
+    private static final String GET_BOOKS_BY = "getBooksBy";
+    private static final String HOW_MANY_BOOKS_BY = "howManyBooksBy";
+    private static final String GET_MOST_PROLIFIC_AUTHORS = "getMostProlificAuthors";
+
+    private final ConcurrentBookstore bookstore;
+    private final Semaphore connectionPermits;
+    private final Semaphore queryPermits;
+    private final ExecutorService executor;
+
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+
+    /**
+     * Constructs a new BookstoreServer for the given ConcurrentBookstore. The server does not listen until it is
+     * started.
+     *
+     * @param bookstore the ConcurrentBookstore to answer queries from
+     * @param maxConnections the most clients connected at once
+     * @param maxConcurrentQueries the most queries running at once
+     */
+    public BookstoreServer(final ConcurrentBookstore bookstore,
+                           final int maxConnections,
+                           final int maxConcurrentQueries)
+    {
+        validateBookstore(bookstore);
+        validateLimit(maxConnections);
+        validateLimit(maxConcurrentQueries);
+
+        this.bookstore = bookstore;
+        this.connectionPermits = new Semaphore(maxConnections);
+        this.queryPermits = new Semaphore(maxConcurrentQueries, true);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.serverSocket = null;
+        this.acceptThread = null;
+    }
+
+    /**
+     * Starts listening for clients on the given port of every local address. Clients are accepted on a platform
+     * thread, which keeps the JVM running until the server is closed.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public synchronized void start(final int port) throws IOException
+    {
+        validatePort(port);
+
+        if (this.serverSocket != null)
+        {
+            throw new IllegalStateException("Server has already been started.");
+        }
+
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+
+        this.acceptThread = Thread.ofPlatform()
+                                  .name(ACCEPT_THREAD_NAME)
+                                  .start(this::acceptConnections);
+    }
+
+    /**
+     * Returns the port the server is listening on, which is useful after starting it on port 0.
+     *
+     * @return the local port
+     */
+    public synchronized int getPort()
+    {
+        if (this.serverSocket == null)
+        {
+            throw new IllegalStateException("Server has not been started.");
+        }
+
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops listening, disconnects every client and waits briefly for their threads to finish.
+     *
+     * @throws IOException if the listening socket cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (this.serverSocket != null)
+        {
+            this.serverSocket.close();
+            this.acceptThread.interrupt();
+        }
+
+        this.executor.shutdownNow();
+
+        try
+        {
+            this.executor.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Accepts clients until the server is closed, serving each on its own virtual thread. Waits for a connection
+     * permit before each accept, so clients beyond the limit stay in the listen backlog. An accept that fails while
+     * the server is open is retried after a backoff that doubles with each failure in a row, up to
+     * MAX_ACCEPT_BACKOFF_MILLIS.
+     */
+    private void acceptConnections()
+    {
+        long backoffMillis;
+        backoffMillis = FIRST_ACCEPT_BACKOFF_MILLIS;
+
+        while (!this.serverSocket.isClosed())
+        {
+            final Socket socket;
+
+            try
+            {
+                this.connectionPermits.acquire();
+            }
+            catch (final InterruptedException e)
+            {
+                return;
+            }
+
+            try
+            {
+                socket = this.serverSocket.accept();
+            }
+            catch (final IOException e)
+            {
+                this.connectionPermits.release();
+
+                if (this.serverSocket.isClosed())
+                {
+                    return;
+                }
+
+                try
+                {
+                    Thread.sleep(backoffMillis);
+                }
+                catch (final InterruptedException interrupted)
+                {
+                    return;
+                }
+
+                backoffMillis = Math.min(backoffMillis * BACKOFF_GROWTH_FACTOR, MAX_ACCEPT_BACKOFF_MILLIS);
+                continue;
+            }
+
+            backoffMillis = FIRST_ACCEPT_BACKOFF_MILLIS;
+
+            try
+            {
+                this.executor.submit(() -> serve(socket));
+            }
+            catch (final RejectedExecutionException e)
+            {
+                closeQuietly(socket);
+                return;
+            }
+        }
+    }
+
+    /*
+     * Answers a client's requests in order until it disconnects or sends a request that is too long. Responses are
+     * flushed only when no more requests are waiting to be read, so a pipelined batch is answered with one write.
+     *
+     * @param socket the client's connection
+     */
+    private void serve(final Socket socket)
+    {
+        try (socket;
+             final RequestReader in = new RequestReader(
+                 new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             final Writer out = new BufferedWriter(
+                 new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), WRITE_BUFFER_CHARS))
+        {
+            socket.setTcpNoDelay(true);
+
+            String request;
+            request = in.readRequest();
+
+            while (request != null)
+            {
+                if (request.length() > MAX_REQUEST_CHARS)
+                {
+                    writeError(out, "Request too long.");
+                    out.flush();
+                    return;
+                }
+
+                answer(request, out);
+
+                if (!in.ready())
+                {
+                    out.flush();
+                }
+
+                request = in.readRequest();
+            }
+        }
+        catch (final IOException e)
+        {
+            return;
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            this.connectionPermits.release();
+        }
+    }
+
+    /*
+     * Runs one request, once a query permit is free, and writes its response. A request that fails, for example
+     * because of an unknown command or an invalid argument, is answered with an error and the connection carries
+     * on.
+     *
+     * @param request the request line
+     * @param out where to write the response
+     */
+    private void answer(final String request,
+                        final Writer out) throws IOException, InterruptedException
+    {
+        final int separator;
+        final String command;
+        final String argument;
+
+        separator = request.indexOf(ARGUMENT_SEPARATOR);
+
+        if (separator < 0)
+        {
+            command = request;
+            argument = "";
+        }
+        else
+        {
+            command = request.substring(0, separator);
+            argument = unescape(request.substring(separator + 1));
+        }
+
+        this.queryPermits.acquire();
+
+        try
+        {
+            runQuery(command, argument, out);
+        }
+        catch (final NumberFormatException e)
+        {
+            writeError(out, "Invalid number.");
+        }
+        catch (final RuntimeException e)
+        {
+            writeError(out, e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        }
+        finally
+        {
+            this.queryPermits.release();
+        }
+    }
+
+    /*
+     * Runs a query method and writes its result.
+     *
+     * @param command the query method's name
+     * @param argument the rest of the request line, unescaped
+     * @param out where to write the response
+     */
+    private void runQuery(final String command,
+                          final String argument,
+                          final Writer out) throws IOException
+    {
+        switch (command)
+        {
+            case SIZE -> writeValue(out, this.bookstore.size());
+            case IS_THERE_A_BOOK_WRITTEN_IN ->
+                writeValue(out, this.bookstore.isThereABookWrittenIn(intArgument(argument, 0)));
+            case HOW_MANY_BOOKS_CONTAIN -> writeValue(out, this.bookstore.howManyBooksContain(argument));
+            case ESTIMATE_BOOKS_CONTAINING -> writeValue(out, this.bookstore.estimateBooksContaining(argument));
+            case ESTIMATE_DISTINCT_AUTHORS -> writeValue(out, this.bookstore.estimateDistinctAuthors());
+            case WHICH_PERCENT_WRITTEN_BETWEEN ->
+                writeValue(out, this.bookstore.whichPercentWrittenBetween(intArgument(argument, 0),
+                                                                          intArgument(argument, 1)));
+            case GET_OLDEST_BOOK -> writeNovels(out, List.of(this.bookstore.getOldestBook()));
+            case GET_OLDEST_BOOKS -> writeNovels(out, this.bookstore.getOldestBooks(intArgument(argument, 0)));
+            case GET_LONGEST -> writeValue(out, escape(this.bookstore.getLongest()));
+            case GET_LONGEST_BOOKS -> writeNovels(out, this.bookstore.getLongestBooks(intArgument(argument, 0)));
+            case GET_BOOKS_THIS_LENGTH ->
+                writeNovels(out, this.bookstore.getBooksThisLength(intArgument(argument, 0)));
+            case GET_BOOKS_STARTING_WITH -> writeNovels(out, this.bookstore.getBooksStartingWith(argument));
+            case GET_BOOKS_IN_ALPHA_ORDER ->
+                writeNovels(out, this.bookstore.getBooksInAlphaOrder(intArgument(argument, 0)));
+            case GET_BOOKS_IN_DECADE -> writeNovels(out, this.bookstore.getBooksInDecade(intArgument(argument, 0)));
+            case GET_BOOKS_IN_CENTURY ->
+                writeNovels(out, this.bookstore.getBooksInCentury(intArgument(argument, 0)));
+            case GET_BOOKS_PER_DECADE ->
+                writeCounts(out, this.bookstore.getBooksPerDecade(intArgument(argument, 0),
+                                                                  intArgument(argument, 1)));
+            case GET_BOOKS_PER_CENTURY ->
+                writeCounts(out, this.bookstore.getBooksPerCentury(intArgument(argument, 0),
+                                                                   intArgument(argument, 1)));
+            case GET_BOOKS_BY -> writeNovels(out, this.bookstore.getBooksBy(argument));
+            case HOW_MANY_BOOKS_BY -> writeValue(out, this.bookstore.howManyBooksBy(argument));
+            case GET_MOST_PROLIFIC_AUTHORS ->
+                writeStrings(out, this.bookstore.getMostProlificAuthors(intArgument(argument, 0)));
+            default -> writeError(out, "Unknown command.");
+        }
+    }
+
+    /*
+     * Writes a response holding a single value.
+     *
+     * @param out where to write the response
+     * @param value the value, already escaped if it is text
+     */
+    private static void writeValue(final Writer out,
+                                   final Object value) throws IOException
+    {
+        writeStatus(out, ONE_ROW);
+        out.write(String.valueOf(value));
+        out.write(LINE_SEPARATOR);
+    }
+
+    /*
+     * Writes a response holding one line per Novel.
+     *
+     * @param out where to write the response
+     * @param novels the Novels
+     */
+    private static void writeNovels(final Writer out,
+                                    final List<Novel> novels) throws IOException
+    {
+        writeStatus(out, novels.size());
+
+        for (final Novel novel : novels)
+        {
+            out.write(escape(novel.getTitle()));
+            out.write(FIELD_SEPARATOR);
+            out.write(escape(novel.getAuthorName()));
+            out.write(FIELD_SEPARATOR);
+            out.write(Integer.toString(novel.getYearPublished()));
+            out.write(LINE_SEPARATOR);
+        }
+    }
+
+    /*
+     * Writes a response holding one line per String.
+     *
+     * @param out where to write the response
+     * @param lines the Strings
+     */
+    private static void writeStrings(final Writer out,
+                                     final List<String> lines) throws IOException
+    {
+        writeStatus(out, lines.size());
+
+        for (final String line : lines)
+        {
+            out.write(escape(line));
+            out.write(LINE_SEPARATOR);
+        }
+    }
+
+    /*
+     * Writes a response holding one line per period, with the period's first year and its count.
+     *
+     * @param out where to write the response
+     * @param counts the count of books in each period
+     */
+    private static void writeCounts(final Writer out,
+                                    final Map<Integer, Integer> counts) throws IOException
+    {
+        writeStatus(out, counts.size());
+
+        for (final Map.Entry<Integer, Integer> count : counts.entrySet())
+        {
+            out.write(Integer.toString(count.getKey()));
+            out.write(FIELD_SEPARATOR);
+            out.write(Integer.toString(count.getValue()));
+            out.write(LINE_SEPARATOR);
+        }
+    }
+
+    /*
+     * Writes the status line of a successful response.
+     *
+     * @param out where to write the response
+     * @param rows the number of result lines that follow
+     */
+    private static void writeStatus(final Writer out,
+                                    final int rows) throws IOException
+    {
+        out.write(OK);
+        out.write(Integer.toString(rows));
+        out.write(LINE_SEPARATOR);
+    }
+
+    /*
+     * Writes an error response.
+     *
+     * @param out where to write the response
+     * @param message why the request failed
+     */
+    private static void writeError(final Writer out,
+                                   final String message) throws IOException
+    {
+        out.write(ERROR);
+        out.write(escape(message));
+        out.write(LINE_SEPARATOR);
+    }
+
+    /*
+     * Parses one of the space-separated whole numbers in an argument.
+     *
+     * @param argument the argument
+     * @param position which number to parse, from 0
+     *
+     * @return the number
+     */
+    private static int intArgument(final String argument,
+                                   final int position)
+    {
+        final String[] numbers;
+        numbers = argument.split(ARGUMENT_SEPARATOR);
+
+        if (position >= numbers.length)
+        {
+            throw new IllegalArgumentException("Missing argument.");
+        }
+
+        return Integer.parseInt(numbers[position]);
+    }
+
+    /*
+     * Escapes the backslashes, tabs and line breaks in a field so it fits on one line of a response.
+     *
+     * @param text the field
+     *
+     * @return the escaped field
+     */
+    private static String escape(final String text)
+    {
+        final StringBuilder escaped;
+        escaped = new StringBuilder(text.length());
+
+        for (int index = 0; index < text.length(); index++)
+        {
+            final char character;
+            character = text.charAt(index);
+
+            switch (character)
+            {
+                case ESCAPE -> escaped.append(ESCAPE).append(ESCAPE);
+                case '\t' -> escaped.append(ESCAPE).append('t');
+                case '\n' -> escaped.append(ESCAPE).append('n');
+                case '\r' -> escaped.append(ESCAPE).append('r');
+                default -> escaped.append(character);
+            }
+        }
+
+        return escaped.toString();
+    }
+
+    /*
+     * Reverses escape, turning \\, \t, \n and \r in a request argument back into the characters they stand for. A
+     * backslash before any other character, or at the end, is kept as it is.
+     *
+     * @param text the escaped argument
+     *
+     * @return the argument
+     */
+    private static String unescape(final String text)
+    {
+        if (text.indexOf(ESCAPE) < 0)
+        {
+            return text;
+        }
+
+        final StringBuilder unescaped;
+        unescaped = new StringBuilder(text.length());
+
+        for (int index = 0; index < text.length(); index++)
+        {
+            final char character;
+            character = text.charAt(index);
+
+            if (character != ESCAPE ||
+                index + 1 == text.length())
+            {
+                unescaped.append(character);
+                continue;
+            }
+
+            final char escapedCharacter;
+            escapedCharacter = text.charAt(index + 1);
+
+            switch (escapedCharacter)
+            {
+                case ESCAPE -> unescaped.append(ESCAPE);
+                case 't' -> unescaped.append('\t');
+                case 'n' -> unescaped.append('\n');
+                case 'r' -> unescaped.append('\r');
+                default -> unescaped.append(character).append(escapedCharacter);
+            }
+
+            index++;
+        }
+
+        return unescaped.toString();
+    }
+
+    /*
+     * Closes a client's connection that could not be served.
+     *
+     * @param socket the client's connection
+     */
+    private static void closeQuietly(final Socket socket)
+    {
+        try
+        {
+            socket.close();
+        }
+        catch (final IOException e)
+        {
+            return;
+        }
+    }
+
+    /*
+     * Validates the ConcurrentBookstore to serve. A bookstore is valid if it is not null.
+     *
+     * @param bookstore the bookstore to validate
+     */
+    private static void validateBookstore(final ConcurrentBookstore bookstore)
+    {
+        if (bookstore == null)
+        {
+            throw new IllegalArgumentException("Invalid bookstore.");
+        }
+    }
+
+    /*
+     * Validates a connection or query limit. A limit is valid if it is at least MIN_LIMIT.
+     *
+     * @param limit the limit to validate
+     */
+    private static void validateLimit(final int limit)
+    {
+        if (limit < MIN_LIMIT)
+        {
+            throw new IllegalArgumentException("Invalid limit.");
+        }
+    }
+
+    /*
+     * Validates a port. A port is valid if it is between MIN_PORT and MAX_PORT.
+     *
+     * @param port the port to validate
+     */
+    private static void validatePort(final int port)
+    {
+        if (port < MIN_PORT ||
+            port > MAX_PORT)
+        {
+            throw new IllegalArgumentException("Invalid port.");
+        }
+    }
+
+    /*
+     * Reads a client's request lines through a buffer of its own. Unlike BufferedReader.readLine, a line is only
+     * read as far as MAX_REQUEST_CHARS, so a client that never ends a line cannot make the server buffer it whole.
+     * Lines end with a line feed, a carriage return, or both, as they do for BufferedReader.
+     */
+    private static final class RequestReader implements Closeable
+    {
+        private final Reader in;
+        private final char[] buffer;
+
+        private int position;
+        private int limit;
+        private boolean skipLineFeed;
+
+        /*
+         * Constructs a new RequestReader.
+         *
+         * @param in the client's input
+         */
+        private RequestReader(final Reader in)
+        {
+            this.in = in;
+            this.buffer = new char[READ_BUFFER_CHARS];
+            this.position = 0;
+            this.limit = 0;
+            this.skipLineFeed = false;
+        }
+
+        /*
+         * Reads the next request line.
+         *
+         * @return the line, longer than MAX_REQUEST_CHARS if it was cut off there, or null at the end of the stream
+         */
+        private String readRequest() throws IOException
+        {
+            StringBuilder spanned;
+            spanned = null;
+
+            while (true)
+            {
+                if (this.position == this.limit &&
+                    !fill())
+                {
+                    return spanned == null ? null : spanned.toString();
+                }
+
+                if (this.skipLineFeed)
+                {
+                    this.skipLineFeed = false;
+
+                    if (this.buffer[this.position] == '\n')
+                    {
+                        this.position++;
+                        continue;
+                    }
+                }
+
+                final int start;
+                start = this.position;
+
+                while (this.position < this.limit &&
+                       this.buffer[this.position] != '\n' &&
+                       this.buffer[this.position] != '\r')
+                {
+                    this.position++;
+                }
+
+                if (this.position < this.limit)
+                {
+                    final int end;
+                    end = this.position;
+
+                    this.skipLineFeed = this.buffer[end] == '\r';
+                    this.position++;
+
+                    if (spanned == null)
+                    {
+                        return new String(this.buffer, start, end - start);
+                    }
+
+                    return spanned.append(this.buffer, start, end - start).toString();
+                }
+
+                if (spanned == null)
+                {
+                    spanned = new StringBuilder();
+                }
+
+                spanned.append(this.buffer, start, this.position - start);
+
+                if (spanned.length() > MAX_REQUEST_CHARS)
+                {
+                    return spanned.toString();
+                }
+            }
+        }
+
+        /*
+         * Determines whether another request can be read without waiting for the client. A line feed left over
+         * from a carriage return and line feed pair is skipped first, so it is not mistaken for a waiting request.
+         *
+         * @return true if more of a request is waiting to be read, false otherwise
+         */
+        private boolean ready() throws IOException
+        {
+            if (this.skipLineFeed &&
+                this.position == this.limit &&
+                this.in.ready())
+            {
+                fill();
+            }
+
+            if (this.skipLineFeed &&
+                this.position < this.limit)
+            {
+                this.skipLineFeed = false;
+
+                if (this.buffer[this.position] == '\n')
+                {
+                    this.position++;
+                }
+            }
+
+            return this.position < this.limit || this.in.ready();
+        }
+
+        /*
+         * Closes the client's input.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            this.in.close();
+        }
+
+        /*
+         * Refills the empty buffer, waiting for the client if nothing has arrived yet.
+         *
+         * @return true if characters were read, false at the end of the stream
+         */
+        private boolean fill() throws IOException
+        {
+            final int read;
+            read = this.in.read(this.buffer, 0, this.buffer.length);
+
+            if (read < 0)
+            {
+                return false;
+            }
+
+            this.position = 0;
+            this.limit = read;
+
+            return true;
+        }
+    }
+
+    /**
+     * Serves the predetermined Bookstore inventory until the process is stopped.
+     *
+     * @param args the port to listen on, or nothing for DEFAULT_PORT
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final int port;
+        final BookstoreServer server;
+
+        port = args.length > PORT_ARGUMENT ? Integer.parseInt(args[PORT_ARGUMENT]) : DEFAULT_PORT;
+        server = new BookstoreServer(new ConcurrentBookstore(SERVER_STORE_NAME),
+                                     Integer.MAX_VALUE,
+                                     Runtime.getRuntime().availableProcessors());
+
+        server.start(port);
+        System.out.println(SERVER_STORE_NAME + " listening on port " + server.getPort());
+    }
+}
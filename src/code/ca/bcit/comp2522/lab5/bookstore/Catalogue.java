@@ -0,0 +1,594 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A chain-wide catalogue made of many CatalogueShards, such as one per branch store. Every query is scattered to
+ * all shards at once on the given Executor, and the shards' partial answers are merged: counts are summed, the
+ * oldest or longest Novel is picked from each shard's own oldest or longest, and top-k queries merge each shard's
+ * own top k. Ties go to the shard that comes first, so answers do not depend on which shard replies first.
+ * <p>
+ * A Catalogue may be given a partition function that picks the shard for each Novel, as partitionedByHash does
+ * with the hash of the title. Novels added through the Catalogue go to the shard the partition function picks,
+ * and removals are sent to the same shard. A Catalogue built from one shard per store has no partition function:
+ * Novels are added to their store's shard directly, and removals through the Catalogue ask each shard in turn
+ * until the one holding the Novel removes it.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class Catalogue
+{
+    private static final int MIN_SHARDS = 1;
+    private static final int MIN_COUNT = 0;
+    private static final int SHARD = 0;
+    private static final int POSITION = 1;
+    private static final double NONE_PERCENTAGE = 0.0;
+    private static final double PERCENT_CONVERSION_FACTOR = 100.0;
+
+    private final List<CatalogueShard> shards;
+    private final ToIntFunction<Novel> partitioner;
+    private final Executor executor;
+
+    /**
+     * Constructs a new Catalogue over the given shards, with no partition function, such as one shard per store.
+     * Novels must be added to their shards directly.
+     *
+     * @param shards the shards, in the order their answers are merged
+     * @param executor runs the per-shard parts of each query
+     */
+    public Catalogue(final List<? extends CatalogueShard> shards,
+                     final Executor executor)
+    {
+        this(shards, null, executor);
+    }
+
+    /**
+     * Constructs a new Catalogue over the given shards, placing Novels added through it with the given partition
+     * function.
+     *
+     * @param shards the shards, in the order their answers are merged
+     * @param partitioner picks the position in shards of the shard a Novel belongs to, or null if Novels are added
+     *                    to their shards directly
+     * @param executor runs the per-shard parts of each query
+     */
+    public Catalogue(final List<? extends CatalogueShard> shards,
+                     final ToIntFunction<Novel> partitioner,
+                     final Executor executor)
+    {
+        validateShards(shards);
+
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("Invalid executor.");
+        }
+
+        this.shards = List.copyOf(shards);
+        this.partitioner = partitioner;
+        this.executor = executor;
+    }
+
+    /**
+     * Builds a Catalogue of LocalShards and spreads the given Novels across them by the hash of their titles.
+     *
+     * @param catalogueName the name to give each shard, followed by its shard number
+     * @param novels the Novels to stock the Catalogue with
+     * @param shardCount the number of shards to create
+     * @param executor runs the per-shard parts of each query
+     *
+     * @return the new Catalogue
+     */
+    public static Catalogue partitionedByHash(final String catalogueName,
+                                              final Collection<Novel> novels,
+                                              final int shardCount,
+                                              final Executor executor)
+    {
+        if (shardCount < MIN_SHARDS)
+        {
+            throw new IllegalArgumentException("Invalid shard count.");
+        }
+
+        if (novels == null)
+        {
+            throw new IllegalArgumentException("Invalid novels.");
+        }
+
+        final List<List<Novel>> partitions;
+        final List<LocalShard> shards;
+
+        partitions = new ArrayList<>(shardCount);
+        shards = new ArrayList<>(shardCount);
+
+        for (int shard = 0; shard < shardCount; shard++)
+        {
+            partitions.add(new ArrayList<>());
+        }
+
+        for (final Novel novel : novels)
+        {
+            partitions.get(titleHashShard(novel, shardCount)).add(novel);
+        }
+
+        for (int shard = 0; shard < shardCount; shard++)
+        {
+            shards.add(new LocalShard(new Bookstore(catalogueName + " " + shard, partitions.get(shard))));
+        }
+
+        return new Catalogue(shards, novel -> titleHashShard(novel, shardCount), executor);
+    }
+
+    /**
+     * Accessor for the shards of this Catalogue.
+     *
+     * @return a read-only List of the shards
+     */
+    public List<CatalogueShard> getShards()
+    {
+        return this.shards;
+    }
+
+    /**
+     * Adds a Novel to the shard the partition function picks for it.
+     *
+     * @param novel the Novel to add
+     *
+     * @throws IllegalStateException if the Catalogue has no partition function, or it picks no shard
+     */
+    public void addNovel(final Novel novel)
+    {
+        validateNovel(novel);
+
+        if (this.partitioner == null)
+        {
+            throw new IllegalStateException("Catalogue has no partition function; add to a shard directly.");
+        }
+
+        shardFor(novel).addNovel(novel);
+    }
+
+    /**
+     * Removes a Novel from the Catalogue. The Novel is matched by identity. With a partition function, only the
+     * shard it picks is asked; without one, each shard is asked in turn until one removes the Novel.
+     *
+     * @param novel the Novel to remove
+     *
+     * @return true if the Novel was in the Catalogue and has been removed, false otherwise
+     *
+     * @throws IllegalStateException if the partition function picks no shard
+     */
+    public boolean removeNovel(final Novel novel)
+    {
+        validateNovel(novel);
+
+        if (this.partitioner != null)
+        {
+            return shardFor(novel).removeNovel(novel);
+        }
+
+        for (final CatalogueShard shard : this.shards)
+        {
+            if (shard.removeNovel(novel))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the number of Novels across every shard.
+     *
+     * @return the Catalogue size
+     */
+    public long size()
+    {
+        long totalBooks;
+        totalBooks = 0;
+
+        for (final int shardSize : scatter(CatalogueShard::size))
+        {
+            totalBooks += shardSize;
+        }
+
+        return totalBooks;
+    }
+
+    /**
+     * Determines whether any shard has a book written in the given year.
+     *
+     * @param year the year to find a book written in
+     *
+     * @return true if some shard has a book written that year, false otherwise
+     */
+    public boolean isThereABookWrittenIn(final int year)
+    {
+        for (final int booksInYear : scatter(shard -> shard.countPublishedBetween(year, year)))
+        {
+            if (booksInYear > 0)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the number of book titles across every shard containing the given word, matching case exactly.
+     *
+     * @param word the String that book titles contain
+     *
+     * @return the number of books containing word
+     */
+    public long howManyBooksContain(final String word)
+    {
+        long totalBooks;
+        totalBooks = 0;
+
+        for (final int shardBooks : scatter(shard -> shard.howManyBooksContain(word)))
+        {
+            totalBooks += shardBooks;
+        }
+
+        return totalBooks;
+    }
+
+    /**
+     * Returns the books across every shard whose titles contain the given word, ignoring case.
+     *
+     * @param word the String to search for in the book titles
+     *
+     * @return a read-only List of the matching novels, shard by shard
+     */
+    public List<Novel> getBooksContaining(final String word)
+    {
+        final List<Novel> matches;
+        matches = new ArrayList<>();
+
+        for (final List<Novel> shardMatches : scatter(shard -> shard.getBooksContaining(word)))
+        {
+            matches.addAll(shardMatches);
+        }
+
+        return List.copyOf(matches);
+    }
+
+    /**
+     * Determines what percentage of the Catalogue was written between firstYear and lastYear, inclusive. Each
+     * shard reports its count and size, read together, rather than its own percentage, so large and small shards
+     * are weighted correctly and a change to a shard cannot land between its two counts.
+     *
+     * @param firstYear The beginning year of the range.
+     * @param lastYear The final year of the range.
+     *
+     * @return The percentage of the Catalogue that was published within the given range of years.
+     */
+    public double whichPercentWrittenBetween(final int firstYear,
+                                             final int lastYear)
+    {
+        if (lastYear < firstYear)
+        {
+            return NONE_PERCENTAGE;
+        }
+
+        final List<YearRangeCount> shardCounts;
+        long totalBooks;
+        long booksInRange;
+
+        shardCounts = scatter(shard -> shard.countYearRange(firstYear, lastYear));
+        totalBooks = 0;
+        booksInRange = 0;
+
+        for (final YearRangeCount counts : shardCounts)
+        {
+            totalBooks += counts.getTotalBooks();
+            booksInRange += counts.getBooksInRange();
+        }
+
+        final double ratio;
+        ratio = (double) booksInRange / totalBooks;
+
+        return ratio * PERCENT_CONVERSION_FACTOR;
+    }
+
+    /**
+     * Returns the oldest book across every shard based on publishing year.
+     *
+     * @return Novel with oldest publishing year
+     *
+     * @throws NoSuchElementException if no shard has any Novels
+     */
+    public Novel getOldestBook()
+    {
+        Novel oldestNovel;
+        oldestNovel = null;
+
+        for (final Optional<Novel> shardOldest : scatter(CatalogueShard::getOldestBook))
+        {
+            if (shardOldest.isPresent() &&
+                (oldestNovel == null ||
+                 shardOldest.get().getYearPublished() < oldestNovel.getYearPublished()))
+            {
+                oldestNovel = shardOldest.get();
+            }
+        }
+
+        if (oldestNovel == null)
+        {
+            throw new NoSuchElementException("No novels in catalogue.");
+        }
+
+        return oldestNovel;
+    }
+
+    /**
+     * Returns the longest title across every shard.
+     *
+     * @return the String of the longest book title
+     *
+     * @throws NoSuchElementException if no shard has any Novels
+     */
+    public String getLongest()
+    {
+        Novel longestNovel;
+        longestNovel = null;
+
+        for (final Optional<Novel> shardLongest : scatter(CatalogueShard::getLongestBook))
+        {
+            if (shardLongest.isPresent() &&
+                (longestNovel == null ||
+                 shardLongest.get().getTitle().length() > longestNovel.getTitle().length()))
+            {
+                longestNovel = shardLongest.get();
+            }
+        }
+
+        if (longestNovel == null)
+        {
+            throw new NoSuchElementException("No novels in catalogue.");
+        }
+
+        return longestNovel.getTitle();
+    }
+
+    /**
+     * Returns the oldest books across every shard, oldest first. Each shard returns at most count books, so the
+     * merge holds no more than count books per shard.
+     *
+     * @param count the most books to return
+     *
+     * @return a read-only List of up to count novels
+     */
+    public List<Novel> getOldestBooks(final int count)
+    {
+        validateCount(count);
+
+        return merge(scatter(shard -> shard.getOldestBooks(count)),
+                     Comparator.comparingInt(Novel::getYearPublished),
+                     count);
+    }
+
+    /**
+     * Returns the books with the longest titles across every shard, longest first.
+     *
+     * @param count the most books to return
+     *
+     * @return a read-only List of up to count novels
+     */
+    public List<Novel> getLongestBooks(final int count)
+    {
+        validateCount(count);
+
+        final Comparator<Novel> byTitleLength;
+        byTitleLength = Comparator.comparingInt(novel -> novel.getTitle().length());
+
+        return merge(scatter(shard -> shard.getLongestBooks(count)),
+                     byTitleLength.reversed(),
+                     count);
+    }
+
+    /*
+     * Merges lists that are each sorted in the given order, keeping only the first count Novels. A heap holds the
+     * position reached in each list, so the merge takes O(count log shards) time. Equal Novels are taken from the
+     * earlier list first.
+     *
+     * @param sortedLists the lists to merge, in shard order
+     * @param order the order every list is sorted in
+     * @param count the most Novels to return
+     *
+     * @return a read-only List of up to count Novels in the given order
+     */
+    private static List<Novel> merge(final List<List<Novel>> sortedLists,
+                                     final Comparator<Novel> order,
+                                     final int count)
+    {
+        final PriorityQueue<int[]> heads;
+        final List<Novel> merged;
+
+        heads = new PriorityQueue<>(sortedLists.size(),
+                                    (first, second) ->
+                                    {
+                                        final int byOrder;
+                                        byOrder = order.compare(sortedLists.get(first[SHARD]).get(first[POSITION]),
+                                                                sortedLists.get(second[SHARD]).get(second[POSITION]));
+
+                                        if (byOrder != 0)
+                                        {
+                                            return byOrder;
+                                        }
+
+                                        return Integer.compare(first[SHARD], second[SHARD]);
+                                    });
+        merged = new ArrayList<>();
+
+        for (int shard = 0; shard < sortedLists.size(); shard++)
+        {
+            if (!sortedLists.get(shard).isEmpty())
+            {
+                heads.add(new int[] {shard, 0});
+            }
+        }
+
+        while (merged.size() < count &&
+               !heads.isEmpty())
+        {
+            final int[] head;
+            final List<Novel> sortedList;
+
+            head = heads.poll();
+            sortedList = sortedLists.get(head[SHARD]);
+
+            merged.add(sortedList.get(head[POSITION]));
+            head[POSITION]++;
+
+            if (head[POSITION] < sortedList.size())
+            {
+                heads.add(head);
+            }
+        }
+
+        return List.copyOf(merged);
+    }
+
+    /*
+     * Runs a query on every shard at once and waits for all of them. If any shard fails, its exception is thrown
+     * here once every shard has finished.
+     *
+     * @param shardQuery the query to run on each shard
+     * @param <T> the type of each shard's answer
+     *
+     * @return each shard's answer, in shard order
+     */
+    private <T> List<T> scatter(final Function<CatalogueShard, T> shardQuery)
+    {
+        final List<CompletableFuture<T>> pendingAnswers;
+        final List<T> answers;
+
+        pendingAnswers = new ArrayList<>(this.shards.size());
+        answers = new ArrayList<>(this.shards.size());
+
+        for (final CatalogueShard shard : this.shards)
+        {
+            pendingAnswers.add(CompletableFuture.supplyAsync(() -> shardQuery.apply(shard), this.executor));
+        }
+
+        try
+        {
+            CompletableFuture.allOf(pendingAnswers.toArray(new CompletableFuture<?>[0]))
+                             .join();
+        }
+        catch (final CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+
+            throw e;
+        }
+
+        for (final CompletableFuture<T> pendingAnswer : pendingAnswers)
+        {
+            answers.add(pendingAnswer.join());
+        }
+
+        return answers;
+    }
+
+    /*
+     * Picks the shard a Novel belongs to with the partition function.
+     *
+     * @param novel the Novel to place
+     *
+     * @return the Novel's shard
+     */
+    private CatalogueShard shardFor(final Novel novel)
+    {
+        final int shard;
+        shard = this.partitioner.applyAsInt(novel);
+
+        if (shard < 0 ||
+            shard >= this.shards.size())
+        {
+            throw new IllegalStateException("Partition function picked no shard.");
+        }
+
+        return this.shards.get(shard);
+    }
+
+    /*
+     * Picks the shard a Novel belongs to by the hash of its title.
+     *
+     * @param novel the Novel to place
+     * @param shardCount the number of shards
+     *
+     * @return the index of the Novel's shard
+     */
+    private static int titleHashShard(final Novel novel,
+                                      final int shardCount)
+    {
+        return Math.floorMod(novel.getTitle().hashCode(), shardCount);
+    }
+
+    /*
+     * Validates the shards of a Catalogue. The shards are valid if there is at least one and none is null.
+     *
+     * @param shards the shards to validate
+     */
+    private static void validateShards(final List<? extends CatalogueShard> shards)
+    {
+        if (shards == null ||
+            shards.size() < MIN_SHARDS)
+        {
+            throw new IllegalArgumentException("Invalid shards.");
+        }
+
+        for (final CatalogueShard shard : shards)
+        {
+            if (shard == null)
+            {
+                throw new IllegalArgumentException("Invalid shards.");
+            }
+        }
+    }
+
+    /*
+     * Validates the number of books asked for by a top-k query. A count is valid if it is not negative.
+     *
+     * @param count the count to validate
+     */
+    private static void validateCount(final int count)
+    {
+        if (count < MIN_COUNT)
+        {
+            throw new IllegalArgumentException("Invalid count.");
+        }
+    }
+
+    /*
+     * Validates a Novel passed to the Catalogue. A Novel is valid if it is not null.
+     *
+     * @param novel the Novel to validate
+     */
+    private static void validateNovel(final Novel novel)
+    {
+        if (novel == null)
+        {
+            throw new IllegalArgumentException("Invalid novel.");
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Streams Novels out of a delimited catalogue file with one "title, author, year" record per line. The file is
+ * read through a fixed-size buffer and fields are parsed straight from the bytes, so memory use does not depend
+ * on the size of the file. Fields may be wrapped in double quotes, with a doubled quote standing for a literal
+ * one, so titles such as "Rabbit, Run" can be loaded from CSV. Records are validated by constructing a Novel, and
+ * any line that cannot be loaded is reported with its line number rather than stopping the load. A CatalogueLoader
+ * reuses its buffers between lines, so it must only be used by one thread at a time.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class CatalogueLoader
+{
+    /**
+     * The delimiter for comma-separated catalogues.
+     */
+    public static final char CSV_DELIMITER = ',';
+
+    /**
+     * The delimiter for tab-separated catalogues.
+     */
+    public static final char TSV_DELIMITER = '\t';
+
+    private static final int END_OF_STREAM = -1;
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+    private static final int INITIAL_LINE_BYTES = 256;
+    private static final int MAX_LINE_BYTES = 1 << 20;
+    private static final int GROWTH_FACTOR = 2;
+    private static final int FIELDS_PER_RECORD = 3;
+    private static final int TITLE_FIELD = 0;
+    private static final int AUTHOR_FIELD = 1;
+    private static final int YEAR_FIELD = 2;
+    private static final int MAX_YEAR_DIGITS = 9;
+    private static final int DECIMAL_RADIX = 10;
+    private static final int FIRST_LINE_NUMBER = 1;
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte QUOTE = '"';
+    private static final byte MINUS = '-';
+    private static final byte ZERO = '0';
+    private static final byte NINE = '9';
+
+    /**
+     * Receives the lines of a catalogue that could not be loaded.
+     */
+    @FunctionalInterface
+    public interface ErrorHandler
+    {
+        /**
+         * Called once for every line that could not be loaded.
+         *
+         * @param lineNumber the line number, starting from 1
+         * @param message why the line could not be loaded
+         */
+        void onError(long lineNumber, String message);
+    }
+
+    private final byte delimiter;
+    private final byte[] fieldBytes;
+    private final String[] textFields;
+
+    private byte[] lineBytes;
+    private int yearPublished;
+
+    /**
+     * Constructs a new CatalogueLoader for files using the given field delimiter.
+     *
+     * @param delimiter the character between fields, such as CSV_DELIMITER or TSV_DELIMITER
+     */
+    public CatalogueLoader(final char delimiter)
+    {
+        validateDelimiter(delimiter);
+
+        this.delimiter = (byte) delimiter;
+        this.fieldBytes = new byte[MAX_LINE_BYTES];
+        this.textFields = new String[FIELDS_PER_RECORD];
+        this.lineBytes = new byte[INITIAL_LINE_BYTES];
+    }
+
+    /**
+     * Loads every valid record in a catalogue file, in file order. Blank lines are skipped.
+     *
+     * @param catalogue the file to load
+     * @param sink receives each Novel loaded, for example a Bookstore's addNovel method
+     * @param errorHandler receives every line that could not be loaded
+     *
+     * @return the number of Novels loaded
+     *
+     * @throws IOException if the file cannot be read
+     */
+    public long load(final Path catalogue,
+                     final Consumer<Novel> sink,
+                     final ErrorHandler errorHandler) throws IOException
+    {
+        final ByteBuffer readBuffer;
+        long lineNumber;
+        long novelsLoaded;
+        int lineLength;
+        boolean lineTooLong;
+
+        readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        lineNumber = FIRST_LINE_NUMBER;
+        novelsLoaded = 0;
+        lineLength = 0;
+        lineTooLong = false;
+
+        try (final FileChannel channel = FileChannel.open(catalogue, StandardOpenOption.READ))
+        {
+            while (channel.read(readBuffer) != END_OF_STREAM)
+            {
+                final byte[] readBytes;
+                final int bytesRead;
+                int position;
+
+                readBytes = readBuffer.array();
+                bytesRead = readBuffer.position();
+                position = 0;
+
+                while (position < bytesRead)
+                {
+                    final int chunkLength;
+                    final int bytesToKeep;
+                    int lineEnd;
+
+                    lineEnd = position;
+
+                    while (lineEnd < bytesRead &&
+                           readBytes[lineEnd] != NEWLINE)
+                    {
+                        lineEnd++;
+                    }
+
+                    chunkLength = lineEnd - position;
+                    bytesToKeep = Math.min(chunkLength, MAX_LINE_BYTES - lineLength);
+
+                    ensureLineCapacity(lineLength + bytesToKeep);
+                    System.arraycopy(readBytes, position, this.lineBytes, lineLength, bytesToKeep);
+
+                    lineLength += bytesToKeep;
+                    lineTooLong |= bytesToKeep < chunkLength;
+
+                    if (lineEnd == bytesRead)
+                    {
+                        break;
+                    }
+
+                    if (loadLine(lineLength, lineTooLong, lineNumber, sink, errorHandler))
+                    {
+                        novelsLoaded++;
+                    }
+
+                    lineNumber++;
+                    lineLength = 0;
+                    lineTooLong = false;
+                    position = lineEnd + 1;
+                }
+
+                readBuffer.clear();
+            }
+        }
+
+        if (lineLength > 0 &&
+            loadLine(lineLength, lineTooLong, lineNumber, sink, errorHandler))
+        {
+            novelsLoaded++;
+        }
+
+        return novelsLoaded;
+    }
+
+    /*
+     * Parses and validates one line, passing the resulting Novel to the sink or reporting why it failed.
+     *
+     * @param lineLength the number of bytes in the line, excluding the newline
+     * @param lineTooLong true if the line was cut off at MAX_LINE_BYTES
+     * @param lineNumber the line number, for error reporting
+     * @param sink receives the Novel if the line is valid
+     * @param errorHandler receives the error if the line is invalid
+     *
+     * @return true if a Novel was loaded, false if the line was blank or invalid
+     */
+    private boolean loadLine(final int lineLength,
+                             final boolean lineTooLong,
+                             final long lineNumber,
+                             final Consumer<Novel> sink,
+                             final ErrorHandler errorHandler)
+    {
+        int contentLength;
+        contentLength = lineLength;
+
+        if (contentLength > 0 &&
+            this.lineBytes[contentLength - 1] == CARRIAGE_RETURN)
+        {
+            contentLength--;
+        }
+
+        if (contentLength == 0)
+        {
+            return false;
+        }
+
+        if (lineTooLong)
+        {
+            errorHandler.onError(lineNumber, "Line longer than " + MAX_LINE_BYTES + " bytes.");
+            return false;
+        }
+
+        final Novel novel;
+
+        try
+        {
+            parseFields(contentLength);
+            novel = new Novel(this.textFields[TITLE_FIELD], this.textFields[AUTHOR_FIELD], this.yearPublished);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            errorHandler.onError(lineNumber, e.getMessage());
+            return false;
+        }
+
+        sink.accept(novel);
+
+        return true;
+    }
+
+    /*
+     * Splits the current line into its title, author and year fields, unquoting them where necessary.
+     *
+     * @param contentLength the number of bytes in the line, excluding any line terminator
+     */
+    private void parseFields(final int contentLength)
+    {
+        int position;
+        int fieldIndex;
+
+        position = 0;
+        fieldIndex = 0;
+
+        while (true)
+        {
+            final byte[] source;
+            final int fieldStart;
+            final int fieldLength;
+
+            if (fieldIndex == FIELDS_PER_RECORD)
+            {
+                throw new IllegalArgumentException("Expected " + FIELDS_PER_RECORD + " fields but found more.");
+            }
+
+            if (position < contentLength &&
+                this.lineBytes[position] == QUOTE)
+            {
+                int unquotedLength;
+                unquotedLength = 0;
+                position++;
+
+                while (true)
+                {
+                    if (position == contentLength)
+                    {
+                        throw new IllegalArgumentException("Unterminated quoted field.");
+                    }
+
+                    final byte current;
+                    current = this.lineBytes[position];
+
+                    if (current == QUOTE &&
+                        position + 1 < contentLength &&
+                        this.lineBytes[position + 1] == QUOTE)
+                    {
+                        this.fieldBytes[unquotedLength] = QUOTE;
+                        unquotedLength++;
+                        position += 2;
+                    }
+                    else if (current == QUOTE)
+                    {
+                        position++;
+                        break;
+                    }
+                    else
+                    {
+                        this.fieldBytes[unquotedLength] = current;
+                        unquotedLength++;
+                        position++;
+                    }
+                }
+
+                if (position < contentLength &&
+                    this.lineBytes[position] != this.delimiter)
+                {
+                    throw new IllegalArgumentException("Unexpected character after quoted field.");
+                }
+
+                source = this.fieldBytes;
+                fieldStart = 0;
+                fieldLength = unquotedLength;
+            }
+            else
+            {
+                fieldStart = position;
+
+                while (position < contentLength &&
+                       this.lineBytes[position] != this.delimiter)
+                {
+                    position++;
+                }
+
+                source = this.lineBytes;
+                fieldLength = position - fieldStart;
+            }
+
+            if (fieldIndex == YEAR_FIELD)
+            {
+                this.yearPublished = parseYear(source, fieldStart, fieldLength);
+            }
+            else
+            {
+                this.textFields[fieldIndex] = new String(source, fieldStart, fieldLength, StandardCharsets.UTF_8);
+            }
+
+            fieldIndex++;
+
+            if (position == contentLength)
+            {
+                break;
+            }
+
+            position++;
+        }
+
+        if (fieldIndex != FIELDS_PER_RECORD)
+        {
+            throw new IllegalArgumentException("Expected " + FIELDS_PER_RECORD + " fields but found " +
+                                               fieldIndex + ".");
+        }
+    }
+
+    /*
+     * Parses a year of publication written as an optionally negative decimal integer.
+     *
+     * @param source the bytes holding the field
+     * @param fieldStart the position of the first byte of the field
+     * @param fieldLength the number of bytes in the field
+     *
+     * @return the year
+     */
+    private static int parseYear(final byte[] source,
+                                 final int fieldStart,
+                                 final int fieldLength)
+    {
+        final boolean negative;
+        final int firstDigit;
+        final int fieldEnd;
+        int year;
+
+        negative = fieldLength > 0 && source[fieldStart] == MINUS;
+        firstDigit = negative ? fieldStart + 1 : fieldStart;
+        fieldEnd = fieldStart + fieldLength;
+        year = 0;
+
+        if (firstDigit == fieldEnd ||
+            fieldEnd - firstDigit > MAX_YEAR_DIGITS)
+        {
+            throw new IllegalArgumentException("Invalid year of publication.");
+        }
+
+        for (int position = firstDigit; position < fieldEnd; position++)
+        {
+            final byte digit;
+            digit = source[position];
+
+            if (digit < ZERO ||
+                digit > NINE)
+            {
+                throw new IllegalArgumentException("Invalid year of publication.");
+            }
+
+            year = year * DECIMAL_RADIX + (digit - ZERO);
+        }
+
+        return negative ? -year : year;
+    }
+
+    /*
+     * Grows the line buffer so it can hold at least the given number of bytes.
+     *
+     * @param requiredBytes the number of bytes needed
+     */
+    private void ensureLineCapacity(final int requiredBytes)
+    {
+        if (requiredBytes <= this.lineBytes.length)
+        {
+            return;
+        }
+
+        final int newCapacity;
+        newCapacity = Math.min(MAX_LINE_BYTES, Math.max(requiredBytes, this.lineBytes.length * GROWTH_FACTOR));
+
+        this.lineBytes = Arrays.copyOf(this.lineBytes, newCapacity);
+    }
+
+    /*
+     * Validates a field delimiter. A delimiter is valid if it is a single-byte character other than a quote or a
+     * line terminator.
+     *
+     * @param delimiter the delimiter to validate
+     */
+    private static void validateDelimiter(final char delimiter)
+    {
+        if (delimiter > Byte.MAX_VALUE ||
+            delimiter == QUOTE ||
+            delimiter == NEWLINE ||
+            delimiter == CARRIAGE_RETURN)
+        {
+            throw new IllegalArgumentException("Invalid delimiter.");
+        }
+    }
+}
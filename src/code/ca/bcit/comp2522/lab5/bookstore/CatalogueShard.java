@@ -0,0 +1,122 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One partition of a Catalogue. Each method answers a query for this shard's Novels only, in a form a Catalogue
+ * can merge with the other shards' answers: counts are summed, the oldest or longest Novel of each shard is
+ * compared, and top-k lists are merged. A shard may live in this process, like LocalShard, or stand in for a store
+ * elsewhere; implementations that reach other processes should report failures as unchecked exceptions, which the
+ * Catalogue passes on to its caller. Implementations must be safe to call from several threads at once.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public interface CatalogueShard
+{
+    /**
+     * Accessor for the name of this shard, such as the name of the store it holds.
+     *
+     * @return the shard name
+     */
+    String getShardName();
+
+    /**
+     * Adds a Novel to this shard.
+     *
+     * @param novel the Novel to add
+     */
+    void addNovel(Novel novel);
+
+    /**
+     * Removes a Novel from this shard. The Novel is matched by identity.
+     *
+     * @param novel the Novel to remove
+     *
+     * @return true if the Novel was in this shard and has been removed, false otherwise
+     */
+    boolean removeNovel(Novel novel);
+
+    /**
+     * Returns the number of Novels in this shard.
+     *
+     * @return the shard size
+     */
+    int size();
+
+    /**
+     * Counts the Novels in this shard published between firstYear and lastYear, inclusive.
+     *
+     * @param firstYear the beginning year of the range
+     * @param lastYear the final year of the range
+     *
+     * @return the number of Novels published within the range
+     */
+    int countPublishedBetween(int firstYear,
+                              int lastYear);
+
+    /**
+     * Counts the Novels in this shard, and how many of them were published between firstYear and lastYear,
+     * inclusive, as of the same moment.
+     *
+     * @param firstYear the beginning year of the range
+     * @param lastYear the final year of the range
+     *
+     * @return the shard size and the number of Novels published within the range
+     */
+    YearRangeCount countYearRange(int firstYear,
+                                  int lastYear);
+
+    /**
+     * Counts the Novels in this shard whose titles contain the given word, matching case exactly.
+     *
+     * @param word the String titles must contain
+     *
+     * @return the number of matching Novels
+     */
+    int howManyBooksContain(String word);
+
+    /**
+     * Returns the Novels in this shard whose titles contain the given word, ignoring case.
+     *
+     * @param word the String titles must contain
+     *
+     * @return the matching Novels in this shard's inventory order
+     */
+    List<Novel> getBooksContaining(String word);
+
+    /**
+     * Returns the first Novel in this shard with the oldest publishing year.
+     *
+     * @return the oldest Novel, or an empty Optional if the shard has no Novels
+     */
+    Optional<Novel> getOldestBook();
+
+    /**
+     * Returns the oldest Novels in this shard.
+     *
+     * @param count the most Novels to return
+     *
+     * @return up to count Novels, oldest first, with Novels from the same year in this shard's inventory order
+     */
+    List<Novel> getOldestBooks(int count);
+
+    /**
+     * Returns the first Novel in this shard with the longest title.
+     *
+     * @return the Novel with the longest title, or an empty Optional if the shard has no Novels
+     */
+    Optional<Novel> getLongestBook();
+
+    /**
+     * Returns the Novels in this shard with the longest titles.
+     *
+     * @param count the most Novels to return
+     *
+     * @return up to count Novels, longest title first, with equal lengths in this shard's inventory order
+     */
+    List<Novel> getLongestBooks(int count);
+}
@@ -0,0 +1,303 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.Arrays;
+
+/**
+ * Builds and compares the case-folded collation keys Novels keep for their titles. A key is the title folded one
+ * code point at a time, the way String.compareToIgnoreCase and String.regionMatches fold it, and then encoded as
+ * UTF-8. UTF-8 preserves code point order under unsigned byte comparison, so comparing two keys byte by byte
+ * orders them exactly as compareToIgnoreCase orders their titles, and a case-insensitive substring search becomes
+ * a plain byte search. Unpaired surrogates are encoded like any other code point, so no title loses information,
+ * but Strings containing them may order or match slightly differently than the String methods, which sometimes
+ * compare half of a surrogate pair on its own.
+ * <p>
+ * The keys are not locale-aware: a java.text.Collator would order accented and punctuated titles differently,
+ * which would change the alphabetical order the Bookstore has always used.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class CollationKey
+{
+    private static final int MAX_ONE_BYTE = 0x7F;
+    private static final int MAX_TWO_BYTES = 0x7FF;
+    private static final int MAX_THREE_BYTES = 0xFFFF;
+    private static final int TWO_BYTE_LEAD = 0xC0;
+    private static final int THREE_BYTE_LEAD = 0xE0;
+    private static final int FOUR_BYTE_LEAD = 0xF0;
+    private static final int CONTINUATION = 0x80;
+    private static final int CONTINUATION_MASK = 0x3F;
+    private static final int BITS_PER_CONTINUATION = 6;
+    private static final int MAX_BYTES_PER_CHAR = 3;
+
+    /*
+     * Prevents instantiation; CollationKey only has static methods.
+     */
+    private CollationKey()
+    {
+    }
+
+    /**
+     * Builds the collation key for a String.
+     *
+     * @param text the String to build a key for
+     *
+     * @return the case-folded UTF-8 bytes of the String
+     */
+    static byte[] of(final String text)
+    {
+        final byte[] buffer;
+        int length;
+
+        buffer = new byte[text.length() * MAX_BYTES_PER_CHAR];
+        length = 0;
+
+        for (int index = 0; index < text.length(); )
+        {
+            final int codePoint;
+            final int folded;
+
+            codePoint = text.codePointAt(index);
+            folded = foldCodePoint(codePoint);
+            length = encode(folded, buffer, length);
+
+            index += Character.charCount(codePoint);
+        }
+
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Folds a String the same way its collation key is folded, but keeps it as a String.
+     *
+     * @param text the String to fold
+     *
+     * @return the case-folded String
+     */
+    static String fold(final String text)
+    {
+        final StringBuilder folded;
+        folded = new StringBuilder(text.length());
+
+        for (int index = 0; index < text.length(); )
+        {
+            final int codePoint;
+            codePoint = text.codePointAt(index);
+
+            folded.appendCodePoint(foldCodePoint(codePoint));
+
+            index += Character.charCount(codePoint);
+        }
+
+        return folded.toString();
+    }
+
+    /**
+     * Compares two collation keys.
+     *
+     * @param first the first key
+     * @param second the second key
+     *
+     * @return a negative number, zero or a positive number as the first key sorts before, with or after the second
+     */
+    static int compare(final byte[] first,
+                       final byte[] second)
+    {
+        return Arrays.compareUnsigned(first, second);
+    }
+
+    /**
+     * Determines whether a collation key starts with another.
+     *
+     * @param key the key to check
+     * @param prefix the key it must start with
+     *
+     * @return true if key starts with prefix, false otherwise
+     */
+    static boolean startsWith(final byte[] key,
+                              final byte[] prefix)
+    {
+        return key.length >= prefix.length &&
+               Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * Determines whether a collation key contains another. Because UTF-8 is self-synchronizing, a byte match always
+     * starts and ends on code point boundaries, so this is the same as a case-insensitive substring search of the
+     * original Strings.
+     *
+     * @param key the key to search
+     * @param word the key to search for
+     *
+     * @return true if key contains word, false otherwise
+     */
+    static boolean contains(final byte[] key,
+                            final byte[] word)
+    {
+        if (word.length == 0)
+        {
+            return true;
+        }
+
+        final byte firstByte;
+        final int lastStart;
+
+        firstByte = word[0];
+        lastStart = key.length - word.length;
+
+        for (int start = 0; start <= lastStart; start++)
+        {
+            if (key[start] == firstByte &&
+                Arrays.equals(key, start, start + word.length, word, 0, word.length))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Determines whether a String is entirely ASCII, so containsAscii can search for it without building its key.
+     *
+     * @param text the String to check
+     *
+     * @return true if every character is ASCII, false otherwise
+     */
+    static boolean isAscii(final String text)
+    {
+        for (int index = 0; index < text.length(); index++)
+        {
+            if (text.charAt(index) > MAX_ONE_BYTE)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Determines whether a key contains the key of an ASCII word, folding the word's letters while comparing instead
+     * of building its key, so the search allocates nothing. Every byte of a multi-byte UTF-8 sequence is outside
+     * ASCII, so a match always starts and ends on a whole code point, exactly as with contains.
+     *
+     * @param key the key to search
+     * @param asciiWord the word to search for, which must be entirely ASCII
+     *
+     * @return true if the key contains the word's key, false otherwise
+     */
+    static boolean containsAscii(final byte[] key,
+                                 final String asciiWord)
+    {
+        final int lastStart;
+        lastStart = key.length - asciiWord.length();
+
+        for (int start = 0; start <= lastStart; start++)
+        {
+            int matched;
+            matched = 0;
+
+            while (matched < asciiWord.length() &&
+                   key[start + matched] == foldAscii(asciiWord.charAt(matched)))
+            {
+                matched++;
+            }
+
+            if (matched == asciiWord.length())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * Folds one code point the way String.compareToIgnoreCase does.
+     *
+     * @param codePoint the code point to fold
+     *
+     * @return the folded code point
+     */
+    private static int foldCodePoint(final int codePoint)
+    {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+
+    /*
+     * Encodes a code point as UTF-8, including surrogate code points.
+     *
+     * @param codePoint the code point to encode
+     * @param buffer where to write the bytes
+     * @param offset the position of the first byte to write
+     *
+     * @return the position after the last byte written
+     */
+    private static int encode(final int codePoint,
+                              final byte[] buffer,
+                              final int offset)
+    {
+        if (codePoint <= MAX_ONE_BYTE)
+        {
+            buffer[offset] = (byte) codePoint;
+            return offset + 1;
+        }
+
+        if (codePoint <= MAX_TWO_BYTES)
+        {
+            buffer[offset] = (byte) (TWO_BYTE_LEAD | codePoint >>> BITS_PER_CONTINUATION);
+            buffer[offset + 1] = continuation(codePoint, 0);
+            return offset + 2;
+        }
+
+        if (codePoint <= MAX_THREE_BYTES)
+        {
+            buffer[offset] = (byte) (THREE_BYTE_LEAD | codePoint >>> (BITS_PER_CONTINUATION * 2));
+            buffer[offset + 1] = continuation(codePoint, 1);
+            buffer[offset + 2] = continuation(codePoint, 0);
+            return offset + 3;
+        }
+
+        buffer[offset] = (byte) (FOUR_BYTE_LEAD | codePoint >>> (BITS_PER_CONTINUATION * 3));
+        buffer[offset + 1] = continuation(codePoint, 2);
+        buffer[offset + 2] = continuation(codePoint, 1);
+        buffer[offset + 3] = continuation(codePoint, 0);
+        return offset + 4;
+    }
+
+    /*
+     * Builds a UTF-8 continuation byte from six bits of a code point.
+     *
+     * @param codePoint the code point being encoded
+     * @param group which group of six bits to use, counting from the lowest
+     *
+     * @return the continuation byte
+     */
+    private static byte continuation(final int codePoint,
+                                     final int group)
+    {
+        return (byte) (CONTINUATION | codePoint >>> (BITS_PER_CONTINUATION * group) & CONTINUATION_MASK);
+    }
+
+    /*
+     * Folds an ASCII character the way of() folds it: upper case letters become lower case, and every other
+     * character is unchanged.
+     *
+     * @param character the ASCII character to fold
+     *
+     * @return the folded character's UTF-8 byte
+     */
+    private static byte foldAscii(final char character)
+    {
+        if (character >= 'A' &&
+            character <= 'Z')
+        {
+            return (byte) (character - 'A' + 'a');
+        }
+
+        return (byte) character;
+    }
+}
@@ -0,0 +1,504 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores an inventory of Novels column by column instead of as one object per Novel. Years are kept in a short
+ * column, authors are dictionary-encoded into an int column, and titles are packed into a single byte array indexed
+ * by an offsets column. Queries scan the primitive columns directly and only build Novel objects for the rows they
+ * return.
+ * <p>
+ * Titles are encoded one char at a time in the UTF-8 byte layout, so a surrogate pair takes two three-byte
+ * sequences and an unpaired surrogate is kept rather than replaced, as String.getBytes would. Every title decodes
+ * back to exactly the Novel's title, and because the encoding of a String is the encodings of its chars laid end to
+ * end, a byte search for an encoded word matches exactly the titles that String.contains would.
+ * <p>
+ * ColumnarInventory is a side structure for full-scan workloads: a Bookstore answers the same queries from its own
+ * indexes and does not route its scans through the columns.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class ColumnarInventory
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_TITLE_BYTES = 256;
+    private static final int GROWTH_FACTOR = 2;
+    private static final int NO_BOOKS = 0;
+    private static final double NONE_PERCENTAGE = 0.0;
+    private static final double PERCENT_CONVERSION_FACTOR = 100.0;
+    private static final int MAX_ONE_BYTE = 0x7F;
+    private static final int MAX_TWO_BYTES = 0x7FF;
+    private static final int TWO_BYTE_LEAD = 0xC0;
+    private static final int THREE_BYTE_LEAD = 0xE0;
+    private static final int TWO_BYTE_PAYLOAD = 0x1F;
+    private static final int THREE_BYTE_PAYLOAD = 0x0F;
+    private static final int CONTINUATION = 0x80;
+    private static final int CONTINUATION_MASK = 0x3F;
+    private static final int BITS_PER_CONTINUATION = 6;
+    private static final int MAX_BYTES_PER_CHAR = 3;
+    private static final int BYTE_MASK = 0xFF;
+
+    private final List<String> authorNames;
+    private final Map<String, Integer> authorIds;
+
+    private int size;
+    private short[] years;
+    private int[] authorColumn;
+    private int[] titleLengths;
+    private int[] titleOffsets;
+    private byte[] titleBytes;
+
+    /**
+     * Constructs a new, empty ColumnarInventory.
+     */
+    public ColumnarInventory()
+    {
+        this.authorNames = new ArrayList<>();
+        this.authorIds = new HashMap<>();
+
+        this.size = NO_BOOKS;
+        this.years = new short[INITIAL_CAPACITY];
+        this.authorColumn = new int[INITIAL_CAPACITY];
+        this.titleLengths = new int[INITIAL_CAPACITY];
+        this.titleOffsets = new int[INITIAL_CAPACITY + 1];
+        this.titleBytes = new byte[INITIAL_TITLE_BYTES];
+    }
+
+    /**
+     * Appends a Novel to the inventory.
+     *
+     * @param novel the Novel to append
+     */
+    public void add(final Novel novel)
+    {
+        if (novel == null)
+        {
+            throw new IllegalArgumentException("Invalid novel.");
+        }
+
+        ensureRowCapacity();
+
+        final String title;
+        final byte[] encodedTitle;
+        final int titleStart;
+        final int titleEnd;
+
+        title = novel.getTitle();
+        encodedTitle = encode(title);
+        titleStart = this.titleOffsets[this.size];
+        titleEnd = titleStart + encodedTitle.length;
+
+        ensureTitleCapacity(titleEnd);
+        System.arraycopy(encodedTitle, 0, this.titleBytes, titleStart, encodedTitle.length);
+
+        this.years[this.size] = (short) novel.getYearPublished();
+        this.authorColumn[this.size] = authorIdFor(novel.getAuthorName());
+        this.titleLengths[this.size] = title.length();
+        this.titleOffsets[this.size + 1] = titleEnd;
+        this.size++;
+    }
+
+    /**
+     * Returns the number of Novels in the inventory.
+     *
+     * @return the number of Novels
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Builds the Novel stored in the given row.
+     *
+     * @param row the row of the Novel, from zero to size() - 1
+     *
+     * @return a Novel with the row's title, author and year of publication
+     */
+    public Novel getNovel(final int row)
+    {
+        validateRow(row);
+
+        return new Novel(titleAt(row), this.authorNames.get(this.authorColumn[row]), this.years[row]);
+    }
+
+    /**
+     * Returns the longest title in the inventory. When several titles share the longest length, the first one is
+     * returned.
+     *
+     * @return the String of the longest book title
+     */
+    public String getLongest()
+    {
+        validateRow(0);
+
+        int longestRow;
+        longestRow = 0;
+
+        for (int row = 1; row < this.size; row++)
+        {
+            if (this.titleLengths[row] > this.titleLengths[longestRow])
+            {
+                longestRow = row;
+            }
+        }
+
+        return titleAt(longestRow);
+    }
+
+    /**
+     * Determines whether the inventory has a book written in the given year.
+     *
+     * @param year the year to find a book written in
+     *
+     * @return true if there is a book written that year, false otherwise.
+     */
+    public boolean isThereABookWrittenIn(final int year)
+    {
+        for (int row = 0; row < this.size; row++)
+        {
+            if (this.years[row] == year)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the number of book titles containing a provided String word. Matching is case-sensitive and is done
+     * on the encoded title bytes without decoding any titles.
+     *
+     * @param word is the String that book titles contain
+     *
+     * @return int representing number of books containing word
+     */
+    public int howManyBooksContain(final String word)
+    {
+        final byte[] encodedWord;
+        int numBooksContainingWord;
+
+        encodedWord = encode(word);
+        numBooksContainingWord = NO_BOOKS;
+
+        for (int row = 0; row < this.size; row++)
+        {
+            if (titleBytesContain(row, encodedWord))
+            {
+                numBooksContainingWord++;
+            }
+        }
+
+        return numBooksContainingWord;
+    }
+
+    /**
+     * Determines what percentage of the inventory was written between firstYear and lastYear, inclusive.
+     *
+     * @param firstYear The beginning year of the range.
+     * @param lastYear The final year of the range.
+     *
+     * @return The percentage of the inventory that was published within the given range of years.
+     */
+    public double whichPercentWrittenBetween(final int firstYear,
+                                             final int lastYear)
+    {
+        if (lastYear < firstYear)
+        {
+            return NONE_PERCENTAGE;
+        }
+
+        int booksInRange;
+        booksInRange = NO_BOOKS;
+
+        for (int row = 0; row < this.size; row++)
+        {
+            final int yearPublished;
+            yearPublished = this.years[row];
+
+            if (yearPublished >= firstYear &&
+                yearPublished <= lastYear)
+            {
+                booksInRange++;
+            }
+        }
+
+        final double ratio;
+        ratio = (double) booksInRange / this.size;
+
+        return ratio * PERCENT_CONVERSION_FACTOR;
+    }
+
+    /**
+     * Returns the oldest book in the inventory based on publishing year. When several books share the oldest year,
+     * the first one is returned.
+     *
+     * @return Novel with oldest publishing year
+     */
+    public Novel getOldestBook()
+    {
+        validateRow(0);
+
+        int oldestRow;
+        oldestRow = 0;
+
+        for (int row = 1; row < this.size; row++)
+        {
+            if (this.years[row] < this.years[oldestRow])
+            {
+                oldestRow = row;
+            }
+        }
+
+        return getNovel(oldestRow);
+    }
+
+    /**
+     * Returns all books in the inventory whose titles are of the given length.
+     *
+     * @param titleLength the length of titles to get books of
+     *
+     * @return a List of the novels that have titles of the given length
+     */
+    public List<Novel> getBooksThisLength(final int titleLength)
+    {
+        final List<Novel> novelsOfLength;
+        novelsOfLength = new ArrayList<>();
+
+        for (int row = 0; row < this.size; row++)
+        {
+            if (this.titleLengths[row] == titleLength)
+            {
+                novelsOfLength.add(getNovel(row));
+            }
+        }
+
+        return novelsOfLength;
+    }
+
+    /*
+     * Decodes the title stored in the given row.
+     *
+     * @param row the row to decode
+     *
+     * @return the title
+     */
+    private String titleAt(final int row)
+    {
+        final int titleStart;
+        final int titleEnd;
+
+        titleStart = this.titleOffsets[row];
+        titleEnd = this.titleOffsets[row + 1];
+
+        return decode(this.titleBytes, titleStart, titleEnd);
+    }
+
+    /*
+     * Encodes a String one char at a time in the UTF-8 byte layout, including surrogate chars.
+     *
+     * @param text the String to encode
+     *
+     * @return the encoded bytes
+     */
+    private static byte[] encode(final String text)
+    {
+        final byte[] buffer;
+        int length;
+
+        buffer = new byte[text.length() * MAX_BYTES_PER_CHAR];
+        length = 0;
+
+        for (int index = 0; index < text.length(); index++)
+        {
+            final char character;
+            character = text.charAt(index);
+
+            if (character <= MAX_ONE_BYTE)
+            {
+                buffer[length] = (byte) character;
+                length++;
+            }
+            else if (character <= MAX_TWO_BYTES)
+            {
+                buffer[length] = (byte) (TWO_BYTE_LEAD | character >>> BITS_PER_CONTINUATION);
+                buffer[length + 1] = (byte) (CONTINUATION | character & CONTINUATION_MASK);
+                length += 2;
+            }
+            else
+            {
+                buffer[length] = (byte) (THREE_BYTE_LEAD | character >>> (BITS_PER_CONTINUATION * 2));
+                buffer[length + 1] = (byte) (CONTINUATION | character >>> BITS_PER_CONTINUATION & CONTINUATION_MASK);
+                buffer[length + 2] = (byte) (CONTINUATION | character & CONTINUATION_MASK);
+                length += 3;
+            }
+        }
+
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /*
+     * Decodes chars encoded by encode.
+     *
+     * @param bytes the array holding the encoded chars
+     * @param start the position of the first byte to decode
+     * @param end the position after the last byte to decode
+     *
+     * @return the decoded String
+     */
+    private static String decode(final byte[] bytes,
+                                 final int start,
+                                 final int end)
+    {
+        final char[] chars;
+        int length;
+        int position;
+
+        chars = new char[end - start];
+        length = 0;
+        position = start;
+
+        while (position < end)
+        {
+            final int lead;
+            lead = bytes[position] & BYTE_MASK;
+
+            if (lead < CONTINUATION)
+            {
+                chars[length] = (char) lead;
+                position++;
+            }
+            else if (lead < THREE_BYTE_LEAD)
+            {
+                chars[length] = (char) ((lead & TWO_BYTE_PAYLOAD) << BITS_PER_CONTINUATION |
+                                        bytes[position + 1] & CONTINUATION_MASK);
+                position += 2;
+            }
+            else
+            {
+                chars[length] = (char) ((lead & THREE_BYTE_PAYLOAD) << (BITS_PER_CONTINUATION * 2) |
+                                        (bytes[position + 1] & CONTINUATION_MASK) << BITS_PER_CONTINUATION |
+                                        bytes[position + 2] & CONTINUATION_MASK);
+                position += 3;
+            }
+
+            length++;
+        }
+
+        return new String(chars, 0, length);
+    }
+
+    /*
+     * Determines whether the encoded title in the given row contains the given encoded word.
+     *
+     * @param row the row to search
+     * @param encodedWord the encoded bytes to search for
+     *
+     * @return true if the title contains the word, false otherwise
+     */
+    private boolean titleBytesContain(final int row,
+                                      final byte[] encodedWord)
+    {
+        final int titleStart;
+        final int lastStart;
+
+        titleStart = this.titleOffsets[row];
+        lastStart = this.titleOffsets[row + 1] - encodedWord.length;
+
+        for (int start = titleStart; start <= lastStart; start++)
+        {
+            if (Arrays.equals(this.titleBytes, start, start + encodedWord.length,
+                              encodedWord, 0, encodedWord.length))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * Looks up the dictionary ID of an author, adding the author to the dictionary if they are new.
+     *
+     * @param authorName the author's name
+     *
+     * @return the author's ID
+     */
+    private int authorIdFor(final String authorName)
+    {
+        final Integer existingId;
+        existingId = this.authorIds.get(authorName);
+
+        if (existingId != null)
+        {
+            return existingId;
+        }
+
+        final int newId;
+        newId = this.authorNames.size();
+
+        this.authorNames.add(authorName);
+        this.authorIds.put(authorName, newId);
+
+        return newId;
+    }
+
+    /*
+     * Grows every per-row column if there is no room for another row.
+     */
+    private void ensureRowCapacity()
+    {
+        if (this.size < this.years.length)
+        {
+            return;
+        }
+
+        final int newCapacity;
+        newCapacity = this.years.length * GROWTH_FACTOR;
+
+        this.years = Arrays.copyOf(this.years, newCapacity);
+        this.authorColumn = Arrays.copyOf(this.authorColumn, newCapacity);
+        this.titleLengths = Arrays.copyOf(this.titleLengths, newCapacity);
+        this.titleOffsets = Arrays.copyOf(this.titleOffsets, newCapacity + 1);
+    }
+
+    /*
+     * Grows the packed title bytes so they can hold at least the given number of bytes.
+     *
+     * @param requiredBytes the number of bytes needed
+     */
+    private void ensureTitleCapacity(final int requiredBytes)
+    {
+        if (requiredBytes <= this.titleBytes.length)
+        {
+            return;
+        }
+
+        final int newCapacity;
+        newCapacity = Math.max(requiredBytes, this.titleBytes.length * GROWTH_FACTOR);
+
+        this.titleBytes = Arrays.copyOf(this.titleBytes, newCapacity);
+    }
+
+    /*
+     * Validates a row number. A row is valid if it refers to a Novel in the inventory.
+     *
+     * @param row the row to validate
+     */
+    private void validateRow(final int row)
+    {
+        if (row < 0 ||
+            row >= this.size)
+        {
+            throw new IndexOutOfBoundsException("Invalid row: " + row);
+        }
+    }
+}
@@ -0,0 +1,765 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A Bookstore that can be queried from many threads while other threads add and remove stock. Readers never lock:
+ * every query runs against an immutable Bookstore snapshot read from a single volatile field, and the snapshot's
+ * query cache is read and filled without locking too. Writers queue their changes, and once a batch of changes has
+ * built up the batch is applied to a copy of the current snapshot, which is then swapped in, so readers see either
+ * all of a batch or none of it. The copy shares the snapshot's posting lists and title order blocks until the batch
+ * changes them, so publishing costs a pass over the inventory plus the work of the batch itself rather than a
+ * rebuild of every index. Changes become visible to readers when their batch is published, either because it filled
+ * up or because flush() was called.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class ConcurrentBookstore
+{
+    /**
+     * The number of queued changes that triggers a new snapshot unless another batch size is given.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final int MIN_BATCH_SIZE = 1;
+    private static final double MIN_ERROR_BOUND = 0.0;
+    private static final double MAX_ERROR_BOUND = 1.0;
+
+    private final String storeName;
+    private final int batchSize;
+    private final Object writeLock;
+    private final List<Novel> pendingAdditions;
+    private final Set<Novel> pendingAdditionSet;
+    private final Set<Novel> pendingRemovals;
+
+    private volatile Bookstore snapshot;
+
+    /**
+     * Constructs a new ConcurrentBookstore with the given name and the same predetermined initial inventory as
+     * a Bookstore, publishing changes in batches of DEFAULT_BATCH_SIZE.
+     *
+     * @param storeName The name of the Bookstore to construct
+     */
+    public ConcurrentBookstore(final String storeName)
+    {
+        this(new Bookstore(storeName), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a new ConcurrentBookstore with the given name and initial Novels.
+     *
+     * @param storeName The name of the Bookstore to construct
+     * @param novels The Novels to stock the Bookstore with
+     * @param batchSize The number of queued changes that triggers a new snapshot
+     */
+    public ConcurrentBookstore(final String storeName,
+                               final Collection<Novel> novels,
+                               final int batchSize)
+    {
+        this(new Bookstore(storeName, novels), batchSize);
+    }
+
+    /*
+     * Constructs a new ConcurrentBookstore whose first snapshot is the given Bookstore.
+     *
+     * @param initialSnapshot the Bookstore to publish first, which must not be modified afterwards
+     * @param batchSize the number of queued changes that triggers a new snapshot
+     */
+    private ConcurrentBookstore(final Bookstore initialSnapshot,
+                                final int batchSize)
+    {
+        validateBatchSize(batchSize);
+
+        this.storeName = initialSnapshot.getStoreName();
+        this.batchSize = batchSize;
+        this.writeLock = new Object();
+        this.pendingAdditions = new ArrayList<>();
+        this.pendingAdditionSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.pendingRemovals = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.snapshot = initialSnapshot;
+    }
+
+    /**
+     * Accessor for the name of this Bookstore.
+     *
+     * @return the store name
+     */
+    public String getStoreName()
+    {
+        return this.storeName;
+    }
+
+    /**
+     * Returns the number of Novels in the current snapshot. Queued changes are not counted.
+     *
+     * @return the inventory size
+     */
+    public int size()
+    {
+        return this.snapshot.size();
+    }
+
+    /**
+     * Queues a Novel to be added to the inventory. Each Novel instance may only be stocked once.
+     *
+     * @param novel the Novel to add
+     */
+    public void addNovel(final Novel novel)
+    {
+        validateNovel(novel);
+
+        synchronized (this.writeLock)
+        {
+            if (this.pendingRemovals.remove(novel))
+            {
+                return;
+            }
+
+            if (this.pendingAdditionSet.contains(novel) ||
+                this.snapshot.isStocked(novel))
+            {
+                throw new IllegalArgumentException("Novel is already in the inventory.");
+            }
+
+            this.pendingAdditions.add(novel);
+            this.pendingAdditionSet.add(novel);
+
+            publishIfBatchFull();
+        }
+    }
+
+    /**
+     * Queues a Novel to be removed from the inventory. The Novel is matched by identity.
+     *
+     * @param novel the Novel to remove
+     *
+     * @return true if the Novel was stocked or queued to be added and will now be removed, false otherwise
+     */
+    public boolean removeNovel(final Novel novel)
+    {
+        validateNovel(novel);
+
+        synchronized (this.writeLock)
+        {
+            if (this.pendingAdditionSet.remove(novel))
+            {
+                this.pendingAdditions.remove(novel);
+                return true;
+            }
+
+            if (!this.snapshot.isStocked(novel) ||
+                !this.pendingRemovals.add(novel))
+            {
+                return false;
+            }
+
+            publishIfBatchFull();
+
+            return true;
+        }
+    }
+
+    /**
+     * Publishes every queued change in a new snapshot, so that queries made after this returns see them.
+     */
+    public void flush()
+    {
+        synchronized (this.writeLock)
+        {
+            publish();
+        }
+    }
+
+    /**
+     * Starts recording query metrics into the given BookstoreMetrics, or stops recording them if it is null. The
+     * metrics carry over to every snapshot published afterwards. Queued changes are published as well.
+     *
+     * @param metrics where to record query metrics, or null to stop recording
+     */
+    public void setMetrics(final BookstoreMetrics metrics)
+    {
+        synchronized (this.writeLock)
+        {
+            final Bookstore next;
+            next = nextSnapshot();
+
+            next.setMetrics(metrics);
+
+            this.snapshot = next;
+        }
+    }
+
+    /**
+     * Starts keeping approximate analytics with the given error bounds. The sketches are built once from the
+     * inventory and carried over to every snapshot published afterwards, updated by each batch. Queued changes are
+     * published as well.
+     *
+     * @param relativeError the error bound for word counts and the distinct author count, as a fraction
+     * @param failureProbability the chance a word count exceeds its bound
+     */
+    public void enableApproximateAnalytics(final double relativeError,
+                                           final double failureProbability)
+    {
+        validateErrorBound(relativeError);
+        validateErrorBound(failureProbability);
+
+        synchronized (this.writeLock)
+        {
+            final Bookstore next;
+            next = nextSnapshot();
+
+            next.enableApproximateAnalytics(relativeError, failureProbability);
+
+            this.snapshot = next;
+        }
+    }
+
+    /**
+     * Stops keeping approximate analytics. Queued changes are published as well.
+     */
+    public void disableApproximateAnalytics()
+    {
+        synchronized (this.writeLock)
+        {
+            final Bookstore next;
+            next = nextSnapshot();
+
+            next.disableApproximateAnalytics();
+
+            this.snapshot = next;
+        }
+    }
+
+    /**
+     * Sets the most query results each snapshot caches. The current snapshot's cache is resized at once, and every
+     * snapshot published afterwards starts with an empty cache of the same capacity.
+     *
+     * @param capacity the most results to cache; 0 disables caching
+     */
+    public void setQueryCacheCapacity(final int capacity)
+    {
+        synchronized (this.writeLock)
+        {
+            this.snapshot.setQueryCacheCapacity(capacity);
+        }
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of the current snapshot's query cache. Every published snapshot
+     * starts with an empty cache of the configured capacity, so the counts only cover queries made since the last
+     * publish.
+     *
+     * @return a snapshot of the query cache's statistics
+     */
+    public QueryCacheStatistics getQueryCacheStatistics()
+    {
+        return this.snapshot.getQueryCacheStatistics();
+    }
+
+    /**
+     * Starts a query over the current snapshot. Queued changes are not seen by the query, even if they are
+     * published while it runs.
+     *
+     * @return a NovelQuery that matches every Novel until conditions are added
+     */
+    public NovelQuery query()
+    {
+        return this.snapshot.query();
+    }
+
+    /**
+     * Prints the title of every novel in the bookstore in all UPPERCASE.
+     */
+    public void printAllTitles()
+    {
+        this.snapshot.printAllTitles();
+    }
+
+    /**
+     * Writes the title of every novel in the bookstore in all UPPERCASE, one per line.
+     *
+     * @param out where to write the titles
+     *
+     * @throws IOException if the titles cannot be written
+     */
+    public void printAllTitles(final Appendable out) throws IOException
+    {
+        this.snapshot.printAllTitles(out);
+    }
+
+    /**
+     * Prints the titles of all books that contain the given String
+     *
+     * @param title the String to search for in the book titles
+     */
+    public void printBookTitle(final String title)
+    {
+        this.snapshot.printBookTitle(title);
+    }
+
+    /**
+     * Writes the titles of all books that contain the given String, ignoring case, one per line.
+     *
+     * @param title the String to search for in the book titles
+     * @param out where to write the titles
+     *
+     * @throws IOException if the titles cannot be written
+     */
+    public void printBookTitle(final String title,
+                               final Appendable out) throws IOException
+    {
+        this.snapshot.printBookTitle(title, out);
+    }
+
+    /**
+     * Prints all titles in alphabetical order.
+     */
+    public void printTitlesInAlphaOrder()
+    {
+        this.snapshot.printTitlesInAlphaOrder();
+    }
+
+    /**
+     * Writes all titles in alphabetical order, one per line.
+     *
+     * @param out where to write the titles
+     *
+     * @throws IOException if the titles cannot be written
+     */
+    public void printTitlesInAlphaOrder(final Appendable out) throws IOException
+    {
+        this.snapshot.printTitlesInAlphaOrder(out);
+    }
+
+    /**
+     * Prints the titles of all books in the bookstore that were printed in the given decade.
+     *
+     * @param decade The decade of books to print, as an integer year
+     */
+    public void printGroupByDecade(final int decade)
+    {
+        this.snapshot.printGroupByDecade(decade);
+    }
+
+    /**
+     * Writes the titles of all books in the bookstore that were printed in the given decade, one per line.
+     *
+     * @param decade The decade of books to print, as an integer year
+     * @param out where to write the titles
+     *
+     * @throws IOException if the titles cannot be written
+     */
+    public void printGroupByDecade(final int decade,
+                                   final Appendable out) throws IOException
+    {
+        this.snapshot.printGroupByDecade(decade, out);
+    }
+
+    /**
+     * Returns all books in the bookstore that were printed in the decade containing the given year.
+     *
+     * @param year any year in the decade
+     *
+     * @return a read-only List of the decade's novels in inventory order
+     */
+    public List<Novel> getBooksInDecade(final int year)
+    {
+        return this.snapshot.getBooksInDecade(year);
+    }
+
+    /**
+     * Returns all books in the bookstore that were printed in the century containing the given year.
+     *
+     * @param year any year in the century
+     *
+     * @return a read-only List of the century's novels in inventory order
+     */
+    public List<Novel> getBooksInCentury(final int year)
+    {
+        return this.snapshot.getBooksInCentury(year);
+    }
+
+    /**
+     * Counts the books printed in each decade from the decade containing firstYear to the decade containing
+     * lastYear.
+     *
+     * @param firstYear a year in the first decade to count
+     * @param lastYear a year in the last decade to count
+     *
+     * @return a read-only Map from the first year of each decade to its number of books, in chronological order
+     */
+    public Map<Integer, Integer> getBooksPerDecade(final int firstYear,
+                                                   final int lastYear)
+    {
+        return this.snapshot.getBooksPerDecade(firstYear, lastYear);
+    }
+
+    /**
+     * Counts the books printed in each century from the century containing firstYear to the century containing
+     * lastYear.
+     *
+     * @param firstYear a year in the first century to count
+     * @param lastYear a year in the last century to count
+     *
+     * @return a read-only Map from the first year of each century to its number of books, in chronological order
+     */
+    public Map<Integer, Integer> getBooksPerCentury(final int firstYear,
+                                                    final int lastYear)
+    {
+        return this.snapshot.getBooksPerCentury(firstYear, lastYear);
+    }
+
+    /**
+     * Returns all books in the bookstore whose titles start with the given prefix, ignoring case.
+     *
+     * @param prefix the start of the titles to find
+     *
+     * @return a List of the matching novels in alphabetical order of title
+     */
+    public List<Novel> getBooksStartingWith(final String prefix)
+    {
+        return this.snapshot.getBooksStartingWith(prefix);
+    }
+
+    /**
+     * Returns the first books in alphabetical order of title.
+     *
+     * @param count the most books to return
+     *
+     * @return a read-only List of up to count novels in alphabetical order of title
+     */
+    public List<Novel> getBooksInAlphaOrder(final int count)
+    {
+        return this.snapshot.getBooksInAlphaOrder(count);
+    }
+
+    /**
+     * Returns the next page of books in alphabetical order of title, following the last book of the previous page.
+     * Pages are read from the current snapshot, so additions and removals published between pages are reflected.
+     *
+     * @param cursor the last novel of the previous page, or null for the first page
+     * @param count the most books to return
+     *
+     * @return a read-only List of up to count novels in alphabetical order of title
+     */
+    public List<Novel> getBooksInAlphaOrderAfter(final Novel cursor,
+                                                 final int count)
+    {
+        return this.snapshot.getBooksInAlphaOrderAfter(cursor, count);
+    }
+
+    /**
+     * Returns the longest title in the inventory.
+     *
+     * @return the String of the longest book title
+     */
+    public String getLongest()
+    {
+        return this.snapshot.getLongest();
+    }
+
+    /**
+     * Returns the books with the longest titles, longest first.
+     *
+     * @param count the most books to return
+     *
+     * @return a read-only List of up to count novels
+     */
+    public List<Novel> getLongestBooks(final int count)
+    {
+        return this.snapshot.getLongestBooks(count);
+    }
+
+    /**
+     * Determines whether the bookstore has a book written in the given year.
+     *
+     * @param year the year to find a book written in
+     *
+     * @return true if the bookstore has a book written that year, false otherwise.
+     */
+    public boolean isThereABookWrittenIn(final int year)
+    {
+        return this.snapshot.isThereABookWrittenIn(year);
+    }
+
+    /**
+     * Estimates the number of book titles in the current snapshot containing the given whole word.
+     *
+     * @param word the word to count
+     *
+     * @return the estimated number of books whose titles contain word
+     *
+     * @throws IllegalStateException if approximate analytics are not enabled
+     */
+    public int estimateBooksContaining(final String word)
+    {
+        return this.snapshot.estimateBooksContaining(word);
+    }
+
+    /**
+     * Estimates the number of distinct authors in the current snapshot.
+     *
+     * @return the estimated number of distinct authors
+     *
+     * @throws IllegalStateException if approximate analytics are not enabled
+     */
+    public long estimateDistinctAuthors()
+    {
+        return this.snapshot.estimateDistinctAuthors();
+    }
+
+    /**
+     * Returns the number of book titles containing a provided String word.
+     *
+     * @param word is the String that book titles contain
+     *
+     * @return int representing number of books containing word
+     */
+    public int howManyBooksContain(final String word)
+    {
+        return this.snapshot.howManyBooksContain(word);
+    }
+
+    /**
+     * Determines what percentage of the bookstore's inventory was written between firstYear and lastYear,
+     * inclusive.
+     *
+     * @param firstYear The beginning year of the range.
+     * @param lastYear The final year of the range.
+     *
+     * @return The percentage of the bookstore's inventory that was published within the given range of years.
+     */
+    public double whichPercentWrittenBetween(final int firstYear,
+                                             final int lastYear)
+    {
+        return this.snapshot.whichPercentWrittenBetween(firstYear, lastYear);
+    }
+
+    /**
+     * Returns the oldest book in the inventory based on publishing year.
+     *
+     * @return Novel with oldest publishing year
+     */
+    public Novel getOldestBook()
+    {
+        return this.snapshot.getOldestBook();
+    }
+
+    /**
+     * Returns the oldest books in the inventory, oldest first.
+     *
+     * @param count the most books to return
+     *
+     * @return a read-only List of up to count novels
+     */
+    public List<Novel> getOldestBooks(final int count)
+    {
+        return this.snapshot.getOldestBooks(count);
+    }
+
+    /**
+     * Returns all books in the bookstore whose titles are of the given length.
+     *
+     * @param titleLength the length of titles to get books of
+     *
+     * @return a List of the novels the bookstore has that have titles of the given length
+     */
+    public List<Novel> getBooksThisLength(final int titleLength)
+    {
+        return this.snapshot.getBooksThisLength(titleLength);
+    }
+
+    /**
+     * Passes every book in the current snapshot whose title contains the given word, ignoring case, to the
+     * visitor in inventory order, without allocating for an ASCII word.
+     *
+     * @param word the String to search for in the book titles
+     * @param visitor receives each matching novel
+     *
+     * @return the number of novels passed to the visitor
+     */
+    public int forEachBookContaining(final String word,
+                                     final Consumer<? super Novel> visitor)
+    {
+        return this.snapshot.forEachBookContaining(word, visitor);
+    }
+
+    /**
+     * Passes every book in the current snapshot whose title is of the given length to the visitor in inventory
+     * order.
+     *
+     * @param titleLength the length of titles to visit books of
+     * @param visitor receives each matching novel
+     *
+     * @return the number of novels passed to the visitor
+     */
+    public int forEachBookThisLength(final int titleLength,
+                                     final Consumer<? super Novel> visitor)
+    {
+        return this.snapshot.forEachBookThisLength(titleLength, visitor);
+    }
+
+    /**
+     * Passes every book in the current snapshot written by the given author to the visitor in inventory order.
+     *
+     * @param authorName the name of the author, matched exactly
+     * @param visitor receives each of the author's novels
+     *
+     * @return the number of novels passed to the visitor
+     */
+    public int forEachBookBy(final String authorName,
+                             final Consumer<? super Novel> visitor)
+    {
+        return this.snapshot.forEachBookBy(authorName, visitor);
+    }
+
+    /**
+     * Returns all books in the bookstore written by the given author.
+     *
+     * @param authorName the name of the author, matched exactly
+     *
+     * @return a List of the author's novels in inventory order
+     */
+    public List<Novel> getBooksBy(final String authorName)
+    {
+        return this.snapshot.getBooksBy(authorName);
+    }
+
+    /**
+     * Returns the number of books in the bookstore written by the given author.
+     *
+     * @param authorName the name of the author, matched exactly
+     *
+     * @return int representing number of books by the author
+     */
+    public int howManyBooksBy(final String authorName)
+    {
+        return this.snapshot.howManyBooksBy(authorName);
+    }
+
+    /**
+     * Returns the authors with the most books in the bookstore, most prolific first.
+     *
+     * @param numAuthors the maximum number of authors to return
+     *
+     * @return a List of up to numAuthors author names
+     */
+    public List<String> getMostProlificAuthors(final int numAuthors)
+    {
+        return this.snapshot.getMostProlificAuthors(numAuthors);
+    }
+
+    /**
+     * Returns the current snapshot, so that several queries can be made against the same inventory. The snapshot
+     * must not be changed.
+     *
+     * @return the most recently published Bookstore
+     */
+    Bookstore getSnapshot()
+    {
+        return this.snapshot;
+    }
+
+    /*
+     * Publishes the queued changes if enough of them have built up. Must be called holding the write lock.
+     */
+    private void publishIfBatchFull()
+    {
+        if (this.pendingAdditions.size() + this.pendingRemovals.size() >= this.batchSize)
+        {
+            publish();
+        }
+    }
+
+    /*
+     * Publishes the queued changes in a new snapshot, if there are any. Must be called holding the write lock.
+     */
+    private void publish()
+    {
+        if (this.pendingAdditions.isEmpty() &&
+            this.pendingRemovals.isEmpty())
+        {
+            return;
+        }
+
+        this.snapshot = nextSnapshot();
+    }
+
+    /*
+     * Applies the queued changes, if any, to a copy of the current snapshot and clears the queues. Novels that were
+     * already stocked keep their order, and added Novels follow in the order they were queued. The copy is not
+     * published, so the caller may change its settings before swapping it in. Must be called holding the write
+     * lock.
+     *
+     * @return the next snapshot
+     */
+    private Bookstore nextSnapshot()
+    {
+        final Bookstore next;
+        next = this.snapshot.copy();
+
+        next.removeNovels(this.pendingRemovals);
+
+        for (final Novel novel : this.pendingAdditions)
+        {
+            next.addNovel(novel);
+        }
+
+        this.pendingAdditions.clear();
+        this.pendingAdditionSet.clear();
+        this.pendingRemovals.clear();
+
+        return next;
+    }
+
+    /*
+     * Validates a Novel passed to the Bookstore. A Novel is valid if it is not null.
+     *
+     * @param novel the Novel to validate
+     */
+    private static void validateNovel(final Novel novel)
+    {
+        if (novel == null)
+        {
+            throw new IllegalArgumentException("Invalid novel.");
+        }
+    }
+
+    /*
+     * Validates a batch size. A batch size is valid if it is at least MIN_BATCH_SIZE.
+     *
+     * @param batchSize the batch size to validate
+     */
+    private static void validateBatchSize(final int batchSize)
+    {
+        if (batchSize < MIN_BATCH_SIZE)
+        {
+            throw new IllegalArgumentException("Invalid batch size.");
+        }
+    }
+
+    /*
+     * Validates an error bound for approximate analytics. A bound is valid if it is strictly between 0 and 1.
+     *
+     * @param errorBound the bound to validate
+     */
+    private static void validateErrorBound(final double errorBound)
+    {
+        if (!(errorBound > MIN_ERROR_BOUND &&
+              errorBound < MAX_ERROR_BOUND))
+        {
+            throw new IllegalArgumentException("Invalid error bound.");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+/**
+ * A Count-Min sketch: a fixed grid of counters that estimates how often each item has been added without storing
+ * the items. Each item is counted in one cell per row, chosen by hashing, and its estimate is the smallest of those
+ * cells. Estimates never fall below the true count, and with probability at least 1 - failureProbability they
+ * exceed it by no more than relativeError times the total of all counts. Counts may also be taken away, as long as
+ * no item's true count goes below zero.
+ * <p>
+ * Items are given to the sketch as 64-bit hashes. The row cells are derived from the two halves of the hash, so
+ * one hash serves every row.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class CountMinSketch
+{
+    private static final int HASH_BITS = 32;
+
+    private final int width;
+    private final int depth;
+    private final int[] counts;
+
+    /**
+     * Constructs a new, empty CountMinSketch sized for the given error bound.
+     *
+     * @param relativeError the most an estimate may exceed the true count, as a fraction of the total count
+     * @param failureProbability the chance that an estimate exceeds the bound
+     */
+    CountMinSketch(final double relativeError,
+                   final double failureProbability)
+    {
+        this.width = (int) Math.ceil(Math.E / relativeError);
+        this.depth = (int) Math.ceil(Math.log(1.0 / failureProbability));
+        this.counts = new int[this.width * this.depth];
+    }
+
+    /*
+     * Constructs a CountMinSketch with the same size and counts as another.
+     *
+     * @param original the sketch to copy
+     */
+    private CountMinSketch(final CountMinSketch original)
+    {
+        this.width = original.width;
+        this.depth = original.depth;
+        this.counts = original.counts.clone();
+    }
+
+    /**
+     * Copies the sketch, so the copy can be changed without affecting this one.
+     *
+     * @return a new CountMinSketch with the same counts
+     */
+    CountMinSketch copy()
+    {
+        return new CountMinSketch(this);
+    }
+
+    /**
+     * Adds to the count of an item.
+     *
+     * @param hash the item's 64-bit hash
+     * @param delta the amount to add, which is negative to take counts away
+     */
+    void add(final long hash,
+             final int delta)
+    {
+        for (int row = 0; row < this.depth; row++)
+        {
+            this.counts[cellFor(hash, row)] += delta;
+        }
+    }
+
+    /**
+     * Estimates the count of an item.
+     *
+     * @param hash the item's 64-bit hash
+     *
+     * @return an estimate no lower than the item's true count
+     */
+    int estimate(final long hash)
+    {
+        int estimate;
+        estimate = Integer.MAX_VALUE;
+
+        for (int row = 0; row < this.depth; row++)
+        {
+            estimate = Math.min(estimate, this.counts[cellFor(hash, row)]);
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Returns the memory held by the counters, which depends only on the error bound.
+     *
+     * @return the size of the counters in bytes
+     */
+    long getMemoryBytes()
+    {
+        return (long) this.counts.length * Integer.BYTES;
+    }
+
+    /*
+     * Finds the cell an item is counted in for a row, combining the halves of its hash as h1 + row * h2.
+     *
+     * @param hash the item's 64-bit hash
+     * @param row the row of the grid
+     *
+     * @return the index of the cell in the counters
+     */
+    private int cellFor(final long hash,
+                        final int row)
+    {
+        final int lowHash;
+        final int highHash;
+
+        lowHash = (int) hash;
+        highHash = (int) (hash >>> HASH_BITS);
+
+        return row * this.width + Math.floorMod(lowHash + row * highHash, this.width);
+    }
+}
@@ -0,0 +1,159 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+/**
+ * A HyperLogLog sketch, which estimates how many distinct items it has seen in a fixed number of one-byte
+ * registers. The top bits of each item's 64-bit hash pick a register, and the register keeps the longest run of
+ * leading zeros seen in the rest of the hash. The standard error of the estimate is about 1.04 / sqrt(registers),
+ * so the number of registers is chosen from the relative error asked for. Small counts are estimated by linear
+ * counting over the empty registers, as in the original paper.
+ * <p>
+ * Items cannot be taken back out: the estimate covers every item added since the sketch was created.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class HyperLogLog
+{
+    private static final double STANDARD_ERROR_FACTOR = 1.04;
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+    private static final int HASH_BITS = 64;
+    private static final int REGISTERS_FOR_16 = 16;
+    private static final int REGISTERS_FOR_32 = 32;
+    private static final int REGISTERS_FOR_64 = 64;
+    private static final double ALPHA_16 = 0.673;
+    private static final double ALPHA_32 = 0.697;
+    private static final double ALPHA_64 = 0.709;
+    private static final double ALPHA_LARGE = 0.7213;
+    private static final double ALPHA_LARGE_CORRECTION = 1.079;
+    private static final double LINEAR_COUNTING_THRESHOLD = 2.5;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Constructs a new, empty HyperLogLog sized for the given relative error.
+     *
+     * @param relativeError the standard error wanted, as a fraction of the true count
+     */
+    HyperLogLog(final double relativeError)
+    {
+        final double registersNeeded;
+        final int precisionNeeded;
+
+        registersNeeded = Math.pow(STANDARD_ERROR_FACTOR / relativeError, 2);
+        precisionNeeded = (int) Math.ceil(Math.log(registersNeeded) / Math.log(2));
+
+        this.precision = Math.clamp(precisionNeeded, MIN_PRECISION, MAX_PRECISION);
+        this.registers = new byte[1 << this.precision];
+    }
+
+    /*
+     * Constructs a HyperLogLog with the same precision and registers as another.
+     *
+     * @param original the HyperLogLog to copy
+     */
+    private HyperLogLog(final HyperLogLog original)
+    {
+        this.precision = original.precision;
+        this.registers = original.registers.clone();
+    }
+
+    /**
+     * Copies the HyperLogLog, so the copy can be changed without affecting this one.
+     *
+     * @return a new HyperLogLog with the same registers
+     */
+    HyperLogLog copy()
+    {
+        return new HyperLogLog(this);
+    }
+
+    /**
+     * Records an item.
+     *
+     * @param hash the item's 64-bit hash
+     */
+    void add(final long hash)
+    {
+        final int register;
+        final long remainingBits;
+        final byte rank;
+
+        register = (int) (hash >>> (HASH_BITS - this.precision));
+        remainingBits = (hash << this.precision) | (1L << (this.precision - 1));
+        rank = (byte) (Long.numberOfLeadingZeros(remainingBits) + 1);
+
+        if (rank > this.registers[register])
+        {
+            this.registers[register] = rank;
+        }
+    }
+
+    /**
+     * Estimates the number of distinct items recorded.
+     *
+     * @return the estimated count
+     */
+    long estimate()
+    {
+        final int registerCount;
+        final double rawEstimate;
+        double harmonicSum;
+        int emptyRegisters;
+
+        registerCount = this.registers.length;
+        harmonicSum = 0.0;
+        emptyRegisters = 0;
+
+        for (final byte rank : this.registers)
+        {
+            harmonicSum += Math.scalb(1.0, -rank);
+
+            if (rank == 0)
+            {
+                emptyRegisters++;
+            }
+        }
+
+        rawEstimate = alpha(registerCount) * registerCount * registerCount / harmonicSum;
+
+        if (rawEstimate <= LINEAR_COUNTING_THRESHOLD * registerCount &&
+            emptyRegisters > 0)
+        {
+            return Math.round(registerCount * Math.log((double) registerCount / emptyRegisters));
+        }
+
+        return Math.round(rawEstimate);
+    }
+
+    /**
+     * Returns the memory held by the registers, which depends only on the relative error.
+     *
+     * @return the size of the registers in bytes
+     */
+    long getMemoryBytes()
+    {
+        return this.registers.length;
+    }
+
+    /*
+     * Returns the bias correction constant for the given number of registers.
+     *
+     * @param registerCount the number of registers
+     *
+     * @return the constant alpha from the HyperLogLog paper
+     */
+    private static double alpha(final int registerCount)
+    {
+        return switch (registerCount)
+        {
+            case REGISTERS_FOR_16 -> ALPHA_16;
+            case REGISTERS_FOR_32 -> ALPHA_32;
+            case REGISTERS_FOR_64 -> ALPHA_64;
+            default -> ALPHA_LARGE / (1.0 + ALPHA_LARGE_CORRECTION / registerCount);
+        };
+    }
+}
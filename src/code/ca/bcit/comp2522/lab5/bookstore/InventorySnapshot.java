@@ -0,0 +1,620 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A read-only Bookstore inventory persisted in a compact, versioned binary file. Opening a snapshot maps the file
+ * into memory and reads only its header, so it can be queried straight away; Novels are only built when they are
+ * asked for. Year queries are answered from the per-year counts stored in the file without building any Novels.
+ * <p>
+ * The file holds, in order: a header with the magic number, format version, Novel and author counts and the store
+ * name; the count of Novels published in each year; a year column; an author ID column; a column of title
+ * positions; the rows in alphabetical order of title; a column of author positions; the deduplicated author names;
+ * and the titles. Every String is stored as a length-prefixed UTF-8 byte sequence, written by StoredText so that
+ * an unpaired surrogate survives the round trip. Storing the alphabetical order lets toBookstore rebuild a
+ * Bookstore's title order without sorting. Snapshots are limited to 2 GiB, the largest region that can be mapped
+ * at once.
+ * <p>
+ * Opening a snapshot checks that the header, year counts and columns fit in the file, and every String and row
+ * read afterwards is checked against the file's bounds, so a truncated or corrupt file is reported as an
+ * IOException rather than an exception from the mapped buffer.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class InventorySnapshot
+{
+    private static final int MAGIC = 0x424B5354;
+    private static final int FORMAT_VERSION = 2;
+    private static final int YEAR_SPAN = Novel.MAX_YEAR_PUBLISHED - Novel.MIN_YEAR_PUBLISHED + 1;
+    private static final int HEADER_INTS = 5;
+    private static final int NO_BOOKS = 0;
+    private static final double NONE_PERCENTAGE = 0.0;
+    private static final double PERCENT_CONVERSION_FACTOR = 100.0;
+
+    private final ByteBuffer mappedFile;
+    private final String storeName;
+    private final int novelCount;
+    private final int[] countsUpToYear;
+    private final int yearColumn;
+    private final int authorIdColumn;
+    private final int titlePositionColumn;
+    private final int titleOrderColumn;
+    private final int authorPositionColumn;
+    private final int stringsStart;
+    private final AtomicReferenceArray<String> authorNames;
+
+    /*
+     * Constructs an InventorySnapshot over a mapped snapshot file, reading its header and year counts and checking
+     * that every column fits in the file.
+     *
+     * @param mappedFile the whole snapshot file, at least HEADER_INTS ints long
+     */
+    private InventorySnapshot(final ByteBuffer mappedFile) throws IOException
+    {
+        final int magic;
+        final int version;
+        final int authorCount;
+        final int storeNameLength;
+        final int yearCountsStart;
+        final long columnsEnd;
+
+        magic = mappedFile.getInt(0);
+        version = mappedFile.getInt(Integer.BYTES);
+
+        if (magic != MAGIC)
+        {
+            throw new IOException("Not a bookstore snapshot.");
+        }
+
+        if (version != FORMAT_VERSION)
+        {
+            throw new IOException("Unsupported snapshot version " + version + ".");
+        }
+
+        this.mappedFile = mappedFile;
+        this.novelCount = mappedFile.getInt(Integer.BYTES * 2);
+        authorCount = mappedFile.getInt(Integer.BYTES * 3);
+        storeNameLength = mappedFile.getInt(Integer.BYTES * 4);
+
+        if (this.novelCount < 0 ||
+            authorCount < 0 ||
+            storeNameLength < 0)
+        {
+            throw new IOException("Corrupt snapshot header.");
+        }
+
+        columnsEnd = (long) HEADER_INTS * Integer.BYTES + storeNameLength +
+                     (long) YEAR_SPAN * Integer.BYTES +
+                     (long) this.novelCount * (Short.BYTES + Integer.BYTES * 3) +
+                     (long) authorCount * Integer.BYTES;
+
+        if (columnsEnd > mappedFile.capacity())
+        {
+            throw new IOException("Truncated snapshot.");
+        }
+
+        this.storeName = decode(HEADER_INTS * Integer.BYTES, storeNameLength);
+
+        yearCountsStart = HEADER_INTS * Integer.BYTES + storeNameLength;
+        this.countsUpToYear = new int[YEAR_SPAN + 1];
+
+        for (int offset = 0; offset < YEAR_SPAN; offset++)
+        {
+            final int count;
+            count = mappedFile.getInt(yearCountsStart + offset * Integer.BYTES);
+
+            if (count < 0 ||
+                count > this.novelCount - this.countsUpToYear[offset])
+            {
+                throw new IOException("Corrupt snapshot year counts.");
+            }
+
+            this.countsUpToYear[offset + 1] = this.countsUpToYear[offset] + count;
+        }
+
+        if (this.countsUpToYear[YEAR_SPAN] != this.novelCount)
+        {
+            throw new IOException("Corrupt snapshot year counts.");
+        }
+
+        this.yearColumn = yearCountsStart + YEAR_SPAN * Integer.BYTES;
+        this.authorIdColumn = this.yearColumn + this.novelCount * Short.BYTES;
+        this.titlePositionColumn = this.authorIdColumn + this.novelCount * Integer.BYTES;
+        this.titleOrderColumn = this.titlePositionColumn + this.novelCount * Integer.BYTES;
+        this.authorPositionColumn = this.titleOrderColumn + this.novelCount * Integer.BYTES;
+        this.stringsStart = (int) columnsEnd;
+        this.authorNames = new AtomicReferenceArray<>(authorCount);
+    }
+
+    /**
+     * Writes a Bookstore's inventory to a snapshot file, replacing the file if it exists.
+     *
+     * @param bookstore the Bookstore to save
+     * @param snapshotFile the file to write
+     *
+     * @throws IOException if the file cannot be written or the snapshot would exceed 2 GiB
+     */
+    public static void write(final Bookstore bookstore,
+                             final Path snapshotFile) throws IOException
+    {
+        write(bookstore.getStoreName(), bookstore.getInventory(), bookstore.getInventoryInTitleOrder(), snapshotFile);
+    }
+
+    /**
+     * Writes a store name and inventory to a snapshot file, replacing the file if it exists. The inventory is
+     * sorted by title to store its alphabetical order.
+     *
+     * @param storeName the name of the Bookstore the inventory belongs to
+     * @param inventory the Novels to save, in inventory order
+     * @param snapshotFile the file to write
+     *
+     * @throws IOException if the file cannot be written or the snapshot would exceed 2 GiB
+     */
+    static void write(final String storeName,
+                      final List<Novel> inventory,
+                      final Path snapshotFile) throws IOException
+    {
+        final List<Novel> inventoryInTitleOrder;
+        inventoryInTitleOrder = new ArrayList<>(inventory);
+
+        inventoryInTitleOrder.sort((first, second) -> CollationKey.compare(first.getCollationKey(),
+                                                                           second.getCollationKey()));
+
+        write(storeName, inventory, inventoryInTitleOrder, snapshotFile);
+    }
+
+    /*
+     * Writes a store name, inventory and alphabetical order to a snapshot file, replacing the file if it exists.
+     *
+     * @param storeName the name of the Bookstore the inventory belongs to
+     * @param inventory the Novels to save, in inventory order
+     * @param inventoryInTitleOrder the same Novels in alphabetical order of title, as a stable sort leaves them
+     * @param snapshotFile the file to write
+     */
+    private static void write(final String storeName,
+                              final List<Novel> inventory,
+                              final List<Novel> inventoryInTitleOrder,
+                              final Path snapshotFile) throws IOException
+    {
+        final byte[] encodedStoreName;
+        final Map<String, Integer> authorIds;
+        final Map<Novel, Integer> rows;
+        final List<byte[]> encodedAuthors;
+        final int[] countsByYear;
+        final int[] authorColumn;
+        final int[] titlePositions;
+        final int[] authorPositions;
+        long position;
+
+        encodedStoreName = StoredText.encode(storeName);
+        authorIds = new LinkedHashMap<>();
+        rows = new IdentityHashMap<>();
+        encodedAuthors = new ArrayList<>();
+        countsByYear = new int[YEAR_SPAN];
+        authorColumn = new int[inventory.size()];
+        titlePositions = new int[inventory.size()];
+
+        for (int row = 0; row < inventory.size(); row++)
+        {
+            final Novel novel;
+            final String authorName;
+
+            novel = inventory.get(row);
+            authorName = novel.getAuthorName();
+
+            if (!authorIds.containsKey(authorName))
+            {
+                authorIds.put(authorName, encodedAuthors.size());
+                encodedAuthors.add(StoredText.encode(authorName));
+            }
+
+            countsByYear[novel.getYearPublished() - Novel.MIN_YEAR_PUBLISHED]++;
+            authorColumn[row] = authorIds.get(authorName);
+            rows.put(novel, row);
+        }
+
+        authorPositions = new int[encodedAuthors.size()];
+        position = (long) HEADER_INTS * Integer.BYTES + encodedStoreName.length +
+                   (long) YEAR_SPAN * Integer.BYTES +
+                   (long) inventory.size() * (Short.BYTES + Integer.BYTES * 3) +
+                   (long) encodedAuthors.size() * Integer.BYTES;
+
+        for (int authorId = 0; authorId < encodedAuthors.size(); authorId++)
+        {
+            authorPositions[authorId] = checkedPosition(position);
+            position += Integer.BYTES + encodedAuthors.get(authorId).length;
+        }
+
+        for (int row = 0; row < inventory.size(); row++)
+        {
+            titlePositions[row] = checkedPosition(position);
+            position += Integer.BYTES + StoredText.encodedLength(inventory.get(row).getTitle());
+        }
+
+        checkedPosition(position);
+
+        try (final DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(snapshotFile))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(inventory.size());
+            out.writeInt(encodedAuthors.size());
+            out.writeInt(encodedStoreName.length);
+            out.write(encodedStoreName);
+
+            for (final int count : countsByYear)
+            {
+                out.writeInt(count);
+            }
+
+            for (final Novel novel : inventory)
+            {
+                out.writeShort(novel.getYearPublished());
+            }
+
+            for (final int authorId : authorColumn)
+            {
+                out.writeInt(authorId);
+            }
+
+            for (final int titlePosition : titlePositions)
+            {
+                out.writeInt(titlePosition);
+            }
+
+            for (final Novel novel : inventoryInTitleOrder)
+            {
+                out.writeInt(rows.get(novel));
+            }
+
+            for (final int authorPosition : authorPositions)
+            {
+                out.writeInt(authorPosition);
+            }
+
+            for (final byte[] encodedAuthor : encodedAuthors)
+            {
+                out.writeInt(encodedAuthor.length);
+                out.write(encodedAuthor);
+            }
+
+            for (final Novel novel : inventory)
+            {
+                final byte[] encodedTitle;
+                encodedTitle = StoredText.encode(novel.getTitle());
+
+                out.writeInt(encodedTitle.length);
+                out.write(encodedTitle);
+            }
+        }
+    }
+
+    /**
+     * Opens a snapshot file by mapping it into memory. Only the header and year counts are read.
+     *
+     * @param snapshotFile the file to open
+     *
+     * @return the opened snapshot
+     *
+     * @throws IOException if the file cannot be read or is not a supported snapshot
+     */
+    public static InventorySnapshot open(final Path snapshotFile) throws IOException
+    {
+        try (final FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ))
+        {
+            if (channel.size() < HEADER_INTS * Integer.BYTES)
+            {
+                throw new IOException("Not a bookstore snapshot.");
+            }
+
+            final ByteBuffer mappedFile;
+            mappedFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            return new InventorySnapshot(mappedFile);
+        }
+    }
+
+    /**
+     * Accessor for the name of the Bookstore this snapshot was taken of.
+     *
+     * @return the store name
+     */
+    public String getStoreName()
+    {
+        return this.storeName;
+    }
+
+    /**
+     * Returns the number of Novels in the snapshot.
+     *
+     * @return the number of Novels
+     */
+    public int size()
+    {
+        return this.novelCount;
+    }
+
+    /**
+     * Builds the Novel at the given position in the snapshot's inventory order.
+     *
+     * @param row the position of the Novel, from zero to size() - 1
+     *
+     * @return the Novel
+     *
+     * @throws UncheckedIOException if the snapshot file is corrupt
+     */
+    public Novel getNovel(final int row)
+    {
+        if (row < 0 ||
+            row >= this.novelCount)
+        {
+            throw new IndexOutOfBoundsException("Invalid row: " + row);
+        }
+
+        try
+        {
+            return readNovel(row);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Determines whether the snapshot has a book written in the given year, without building any Novels.
+     *
+     * @param year the year to find a book written in
+     *
+     * @return true if there is a book written that year, false otherwise.
+     */
+    public boolean isThereABookWrittenIn(final int year)
+    {
+        return countBetween(year, year) > NO_BOOKS;
+    }
+
+    /**
+     * Determines what percentage of the snapshot was written between firstYear and lastYear, inclusive, without
+     * building any Novels.
+     *
+     * @param firstYear The beginning year of the range.
+     * @param lastYear The final year of the range.
+     *
+     * @return The percentage of the snapshot that was published within the given range of years.
+     */
+    public double whichPercentWrittenBetween(final int firstYear,
+                                             final int lastYear)
+    {
+        if (lastYear < firstYear)
+        {
+            return NONE_PERCENTAGE;
+        }
+
+        final double ratio;
+        ratio = (double) countBetween(firstYear, lastYear) / this.novelCount;
+
+        return ratio * PERCENT_CONVERSION_FACTOR;
+    }
+
+    /**
+     * Builds a Bookstore holding every Novel in the snapshot, in the order they were saved. The Bookstore's title
+     * order is rebuilt from the stored alphabetical order instead of by sorting.
+     *
+     * @return a new Bookstore with the snapshot's name and inventory
+     *
+     * @throws IOException if the snapshot file is corrupt
+     */
+    public Bookstore toBookstore() throws IOException
+    {
+        final List<Novel> novels;
+        final List<Novel> novelsInTitleOrder;
+        final BitSet orderedRows;
+
+        novels = new ArrayList<>(this.novelCount);
+        novelsInTitleOrder = new ArrayList<>(this.novelCount);
+        orderedRows = new BitSet(this.novelCount);
+
+        for (int row = 0; row < this.novelCount; row++)
+        {
+            novels.add(readNovel(row));
+        }
+
+        for (int position = 0; position < this.novelCount; position++)
+        {
+            final int row;
+            final Novel novel;
+
+            row = this.mappedFile.getInt(this.titleOrderColumn + position * Integer.BYTES);
+
+            if (row < 0 ||
+                row >= this.novelCount ||
+                orderedRows.get(row))
+            {
+                throw new IOException("Corrupt snapshot title order.");
+            }
+
+            novel = novels.get(row);
+
+            if (position > 0 &&
+                CollationKey.compare(novelsInTitleOrder.getLast().getCollationKey(), novel.getCollationKey()) > 0)
+            {
+                throw new IOException("Corrupt snapshot title order.");
+            }
+
+            orderedRows.set(row);
+            novelsInTitleOrder.add(novel);
+        }
+
+        return new Bookstore(this.storeName, novels, novelsInTitleOrder);
+    }
+
+    /*
+     * Counts the Novels published between firstYear and lastYear, inclusive, from the stored year counts.
+     *
+     * @param firstYear the beginning year of the range
+     * @param lastYear the final year of the range
+     *
+     * @return the number of Novels published within the range
+     */
+    private int countBetween(final int firstYear,
+                             final int lastYear)
+    {
+        final int first;
+        final int last;
+
+        first = Math.max(firstYear, Novel.MIN_YEAR_PUBLISHED);
+        last = Math.min(lastYear, Novel.MAX_YEAR_PUBLISHED);
+
+        if (last < first)
+        {
+            return NO_BOOKS;
+        }
+
+        return this.countsUpToYear[last - Novel.MIN_YEAR_PUBLISHED + 1] -
+               this.countsUpToYear[first - Novel.MIN_YEAR_PUBLISHED];
+    }
+
+    /*
+     * Builds the Novel in a row, checking every value read against the file's bounds.
+     *
+     * @param row the row of the Novel, from zero to size() - 1
+     *
+     * @return the Novel
+     */
+    private Novel readNovel(final int row) throws IOException
+    {
+        final int yearPublished;
+        final int authorId;
+        final int titlePosition;
+        final String title;
+
+        yearPublished = this.mappedFile.getShort(this.yearColumn + row * Short.BYTES);
+        authorId = this.mappedFile.getInt(this.authorIdColumn + row * Integer.BYTES);
+        titlePosition = this.mappedFile.getInt(this.titlePositionColumn + row * Integer.BYTES);
+
+        if (authorId < 0 ||
+            authorId >= this.authorNames.length())
+        {
+            throw new IOException("Corrupt snapshot author ID in row " + row + ".");
+        }
+
+        title = decodeLengthPrefixed(titlePosition);
+
+        try
+        {
+            return new Novel(title, authorName(authorId), yearPublished);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            throw new IOException("Corrupt snapshot Novel in row " + row + ".", e);
+        }
+    }
+
+    /*
+     * Looks up an author's name, decoding it from the file the first time it is needed. Names are published
+     * through an AtomicReferenceArray, so a name decoded on one thread is safely seen by every other; two threads
+     * that race to decode the same name store the same interned String.
+     *
+     * @param authorId the author's ID
+     *
+     * @return the author's name
+     */
+    private String authorName(final int authorId) throws IOException
+    {
+        String authorName;
+        authorName = this.authorNames.get(authorId);
+
+        if (authorName == null)
+        {
+            final int authorPosition;
+            authorPosition = this.mappedFile.getInt(this.authorPositionColumn + authorId * Integer.BYTES);
+
+            authorName = decodeLengthPrefixed(authorPosition).intern();
+            this.authorNames.set(authorId, authorName);
+        }
+
+        return authorName;
+    }
+
+    /*
+     * Decodes a length-prefixed UTF-8 String from the Strings at the end of the file.
+     *
+     * @param position the position of the length prefix
+     *
+     * @return the decoded String
+     */
+    private String decodeLengthPrefixed(final int position) throws IOException
+    {
+        if (position < this.stringsStart ||
+            position > this.mappedFile.capacity() - Integer.BYTES)
+        {
+            throw new IOException("Corrupt snapshot String position " + position + ".");
+        }
+
+        final int length;
+        length = this.mappedFile.getInt(position);
+
+        if (length < 0 ||
+            length > this.mappedFile.capacity() - Integer.BYTES - position)
+        {
+            throw new IOException("Corrupt snapshot String length at " + position + ".");
+        }
+
+        return decode(position + Integer.BYTES, length);
+    }
+
+    /*
+     * Decodes a String written by StoredText from the file. The caller checks that its bytes lie within the file.
+     *
+     * @param position the position of the first byte
+     * @param length the number of bytes
+     *
+     * @return the decoded String
+     */
+    private String decode(final int position,
+                          final int length) throws IOException
+    {
+        final byte[] encoded;
+        encoded = new byte[length];
+
+        this.mappedFile.get(position, encoded);
+
+        return StoredText.decode(encoded, 0, length);
+    }
+
+    /*
+     * Checks that a position in the snapshot file can be stored and mapped as an int.
+     *
+     * @param position the position to check
+     *
+     * @return the position as an int
+     */
+    private static int checkedPosition(final long position) throws IOException
+    {
+        if (position > Integer.MAX_VALUE)
+        {
+            throw new IOException("Snapshot would exceed 2 GiB.");
+        }
+
+        return (int) position;
+    }
+}
@@ -0,0 +1,240 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A CatalogueShard held in this process by a Bookstore. Queries share a read lock, so a Catalogue can run many of
+ * them on the same shard at once, while additions and removals take the write lock.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class LocalShard implements CatalogueShard
+{
+    private final Bookstore bookstore;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    /**
+     * Constructs a new LocalShard holding the given Bookstore. The Bookstore must only be used through the shard
+     * from now on.
+     *
+     * @param bookstore the Bookstore this shard holds
+     */
+    public LocalShard(final Bookstore bookstore)
+    {
+        if (bookstore == null)
+        {
+            throw new IllegalArgumentException("Invalid bookstore.");
+        }
+
+        final ReadWriteLock lock;
+        lock = new ReentrantReadWriteLock();
+
+        this.bookstore = bookstore;
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    @Override
+    public String getShardName()
+    {
+        return this.bookstore.getStoreName();
+    }
+
+    @Override
+    public void addNovel(final Novel novel)
+    {
+        this.writeLock.lock();
+
+        try
+        {
+            this.bookstore.addNovel(novel);
+        }
+        finally
+        {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeNovel(final Novel novel)
+    {
+        this.writeLock.lock();
+
+        try
+        {
+            return this.bookstore.removeNovel(novel);
+        }
+        finally
+        {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        this.readLock.lock();
+
+        try
+        {
+            return this.bookstore.size();
+        }
+        finally
+        {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public int countPublishedBetween(final int firstYear,
+                                     final int lastYear)
+    {
+        this.readLock.lock();
+
+        try
+        {
+            return this.bookstore.query()
+                                 .publishedBetween(firstYear, lastYear)
+                                 .count();
+        }
+        finally
+        {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public YearRangeCount countYearRange(final int firstYear,
+                                         final int lastYear)
+    {
+        this.readLock.lock();
+
+        try
+        {
+            return new YearRangeCount(this.bookstore.size(),
+                                      this.bookstore.query()
+                                                    .publishedBetween(firstYear, lastYear)
+                                                    .count());
+        }
+        finally
+        {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public int howManyBooksContain(final String word)
+    {
+        this.readLock.lock();
+
+        try
+        {
+            return this.bookstore.howManyBooksContain(word);
+        }
+        finally
+        {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Novel> getBooksContaining(final String word)
+    {
+        this.readLock.lock();
+
+        try
+        {
+            return this.bookstore.query()
+                                 .titleContainsIgnoreCase(word)
+                                 .toList();
+        }
+        finally
+        {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Novel> getOldestBook()
+    {
+        this.readLock.lock();
+
+        try
+        {
+            if (this.bookstore.size() == 0)
+            {
+                return Optional.empty();
+            }
+
+            return Optional.of(this.bookstore.getOldestBook());
+        }
+        finally
+        {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Novel> getOldestBooks(final int count)
+    {
+        this.readLock.lock();
+
+        try
+        {
+            return this.bookstore.getOldestBooks(count);
+        }
+        finally
+        {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Novel> getLongestBook()
+    {
+        this.readLock.lock();
+
+        try
+        {
+            if (this.bookstore.size() == 0)
+            {
+                return Optional.empty();
+            }
+
+            final String longestTitle;
+            final List<Novel> longestBooks;
+
+            longestTitle = this.bookstore.getLongest();
+            longestBooks = this.bookstore.getBooksThisLength(longestTitle.length());
+
+            return Optional.of(longestBooks.getFirst());
+        }
+        finally
+        {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Novel> getLongestBooks(final int count)
+    {
+        this.readLock.lock();
+
+        try
+        {
+            return this.bookstore.getLongestBooks(count);
+        }
+        finally
+        {
+            this.readLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.function.Supplier;
+
+/**
+ * A hash map from primitive long keys to non-null values, so looking up a key never boxes it. Entries are kept in
+ * parallel key and value arrays with open addressing and linear probing, and an empty slot is marked by a null
+ * value. Removal shifts later entries of the same probe run back into the freed slot instead of leaving a marker,
+ * so lookups never slow down as entries come and go.
+ *
+ * @param <V> the type of the values
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class LongKeyMap<V>
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int GROWTH_FACTOR = 2;
+    private static final int MAX_LOAD_NUMERATOR = 1;
+    private static final int MAX_LOAD_DENOMINATOR = 2;
+    private static final long HASH_MULTIPLIER = 0x9e3779b97f4a7c15L;
+    private static final int HASH_SHIFT = 32;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Constructs a new, empty LongKeyMap.
+     */
+    LongKeyMap()
+    {
+        this.keys = new long[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /*
+     * Constructs a LongKeyMap holding the same entries as another, in copies of its arrays.
+     *
+     * @param original the map to copy
+     */
+    private LongKeyMap(final LongKeyMap<V> original)
+    {
+        this.keys = original.keys.clone();
+        this.values = original.values.clone();
+        this.size = original.size;
+    }
+
+    /**
+     * Copies the map. The copy shares the values but not the arrays, so either map can then be changed without
+     * affecting the other.
+     *
+     * @return a new LongKeyMap with the same entries
+     */
+    LongKeyMap<V> copy()
+    {
+        return new LongKeyMap<>(this);
+    }
+
+    /**
+     * Returns the value for a key.
+     *
+     * @param key the key to look up
+     *
+     * @return the key's value, or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    V get(final long key)
+    {
+        final int mask;
+        mask = this.keys.length - 1;
+
+        for (int slot = slotFor(key, mask); this.values[slot] != null; slot = (slot + 1) & mask)
+        {
+            if (this.keys[slot] == key)
+            {
+                return (V) this.values[slot];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the value for a key, adding the value made by the given Supplier if the key is not in the map.
+     *
+     * @param key the key to look up
+     * @param newValue makes the value for a key that is not in the map
+     *
+     * @return the key's value
+     */
+    V getOrAdd(final long key,
+               final Supplier<? extends V> newValue)
+    {
+        final V existingValue;
+        existingValue = get(key);
+
+        if (existingValue != null)
+        {
+            return existingValue;
+        }
+
+        if ((this.size + 1) * MAX_LOAD_DENOMINATOR > this.keys.length * MAX_LOAD_NUMERATOR)
+        {
+            resize(this.keys.length * GROWTH_FACTOR);
+        }
+
+        final V value;
+        value = newValue.get();
+
+        insert(key, value);
+        this.size++;
+
+        return value;
+    }
+
+    /**
+     * Replaces the value of a key that is already in the map.
+     *
+     * @param key the key whose value to replace
+     * @param value the new value, not null
+     */
+    void replace(final long key,
+                 final V value)
+    {
+        final int mask;
+        mask = this.keys.length - 1;
+
+        for (int slot = slotFor(key, mask); this.values[slot] != null; slot = (slot + 1) & mask)
+        {
+            if (this.keys[slot] == key)
+            {
+                this.values[slot] = value;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes a key and its value.
+     *
+     * @param key the key to remove
+     */
+    void remove(final long key)
+    {
+        final int mask;
+        int slot;
+
+        mask = this.keys.length - 1;
+        slot = slotFor(key, mask);
+
+        while (this.values[slot] != null &&
+               this.keys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        if (this.values[slot] == null)
+        {
+            return;
+        }
+
+        int freeSlot;
+        freeSlot = slot;
+
+        for (int next = (freeSlot + 1) & mask; this.values[next] != null; next = (next + 1) & mask)
+        {
+            final int home;
+            home = slotFor(this.keys[next], mask);
+
+            if (((next - home) & mask) >= ((next - freeSlot) & mask))
+            {
+                this.keys[freeSlot] = this.keys[next];
+                this.values[freeSlot] = this.values[next];
+                freeSlot = next;
+            }
+        }
+
+        this.values[freeSlot] = null;
+        this.size--;
+    }
+
+    /*
+     * Puts a key that is not in the map into its first free slot.
+     *
+     * @param key the key to insert
+     * @param value the key's value
+     */
+    private void insert(final long key,
+                        final Object value)
+    {
+        final int mask;
+        int slot;
+
+        mask = this.keys.length - 1;
+        slot = slotFor(key, mask);
+
+        while (this.values[slot] != null)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        this.keys[slot] = key;
+        this.values[slot] = value;
+    }
+
+    /*
+     * Moves every entry into arrays of a new capacity.
+     *
+     * @param capacity the new capacity, a power of two
+     */
+    private void resize(final int capacity)
+    {
+        final long[] oldKeys;
+        final Object[] oldValues;
+
+        oldKeys = this.keys;
+        oldValues = this.values;
+
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+
+        for (int slot = 0; slot < oldKeys.length; slot++)
+        {
+            if (oldValues[slot] != null)
+            {
+                insert(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    /*
+     * Finds the slot a key hashes to, spreading the key's bits with a Fibonacci hash.
+     *
+     * @param key the key
+     * @param mask the capacity minus one
+     *
+     * @return the key's home slot
+     */
+    private static int slotFor(final long key,
+                               final int mask)
+    {
+        final long spread;
+        spread = key * HASH_MULTIPLIER;
+
+        return (int) (spread ^ (spread >>> HASH_SHIFT)) & mask;
+    }
+}
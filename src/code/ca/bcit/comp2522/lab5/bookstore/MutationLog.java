@@ -0,0 +1,963 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32C;
+
+/**
+ * A write-ahead log of the Novels added to and removed from a Bookstore, kept in a directory next to snapshots of
+ * the inventory, so that changes survive a crash without the whole catalogue being rewritten for each one. Every
+ * change is appended to the log before it is made, as a record holding the record's length, a CRC-32C checksum, the
+ * type of change, the inventory position changed and the Novel's fields.
+ * <p>
+ * Appending only copies the record into memory. sync() writes everything appended so far and forces it to disk
+ * with one fsync, so callers choose how many changes share an fsync, and threads that call sync() while another
+ * thread is forcing the log wait for that force to finish and then force everything that built up meanwhile
+ * together, rather than each forcing their own.
+ * <p>
+ * The log is split into numbered segment files. Compaction starts a new segment, then writes a snapshot of the
+ * inventory as it stood at that moment in the background and deletes the older segments once the snapshot is
+ * safely on disk; snapshot N holds every change logged in the segments numbered below N. Recovery opens the newest
+ * snapshot and replays the segments after it in order. A crash can leave the last record of the newest segment
+ * half written, so replay of that segment stops at the first record that is cut short or fails its checksum and
+ * truncates the segment there. Every older segment was forced before the next one was started, so a bad record in
+ * one of them is corruption rather than a torn write, and recovery fails without changing the segment.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class MutationLog implements Closeable
+{
+    private static final int MAGIC = 0x424B4C47;
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MIN_PAYLOAD_BYTES = Byte.BYTES + Integer.BYTES + Short.BYTES + Integer.BYTES * 2;
+    private static final byte ADDITION = 1;
+    private static final byte REMOVAL = 2;
+    private static final int INITIAL_BUFFER_BYTES = 1 << 16;
+    private static final int FLUSH_THRESHOLD_BYTES = 1 << 20;
+    private static final int GROWTH_FACTOR = 2;
+    private static final long FIRST_FILE_NUMBER = 0L;
+    private static final int FILE_NUMBER_DIGITS = 19;
+    private static final String FILE_NAME_FORMAT = "%s%0" + FILE_NUMBER_DIGITS + "d%s";
+    private static final String SEGMENT_PREFIX = "mutations-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bks";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final Object appendLock;
+    private final Object syncLock;
+    private final CRC32C checksum;
+
+    private ByteBuffer pendingRecords;
+    private FileChannel segment;
+    private long segmentNumber;
+    private long appendedRecords;
+    private long durableRecords;
+    private Bookstore bookstore;
+    private CompletableFuture<Void> compaction;
+    private boolean closed;
+
+    /*
+     * Constructs a MutationLog over a directory that exists. Nothing is read until the log is recovered.
+     *
+     * @param directory the directory holding the log's segments and snapshots
+     */
+    private MutationLog(final Path directory)
+    {
+        this.directory = directory;
+        this.appendLock = new Object();
+        this.syncLock = new Object();
+        this.checksum = new CRC32C();
+        this.pendingRecords = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+        this.segment = null;
+        this.segmentNumber = FIRST_FILE_NUMBER;
+        this.appendedRecords = 0L;
+        this.durableRecords = 0L;
+        this.bookstore = null;
+        this.compaction = null;
+        this.closed = false;
+    }
+
+    /**
+     * Opens the mutation log in a directory, creating the directory if it does not exist. The log must be recovered
+     * before it records anything.
+     *
+     * @param directory the directory holding the log's segments and snapshots
+     *
+     * @return the opened log
+     *
+     * @throws IOException if the directory cannot be created
+     */
+    public static MutationLog open(final Path directory) throws IOException
+    {
+        validateDirectory(directory);
+
+        Files.createDirectories(directory);
+
+        return new MutationLog(directory);
+    }
+
+    /**
+     * Rebuilds the Bookstore saved in the log's directory from its newest snapshot and the changes logged since,
+     * then starts recording the Bookstore's changes in a new segment. From then on every Novel added to or removed
+     * from the Bookstore is logged before the change is made, and the Bookstore must only be changed by one thread
+     * at a time.
+     *
+     * @param storeName the name for the Bookstore if no snapshot has been saved yet
+     *
+     * @return the recovered Bookstore
+     *
+     * @throws IOException if the directory cannot be read, or a snapshot or segment is not a valid one
+     */
+    public Bookstore recover(final String storeName) throws IOException
+    {
+        if (this.closed)
+        {
+            throw new IllegalStateException("Mutation log is closed.");
+        }
+
+        if (this.bookstore != null)
+        {
+            throw new IllegalStateException("Mutation log has already been recovered.");
+        }
+
+        final List<Long> snapshotNumbers;
+        final List<Long> segmentNumbers;
+        final long baseNumber;
+        final Bookstore recovered;
+        long nextSegmentNumber;
+
+        deleteTemporaryFiles();
+
+        snapshotNumbers = fileNumbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        segmentNumbers = fileNumbers(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+
+        if (snapshotNumbers.isEmpty())
+        {
+            baseNumber = FIRST_FILE_NUMBER;
+            recovered = new Bookstore(storeName, Collections.emptyList());
+        }
+        else
+        {
+            baseNumber = snapshotNumbers.getLast();
+            recovered = InventorySnapshot.open(snapshotFile(baseNumber)).toBookstore();
+        }
+
+        nextSegmentNumber = baseNumber;
+
+        for (final long number : segmentNumbers)
+        {
+            if (number >= baseNumber)
+            {
+                replaySegment(segmentFile(number), recovered, number == segmentNumbers.getLast());
+            }
+
+            nextSegmentNumber = Math.max(nextSegmentNumber, number + 1);
+        }
+
+        deleteFilesBefore(baseNumber);
+        startSegment(nextSegmentNumber);
+
+        recovered.setMutationLog(this);
+        this.bookstore = recovered;
+
+        return recovered;
+    }
+
+    /**
+     * Writes every change appended so far and forces it to disk, so that it survives a crash. Changes appended by
+     * other threads while this sync waits for one already in progress are forced along with this thread's.
+     *
+     * @throws IOException if the log cannot be written or forced
+     */
+    public void sync() throws IOException
+    {
+        final long appendedBeforeSync;
+
+        synchronized (this.appendLock)
+        {
+            requireOpen();
+            appendedBeforeSync = this.appendedRecords;
+        }
+
+        synchronized (this.syncLock)
+        {
+            if (this.durableRecords >= appendedBeforeSync)
+            {
+                return;
+            }
+
+            final FileChannel channel;
+            final long writtenRecords;
+
+            synchronized (this.appendLock)
+            {
+                requireOpen();
+                writePendingRecords();
+
+                channel = this.segment;
+                writtenRecords = this.appendedRecords;
+            }
+
+            channel.force(false);
+            this.durableRecords = writtenRecords;
+        }
+    }
+
+    /**
+     * Starts compacting the log: every change logged so far is synced, new changes go to a new segment, and a
+     * snapshot of the inventory as it stands now is written on the given Executor, after which the segments it
+     * covers are deleted. Only the copy of the inventory is made on the calling thread, so this must be called by
+     * the thread that changes the Bookstore, or while holding the lock that guards it. If a compaction is already
+     * running, no new one is started.
+     *
+     * @param executor runs the snapshot write
+     *
+     * @return completes when the snapshot is on disk and the old segments are deleted, or completes exceptionally
+     *         with an UncheckedIOException if the snapshot cannot be written or does not load when read back, in
+     *         which case the old segments are kept and recovery still sees every change
+     *
+     * @throws IOException if the log cannot be synced or a new segment cannot be started
+     */
+    public CompletableFuture<Void> compact(final Executor executor) throws IOException
+    {
+        validateExecutor(executor);
+
+        synchronized (this.syncLock)
+        {
+            synchronized (this.appendLock)
+            {
+                requireOpen();
+
+                if (this.compaction != null &&
+                    !this.compaction.isDone())
+                {
+                    return this.compaction;
+                }
+
+                final FileChannel previousSegment;
+                final long snapshotNumber;
+                final String storeName;
+                final List<Novel> inventory;
+
+                writePendingRecords();
+
+                previousSegment = this.segment;
+                previousSegment.force(false);
+                this.durableRecords = this.appendedRecords;
+
+                snapshotNumber = this.segmentNumber + 1;
+                startSegment(snapshotNumber);
+                previousSegment.close();
+
+                storeName = this.bookstore.getStoreName();
+                inventory = new ArrayList<>(this.bookstore.getInventory());
+
+                this.compaction = CompletableFuture.runAsync(() -> saveSnapshot(storeName, inventory, snapshotNumber),
+                                                             executor);
+
+                return this.compaction;
+            }
+        }
+    }
+
+    /**
+     * Syncs every change appended so far and closes the current segment. A compaction already running carries on
+     * writing its snapshot. The Bookstore cannot be changed after its log is closed.
+     *
+     * @throws IOException if the log cannot be written or forced
+     */
+    @Override
+    public void close() throws IOException
+    {
+        synchronized (this.syncLock)
+        {
+            synchronized (this.appendLock)
+            {
+                if (this.closed)
+                {
+                    return;
+                }
+
+                this.closed = true;
+
+                if (this.segment == null)
+                {
+                    return;
+                }
+
+                writePendingRecords();
+                this.segment.force(false);
+                this.segment.close();
+                this.durableRecords = this.appendedRecords;
+            }
+        }
+    }
+
+    /**
+     * Appends a record of a Novel about to be added to the end of the inventory.
+     *
+     * @param row the position the Novel will be added at, which is the current inventory size
+     * @param novel the Novel being added
+     *
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    void logAddition(final int row,
+                     final Novel novel)
+    {
+        append(ADDITION, row, novel);
+    }
+
+    /**
+     * Appends a record of a Novel about to be removed from the inventory.
+     *
+     * @param row the position of the Novel being removed
+     * @param novel the Novel being removed
+     *
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    void logRemoval(final int row,
+                    final Novel novel)
+    {
+        append(REMOVAL, row, novel);
+    }
+
+    /*
+     * Encodes a record into the pending records. Once enough records have built up they are written to the segment
+     * before the new record is encoded, so if the write fails the new record has not been appended and the change
+     * it describes is not made, while the records already appended stay pending for the next write.
+     *
+     * @param type ADDITION or REMOVAL
+     * @param row the inventory position the change is made at
+     * @param novel the Novel being added or removed
+     */
+    private void append(final byte type,
+                        final int row,
+                        final Novel novel)
+    {
+        final byte[] encodedTitle;
+        final byte[] encodedAuthor;
+        final int payloadBytes;
+
+        encodedTitle = StoredText.encode(novel.getTitle());
+        encodedAuthor = StoredText.encode(novel.getAuthorName());
+        payloadBytes = MIN_PAYLOAD_BYTES + encodedTitle.length + encodedAuthor.length;
+
+        synchronized (this.appendLock)
+        {
+            requireOpen();
+
+            if (this.pendingRecords.position() >= FLUSH_THRESHOLD_BYTES)
+            {
+                try
+                {
+                    writePendingRecords();
+                }
+                catch (final IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            reserve(RECORD_HEADER_BYTES + payloadBytes);
+
+            final int recordStart;
+            final int payloadStart;
+
+            recordStart = this.pendingRecords.position();
+            payloadStart = recordStart + RECORD_HEADER_BYTES;
+
+            this.pendingRecords.position(payloadStart);
+            this.pendingRecords.put(type)
+                               .putInt(row)
+                               .putShort((short) novel.getYearPublished())
+                               .putInt(encodedTitle.length)
+                               .put(encodedTitle)
+                               .putInt(encodedAuthor.length)
+                               .put(encodedAuthor);
+
+            this.checksum.reset();
+            this.checksum.update(this.pendingRecords.array(), payloadStart, payloadBytes);
+
+            this.pendingRecords.putInt(recordStart, payloadBytes)
+                               .putInt(recordStart + Integer.BYTES, (int) this.checksum.getValue());
+            this.appendedRecords++;
+        }
+    }
+
+    /*
+     * Makes room for a record in the pending records. Must be called holding the append lock.
+     *
+     * @param recordBytes the size of the record
+     */
+    private void reserve(final int recordBytes)
+    {
+        if (this.pendingRecords.remaining() >= recordBytes)
+        {
+            return;
+        }
+
+        final ByteBuffer grown;
+        grown = ByteBuffer.allocate(Math.max(this.pendingRecords.capacity() * GROWTH_FACTOR,
+                                             this.pendingRecords.position() + recordBytes));
+
+        this.pendingRecords.flip();
+        grown.put(this.pendingRecords);
+
+        this.pendingRecords = grown;
+    }
+
+    /*
+     * Writes the pending records to the current segment without forcing them. Must be called holding the append
+     * lock.
+     */
+    private void writePendingRecords() throws IOException
+    {
+        this.pendingRecords.flip();
+
+        try
+        {
+            writeFully(this.segment, this.pendingRecords);
+        }
+        finally
+        {
+            this.pendingRecords.compact();
+        }
+    }
+
+    /*
+     * Creates a new, empty segment and makes it the one records are written to.
+     *
+     * @param number the segment's number
+     */
+    private void startSegment(final long number) throws IOException
+    {
+        final FileChannel channel;
+        final ByteBuffer header;
+
+        channel = FileChannel.open(segmentFile(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+
+        header.putInt(MAGIC)
+              .putInt(FORMAT_VERSION)
+              .flip();
+
+        try
+        {
+            writeFully(channel, header);
+            channel.force(false);
+            forceDirectory();
+        }
+        catch (final IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+
+        this.segment = channel;
+        this.segmentNumber = number;
+    }
+
+    /*
+     * Writes a snapshot for compaction to a temporary file, forces it to disk and renames it into place, then reads
+     * it back and deletes the segments and snapshots it replaces only if it loads. A snapshot that does not load is
+     * deleted instead, so recovery falls back to the older files.
+     *
+     * @param storeName the name of the Bookstore
+     * @param inventory a copy of the inventory when the compaction started
+     * @param snapshotNumber the number of the first segment the snapshot does not cover
+     */
+    private void saveSnapshot(final String storeName,
+                              final List<Novel> inventory,
+                              final long snapshotNumber)
+    {
+        final Path snapshotFile;
+        final Path temporaryFile;
+
+        snapshotFile = snapshotFile(snapshotNumber);
+        temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + TEMPORARY_SUFFIX);
+
+        try
+        {
+            InventorySnapshot.write(storeName, inventory, temporaryFile);
+
+            try (final FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE))
+            {
+                channel.force(true);
+            }
+
+            Files.move(temporaryFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        try
+        {
+            InventorySnapshot.open(snapshotFile).toBookstore();
+        }
+        catch (final IOException | UncheckedIOException e)
+        {
+            try
+            {
+                Files.deleteIfExists(snapshotFile);
+            }
+            catch (final IOException deleteFailure)
+            {
+                e.addSuppressed(deleteFailure);
+            }
+
+            throw new UncheckedIOException(new IOException("Compacted snapshot " + snapshotFile.getFileName() +
+                                                           " does not load; older files kept.", e));
+        }
+
+        try
+        {
+            deleteFilesBefore(snapshotNumber);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Forces the directory's entries to disk, so that files just created or renamed are still there after a crash.
+     * Windows cannot open a directory to force it, and there the file system is left to keep its entries.
+     */
+    private void forceDirectory() throws IOException
+    {
+        try (final FileChannel channel = FileChannel.open(this.directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+        catch (final AccessDeniedException e)
+        {
+            return;
+        }
+    }
+
+    /*
+     * Deletes the temporary files left by a compaction that was interrupted.
+     */
+    private void deleteTemporaryFiles() throws IOException
+    {
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + TEMPORARY_SUFFIX))
+        {
+            for (final Path file : files)
+            {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /*
+     * Deletes every segment and snapshot numbered below the given number, which a newer snapshot replaces.
+     *
+     * @param number the number of the newest snapshot
+     */
+    private void deleteFilesBefore(final long number) throws IOException
+    {
+        for (final long segmentNumber : fileNumbers(SEGMENT_PREFIX, SEGMENT_SUFFIX))
+        {
+            if (segmentNumber < number)
+            {
+                Files.deleteIfExists(segmentFile(segmentNumber));
+            }
+        }
+
+        for (final long snapshotNumber : fileNumbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX))
+        {
+            if (snapshotNumber < number)
+            {
+                Files.deleteIfExists(snapshotFile(snapshotNumber));
+            }
+        }
+    }
+
+    /*
+     * Lists the numbers of the files in the directory with the given prefix and suffix.
+     *
+     * @param prefix the start of the file names
+     * @param suffix the end of the file names
+     *
+     * @return the file numbers, from lowest to highest
+     */
+    private List<Long> fileNumbers(final String prefix,
+                                   final String suffix) throws IOException
+    {
+        final List<Long> numbers;
+        numbers = new ArrayList<>();
+
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, prefix + "*" + suffix))
+        {
+            for (final Path file : files)
+            {
+                final String fileName;
+                final String digits;
+
+                fileName = file.getFileName().toString();
+                digits = fileName.substring(prefix.length(), fileName.length() - suffix.length());
+
+                if (isFileNumber(digits))
+                {
+                    numbers.add(Long.parseLong(digits));
+                }
+            }
+        }
+
+        Collections.sort(numbers);
+
+        return numbers;
+    }
+
+    /*
+     * Returns the path of a segment file.
+     *
+     * @param number the segment's number
+     *
+     * @return the segment's path in the directory
+     */
+    private Path segmentFile(final long number)
+    {
+        return this.directory.resolve(String.format(FILE_NAME_FORMAT, SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    /*
+     * Returns the path of a snapshot file.
+     *
+     * @param number the snapshot's number
+     *
+     * @return the snapshot's path in the directory
+     */
+    private Path snapshotFile(final long number)
+    {
+        return this.directory.resolve(String.format(FILE_NAME_FORMAT, SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX));
+    }
+
+    /*
+     * Checks that the log has been recovered and not closed. Must be called holding the append lock.
+     */
+    private void requireOpen()
+    {
+        if (this.closed)
+        {
+            throw new IllegalStateException("Mutation log is closed.");
+        }
+
+        if (this.bookstore == null)
+        {
+            throw new IllegalStateException("Mutation log has not been recovered.");
+        }
+    }
+
+    /*
+     * Applies every whole, intact record in a segment to a Bookstore. In the newest segment, whose end a crash may
+     * have left half written, anything after the last intact record is cut off, and a segment too short to hold
+     * its header is deleted; in an older segment, a record that is cut short or fails its checksum is reported.
+     *
+     * @param segmentFile the segment to replay
+     * @param bookstore the Bookstore to apply the changes to
+     * @param newestSegment true if no later segment exists
+     *
+     * @throws IOException if the segment cannot be read, or is not the newest and holds a bad record
+     */
+    private static void replaySegment(final Path segmentFile,
+                                      final Bookstore bookstore,
+                                      final boolean newestSegment) throws IOException
+    {
+        final CRC32C recordChecksum;
+        final long fileBytes;
+        long validBytes;
+
+        recordChecksum = new CRC32C();
+        fileBytes = Files.size(segmentFile);
+
+        if (fileBytes < SEGMENT_HEADER_BYTES)
+        {
+            if (!newestSegment)
+            {
+                throw new IOException("Mutation log segment " + segmentFile.getFileName() + " has no header.");
+            }
+
+            Files.delete(segmentFile);
+
+            return;
+        }
+
+        try (final DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(Files.newInputStream(segmentFile))))
+        {
+            final int magic;
+            final int version;
+
+            magic = in.readInt();
+            version = in.readInt();
+
+            if (magic != MAGIC)
+            {
+                throw new IOException("Not a bookstore mutation log.");
+            }
+
+            if (version != FORMAT_VERSION)
+            {
+                throw new IOException("Unsupported mutation log version " + version + ".");
+            }
+
+            validBytes = SEGMENT_HEADER_BYTES;
+
+            while (fileBytes - validBytes >= RECORD_HEADER_BYTES)
+            {
+                final int payloadBytes;
+                final int expectedChecksum;
+                final byte[] payload;
+
+                payloadBytes = in.readInt();
+                expectedChecksum = in.readInt();
+
+                if (payloadBytes < MIN_PAYLOAD_BYTES ||
+                    payloadBytes > fileBytes - validBytes - RECORD_HEADER_BYTES)
+                {
+                    break;
+                }
+
+                payload = new byte[payloadBytes];
+                in.readFully(payload);
+
+                recordChecksum.reset();
+                recordChecksum.update(payload);
+
+                if ((int) recordChecksum.getValue() != expectedChecksum)
+                {
+                    break;
+                }
+
+                apply(payload, bookstore);
+                validBytes += RECORD_HEADER_BYTES + payloadBytes;
+            }
+        }
+
+        if (validBytes < fileBytes &&
+            !newestSegment)
+        {
+            throw new IOException("Corrupt record in mutation log segment " + segmentFile.getFileName() +
+                                  " at byte " + validBytes + ".");
+        }
+
+        if (validBytes < fileBytes)
+        {
+            try (final FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.WRITE))
+            {
+                channel.truncate(validBytes);
+                channel.force(false);
+            }
+        }
+    }
+
+    /*
+     * Applies one logged change to a Bookstore, checking that it was logged against the same inventory.
+     *
+     * @param payload the record's type, row and Novel
+     * @param bookstore the Bookstore to apply the change to
+     */
+    private static void apply(final byte[] payload,
+                              final Bookstore bookstore) throws IOException
+    {
+        final ByteBuffer record;
+        final byte type;
+        final int row;
+        final Novel loggedNovel;
+
+        record = ByteBuffer.wrap(payload);
+        type = record.get();
+        row = record.getInt();
+        loggedNovel = readNovel(record);
+
+        if (type == ADDITION)
+        {
+            if (row != bookstore.size())
+            {
+                throw new IOException("Mutation log does not match its snapshot.");
+            }
+
+            bookstore.addNovel(loggedNovel);
+        }
+        else if (type == REMOVAL)
+        {
+            final List<Novel> inventory;
+            inventory = bookstore.getInventory();
+
+            if (row < 0 ||
+                row >= inventory.size() ||
+                !isSameBook(inventory.get(row), loggedNovel))
+            {
+                throw new IOException("Mutation log does not match its snapshot.");
+            }
+
+            bookstore.removeNovel(inventory.get(row));
+        }
+        else
+        {
+            throw new IOException("Unknown mutation type " + type + ".");
+        }
+    }
+
+    /*
+     * Decodes the Novel at the end of a record.
+     *
+     * @param record the record, positioned at the Novel's year
+     *
+     * @return the Novel
+     */
+    private static Novel readNovel(final ByteBuffer record) throws IOException
+    {
+        final int yearPublished;
+        final String title;
+        final String authorName;
+
+        yearPublished = record.getShort();
+        title = readString(record);
+        authorName = readString(record);
+
+        try
+        {
+            return new Novel(title, authorName, yearPublished);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            throw new IOException("Invalid novel in mutation log.", e);
+        }
+    }
+
+    /*
+     * Decodes a length-prefixed String written by StoredText from a record.
+     *
+     * @param record the record, positioned at the length prefix
+     *
+     * @return the decoded String
+     */
+    private static String readString(final ByteBuffer record) throws IOException
+    {
+        final int length;
+        length = record.getInt();
+
+        if (length < 0 ||
+            length > record.remaining())
+        {
+            throw new IOException("Invalid string in mutation log.");
+        }
+
+        final String text;
+        text = StoredText.decode(record.array(), record.position(), record.position() + length);
+
+        record.position(record.position() + length);
+
+        return text;
+    }
+
+    /*
+     * Determines whether two Novels have the same title, author and year of publication.
+     *
+     * @param first the first Novel
+     * @param second the second Novel
+     *
+     * @return true if every field matches, false otherwise
+     */
+    private static boolean isSameBook(final Novel first,
+                                      final Novel second)
+    {
+        return first.getYearPublished() == second.getYearPublished() &&
+               first.getTitle().equals(second.getTitle()) &&
+               first.getAuthorName().equals(second.getAuthorName());
+    }
+
+    /*
+     * Determines whether the middle of a file name is a file number this log wrote.
+     *
+     * @param digits the part of the file name between its prefix and suffix
+     *
+     * @return true if it is a zero-padded file number, false otherwise
+     */
+    private static boolean isFileNumber(final String digits)
+    {
+        if (digits.length() != FILE_NUMBER_DIGITS)
+        {
+            return false;
+        }
+
+        for (int index = 0; index < digits.length(); index++)
+        {
+            if (!Character.isDigit(digits.charAt(index)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Writes every remaining byte of a buffer to a channel.
+     *
+     * @param channel the channel to write to
+     * @param buffer the bytes to write
+     */
+    private static void writeFully(final FileChannel channel,
+                                   final ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    /*
+     * Validates the directory passed to open. A directory is valid if it is not null.
+     *
+     * @param directory the directory to validate
+     */
+    private static void validateDirectory(final Path directory)
+    {
+        if (directory == null)
+        {
+            throw new IllegalArgumentException("Invalid directory.");
+        }
+    }
+
+    /*
+     * Validates the Executor passed to compact. An Executor is valid if it is not null.
+     *
+     * @param executor the Executor to validate
+     */
+    private static void validateExecutor(final Executor executor)
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("Invalid executor.");
+        }
+    }
+}
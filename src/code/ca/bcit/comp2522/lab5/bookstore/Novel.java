@@ -10,15 +10,18 @@ package ca.bcit.comp2522.lab5.bookstore;
  */
 public final class Novel implements Comparable<Novel>
 {
-    private static final int MIN_YEAR_PUBLISHED = -2100;
-    private static final int MAX_YEAR_PUBLISHED = 2026;
+    static final int MIN_YEAR_PUBLISHED = -2100;
+    static final int MAX_YEAR_PUBLISHED = 2026;
 
     private final String title;
     private final String authorName;
     private final int yearPublished;
+    private final byte[] collationKey;
 
     /**
-     * Constructs a new Novel with the given parameters, if valid.
+     * Constructs a new Novel with the given parameters, if valid. The author's name is interned so that every
+     * Novel by the same author shares a single String, and the title's case-folded collation key is built once
+     * here so that sorting and case-insensitive searches never fold the title again.
      *
      * @param title The title of the Novel
      * @param authorName The name of the author of the Novel in one String
@@ -33,8 +36,9 @@ public final class Novel implements Comparable<Novel>
         validateYearPublished(yearPublished);
 
         this.title = title;
-        this.authorName = authorName;
+        this.authorName = authorName.intern();
         this.yearPublished = yearPublished;
+        this.collationKey = CollationKey.of(title);
     }
 
     /**
@@ -68,8 +72,18 @@ public final class Novel implements Comparable<Novel>
     }
 
     /**
-     * Overrides Comparable's compareTo method, compares Novels based on title and calls String's
-     * compareToIgnoreCase to do it.
+     * Accessor for this Novel's title collation key. The array is shared, not copied, and must not be modified.
+     *
+     * @return the case-folded collation key of this Novel's title
+     */
+    byte[] getCollationKey()
+    {
+        return this.collationKey;
+    }
+
+    /**
+     * Overrides Comparable's compareTo method, compares Novels based on title, ignoring case. The precomputed
+     * collation keys are compared byte by byte, which orders titles the same as String's compareToIgnoreCase.
      *
      * @param otherNovel the Novel to be compared.
      *
@@ -81,11 +95,11 @@ public final class Novel implements Comparable<Novel>
     @Override
     public int compareTo(final Novel otherNovel)
     {
-        final String otherNovelTitle;
+        final byte[] otherNovelCollationKey;
 
-        otherNovelTitle = otherNovel.getTitle();
+        otherNovelCollationKey = otherNovel.getCollationKey();
 
-        return this.title.compareToIgnoreCase(otherNovelTitle);
+        return CollationKey.compare(this.collationKey, otherNovelCollationKey);
     }
 
     /*
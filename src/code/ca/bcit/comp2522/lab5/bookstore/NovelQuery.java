@@ -0,0 +1,289 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * A lazy query over a Bookstore's inventory. Conditions on title, author and year of publication are collected
+ * first and nothing is read until a terminal method such as forEach, count, toList or stream is called. All the
+ * conditions are then checked in a single pass over the smallest set of candidates any index can supply for
+ * them, and the pass stops as soon as the limit is reached. Results are always in inventory order.
+ * <p>
+ * A NovelQuery reads the Bookstore's live indexes, so the Bookstore must not be changed while a query is running.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class NovelQuery
+{
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+    private static final int MIN_LIMIT = 0;
+
+    private final List<Novel> inventory;
+    private final YearIndex yearIndex;
+    private final TitleIndex titleIndex;
+    private final AuthorIndex authorIndex;
+    private final TitleLengthIndex titleLengthIndex;
+    private final boolean parallel;
+
+    private Collection<Novel> candidates;
+    private Predicate<Novel> condition;
+    private boolean onlyYearConditions;
+    private int firstYear;
+    private int lastYear;
+    private long limit;
+
+    /*
+     * Constructs a new NovelQuery matching every Novel in the inventory.
+     *
+     * @param inventory every Novel in the Bookstore, in inventory order
+     * @param yearIndex the Bookstore's year index
+     * @param titleIndex the Bookstore's trigram title index
+     * @param authorIndex the Bookstore's author index
+     * @param titleLengthIndex the Bookstore's title length index
+     * @param parallel true to scan in parallel when no index narrows the candidates
+     */
+    NovelQuery(final List<Novel> inventory,
+               final YearIndex yearIndex,
+               final TitleIndex titleIndex,
+               final AuthorIndex authorIndex,
+               final TitleLengthIndex titleLengthIndex,
+               final boolean parallel)
+    {
+        this.inventory = inventory;
+        this.yearIndex = yearIndex;
+        this.titleIndex = titleIndex;
+        this.authorIndex = authorIndex;
+        this.titleLengthIndex = titleLengthIndex;
+        this.parallel = parallel;
+
+        this.candidates = inventory;
+        this.condition = novel -> true;
+        this.onlyYearConditions = true;
+        this.firstYear = Novel.MIN_YEAR_PUBLISHED;
+        this.lastYear = Novel.MAX_YEAR_PUBLISHED;
+        this.limit = NO_LIMIT;
+    }
+
+    /**
+     * Keeps only Novels whose titles contain the given word, matching case exactly.
+     *
+     * @param word the String titles must contain
+     *
+     * @return this NovelQuery
+     */
+    public NovelQuery titleContains(final String word)
+    {
+        validateText(word);
+
+        narrowTo(this.titleIndex.candidatesFor(word));
+        addCondition(novel -> novel.getTitle().contains(word));
+
+        return this;
+    }
+
+    /**
+     * Keeps only Novels whose titles contain the given word, ignoring case.
+     *
+     * @param word the String titles must contain
+     *
+     * @return this NovelQuery
+     */
+    public NovelQuery titleContainsIgnoreCase(final String word)
+    {
+        validateText(word);
+
+        final byte[] wordKey;
+        wordKey = CollationKey.of(word);
+
+        narrowTo(this.titleIndex.candidatesFor(word));
+        addCondition(novel -> CollationKey.contains(novel.getCollationKey(), wordKey));
+
+        return this;
+    }
+
+    /**
+     * Keeps only Novels whose titles have the given length.
+     *
+     * @param titleLength the length titles must have
+     *
+     * @return this NovelQuery
+     */
+    public NovelQuery titleLength(final int titleLength)
+    {
+        narrowTo(this.titleLengthIndex.withLength(titleLength));
+        addCondition(novel -> novel.getTitle().length() == titleLength);
+
+        return this;
+    }
+
+    /**
+     * Keeps only Novels by the given author.
+     *
+     * @param authorName the author's name, matched exactly
+     *
+     * @return this NovelQuery
+     */
+    public NovelQuery writtenBy(final String authorName)
+    {
+        validateText(authorName);
+
+        narrowTo(this.authorIndex.booksBy(authorName));
+        addCondition(novel -> novel.getAuthorName().equals(authorName));
+
+        return this;
+    }
+
+    /**
+     * Keeps only Novels published between firstYear and lastYear, inclusive.
+     *
+     * @param firstYear the beginning year of the range
+     * @param lastYear the final year of the range
+     *
+     * @return this NovelQuery
+     */
+    public NovelQuery publishedBetween(final int firstYear,
+                                       final int lastYear)
+    {
+        this.firstYear = Math.max(this.firstYear, firstYear);
+        this.lastYear = Math.min(this.lastYear, lastYear);
+
+        this.condition = this.condition.and(novel -> novel.getYearPublished() >= firstYear &&
+                                                     novel.getYearPublished() <= lastYear);
+
+        return this;
+    }
+
+    /**
+     * Stops the query after the given number of matches.
+     *
+     * @param maxResults the most Novels the query will produce
+     *
+     * @return this NovelQuery
+     */
+    public NovelQuery limit(final long maxResults)
+    {
+        if (maxResults < MIN_LIMIT)
+        {
+            throw new IllegalArgumentException("Invalid limit.");
+        }
+
+        this.limit = Math.min(this.limit, maxResults);
+
+        return this;
+    }
+
+    /**
+     * Streams the matching Novels lazily, in inventory order.
+     *
+     * @return a Stream of the matching Novels
+     */
+    public Stream<Novel> stream()
+    {
+        final Stream<Novel> candidateStream;
+
+        if (this.parallel &&
+            this.candidates == this.inventory)
+        {
+            candidateStream = this.candidates.parallelStream();
+        }
+        else
+        {
+            candidateStream = this.candidates.stream();
+        }
+
+        return candidateStream.filter(this.condition)
+                              .limit(this.limit);
+    }
+
+    /**
+     * Passes each matching Novel, in inventory order, to the given action without collecting them.
+     *
+     * @param action receives each matching Novel
+     */
+    public void forEach(final Consumer<Novel> action)
+    {
+        stream().forEachOrdered(action);
+    }
+
+    /**
+     * Counts the matching Novels. A query with only year conditions and no limit is answered from the year index
+     * without reading any Novels.
+     *
+     * @return the number of matching Novels
+     */
+    public int count()
+    {
+        if (this.onlyYearConditions &&
+            this.limit == NO_LIMIT)
+        {
+            return this.yearIndex.countBetween(this.firstYear, this.lastYear);
+        }
+
+        return (int) stream().count();
+    }
+
+    /**
+     * Collects the matching Novels.
+     *
+     * @return a read-only List of the matching Novels in inventory order
+     */
+    public List<Novel> toList()
+    {
+        return stream().toList();
+    }
+
+    /**
+     * Returns the number of Novels a terminal method will examine, which is the size of the smallest candidate set
+     * chosen so far. A limit may stop the pass sooner.
+     *
+     * @return the number of candidate Novels
+     */
+    int candidateCount()
+    {
+        return this.candidates.size();
+    }
+
+    /*
+     * Uses the given candidates instead of the current ones if there are fewer of them.
+     *
+     * @param indexedCandidates the Novels an index says might match, or null if the index cannot help
+     */
+    private void narrowTo(final Collection<Novel> indexedCandidates)
+    {
+        if (indexedCandidates != null &&
+            indexedCandidates.size() < this.candidates.size())
+        {
+            this.candidates = indexedCandidates;
+        }
+    }
+
+    /*
+     * Adds a condition every matching Novel must meet that the year index cannot count.
+     *
+     * @param newCondition the condition to add
+     */
+    private void addCondition(final Predicate<Novel> newCondition)
+    {
+        this.condition = this.condition.and(newCondition);
+        this.onlyYearConditions = false;
+    }
+
+    /*
+     * Validates a String a query condition compares against. A String is valid if it is not null.
+     *
+     * @param text the String to validate
+     */
+    private static void validateText(final String text)
+    {
+        if (text == null)
+        {
+            throw new IllegalArgumentException("Invalid query text.");
+        }
+    }
+}
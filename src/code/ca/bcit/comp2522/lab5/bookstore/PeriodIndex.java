@@ -0,0 +1,183 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the Novels in a Bookstore into periods of a fixed number of years, such as decades or centuries. Each
+ * period has a posting list of the Novels published in it, in inventory order, kept up to date as Novels are added
+ * and removed. A period starts at a multiple of its length, so with ten-year periods 1950 to 1959 is one period
+ * and -10 to -1 is another. The number of Novels in a period is the size of its posting list, so counting a period
+ * takes constant time however large the inventory grows.
+ * <p>
+ * A copy of the index shares its posting lists with the original, marking every one as shared in both, and an
+ * index copies a shared posting list before its first change to it.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class PeriodIndex
+{
+    private final int yearsPerPeriod;
+    private final int firstPeriod;
+    private final List<List<Novel>> postingsByPeriod;
+    private final BitSet sharedPostings;
+
+    /**
+     * Constructs a new, empty PeriodIndex.
+     *
+     * @param yearsPerPeriod the number of years in each period
+     */
+    PeriodIndex(final int yearsPerPeriod)
+    {
+        final int lastPeriod;
+
+        this.yearsPerPeriod = yearsPerPeriod;
+        this.firstPeriod = Math.floorDiv(Novel.MIN_YEAR_PUBLISHED, yearsPerPeriod);
+        lastPeriod = Math.floorDiv(Novel.MAX_YEAR_PUBLISHED, yearsPerPeriod);
+        this.postingsByPeriod = new ArrayList<>(lastPeriod - this.firstPeriod + 1);
+        this.sharedPostings = new BitSet();
+
+        for (int period = this.firstPeriod; period <= lastPeriod; period++)
+        {
+            this.postingsByPeriod.add(new ArrayList<>());
+        }
+    }
+
+    /*
+     * Constructs a PeriodIndex holding the same Novels as another, sharing its posting lists.
+     *
+     * @param original the index to copy
+     */
+    private PeriodIndex(final PeriodIndex original)
+    {
+        this.yearsPerPeriod = original.yearsPerPeriod;
+        this.firstPeriod = original.firstPeriod;
+        this.postingsByPeriod = new ArrayList<>(original.postingsByPeriod);
+        this.sharedPostings = new BitSet();
+
+        this.sharedPostings.set(0, this.postingsByPeriod.size());
+        original.sharedPostings.set(0, original.postingsByPeriod.size());
+    }
+
+    /**
+     * Copies the index, sharing its posting lists until either index changes them.
+     *
+     * @return a new PeriodIndex holding the same Novels
+     */
+    PeriodIndex copy()
+    {
+        return new PeriodIndex(this);
+    }
+
+    /**
+     * Adds a Novel to the posting list for the period it was published in.
+     *
+     * @param novel the Novel to index
+     */
+    void add(final Novel novel)
+    {
+        postingFor(novel.getYearPublished()).add(novel);
+    }
+
+    /**
+     * Removes a Novel from the posting list for the period it was published in. The Novel is matched by identity.
+     *
+     * @param novel the Novel to stop indexing
+     */
+    void remove(final Novel novel)
+    {
+        postingFor(novel.getYearPublished()).remove(novel);
+    }
+
+    /**
+     * Returns the Novels published in the period containing the given year.
+     *
+     * @param year any year in the period
+     *
+     * @return a read-only view of the Novels published in the period, in inventory order
+     */
+    List<Novel> publishedIn(final int year)
+    {
+        final int period;
+        period = periodOf(year);
+
+        if (period < 0 ||
+            period >= this.postingsByPeriod.size())
+        {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(this.postingsByPeriod.get(period));
+    }
+
+    /**
+     * Counts the Novels published in each period from the one containing firstYear to the one containing lastYear.
+     * Every period in the range is included, even those with no Novels. Periods wholly before the first or after
+     * the last possible year of publication are left out.
+     *
+     * @param firstYear a year in the first period to count
+     * @param lastYear a year in the last period to count
+     *
+     * @return a read-only Map from the first year of each period to its number of Novels, in chronological order
+     */
+    Map<Integer, Integer> countsBetween(final int firstYear,
+                                        final int lastYear)
+    {
+        final int first;
+        final int last;
+        final Map<Integer, Integer> counts;
+
+        first = Math.max(periodOf(firstYear), 0);
+        last = Math.min(periodOf(lastYear), this.postingsByPeriod.size() - 1);
+        counts = new LinkedHashMap<>();
+
+        for (int period = first; period <= last; period++)
+        {
+            counts.put((period + this.firstPeriod) * this.yearsPerPeriod,
+                       this.postingsByPeriod.get(period).size());
+        }
+
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /*
+     * Returns the posting list for the period containing the given year, copying it first if it is shared with
+     * another index.
+     *
+     * @param year a year of publication
+     *
+     * @return the modifiable posting list for the year's period, owned by this index
+     */
+    private List<Novel> postingFor(final int year)
+    {
+        final int period;
+        period = periodOf(year);
+
+        if (this.sharedPostings.get(period))
+        {
+            this.postingsByPeriod.set(period, new ArrayList<>(this.postingsByPeriod.get(period)));
+            this.sharedPostings.clear(period);
+        }
+
+        return this.postingsByPeriod.get(period);
+    }
+
+    /*
+     * Finds the position of the period containing the given year among the posting lists.
+     *
+     * @param year any year
+     *
+     * @return the position of the year's period, which is out of range if no Novel can be published in it
+     */
+    private int periodOf(final int year)
+    {
+        return Math.floorDiv(year, this.yearsPerPeriod) - this.firstPeriod;
+    }
+}
@@ -0,0 +1,303 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The Novels in one posting of a TitleIndex, in the order they were indexed. Each Novel is stored in a slot next to
+ * the sequence number the index gave it, and sequence numbers only grow, so a Novel is found by binary search on
+ * its sequence number rather than by hashing. Removing a Novel empties its slot, and the slots are compacted once
+ * half of them are empty, so removal costs amortized logarithmic time.
+ * <p>
+ * Hot loops can visit the slots directly with slotCount and novelAt, which allocates nothing; the Collection view
+ * skips the empty slots for everyone else.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class PostingList extends AbstractCollection<Novel>
+{
+    /**
+     * A posting with no Novels, for trigrams that no title contains. It must never be added to.
+     */
+    static final PostingList EMPTY = new PostingList();
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int GROWTH_FACTOR = 2;
+    private static final int COMPACTION_RATIO = 2;
+    private static final int NOT_FOUND = -1;
+    private static final int FIRST_GALLOP_STEP = 1;
+    private static final int GALLOP_GROWTH_FACTOR = 2;
+
+    private Novel[] novels;
+    private long[] sequences;
+    private int slotCount;
+    private int emptySlots;
+
+    /**
+     * Constructs a new, empty PostingList.
+     */
+    PostingList()
+    {
+        this.novels = new Novel[INITIAL_CAPACITY];
+        this.sequences = new long[INITIAL_CAPACITY];
+        this.slotCount = 0;
+        this.emptySlots = 0;
+    }
+
+    /*
+     * Constructs a PostingList holding the same slots as another, in copies of its arrays.
+     *
+     * @param original the posting to copy
+     */
+    private PostingList(final PostingList original)
+    {
+        this.novels = original.novels.clone();
+        this.sequences = original.sequences.clone();
+        this.slotCount = original.slotCount;
+        this.emptySlots = original.emptySlots;
+    }
+
+    /**
+     * Copies the posting, so the copy can be changed without affecting this one.
+     *
+     * @return a new PostingList with the same Novels and sequence numbers
+     */
+    PostingList copy()
+    {
+        return new PostingList(this);
+    }
+
+    /**
+     * Appends a Novel, unless it was the last Novel appended.
+     *
+     * @param novel the Novel to append
+     * @param sequence the Novel's sequence number, no smaller than any already in the posting
+     */
+    void add(final Novel novel,
+             final long sequence)
+    {
+        if (this.slotCount > 0 &&
+            this.sequences[this.slotCount - 1] == sequence)
+        {
+            return;
+        }
+
+        if (this.slotCount == this.novels.length)
+        {
+            this.novels = Arrays.copyOf(this.novels, this.slotCount * GROWTH_FACTOR);
+            this.sequences = Arrays.copyOf(this.sequences, this.slotCount * GROWTH_FACTOR);
+        }
+
+        this.novels[this.slotCount] = novel;
+        this.sequences[this.slotCount] = sequence;
+        this.slotCount++;
+    }
+
+    /**
+     * Removes the Novel with the given sequence number, if it is in the posting.
+     *
+     * @param sequence the sequence number of the Novel to remove
+     */
+    void removeSequence(final long sequence)
+    {
+        final int slot;
+        slot = slotOf(sequence);
+
+        if (slot == NOT_FOUND)
+        {
+            return;
+        }
+
+        this.novels[slot] = null;
+        this.emptySlots++;
+
+        if (this.emptySlots * COMPACTION_RATIO > this.slotCount)
+        {
+            compact();
+        }
+    }
+
+    /**
+     * Finds the first slot, at or after the given one, whose sequence number is at least the given one. The search
+     * gallops forward from the given slot before searching the range it lands in, so a walk that looks up
+     * increasing sequence numbers, starting each search where the last one ended, reads a few nearby slots per
+     * lookup instead of binary searching the whole posting.
+     *
+     * @param sequence the sequence number to look for
+     * @param fromSlot the slot to start from, at most slotCount
+     *
+     * @return the slot, which may be empty, or slotCount if no slot from fromSlot on has a large enough sequence
+     *         number
+     */
+    int slotAtOrAfter(final long sequence,
+                      final int fromSlot)
+    {
+        int low;
+        int high;
+        int step;
+
+        low = fromSlot;
+        high = fromSlot;
+        step = FIRST_GALLOP_STEP;
+
+        while (high < this.slotCount &&
+               this.sequences[high] < sequence)
+        {
+            low = high + 1;
+            high += step;
+            step *= GALLOP_GROWTH_FACTOR;
+        }
+
+        final int slot;
+        slot = Arrays.binarySearch(this.sequences, low, Math.min(high, this.slotCount), sequence);
+
+        if (slot < 0)
+        {
+            return -slot - 1;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Returns the number of slots, including empty ones, for visiting the slots with novelAt.
+     *
+     * @return the number of slots in use
+     */
+    int slotCount()
+    {
+        return this.slotCount;
+    }
+
+    /**
+     * Returns the Novel in a slot.
+     *
+     * @param slot the slot, less than slotCount
+     *
+     * @return the Novel in the slot, or null if the slot is empty
+     */
+    Novel novelAt(final int slot)
+    {
+        return this.novels[slot];
+    }
+
+    /**
+     * Returns the sequence number of the Novel in a slot.
+     *
+     * @param slot the slot, less than slotCount
+     *
+     * @return the sequence number the slot was filled with
+     */
+    long sequenceAt(final int slot)
+    {
+        return this.sequences[slot];
+    }
+
+    @Override
+    public int size()
+    {
+        return this.slotCount - this.emptySlots;
+    }
+
+    @Override
+    public Iterator<Novel> iterator()
+    {
+        return new Iterator<>()
+        {
+            private int nextSlot = skipEmptySlots(0);
+
+            @Override
+            public boolean hasNext()
+            {
+                return this.nextSlot < PostingList.this.slotCount;
+            }
+
+            @Override
+            public Novel next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+
+                final Novel novel;
+                novel = PostingList.this.novels[this.nextSlot];
+
+                this.nextSlot = skipEmptySlots(this.nextSlot + 1);
+
+                return novel;
+            }
+        };
+    }
+
+    /*
+     * Finds the first slot at or after the given slot that holds a Novel.
+     *
+     * @param slot the slot to start from
+     *
+     * @return the first full slot, or slotCount if there is none
+     */
+    private int skipEmptySlots(final int slot)
+    {
+        int fullSlot;
+        fullSlot = slot;
+
+        while (fullSlot < this.slotCount &&
+               this.novels[fullSlot] == null)
+        {
+            fullSlot++;
+        }
+
+        return fullSlot;
+    }
+
+    /*
+     * Finds the slot holding the Novel with the given sequence number by binary search.
+     *
+     * @param sequence the sequence number to look for
+     *
+     * @return the Novel's slot, or NOT_FOUND if no full slot has the sequence number
+     */
+    private int slotOf(final long sequence)
+    {
+        final int slot;
+        slot = Arrays.binarySearch(this.sequences, 0, this.slotCount, sequence);
+
+        if (slot < 0 ||
+            this.novels[slot] == null)
+        {
+            return NOT_FOUND;
+        }
+
+        return slot;
+    }
+
+    /*
+     * Moves every Novel down over the empty slots, keeping their order.
+     */
+    private void compact()
+    {
+        int nextFullSlot;
+        nextFullSlot = 0;
+
+        for (int slot = 0; slot < this.slotCount; slot++)
+        {
+            if (this.novels[slot] != null)
+            {
+                this.novels[nextFullSlot] = this.novels[slot];
+                this.sequences[nextFullSlot] = this.sequences[slot];
+                nextFullSlot++;
+            }
+        }
+
+        Arrays.fill(this.novels, nextFullSlot, this.slotCount, null);
+
+        this.slotCount = nextFullSlot;
+        this.emptySlots = 0;
+    }
+}
@@ -0,0 +1,294 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of query results, keyed by query name and arguments, that threads read without locking. Each
+ * result is tagged with the inventory version it was computed from, and the whole cache is replaced by an empty
+ * one the first time it is asked about a newer version, so a result is never served after the inventory changes.
+ * Results are computed outside the cache, so two threads missing on the same key at once may both compute it.
+ * <p>
+ * Eviction is an approximate least recently used policy. A clock ticks once per miss, and a hit stamps its result
+ * with the current tick, so results used since the same miss tie. Once a miss takes the cache over its capacity,
+ * the result with the oldest stamp is evicted; threads evicting at the same moment may evict a few more results
+ * than needed. A capacity of 0 bypasses the cache entirely, so queries then touch no shared state at all.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class QueryCache
+{
+    private static final int MIN_CAPACITY = 0;
+    private static final long NO_VERSION = -1L;
+
+    private final AtomicLong clock;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder invalidations;
+
+    private volatile int capacity;
+    private volatile Generation generation;
+
+    /**
+     * Constructs a new, empty QueryCache.
+     *
+     * @param capacity the most results to keep; 0 disables caching
+     */
+    QueryCache(final int capacity)
+    {
+        validateCapacity(capacity);
+
+        this.clock = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.invalidations = new LongAdder();
+        this.capacity = capacity;
+        this.generation = new Generation(NO_VERSION);
+    }
+
+    /**
+     * Returns the cached result of a query, computing and caching it if it is missing or was computed from an
+     * older inventory. Queries that throw are not cached.
+     *
+     * @param inventoryVersion the current version of the inventory
+     * @param query computes the result on a miss
+     * @param key the query name followed by its arguments
+     * @param <T> the type of the result
+     *
+     * @return the result of the query
+     */
+    <T> T get(final long inventoryVersion,
+              final Supplier<T> query,
+              final Object... key)
+    {
+        if (this.capacity == MIN_CAPACITY)
+        {
+            return query.get();
+        }
+
+        final Generation current;
+        final List<Object> cacheKey;
+        final CachedResult cachedResult;
+
+        current = generationFor(inventoryVersion);
+        cacheKey = Arrays.asList(key);
+        cachedResult = current.results.get(cacheKey);
+
+        if (cachedResult != null)
+        {
+            @SuppressWarnings("unchecked")
+            final T result = (T) cachedResult.result;
+
+            cachedResult.touch(this.clock.get());
+            this.hits.increment();
+
+            return result;
+        }
+
+        this.misses.increment();
+
+        final T result;
+        result = query.get();
+
+        store(current, cacheKey, result);
+
+        return result;
+    }
+
+    /**
+     * Changes the most results the cache keeps, evicting the least recently used results if it shrinks.
+     *
+     * @param capacity the most results to keep; 0 disables caching
+     */
+    void setCapacity(final int capacity)
+    {
+        validateCapacity(capacity);
+
+        this.capacity = capacity;
+
+        evictOverCapacity(this.generation);
+    }
+
+    /**
+     * Returns a snapshot of the cache's statistics. The counts are read one at a time while other threads may be
+     * updating them, so they are only consistent with each other once the cache is quiet.
+     *
+     * @return the cache's statistics
+     */
+    QueryCacheStatistics statistics()
+    {
+        return new QueryCacheStatistics(this.capacity,
+                                        this.generation.results.size(),
+                                        this.hits.sum(),
+                                        this.misses.sum(),
+                                        this.evictions.sum(),
+                                        this.invalidations.sum());
+    }
+
+    /*
+     * Returns the generation of results for an inventory version, replacing the current one with an empty
+     * generation if it was computed from another version.
+     *
+     * @param inventoryVersion the current version of the inventory
+     *
+     * @return the generation holding results for that version
+     */
+    private Generation generationFor(final long inventoryVersion)
+    {
+        final Generation current;
+        current = this.generation;
+
+        if (current.version == inventoryVersion)
+        {
+            return current;
+        }
+
+        final Generation replacement;
+        replacement = new Generation(inventoryVersion);
+
+        if (!current.results.isEmpty())
+        {
+            this.invalidations.increment();
+        }
+
+        this.generation = replacement;
+
+        return replacement;
+    }
+
+    /*
+     * Caches a result in the generation it was computed for, then evicts down to the capacity. A generation that
+     * was replaced while the query ran is no longer read, so the result is simply dropped with it.
+     *
+     * @param current the generation the result was computed for
+     * @param cacheKey the key to cache the result under
+     * @param result the result to cache
+     */
+    private void store(final Generation current,
+                       final List<Object> cacheKey,
+                       final Object result)
+    {
+        if (result == null ||
+            this.capacity == MIN_CAPACITY)
+        {
+            return;
+        }
+
+        current.results.put(cacheKey, new CachedResult(result, this.clock.incrementAndGet()));
+
+        evictOverCapacity(current);
+    }
+
+    /*
+     * Evicts the results with the oldest stamps until a generation holds no more than the capacity.
+     *
+     * @param current the generation to evict from
+     */
+    private void evictOverCapacity(final Generation current)
+    {
+        while (current.results.size() > this.capacity)
+        {
+            Map.Entry<List<Object>, CachedResult> eldest;
+            eldest = null;
+
+            for (final Map.Entry<List<Object>, CachedResult> entry : current.results.entrySet())
+            {
+                if (eldest == null ||
+                    entry.getValue().lastUsed < eldest.getValue().lastUsed)
+                {
+                    eldest = entry;
+                }
+            }
+
+            if (eldest == null)
+            {
+                return;
+            }
+
+            if (current.results.remove(eldest.getKey(), eldest.getValue()))
+            {
+                this.evictions.increment();
+            }
+        }
+    }
+
+    /*
+     * Validates a cache capacity. A capacity is valid if it is at least MIN_CAPACITY.
+     *
+     * @param capacity the capacity to validate
+     */
+    private static void validateCapacity(final int capacity)
+    {
+        if (capacity < MIN_CAPACITY)
+        {
+            throw new IllegalArgumentException("Invalid cache capacity.");
+        }
+    }
+
+    /*
+     * The results computed from one version of the inventory.
+     */
+    private static final class Generation
+    {
+        private final long version;
+        private final Map<List<Object>, CachedResult> results;
+
+        /*
+         * Constructs a new, empty Generation.
+         *
+         * @param version the inventory version its results are computed from
+         */
+        private Generation(final long version)
+        {
+            this.version = version;
+            this.results = new ConcurrentHashMap<>();
+        }
+    }
+
+    /*
+     * A cached result and the clock tick it was last used at.
+     */
+    private static final class CachedResult
+    {
+        private final Object result;
+
+        private volatile long lastUsed;
+
+        /*
+         * Constructs a new CachedResult.
+         *
+         * @param result the result of the query
+         * @param lastUsed the clock tick it was computed at
+         */
+        private CachedResult(final Object result,
+                             final long lastUsed)
+        {
+            this.result = result;
+            this.lastUsed = lastUsed;
+        }
+
+        /*
+         * Stamps the result as used at a clock tick. The stamp is only written when it moves forward, so threads
+         * hitting the same result between misses do not keep writing it.
+         *
+         * @param tick the current clock tick
+         */
+        private void touch(final long tick)
+        {
+            if (this.lastUsed < tick)
+            {
+                this.lastUsed = tick;
+            }
+        }
+    }
+}
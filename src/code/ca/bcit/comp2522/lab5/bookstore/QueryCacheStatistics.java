@@ -0,0 +1,137 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+/**
+ * A snapshot of a Bookstore query cache's statistics, for tuning its capacity. Counts cover the life of the
+ * Bookstore. An invalidation is a change to the inventory that dropped every cached result.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class QueryCacheStatistics
+{
+    private static final double NO_REQUESTS_HIT_RATE = 0.0;
+
+    private final int capacity;
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+
+    /**
+     * Constructs a new QueryCacheStatistics.
+     *
+     * @param capacity the most results the cache keeps
+     * @param size the number of results cached
+     * @param hits the number of queries answered from the cache
+     * @param misses the number of queries that had to be computed
+     * @param evictions the number of results evicted to make room for newer ones
+     * @param invalidations the number of times the whole cache was dropped because the inventory changed
+     */
+    QueryCacheStatistics(final int capacity,
+                         final int size,
+                         final long hits,
+                         final long misses,
+                         final long evictions,
+                         final long invalidations)
+    {
+        this.capacity = capacity;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+    }
+
+    /**
+     * Accessor for the most results the cache keeps.
+     *
+     * @return the capacity
+     */
+    public int getCapacity()
+    {
+        return this.capacity;
+    }
+
+    /**
+     * Accessor for the number of results cached.
+     *
+     * @return the size
+     */
+    public int getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * Accessor for the number of queries answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * Accessor for the number of queries that had to be computed.
+     *
+     * @return the miss count
+     */
+    public long getMisses()
+    {
+        return this.misses;
+    }
+
+    /**
+     * Accessor for the number of results evicted to make room for newer ones.
+     *
+     * @return the eviction count
+     */
+    public long getEvictions()
+    {
+        return this.evictions;
+    }
+
+    /**
+     * Accessor for the number of times the whole cache was dropped because the inventory changed.
+     *
+     * @return the invalidation count
+     */
+    public long getInvalidations()
+    {
+        return this.invalidations;
+    }
+
+    /**
+     * Returns the fraction of queries answered from the cache.
+     *
+     * @return the hit rate between 0.0 and 1.0, or 0.0 if no queries have been made
+     */
+    public double getHitRate()
+    {
+        final long requests;
+        requests = this.hits + this.misses;
+
+        if (requests == 0)
+        {
+            return NO_REQUESTS_HIT_RATE;
+        }
+
+        return (double) this.hits / requests;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "QueryCacheStatistics{capacity=" + this.capacity +
+               ", size=" + this.size +
+               ", hits=" + this.hits +
+               ", misses=" + this.misses +
+               ", evictions=" + this.evictions +
+               ", invalidations=" + this.invalidations +
+               "}";
+    }
+}
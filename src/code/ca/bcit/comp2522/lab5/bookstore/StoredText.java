@@ -0,0 +1,266 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the Strings an InventorySnapshot or MutationLog stores, and decodes them again. Text is encoded as UTF-8,
+ * one code point at a time, except that an unpaired surrogate is encoded in the three-byte form of its own value
+ * instead of being replaced the way String.getBytes replaces it. Every String a Novel accepts therefore decodes
+ * back to exactly the same String, and text without unpaired surrogates is encoded as standard UTF-8, so files
+ * written before unpaired surrogates were kept still read the same.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class StoredText
+{
+    private static final int MAX_ONE_BYTE = 0x7F;
+    private static final int MAX_TWO_BYTES = 0x7FF;
+    private static final int MAX_THREE_BYTES = 0xFFFF;
+    private static final int TWO_BYTE_LEAD = 0xC0;
+    private static final int THREE_BYTE_LEAD = 0xE0;
+    private static final int FOUR_BYTE_LEAD = 0xF0;
+    private static final int INVALID_LEAD = 0xF8;
+    private static final int TWO_BYTE_PAYLOAD = 0x1F;
+    private static final int THREE_BYTE_PAYLOAD = 0x0F;
+    private static final int FOUR_BYTE_PAYLOAD = 0x07;
+    private static final int CONTINUATION = 0x80;
+    private static final int CONTINUATION_MASK = 0x3F;
+    private static final int CONTINUATION_TAG_MASK = 0xC0;
+    private static final int BITS_PER_CONTINUATION = 6;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int ONE_BYTE = 1;
+    private static final int TWO_BYTES = 2;
+    private static final int THREE_BYTES = 3;
+    private static final int FOUR_BYTES = 4;
+
+    /*
+     * Prevents instantiation; StoredText only has static methods.
+     */
+    private StoredText()
+    {
+    }
+
+    /**
+     * Encodes a String.
+     *
+     * @param text the String to encode
+     *
+     * @return the encoded bytes
+     */
+    static byte[] encode(final String text)
+    {
+        final byte[] encoded;
+        int length;
+
+        encoded = new byte[encodedLength(text)];
+        length = 0;
+
+        for (int index = 0; index < text.length(); )
+        {
+            final int codePoint;
+            codePoint = text.codePointAt(index);
+
+            if (codePoint <= MAX_ONE_BYTE)
+            {
+                encoded[length] = (byte) codePoint;
+            }
+            else if (codePoint <= MAX_TWO_BYTES)
+            {
+                encoded[length] = (byte) (TWO_BYTE_LEAD | codePoint >>> BITS_PER_CONTINUATION);
+                encoded[length + 1] = (byte) (CONTINUATION | codePoint & CONTINUATION_MASK);
+            }
+            else if (codePoint <= MAX_THREE_BYTES)
+            {
+                encoded[length] = (byte) (THREE_BYTE_LEAD | codePoint >>> (BITS_PER_CONTINUATION * 2));
+                encoded[length + 1] = (byte) (CONTINUATION | codePoint >>> BITS_PER_CONTINUATION & CONTINUATION_MASK);
+                encoded[length + 2] = (byte) (CONTINUATION | codePoint & CONTINUATION_MASK);
+            }
+            else
+            {
+                encoded[length] = (byte) (FOUR_BYTE_LEAD | codePoint >>> (BITS_PER_CONTINUATION * 3));
+                encoded[length + 1] = (byte) (CONTINUATION |
+                                              codePoint >>> (BITS_PER_CONTINUATION * 2) & CONTINUATION_MASK);
+                encoded[length + 2] = (byte) (CONTINUATION | codePoint >>> BITS_PER_CONTINUATION & CONTINUATION_MASK);
+                encoded[length + 3] = (byte) (CONTINUATION | codePoint & CONTINUATION_MASK);
+            }
+
+            length += bytesFor(codePoint);
+            index += Character.charCount(codePoint);
+        }
+
+        return encoded;
+    }
+
+    /**
+     * Counts the bytes encode writes for a String, without encoding it.
+     *
+     * @param text the String to measure
+     *
+     * @return the encoded length in bytes
+     */
+    static int encodedLength(final String text)
+    {
+        int length;
+        length = 0;
+
+        for (int index = 0; index < text.length(); )
+        {
+            final int codePoint;
+            codePoint = text.codePointAt(index);
+
+            length += bytesFor(codePoint);
+            index += Character.charCount(codePoint);
+        }
+
+        return length;
+    }
+
+    /**
+     * Decodes bytes written by encode.
+     *
+     * @param bytes the array holding the encoded String
+     * @param start the position of the first byte to decode
+     * @param end the position after the last byte to decode
+     *
+     * @return the decoded String
+     *
+     * @throws IOException if the bytes are not a String encode could have written
+     */
+    static String decode(final byte[] bytes,
+                         final int start,
+                         final int end) throws IOException
+    {
+        if (isAscii(bytes, start, end))
+        {
+            return new String(bytes, start, end - start, StandardCharsets.US_ASCII);
+        }
+
+        final StringBuilder decoded;
+        int position;
+
+        decoded = new StringBuilder(end - start);
+        position = start;
+
+        while (position < end)
+        {
+            final int lead;
+            final int length;
+            int codePoint;
+
+            lead = bytes[position] & BYTE_MASK;
+
+            if (lead <= MAX_ONE_BYTE)
+            {
+                length = ONE_BYTE;
+                codePoint = lead;
+            }
+            else if (lead < TWO_BYTE_LEAD)
+            {
+                throw new IOException("Malformed stored text.");
+            }
+            else if (lead < THREE_BYTE_LEAD)
+            {
+                length = TWO_BYTES;
+                codePoint = lead & TWO_BYTE_PAYLOAD;
+            }
+            else if (lead < FOUR_BYTE_LEAD)
+            {
+                length = THREE_BYTES;
+                codePoint = lead & THREE_BYTE_PAYLOAD;
+            }
+            else if (lead < INVALID_LEAD)
+            {
+                length = FOUR_BYTES;
+                codePoint = lead & FOUR_BYTE_PAYLOAD;
+            }
+            else
+            {
+                throw new IOException("Malformed stored text.");
+            }
+
+            if (length > end - position)
+            {
+                throw new IOException("Malformed stored text.");
+            }
+
+            for (int continuation = 1; continuation < length; continuation++)
+            {
+                final int next;
+                next = bytes[position + continuation] & BYTE_MASK;
+
+                if ((next & CONTINUATION_TAG_MASK) != CONTINUATION)
+                {
+                    throw new IOException("Malformed stored text.");
+                }
+
+                codePoint = codePoint << BITS_PER_CONTINUATION | next & CONTINUATION_MASK;
+            }
+
+            if (!Character.isValidCodePoint(codePoint))
+            {
+                throw new IOException("Malformed stored text.");
+            }
+
+            decoded.appendCodePoint(codePoint);
+            position += length;
+        }
+
+        return decoded.toString();
+    }
+
+    /*
+     * Determines whether a run of bytes is entirely ASCII, so it can be decoded without checking for multi-byte
+     * sequences.
+     *
+     * @param bytes the array holding the bytes
+     * @param start the position of the first byte to check
+     * @param end the position after the last byte to check
+     *
+     * @return true if every byte is ASCII, false otherwise
+     */
+    private static boolean isAscii(final byte[] bytes,
+                                   final int start,
+                                   final int end)
+    {
+        for (int position = start; position < end; position++)
+        {
+            if (bytes[position] < 0)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Counts the bytes encode writes for one code point.
+     *
+     * @param codePoint the code point, which may be an unpaired surrogate
+     *
+     * @return the number of bytes
+     */
+    private static int bytesFor(final int codePoint)
+    {
+        if (codePoint <= MAX_ONE_BYTE)
+        {
+            return ONE_BYTE;
+        }
+
+        if (codePoint <= MAX_TWO_BYTES)
+        {
+            return TWO_BYTES;
+        }
+
+        if (codePoint <= MAX_THREE_BYTES)
+        {
+            return THREE_BYTES;
+        }
+
+        return FOUR_BYTES;
+    }
+}
@@ -0,0 +1,910 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable dictionary of Novel titles for autocomplete and typo-tolerant lookup. The case-folded titles are
+ * stored as a minimal acyclic automaton, or DAWG: titles that share a prefix share the states that spell it, and
+ * titles that share a suffix share those states too. Titles built from a small vocabulary therefore take far less
+ * room than their Strings, but each state and transition costs several bytes, so titles that share little can take
+ * as much room as the title Strings. It is built in one pass over the sorted titles with Daciuk's incremental
+ * algorithm, which registers each finished state and merges it with an equivalent one, and is then frozen into a
+ * few primitive arrays.
+ * <p>
+ * Every state also records how many titles can be completed from it. Adding up those counts along a path numbers
+ * the titles in sorted order, so the automaton doubles as a minimal perfect hash: the Novels are stored sorted by
+ * title, and every Novel whose title starts with a prefix lies in one contiguous range, found in time proportional
+ * to the length of the prefix however many titles match. Fuzzy lookup walks the automaton in step with the
+ * Levenshtein automaton of the query, keeping that automaton's state as one row of the edit distance table per
+ * depth, and abandons a branch as soon as every entry in its row is over the edit limit.
+ * <p>
+ * Titles are folded the way String.compareToIgnoreCase folds them. Edits are counted in chars, so a character
+ * outside the Basic Multilingual Plane counts as two.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class TitleDictionary
+{
+    /**
+     * The largest edit distance getBooksSimilarTo accepts. Each extra edit multiplies the part of the automaton a
+     * lookup must visit, so larger distances would no longer be fast.
+     */
+    public static final int MAX_EDITS = 3;
+
+    private static final int MIN_EDITS = 0;
+    private static final int MIN_COUNT = 0;
+    private static final int ROOT = 0;
+    private static final int NOT_FOUND = -1;
+    private static final int INITIAL_MATCHES = 16;
+    private static final int GROWTH_FACTOR = 2;
+    private static final int DISTANCE_SHIFT = Integer.SIZE;
+    private static final long RANK_MASK = 0xFFFFFFFFL;
+    private static final int REFERENCE_BYTES = Integer.BYTES;
+
+    private final Novel[] novels;
+    private final int[] firstNovels;
+    private final int[] firstTransitions;
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] titlesBelow;
+    private final BitSet accepting;
+
+    /**
+     * Builds a TitleDictionary holding the given Novels. Novels with the same title, ignoring case, keep the order
+     * the collection gives them.
+     *
+     * @param novels the Novels to look up by title
+     */
+    public TitleDictionary(final Collection<Novel> novels)
+    {
+        validateNovels(novels);
+
+        final TitleEntry[] entries;
+        final int[] titleStarts;
+        final DawgBuilder builder;
+        int titleCount;
+        int entryCount;
+
+        entries = new TitleEntry[novels.size()];
+        entryCount = 0;
+
+        for (final Novel novel : novels)
+        {
+            validateNovel(novel);
+
+            entries[entryCount] = new TitleEntry(CollationKey.fold(novel.getTitle()), novel);
+            entryCount++;
+        }
+
+        Arrays.sort(entries, Comparator.comparing(entry -> entry.key));
+
+        this.novels = new Novel[entries.length];
+        titleStarts = new int[entries.length + 1];
+        builder = new DawgBuilder();
+        titleCount = 0;
+
+        for (int index = 0; index < entries.length; index++)
+        {
+            this.novels[index] = entries[index].novel;
+
+            if (index == 0 ||
+                !entries[index].key.equals(entries[index - 1].key))
+            {
+                builder.add(entries[index].key);
+                titleStarts[titleCount] = index;
+                titleCount++;
+            }
+        }
+
+        titleStarts[titleCount] = entries.length;
+        builder.finish();
+
+        this.firstNovels = Arrays.copyOf(titleStarts, titleCount + 1);
+        this.firstTransitions = builder.firstTransitions;
+        this.labels = builder.labels;
+        this.targets = builder.targets;
+        this.titlesBelow = builder.titlesBelow;
+        this.accepting = builder.accepting;
+    }
+
+    /**
+     * Returns the number of Novels in the dictionary.
+     *
+     * @return the number of Novels
+     */
+    public int size()
+    {
+        return this.novels.length;
+    }
+
+    /**
+     * Returns the number of distinct titles in the dictionary, ignoring case.
+     *
+     * @return the number of distinct titles
+     */
+    public int getTitleCount()
+    {
+        return this.firstNovels.length - 1;
+    }
+
+    /**
+     * Returns the number of states in the automaton.
+     *
+     * @return the number of states
+     */
+    public int getStateCount()
+    {
+        return this.titlesBelow.length;
+    }
+
+    /**
+     * Returns the number of transitions in the automaton.
+     *
+     * @return the number of transitions
+     */
+    public int getTransitionCount()
+    {
+        return this.labels.length;
+    }
+
+    /**
+     * Returns the memory held by the dictionary's arrays, counting each Novel reference as a compressed pointer.
+     * The Novels themselves are shared with the inventory and are not counted.
+     *
+     * @return the size of the dictionary in bytes
+     */
+    public long getMemoryBytes()
+    {
+        return (long) this.novels.length * REFERENCE_BYTES +
+               (long) this.firstNovels.length * Integer.BYTES +
+               (long) this.firstTransitions.length * Integer.BYTES +
+               (long) this.labels.length * Character.BYTES +
+               (long) this.targets.length * Integer.BYTES +
+               (long) this.titlesBelow.length * Integer.BYTES +
+               this.accepting.size() / Byte.SIZE;
+    }
+
+    /**
+     * Returns every Novel whose title starts with the prefix, ignoring case.
+     *
+     * @param prefix the start of the title
+     *
+     * @return a read-only List of the matching Novels in alphabetical order of title
+     */
+    public List<Novel> getBooksStartingWith(final String prefix)
+    {
+        validatePrefix(prefix);
+
+        final String key;
+        final int state;
+        final int firstTitle;
+
+        key = CollationKey.fold(prefix);
+        state = findState(key);
+
+        if (state == NOT_FOUND)
+        {
+            return List.of();
+        }
+
+        firstTitle = rankOf(key);
+
+        return List.of(Arrays.copyOfRange(this.novels,
+                                          this.firstNovels[firstTitle],
+                                          this.firstNovels[firstTitle + this.titlesBelow[state]]));
+    }
+
+    /**
+     * Counts the Novels whose title starts with the prefix, ignoring case, without visiting them.
+     *
+     * @param prefix the start of the title
+     *
+     * @return the number of matching Novels
+     */
+    public int howManyBooksStartWith(final String prefix)
+    {
+        validatePrefix(prefix);
+
+        final String key;
+        final int state;
+        final int firstTitle;
+
+        key = CollationKey.fold(prefix);
+        state = findState(key);
+
+        if (state == NOT_FOUND)
+        {
+            return 0;
+        }
+
+        firstTitle = rankOf(key);
+
+        return this.firstNovels[firstTitle + this.titlesBelow[state]] - this.firstNovels[firstTitle];
+    }
+
+    /**
+     * Suggests the first titles, in alphabetical order, that complete the prefix, ignoring case. Each title is
+     * spelled as the first Novel stocked with it spells it, and titles that differ only in case are suggested once.
+     *
+     * @param prefix the start of the title
+     * @param count the most titles to suggest
+     *
+     * @return a read-only List of up to count titles
+     */
+    public List<String> completeTitle(final String prefix,
+                                      final int count)
+    {
+        validatePrefix(prefix);
+        validateCount(count);
+
+        final String key;
+        final int state;
+        final int firstTitle;
+        final int titleCount;
+        final String[] titles;
+
+        key = CollationKey.fold(prefix);
+        state = findState(key);
+
+        if (state == NOT_FOUND)
+        {
+            return List.of();
+        }
+
+        firstTitle = rankOf(key);
+        titleCount = Math.min(count, this.titlesBelow[state]);
+        titles = new String[titleCount];
+
+        for (int title = 0; title < titleCount; title++)
+        {
+            titles[title] = this.novels[this.firstNovels[firstTitle + title]].getTitle();
+        }
+
+        return List.of(titles);
+    }
+
+    /**
+     * Returns every Novel whose title is within maxEdits insertions, deletions or substitutions of the given
+     * title, ignoring case.
+     *
+     * @param title the title to match, possibly misspelled
+     * @param maxEdits the largest edit distance to accept, from 0 to MAX_EDITS
+     *
+     * @return a read-only List of the matching Novels, closest first and then in alphabetical order of title
+     */
+    public List<Novel> getBooksSimilarTo(final String title,
+                                         final int maxEdits)
+    {
+        validateTitle(title);
+        validateEdits(maxEdits);
+
+        final char[] query;
+        final int[][] rows;
+        final MatchList matches;
+        final List<Novel> similar;
+
+        query = CollationKey.fold(title).toCharArray();
+        rows = new int[query.length + maxEdits + 2][query.length + 1];
+        matches = new MatchList();
+
+        for (int column = 0; column <= query.length; column++)
+        {
+            rows[0][column] = column;
+        }
+
+        collectSimilar(ROOT, 0, 0, query, maxEdits, rows, matches);
+        matches.sort();
+
+        similar = new ArrayList<>();
+
+        for (int match = 0; match < matches.size; match++)
+        {
+            final int rank;
+            rank = (int) (matches.packed[match] & RANK_MASK);
+
+            for (int novel = this.firstNovels[rank]; novel < this.firstNovels[rank + 1]; novel++)
+            {
+                similar.add(this.novels[novel]);
+            }
+        }
+
+        return List.copyOf(similar);
+    }
+
+    /*
+     * Follows a folded key from the root.
+     *
+     * @param key the folded key to follow
+     *
+     * @return the state the key leads to, or NOT_FOUND if no title starts with it
+     */
+    private int findState(final String key)
+    {
+        int state;
+        state = ROOT;
+
+        for (int index = 0; index < key.length() && state != NOT_FOUND; index++)
+        {
+            state = transition(state, key.charAt(index));
+        }
+
+        return state;
+    }
+
+    /*
+     * Numbers the first title, in sorted order, that starts with a folded key. The number is the count of titles
+     * that sort before the key: at each state on the key's path, the titles that end there and the titles below
+     * every smaller label.
+     *
+     * @param key a folded key that findState has found
+     *
+     * @return the rank of the first title starting with the key
+     */
+    private int rankOf(final String key)
+    {
+        int state;
+        int rank;
+
+        state = ROOT;
+        rank = 0;
+
+        for (int index = 0; index < key.length(); index++)
+        {
+            final char label;
+            int transition;
+
+            label = key.charAt(index);
+            transition = this.firstTransitions[state];
+
+            if (this.accepting.get(state))
+            {
+                rank++;
+            }
+
+            while (this.labels[transition] != label)
+            {
+                rank += this.titlesBelow[this.targets[transition]];
+                transition++;
+            }
+
+            state = this.targets[transition];
+        }
+
+        return rank;
+    }
+
+    /*
+     * Finds the state a label leads to. Labels are sorted, so the search stops at the first larger label.
+     *
+     * @param state the state to leave
+     * @param label the label to follow
+     *
+     * @return the target state, or NOT_FOUND if the state has no transition on the label
+     */
+    private int transition(final int state,
+                           final char label)
+    {
+        final int end;
+        end = this.firstTransitions[state + 1];
+
+        for (int transition = this.firstTransitions[state];
+             transition < end && this.labels[transition] <= label;
+             transition++)
+        {
+            if (this.labels[transition] == label)
+            {
+                return this.targets[transition];
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /*
+     * Visits every state whose edit distance row still has an entry within the limit, collecting the titles that
+     * end within it. rows[depth] is the row for the path to state; each transition fills rows[depth + 1] from it.
+     * A row's smallest entry is at least its depth minus the query length, so no state deeper than the query
+     * length plus maxEdits is visited, and rows needs one more row than that for the transitions leaving it.
+     *
+     * @param state the state reached
+     * @param depth the length of the path to the state
+     * @param rank the number of titles that sort before every title through this state
+     * @param query the folded query
+     * @param maxEdits the largest edit distance to accept
+     * @param rows the edit distance rows, one per depth
+     * @param matches where to collect the matching titles
+     */
+    private void collectSimilar(final int state,
+                                final int depth,
+                                final int rank,
+                                final char[] query,
+                                final int maxEdits,
+                                final int[][] rows,
+                                final MatchList matches)
+    {
+        final int[] row;
+        final int end;
+        int titlesBefore;
+
+        row = rows[depth];
+        end = this.firstTransitions[state + 1];
+        titlesBefore = rank;
+
+        if (this.accepting.get(state))
+        {
+            if (row[query.length] <= maxEdits)
+            {
+                matches.add(row[query.length], rank);
+            }
+
+            titlesBefore++;
+        }
+
+        for (int transition = this.firstTransitions[state]; transition < end; transition++)
+        {
+            final char label;
+            final int target;
+            final int[] nextRow;
+            int smallest;
+
+            label = this.labels[transition];
+            target = this.targets[transition];
+            nextRow = rows[depth + 1];
+            nextRow[0] = row[0] + 1;
+            smallest = nextRow[0];
+
+            for (int column = 1; column <= query.length; column++)
+            {
+                final int substitution;
+                final int distance;
+
+                substitution = row[column - 1] + (query[column - 1] == label ? 0 : 1);
+                distance = Math.min(substitution, Math.min(row[column], nextRow[column - 1]) + 1);
+
+                nextRow[column] = distance;
+                smallest = Math.min(smallest, distance);
+            }
+
+            if (smallest <= maxEdits)
+            {
+                collectSimilar(target, depth + 1, titlesBefore, query, maxEdits, rows, matches);
+            }
+
+            titlesBefore += this.titlesBelow[target];
+        }
+    }
+
+    /*
+     * Validates a collection of Novels to build a dictionary from. A collection is valid if it is not null.
+     *
+     * @param novels the collection to validate
+     */
+    private static void validateNovels(final Collection<Novel> novels)
+    {
+        if (novels == null)
+        {
+            throw new IllegalArgumentException("Invalid novels.");
+        }
+    }
+
+    /*
+     * Validates a Novel to add to the dictionary. A Novel is valid if it is not null.
+     *
+     * @param novel the Novel to validate
+     */
+    private static void validateNovel(final Novel novel)
+    {
+        if (novel == null)
+        {
+            throw new IllegalArgumentException("Invalid novel.");
+        }
+    }
+
+    /*
+     * Validates a prefix to look up. A prefix is valid if it is not null.
+     *
+     * @param prefix the prefix to validate
+     */
+    private static void validatePrefix(final String prefix)
+    {
+        if (prefix == null)
+        {
+            throw new IllegalArgumentException("Invalid prefix.");
+        }
+    }
+
+    /*
+     * Validates a title to look up. A title is valid if it is not null.
+     *
+     * @param title the title to validate
+     */
+    private static void validateTitle(final String title)
+    {
+        if (title == null)
+        {
+            throw new IllegalArgumentException("Invalid title.");
+        }
+    }
+
+    /*
+     * Validates the number of titles asked for. A count is valid if it is not negative.
+     *
+     * @param count the count to validate
+     */
+    private static void validateCount(final int count)
+    {
+        if (count < MIN_COUNT)
+        {
+            throw new IllegalArgumentException("Invalid count.");
+        }
+    }
+
+    /*
+     * Validates an edit distance limit. A limit is valid if it is between MIN_EDITS and MAX_EDITS.
+     *
+     * @param maxEdits the limit to validate
+     */
+    private static void validateEdits(final int maxEdits)
+    {
+        if (maxEdits < MIN_EDITS ||
+            maxEdits > MAX_EDITS)
+        {
+            throw new IllegalArgumentException("Invalid edit distance.");
+        }
+    }
+
+    /*
+     * A Novel paired with its folded title, for sorting the Novels before the automaton is built.
+     */
+    private static final class TitleEntry
+    {
+        private final String key;
+        private final Novel novel;
+
+        /*
+         * Constructs a new TitleEntry.
+         *
+         * @param key the Novel's folded title
+         * @param novel the Novel
+         */
+        private TitleEntry(final String key,
+                           final Novel novel)
+        {
+            this.key = key;
+            this.novel = novel;
+        }
+    }
+
+    /*
+     * The titles a fuzzy lookup has matched, each packed into a long as its edit distance above its rank, so that
+     * sorting the longs orders the titles by distance and then alphabetically.
+     */
+    private static final class MatchList
+    {
+        private long[] packed;
+        private int size;
+
+        /*
+         * Constructs a new, empty MatchList.
+         */
+        private MatchList()
+        {
+            this.packed = new long[INITIAL_MATCHES];
+            this.size = 0;
+        }
+
+        /*
+         * Adds a matching title.
+         *
+         * @param distance the title's edit distance from the query
+         * @param rank the title's rank
+         */
+        private void add(final int distance,
+                         final int rank)
+        {
+            if (this.size == this.packed.length)
+            {
+                this.packed = Arrays.copyOf(this.packed, this.size * GROWTH_FACTOR);
+            }
+
+            this.packed[this.size] = (long) distance << DISTANCE_SHIFT | rank;
+            this.size++;
+        }
+
+        /*
+         * Sorts the matches by distance and then by rank.
+         */
+        private void sort()
+        {
+            Arrays.sort(this.packed, 0, this.size);
+        }
+    }
+
+    /*
+     * Builds the minimal automaton from keys added in sorted order, then numbers its states and lays it out in
+     * arrays. Only the states on the path of the last key added can still change; every other state has been
+     * registered, and a newly finished state that is equivalent to a registered one is replaced by it.
+     */
+    private static final class DawgBuilder
+    {
+        private final BuilderState root;
+        private final Map<BuilderState, BuilderState> register;
+        private final List<BuilderState> path;
+
+        private int statesCreated;
+        private int[] firstTransitions;
+        private char[] labels;
+        private int[] targets;
+        private int[] titlesBelow;
+        private BitSet accepting;
+
+        /*
+         * Constructs a new DawgBuilder holding no keys.
+         */
+        private DawgBuilder()
+        {
+            this.root = new BuilderState(0);
+            this.register = new HashMap<>();
+            this.path = new ArrayList<>();
+            this.statesCreated = 1;
+        }
+
+        /*
+         * Adds a key, which must sort after every key added before it.
+         *
+         * @param key the folded key to add
+         */
+        private void add(final String key)
+        {
+            BuilderState state;
+            int prefixLength;
+
+            state = this.root;
+            prefixLength = 0;
+
+            while (prefixLength < key.length() &&
+                   state.transitionCount > 0 &&
+                   state.labels[state.transitionCount - 1] == key.charAt(prefixLength))
+            {
+                state = state.targets[state.transitionCount - 1];
+                prefixLength++;
+            }
+
+            registerBelow(state);
+
+            for (int index = prefixLength; index < key.length(); index++)
+            {
+                final BuilderState next;
+                next = new BuilderState(this.statesCreated);
+                this.statesCreated++;
+
+                state.addTransition(key.charAt(index), next);
+                state = next;
+            }
+
+            state.accepting = true;
+        }
+
+        /*
+         * Registers the last states added, numbers every state breadth first from the root, and lays the
+         * transitions of each state out together, in label order.
+         */
+        private void finish()
+        {
+            final List<BuilderState> states;
+            int transitionCount;
+            int nextTransition;
+
+            registerBelow(this.root);
+            this.root.seal();
+
+            states = new ArrayList<>();
+            states.add(this.root);
+            this.root.number = 0;
+            transitionCount = 0;
+
+            for (int index = 0; index < states.size(); index++)
+            {
+                final BuilderState state;
+                state = states.get(index);
+
+                for (int transition = 0; transition < state.transitionCount; transition++)
+                {
+                    final BuilderState target;
+                    target = state.targets[transition];
+
+                    if (target.number == BuilderState.UNNUMBERED)
+                    {
+                        target.number = states.size();
+                        states.add(target);
+                    }
+                }
+
+                transitionCount += state.transitionCount;
+            }
+
+            this.firstTransitions = new int[states.size() + 1];
+            this.labels = new char[transitionCount];
+            this.targets = new int[transitionCount];
+            this.titlesBelow = new int[states.size()];
+            this.accepting = new BitSet(states.size());
+            nextTransition = 0;
+
+            for (int index = 0; index < states.size(); index++)
+            {
+                final BuilderState state;
+                state = states.get(index);
+
+                this.firstTransitions[index] = nextTransition;
+                this.titlesBelow[index] = state.titlesBelow;
+                this.accepting.set(index, state.accepting);
+
+                for (int transition = 0; transition < state.transitionCount; transition++)
+                {
+                    this.labels[nextTransition] = state.labels[transition];
+                    this.targets[nextTransition] = state.targets[transition].number;
+                    nextTransition++;
+                }
+            }
+
+            this.firstTransitions[states.size()] = nextTransition;
+        }
+
+        /*
+         * Registers the unregistered states below a state, deepest first, so that each is compared with the
+         * register only after its targets have been replaced by registered states.
+         *
+         * @param state the state whose last path to register
+         */
+        private void registerBelow(final BuilderState state)
+        {
+            BuilderState current;
+
+            this.path.clear();
+            current = state;
+
+            while (current.transitionCount > 0)
+            {
+                current = current.targets[current.transitionCount - 1];
+                this.path.add(current);
+            }
+
+            for (int index = this.path.size() - 1; index >= 0; index--)
+            {
+                final BuilderState child;
+                final BuilderState parent;
+                final BuilderState equivalent;
+
+                child = this.path.get(index);
+                parent = index == 0 ? state : this.path.get(index - 1);
+
+                child.seal();
+                equivalent = this.register.putIfAbsent(child, child);
+
+                if (equivalent != null)
+                {
+                    parent.targets[parent.transitionCount - 1] = equivalent;
+                }
+            }
+
+            this.path.clear();
+        }
+    }
+
+    /*
+     * A state of the automaton while it is being built. Two sealed states are equal when they accept the same
+     * suffixes: both or neither end a key, and they have the same labels leading to the same registered states.
+     */
+    private static final class BuilderState
+    {
+        private static final int UNNUMBERED = -1;
+        private static final int INITIAL_TRANSITIONS = 1;
+        private static final int HASH_MULTIPLIER = 31;
+
+        private final int serial;
+
+        private char[] labels;
+        private BuilderState[] targets;
+        private int transitionCount;
+        private boolean accepting;
+        private int titlesBelow;
+        private int hash;
+        private int number;
+
+        /*
+         * Constructs a new state with no transitions.
+         *
+         * @param serial the order the state was created in, which hashes it more cheaply than its identity
+         */
+        private BuilderState(final int serial)
+        {
+            this.serial = serial;
+            this.labels = new char[INITIAL_TRANSITIONS];
+            this.targets = new BuilderState[INITIAL_TRANSITIONS];
+            this.transitionCount = 0;
+            this.accepting = false;
+            this.number = UNNUMBERED;
+        }
+
+        /*
+         * Adds a transition, on a label larger than any the state already has.
+         *
+         * @param label the label
+         * @param target the state it leads to
+         */
+        private void addTransition(final char label,
+                                   final BuilderState target)
+        {
+            if (this.transitionCount == this.labels.length)
+            {
+                this.labels = Arrays.copyOf(this.labels, this.transitionCount * GROWTH_FACTOR);
+                this.targets = Arrays.copyOf(this.targets, this.transitionCount * GROWTH_FACTOR);
+            }
+
+            this.labels[this.transitionCount] = label;
+            this.targets[this.transitionCount] = target;
+            this.transitionCount++;
+        }
+
+        /*
+         * Fixes the state's title count and hash once its targets are all registered. The state must not change
+         * afterwards.
+         */
+        private void seal()
+        {
+            int titles;
+            int code;
+
+            titles = this.accepting ? 1 : 0;
+            code = Boolean.hashCode(this.accepting);
+
+            for (int transition = 0; transition < this.transitionCount; transition++)
+            {
+                titles += this.targets[transition].titlesBelow;
+                code = code * HASH_MULTIPLIER + this.labels[transition];
+                code = code * HASH_MULTIPLIER + this.targets[transition].serial;
+            }
+
+            this.titlesBelow = titles;
+            this.hash = code;
+        }
+
+        @Override
+        public boolean equals(final Object other)
+        {
+            if (!(other instanceof BuilderState state) ||
+                state.accepting != this.accepting ||
+                state.transitionCount != this.transitionCount)
+            {
+                return false;
+            }
+
+            for (int transition = 0; transition < this.transitionCount; transition++)
+            {
+                if (state.labels[transition] != this.labels[transition] ||
+                    state.targets[transition] != this.targets[transition])
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An inverted index from the trigrams in Novel titles to the Novels whose titles contain them. Trigrams are
+ * case-folded, so a single index serves both case-sensitive and case-insensitive substring searches: a search
+ * intersects the postings of the trigrams in the search term and only verifies the Novels that survive. Each
+ * trigram is packed into a primitive long key, and each posting is a PostingList ordered by the sequence number
+ * the index gives a Novel when it is added, so neither looking up a trigram nor walking its posting allocates.
+ * <p>
+ * A copy of the index shares its postings with the original until either changes one: each index tracks the
+ * postings it owns, and copies a shared posting before its first change. Copying the index therefore costs one
+ * copy of the trigram table and of the sequence numbers, not of every posting.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class TitleIndex
+{
+    private static final int GRAM_LENGTH = 3;
+    private static final int BITS_PER_CHAR = Character.SIZE;
+    private static final int FIRST_CHAR_SHIFT = BITS_PER_CHAR * 2;
+    private static final int SECOND_CHAR_SHIFT = BITS_PER_CHAR;
+
+    private final LongKeyMap<PostingList> postings;
+    private final IdentityHashMap<Novel, Long> sequences;
+    private final Set<PostingList> ownedPostings;
+
+    private long nextSequence;
+
+    /**
+     * Constructs a new, empty TitleIndex.
+     */
+    TitleIndex()
+    {
+        this.postings = new LongKeyMap<>();
+        this.sequences = new IdentityHashMap<>();
+        this.ownedPostings = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.nextSequence = 0L;
+    }
+
+    /*
+     * Constructs a TitleIndex holding the same Novels as another, sharing its postings. Neither index owns the
+     * shared postings afterwards, so whichever changes one first copies it.
+     *
+     * @param original the index to copy
+     */
+    @SuppressWarnings("unchecked")
+    private TitleIndex(final TitleIndex original)
+    {
+        this.postings = original.postings.copy();
+        this.sequences = (IdentityHashMap<Novel, Long>) original.sequences.clone();
+        this.ownedPostings = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.nextSequence = original.nextSequence;
+
+        original.ownedPostings.clear();
+    }
+
+    /**
+     * Copies the index, sharing its postings until either index changes them.
+     *
+     * @return a new TitleIndex holding the same Novels
+     */
+    TitleIndex copy()
+    {
+        return new TitleIndex(this);
+    }
+
+    /**
+     * Determines whether a Novel is in the index. The Novel is matched by identity.
+     *
+     * @param novel the Novel to look for
+     *
+     * @return true if the Novel has been added and not removed since, false otherwise
+     */
+    boolean contains(final Novel novel)
+    {
+        return this.sequences.containsKey(novel);
+    }
+
+    /**
+     * Adds a Novel's title to the index.
+     *
+     * @param novel the Novel to index
+     */
+    void add(final Novel novel)
+    {
+        final String title;
+        final long sequence;
+
+        title = novel.getTitle();
+        sequence = this.nextSequence++;
+
+        this.sequences.put(novel, sequence);
+
+        for (int start = 0; start + GRAM_LENGTH <= title.length(); start++)
+        {
+            final long trigram;
+            trigram = trigramAt(title, start);
+
+            ownedPosting(trigram).add(novel, sequence);
+        }
+    }
+
+    /**
+     * Removes a Novel's title from the index.
+     *
+     * @param novel the Novel to stop indexing
+     */
+    void remove(final Novel novel)
+    {
+        final String title;
+        final Long stockedSequence;
+
+        title = novel.getTitle();
+        stockedSequence = this.sequences.remove(novel);
+
+        if (stockedSequence == null)
+        {
+            return;
+        }
+
+        final long sequence;
+        sequence = stockedSequence;
+
+        for (int start = 0; start + GRAM_LENGTH <= title.length(); start++)
+        {
+            final long trigram;
+            trigram = trigramAt(title, start);
+
+            if (this.postings.get(trigram) != null)
+            {
+                final PostingList posting;
+                posting = ownedPosting(trigram);
+
+                posting.removeSequence(sequence);
+
+                if (posting.isEmpty())
+                {
+                    this.postings.remove(trigram);
+                    this.ownedPostings.remove(posting);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the Novels whose titles hold every trigram of the given word, in any case. The postings of all the
+     * word's trigrams are intersected, so every Novel whose title contains the word, in any case, is returned, and
+     * only Novels whose titles hold the trigrams in another order or case are not matches.
+     *
+     * @param word the String to search for in the titles
+     *
+     * @return the candidate Novels in inventory order, or null if the index cannot narrow the search for the word
+     */
+    List<Novel> candidatesFor(final String word)
+    {
+        if (!isIndexable(word))
+        {
+            return null;
+        }
+
+        final List<PostingList> wordPostings;
+        final List<Novel> candidates;
+
+        wordPostings = postingsOf(word);
+        candidates = new ArrayList<>();
+
+        if (wordPostings == null)
+        {
+            return candidates;
+        }
+
+        final PostingList smallestPosting;
+        final List<PostingList> otherPostings;
+        final int[] cursors;
+
+        smallestPosting = wordPostings.getFirst();
+        otherPostings = wordPostings.subList(1, wordPostings.size());
+        cursors = new int[otherPostings.size()];
+
+        for (int slot = 0; slot < smallestPosting.slotCount(); slot++)
+        {
+            final Novel candidate;
+            candidate = smallestPosting.novelAt(slot);
+
+            if (candidate != null &&
+                inEveryPosting(smallestPosting.sequenceAt(slot), otherPostings, cursors))
+            {
+                candidates.add(candidate);
+            }
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Returns the smallest posting among the trigrams of the given word, without allocating. Every Novel whose
+     * title contains the word, in any case, is in the returned posting, but not every Novel in it is a match. The
+     * posting must not be changed by the caller.
+     *
+     * @param word the String to search for in the titles
+     *
+     * @return the candidate Novels in inventory order, or null if the index cannot narrow the search for the word
+     */
+    PostingList smallestPostingFor(final String word)
+    {
+        if (!isIndexable(word))
+        {
+            return null;
+        }
+
+        PostingList smallestPosting;
+        smallestPosting = null;
+
+        for (int start = 0; start + GRAM_LENGTH <= word.length(); start++)
+        {
+            final PostingList posting;
+            posting = this.postings.get(trigramAt(word, start));
+
+            if (posting == null)
+            {
+                return PostingList.EMPTY;
+            }
+
+            if (smallestPosting == null ||
+                posting.size() < smallestPosting.size())
+            {
+                smallestPosting = posting;
+            }
+        }
+
+        return smallestPosting;
+    }
+
+    /*
+     * Looks up the posting of every trigram in an indexable word, smallest first, so that a Novel missing from
+     * some posting is usually ruled out by the first postings checked.
+     *
+     * @param word the word whose trigrams to look up
+     *
+     * @return the postings, one per trigram, from fewest Novels to most, or null if some trigram is in no title
+     */
+    private List<PostingList> postingsOf(final String word)
+    {
+        final List<PostingList> wordPostings;
+        wordPostings = new ArrayList<>();
+
+        for (int start = 0; start + GRAM_LENGTH <= word.length(); start++)
+        {
+            final PostingList posting;
+            posting = this.postings.get(trigramAt(word, start));
+
+            if (posting == null)
+            {
+                return null;
+            }
+
+            wordPostings.add(posting);
+        }
+
+        wordPostings.sort(Comparator.comparingInt(PostingList::size));
+
+        return wordPostings;
+    }
+
+    /*
+     * Returns the posting for a trigram that this index may change, adding an empty posting if there is none and
+     * copying the posting if it is shared with another index.
+     *
+     * @param trigram the packed trigram
+     *
+     * @return the trigram's posting, owned by this index
+     */
+    private PostingList ownedPosting(final long trigram)
+    {
+        final PostingList posting;
+        posting = this.postings.getOrAdd(trigram, this::newPosting);
+
+        if (this.ownedPostings.contains(posting))
+        {
+            return posting;
+        }
+
+        final PostingList ownedPosting;
+        ownedPosting = posting.copy();
+
+        this.postings.replace(trigram, ownedPosting);
+        this.ownedPostings.add(ownedPosting);
+
+        return ownedPosting;
+    }
+
+    /*
+     * Makes an empty posting owned by this index.
+     *
+     * @return the new posting
+     */
+    private PostingList newPosting()
+    {
+        final PostingList posting;
+        posting = new PostingList();
+
+        this.ownedPostings.add(posting);
+
+        return posting;
+    }
+
+    /*
+     * Determines whether a word can be looked up in the index. A word can be looked up if it is at least a trigram
+     * long and has no surrogate characters, since folding half of a surrogate pair does not fold its case.
+     *
+     * @param word the String to search for
+     *
+     * @return true if the index can narrow the search for the word, false otherwise
+     */
+    private static boolean isIndexable(final String word)
+    {
+        if (word.length() < GRAM_LENGTH)
+        {
+            return false;
+        }
+
+        for (int index = 0; index < word.length(); index++)
+        {
+            if (Character.isSurrogate(word.charAt(index)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Determines whether a Novel appears in every one of the given postings. The Novels must be looked up in
+     * increasing order of sequence number, so each posting is searched from where the last lookup in it ended.
+     *
+     * @param sequence the sequence number of the Novel to look for
+     * @param wordPostings the postings to check
+     * @param cursors the slot in each posting the last lookup ended at, advanced by this lookup
+     *
+     * @return true if every posting contains the Novel, false otherwise
+     */
+    private static boolean inEveryPosting(final long sequence,
+                                          final List<PostingList> wordPostings,
+                                          final int[] cursors)
+    {
+        for (int posting = 0; posting < wordPostings.size(); posting++)
+        {
+            final PostingList wordPosting;
+            final int slot;
+
+            wordPosting = wordPostings.get(posting);
+            slot = wordPosting.slotAtOrAfter(sequence, cursors[posting]);
+            cursors[posting] = slot;
+
+            if (slot == wordPosting.slotCount() ||
+                wordPosting.sequenceAt(slot) != sequence ||
+                wordPosting.novelAt(slot) == null)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Packs the case-folded trigram starting at the given position of a String into a single key.
+     *
+     * @param text the String to read the trigram from
+     * @param start the position of the first character of the trigram
+     *
+     * @return the trigram key
+     */
+    private static long trigramAt(final String text,
+                                  final int start)
+    {
+        final long first;
+        final long second;
+        final long third;
+
+        first = fold(text.charAt(start));
+        second = fold(text.charAt(start + 1));
+        third = fold(text.charAt(start + 2));
+
+        return first << FIRST_CHAR_SHIFT |
+               second << SECOND_CHAR_SHIFT |
+               third;
+    }
+
+    /*
+     * Folds a character's case the same way String.regionMatches does when ignoring case.
+     *
+     * @param character the character to fold
+     *
+     * @return the case-folded character
+     */
+    private static char fold(final char character)
+    {
+        return Character.toLowerCase(Character.toUpperCase(character));
+    }
+}
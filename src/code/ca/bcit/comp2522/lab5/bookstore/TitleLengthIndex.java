@@ -0,0 +1,185 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexes the Novels in a Bookstore by the length of their titles. Each title length has a posting list of the
+ * Novels with titles of that length, in inventory order, and the longest length in use is kept up to date so the
+ * longest title can be found without a scan.
+ * <p>
+ * A copy of the index shares its posting lists with the original, marking every one as shared in both, and an
+ * index copies a shared posting list before its first change to it.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class TitleLengthIndex
+{
+    private static final int NO_TITLES = 0;
+
+    private final List<List<Novel>> postingsByLength;
+    private final BitSet sharedPostings;
+
+    private int longestLength;
+
+    /**
+     * Constructs a new, empty TitleLengthIndex.
+     */
+    TitleLengthIndex()
+    {
+        this.postingsByLength = new ArrayList<>();
+        this.sharedPostings = new BitSet();
+        this.longestLength = NO_TITLES;
+    }
+
+    /*
+     * Constructs a TitleLengthIndex holding the same Novels as another, sharing its posting lists.
+     *
+     * @param original the index to copy
+     */
+    private TitleLengthIndex(final TitleLengthIndex original)
+    {
+        this.postingsByLength = new ArrayList<>(original.postingsByLength);
+        this.sharedPostings = new BitSet();
+        this.longestLength = original.longestLength;
+
+        this.sharedPostings.set(0, this.postingsByLength.size());
+        original.sharedPostings.set(0, original.postingsByLength.size());
+    }
+
+    /**
+     * Copies the index, sharing its posting lists until either index changes them.
+     *
+     * @return a new TitleLengthIndex holding the same Novels
+     */
+    TitleLengthIndex copy()
+    {
+        return new TitleLengthIndex(this);
+    }
+
+    /**
+     * Adds a Novel to the posting list for its title length.
+     *
+     * @param novel the Novel to index
+     */
+    void add(final Novel novel)
+    {
+        final int titleLength;
+        titleLength = novel.getTitle().length();
+
+        while (this.postingsByLength.size() <= titleLength)
+        {
+            this.postingsByLength.add(new ArrayList<>());
+        }
+
+        ownedPosting(titleLength).add(novel);
+        this.longestLength = Math.max(this.longestLength, titleLength);
+    }
+
+    /**
+     * Removes a Novel from the posting list for its title length. The Novel is matched by identity.
+     *
+     * @param novel the Novel to stop indexing
+     */
+    void remove(final Novel novel)
+    {
+        final int titleLength;
+        titleLength = novel.getTitle().length();
+
+        ownedPosting(titleLength).remove(novel);
+
+        while (this.longestLength > NO_TITLES &&
+               this.postingsByLength.get(this.longestLength).isEmpty())
+        {
+            this.longestLength--;
+        }
+    }
+
+    /**
+     * Returns the first Novel, in inventory order, with the longest title.
+     *
+     * @return the Novel with the longest title
+     *
+     * @throws NoSuchElementException if no Novels are indexed
+     */
+    Novel longest()
+    {
+        if (this.longestLength == NO_TITLES)
+        {
+            throw new NoSuchElementException("No novels in inventory.");
+        }
+
+        return this.postingsByLength.get(this.longestLength).getFirst();
+    }
+
+    /**
+     * Returns the Novels with the longest titles, walking the posting lists down from the longest length.
+     *
+     * @param count the most Novels to return
+     *
+     * @return up to count Novels, longest title first, with equal lengths in inventory order
+     */
+    List<Novel> longest(final int count)
+    {
+        final List<Novel> longestNovels;
+        longestNovels = new ArrayList<>(count);
+
+        for (int titleLength = this.longestLength;
+             titleLength > NO_TITLES && longestNovels.size() < count;
+             titleLength--)
+        {
+            final List<Novel> posting;
+            final int wanted;
+
+            posting = this.postingsByLength.get(titleLength);
+            wanted = Math.min(posting.size(), count - longestNovels.size());
+
+            longestNovels.addAll(posting.subList(0, wanted));
+        }
+
+        return longestNovels;
+    }
+
+    /**
+     * Returns the Novels whose titles have the given length.
+     *
+     * @param titleLength the length of titles to find
+     *
+     * @return a read-only view of the matching Novels in inventory order
+     */
+    List<Novel> withLength(final int titleLength)
+    {
+        if (titleLength < 0 ||
+            titleLength >= this.postingsByLength.size())
+        {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(this.postingsByLength.get(titleLength));
+    }
+
+    /*
+     * Returns the posting list for a title length that this index may change, copying it first if it is shared
+     * with another index.
+     *
+     * @param titleLength a title length with a posting list
+     *
+     * @return the posting list, owned by this index
+     */
+    private List<Novel> ownedPosting(final int titleLength)
+    {
+        if (this.sharedPostings.get(titleLength))
+        {
+            this.postingsByLength.set(titleLength, new ArrayList<>(this.postingsByLength.get(titleLength)));
+            this.sharedPostings.clear(titleLength);
+        }
+
+        return this.postingsByLength.get(titleLength);
+    }
+}
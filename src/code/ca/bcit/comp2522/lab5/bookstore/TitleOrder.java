@@ -0,0 +1,610 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Keeps the Novels in a Bookstore in alphabetical order of title, as defined by Novel's compareTo, comparing the
+ * collation keys each Novel built for its title when it was constructed. Novels with equal titles stay in the
+ * order they were added, matching a stable sort of the inventory.
+ * <p>
+ * The ordered Novels are split into blocks of at most MAX_BLOCK_SIZE, with the position each block starts at kept
+ * alongside, so a binary insertion or removal only shifts the Novels in one block and the block starts after it,
+ * rather than the whole ordering. A full block is split in two. Adding many Novels at once sorts them together
+ * instead of inserting them one at a time.
+ * <p>
+ * A copy of the ordering shares its blocks with the original, and each ordering copies a shared block before its
+ * first change to it, so copying costs one copy of the block list rather than of every Novel.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class TitleOrder
+{
+    private static final int NOT_FOUND = -1;
+    private static final int MAX_BLOCK_SIZE = 2048;
+    private static final int FILLED_BLOCK_SIZE = MAX_BLOCK_SIZE / 2;
+    private static final int INITIAL_BLOCKS = 16;
+    private static final int GROWTH_FACTOR = 2;
+
+    private final List<List<Novel>> blocks;
+    private final Set<List<Novel>> ownedBlocks;
+    private final List<Novel> orderedView;
+
+    private int[] blockStarts;
+
+    /**
+     * Constructs a new, empty TitleOrder.
+     */
+    TitleOrder()
+    {
+        this.blocks = new ArrayList<>();
+        this.ownedBlocks = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.orderedView = new OrderedView();
+        this.blockStarts = new int[INITIAL_BLOCKS + 1];
+    }
+
+    /*
+     * Constructs a TitleOrder holding the same Novels as another, sharing its blocks. Neither ordering owns the
+     * shared blocks afterwards, so whichever changes one first copies it.
+     *
+     * @param original the ordering to copy
+     */
+    private TitleOrder(final TitleOrder original)
+    {
+        this.blocks = new ArrayList<>(original.blocks);
+        this.ownedBlocks = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.orderedView = new OrderedView();
+        this.blockStarts = original.blockStarts.clone();
+
+        original.ownedBlocks.clear();
+    }
+
+    /**
+     * Copies the ordering, sharing its blocks until either ordering changes them.
+     *
+     * @return a new TitleOrder holding the same Novels in the same order
+     */
+    TitleOrder copy()
+    {
+        return new TitleOrder(this);
+    }
+
+    /**
+     * Inserts a Novel after every Novel whose title sorts before or equal to its own.
+     *
+     * @param novel the Novel to insert
+     */
+    void add(final Novel novel)
+    {
+        final byte[] collationKey;
+        final int block;
+        final List<Novel> blockNovels;
+
+        collationKey = novel.getCollationKey();
+
+        if (this.blocks.isEmpty())
+        {
+            this.blocks.add(newBlock(List.of(novel)));
+            updateBlockStarts(0);
+
+            return;
+        }
+
+        block = Math.min(firstBlockEndingAfter(collationKey, false), this.blocks.size() - 1);
+        blockNovels = ownedBlock(block);
+        blockNovels.add(positionInBlock(blockNovels, collationKey, false), novel);
+
+        if (blockNovels.size() > MAX_BLOCK_SIZE)
+        {
+            final List<Novel> upperHalf;
+            upperHalf = blockNovels.subList(blockNovels.size() / 2, blockNovels.size());
+
+            this.blocks.add(block + 1, newBlock(upperHalf));
+            upperHalf.clear();
+        }
+
+        updateBlockStarts(block);
+    }
+
+    /**
+     * Adds many Novels at once, in the order given, as if each had been inserted with add. The Novels are sorted
+     * together with a stable sort and merged with those already ordered, which is much faster than inserting them
+     * one at a time.
+     *
+     * @param novels the Novels to insert
+     */
+    void addAll(final Collection<Novel> novels)
+    {
+        final Novel[] ordered;
+        int filled;
+
+        ordered = new Novel[size() + novels.size()];
+        filled = 0;
+
+        for (final List<Novel> blockNovels : this.blocks)
+        {
+            for (final Novel novel : blockNovels)
+            {
+                ordered[filled] = novel;
+                filled++;
+            }
+        }
+
+        for (final Novel novel : novels)
+        {
+            ordered[filled] = novel;
+            filled++;
+        }
+
+        Arrays.sort(ordered, (first, second) -> CollationKey.compare(first.getCollationKey(),
+                                                                      second.getCollationKey()));
+
+        this.blocks.clear();
+        this.ownedBlocks.clear();
+
+        fillBlocks(Arrays.asList(ordered));
+    }
+
+    /**
+     * Adds many Novels to an empty TitleOrder without comparing them, when they are already in the order a stable
+     * sort by title would leave them.
+     *
+     * @param novelsInOrder the Novels to insert, in alphabetical order of title
+     */
+    void addAllSorted(final List<Novel> novelsInOrder)
+    {
+        if (!this.blocks.isEmpty())
+        {
+            throw new IllegalStateException("Title order is not empty.");
+        }
+
+        fillBlocks(novelsInOrder);
+    }
+
+    /**
+     * Removes a Novel from the ordering. The Novel is matched by identity.
+     *
+     * @param novel the Novel to remove
+     */
+    void remove(final Novel novel)
+    {
+        final int position;
+        position = positionOf(novel);
+
+        if (position == NOT_FOUND)
+        {
+            return;
+        }
+
+        final int block;
+        final List<Novel> blockNovels;
+
+        block = blockAt(position);
+        blockNovels = ownedBlock(block);
+        blockNovels.remove(position - this.blockStarts[block]);
+
+        if (blockNovels.isEmpty())
+        {
+            this.blocks.remove(block);
+            this.ownedBlocks.remove(blockNovels);
+        }
+
+        updateBlockStarts(block);
+    }
+
+    /**
+     * Returns every Novel in alphabetical order of title.
+     *
+     * @return a read-only view of the ordered Novels
+     */
+    List<Novel> inOrder()
+    {
+        return this.orderedView;
+    }
+
+    /**
+     * Returns a page of Novels in alphabetical order of title, following the given cursor. Paging costs a binary
+     * search and a copy of the page, however deep the page is. If the cursor has since been removed, the page
+     * continues after every title equal to the cursor's.
+     *
+     * @param cursor the last Novel of the previous page, or null for the first page
+     * @param pageSize the most Novels to return
+     *
+     * @return a copy of up to pageSize Novels, in alphabetical order of title
+     */
+    List<Novel> page(final Novel cursor,
+                     final int pageSize)
+    {
+        final int first;
+        final int last;
+
+        if (cursor == null)
+        {
+            first = 0;
+        }
+        else
+        {
+            final int cursorPosition;
+            cursorPosition = positionOf(cursor);
+
+            if (cursorPosition == NOT_FOUND)
+            {
+                first = firstPositionAfter(cursor.getCollationKey());
+            }
+            else
+            {
+                first = cursorPosition + 1;
+            }
+        }
+
+        last = (int) Math.min((long) first + pageSize, size());
+
+        return List.copyOf(this.orderedView.subList(first, last));
+    }
+
+    /**
+     * Returns every Novel whose title starts with the given prefix, ignoring case.
+     *
+     * @param prefix the start of the titles to find
+     *
+     * @return a read-only view of the matching Novels, in alphabetical order of title
+     */
+    List<Novel> startingWith(final String prefix)
+    {
+        final byte[] prefixKey;
+        final int first;
+        int last;
+
+        prefixKey = CollationKey.of(prefix);
+        first = firstPositionAtOrAfter(prefixKey);
+        last = first;
+
+        while (last < size() &&
+               CollationKey.startsWith(get(last).getCollationKey(), prefixKey))
+        {
+            last++;
+        }
+
+        return this.orderedView.subList(first, last);
+    }
+
+    /*
+     * Splits ordered Novels into half-full blocks, after any blocks there are already.
+     *
+     * @param novelsInOrder the Novels to append, in alphabetical order of title
+     */
+    private void fillBlocks(final List<Novel> novelsInOrder)
+    {
+        final int firstNewBlock;
+        firstNewBlock = this.blocks.size();
+
+        for (int start = 0; start < novelsInOrder.size(); start += FILLED_BLOCK_SIZE)
+        {
+            final int end;
+            end = Math.min(start + FILLED_BLOCK_SIZE, novelsInOrder.size());
+
+            this.blocks.add(newBlock(novelsInOrder.subList(start, end)));
+        }
+
+        updateBlockStarts(firstNewBlock);
+    }
+
+    /*
+     * Makes a block owned by this ordering.
+     *
+     * @param novels the Novels to copy into the block, in order
+     *
+     * @return the new block
+     */
+    private List<Novel> newBlock(final List<Novel> novels)
+    {
+        final List<Novel> block;
+        block = new ArrayList<>(novels);
+
+        this.ownedBlocks.add(block);
+
+        return block;
+    }
+
+    /*
+     * Returns a block that this ordering may change, copying it first if it is shared with another ordering.
+     *
+     * @param block the index of the block
+     *
+     * @return the block's Novels, owned by this ordering
+     */
+    private List<Novel> ownedBlock(final int block)
+    {
+        final List<Novel> blockNovels;
+        blockNovels = this.blocks.get(block);
+
+        if (this.ownedBlocks.contains(blockNovels))
+        {
+            return blockNovels;
+        }
+
+        final List<Novel> ownedBlockNovels;
+        ownedBlockNovels = newBlock(blockNovels);
+
+        this.blocks.set(block, ownedBlockNovels);
+
+        return ownedBlockNovels;
+    }
+
+    /*
+     * Returns the number of ordered Novels.
+     *
+     * @return the number of Novels
+     */
+    private int size()
+    {
+        return this.blockStarts[this.blocks.size()];
+    }
+
+    /*
+     * Returns the Novel at a position in the ordering.
+     *
+     * @param position the position, less than size
+     *
+     * @return the Novel at the position
+     */
+    private Novel get(final int position)
+    {
+        final int block;
+        block = blockAt(position);
+
+        return this.blocks.get(block).get(position - this.blockStarts[block]);
+    }
+
+    /*
+     * Finds the position of a Novel, matched by identity, among the Novels with the same title.
+     *
+     * @param novel the Novel to find
+     *
+     * @return the Novel's position, or NOT_FOUND if it is not in the ordering
+     */
+    private int positionOf(final Novel novel)
+    {
+        final byte[] collationKey;
+        collationKey = novel.getCollationKey();
+
+        for (int position = firstPositionAtOrAfter(collationKey);
+             position < size() &&
+             CollationKey.compare(get(position).getCollationKey(), collationKey) == 0;
+             position++)
+        {
+            if (get(position) == novel)
+            {
+                return position;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /*
+     * Finds the first position whose collation key is not less than the given key.
+     *
+     * @param collationKey the key to search for
+     *
+     * @return the position of the first key greater than or equal to collationKey
+     */
+    private int firstPositionAtOrAfter(final byte[] collationKey)
+    {
+        return firstPosition(collationKey, true);
+    }
+
+    /*
+     * Finds the first position whose collation key is greater than the given key.
+     *
+     * @param collationKey the key to search for
+     *
+     * @return the position of the first key greater than collationKey
+     */
+    private int firstPositionAfter(final byte[] collationKey)
+    {
+        return firstPosition(collationKey, false);
+    }
+
+    /*
+     * Finds the first position whose collation key is greater than, or optionally equal to, the given key, with a
+     * binary search over the blocks followed by one within the block found.
+     *
+     * @param collationKey the key to search for
+     * @param includeEqual true to stop at a key equal to collationKey, false to pass over it
+     *
+     * @return the position found, or size if every key sorts before it
+     */
+    private int firstPosition(final byte[] collationKey,
+                              final boolean includeEqual)
+    {
+        final int block;
+        block = firstBlockEndingAfter(collationKey, includeEqual);
+
+        if (block == this.blocks.size())
+        {
+            return size();
+        }
+
+        return this.blockStarts[block] + positionInBlock(this.blocks.get(block), collationKey, includeEqual);
+    }
+
+    /*
+     * Finds the first block whose last collation key is greater than, or optionally equal to, the given key.
+     *
+     * @param collationKey the key to search for
+     * @param includeEqual true to stop at a block ending in a key equal to collationKey, false to pass over it
+     *
+     * @return the block found, or the number of blocks if there is none
+     */
+    private int firstBlockEndingAfter(final byte[] collationKey,
+                                      final boolean includeEqual)
+    {
+        int low;
+        int high;
+
+        low = 0;
+        high = this.blocks.size();
+
+        while (low < high)
+        {
+            final int middle;
+            middle = (low + high) >>> 1;
+
+            if (sortsBefore(this.blocks.get(middle).getLast().getCollationKey(), collationKey, includeEqual))
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /*
+     * Finds the first position within a block whose collation key is greater than, or optionally equal to, the
+     * given key.
+     *
+     * @param blockNovels the Novels in the block
+     * @param collationKey the key to search for
+     * @param includeEqual true to stop at a key equal to collationKey, false to pass over it
+     *
+     * @return the position within the block, or the block's size if every key sorts before it
+     */
+    private static int positionInBlock(final List<Novel> blockNovels,
+                                       final byte[] collationKey,
+                                       final boolean includeEqual)
+    {
+        int low;
+        int high;
+
+        low = 0;
+        high = blockNovels.size();
+
+        while (low < high)
+        {
+            final int middle;
+            middle = (low + high) >>> 1;
+
+            if (sortsBefore(blockNovels.get(middle).getCollationKey(), collationKey, includeEqual))
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /*
+     * Determines whether a binary search should pass over a collation key.
+     *
+     * @param candidate the key in the ordering
+     * @param collationKey the key being searched for
+     * @param includeEqual true if an equal key ends the search, false if it is passed over
+     *
+     * @return true if candidate sorts before collationKey, or is equal to it and equal keys are passed over
+     */
+    private static boolean sortsBefore(final byte[] candidate,
+                                       final byte[] collationKey,
+                                       final boolean includeEqual)
+    {
+        final int comparison;
+        comparison = CollationKey.compare(candidate, collationKey);
+
+        return comparison < 0 ||
+               comparison == 0 && !includeEqual;
+    }
+
+    /*
+     * Finds the block holding a position, by binary search on the block starts.
+     *
+     * @param position the position, less than size
+     *
+     * @return the block holding the position
+     */
+    private int blockAt(final int position)
+    {
+        int low;
+        int high;
+
+        low = 0;
+        high = this.blocks.size() - 1;
+
+        while (low < high)
+        {
+            final int middle;
+            middle = (low + high + 1) >>> 1;
+
+            if (this.blockStarts[middle] <= position)
+            {
+                low = middle;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /*
+     * Recomputes the start of every block after the given one, once that block has changed size or been split or
+     * removed.
+     *
+     * @param firstChanged the first block whose size may have changed
+     */
+    private void updateBlockStarts(final int firstChanged)
+    {
+        if (this.blockStarts.length <= this.blocks.size())
+        {
+            this.blockStarts = Arrays.copyOf(this.blockStarts, (this.blocks.size() + 1) * GROWTH_FACTOR);
+        }
+
+        for (int block = firstChanged; block < this.blocks.size(); block++)
+        {
+            this.blockStarts[block + 1] = this.blockStarts[block] + this.blocks.get(block).size();
+        }
+    }
+
+    /*
+     * A read-only List view of the ordered Novels, read through the blocks.
+     */
+    private final class OrderedView extends AbstractList<Novel> implements RandomAccess
+    {
+        @Override
+        public Novel get(final int position)
+        {
+            if (position < 0 ||
+                position >= size())
+            {
+                throw new IndexOutOfBoundsException("Invalid position: " + position);
+            }
+
+            return TitleOrder.this.get(position);
+        }
+
+        @Override
+        public int size()
+        {
+            return TitleOrder.this.size();
+        }
+    }
+}
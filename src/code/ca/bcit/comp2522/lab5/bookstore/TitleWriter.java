@@ -0,0 +1,144 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Batches text written to a byte channel. Characters are collected in a reusable buffer and encoded straight into
+ * a reusable byte buffer, which is only written to the channel when it fills up or the TitleWriter is flushed, so
+ * printing many short titles costs a handful of channel writes rather than one per title. Characters that cannot
+ * be encoded are replaced, as a PrintStream would. The channel is not closed by the TitleWriter.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class TitleWriter implements Appendable, Flushable
+{
+    private static final int BUFFER_CHARS = 8192;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+
+    /**
+     * Constructs a new TitleWriter that encodes text with the given Charset and writes it to the given channel.
+     *
+     * @param channel the channel to write to
+     * @param charset the Charset to encode text with
+     */
+    public TitleWriter(final WritableByteChannel channel,
+                       final Charset charset)
+    {
+        if (channel == null)
+        {
+            throw new IllegalArgumentException("Invalid channel.");
+        }
+
+        if (charset == null)
+        {
+            throw new IllegalArgumentException("Invalid charset.");
+        }
+
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                              .onMalformedInput(CodingErrorAction.REPLACE)
+                              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(BUFFER_CHARS);
+        this.bytes = ByteBuffer.allocate((int) Math.ceil(BUFFER_CHARS * this.encoder.maxBytesPerChar()));
+    }
+
+    @Override
+    public TitleWriter append(final CharSequence text) throws IOException
+    {
+        return append(text, 0, text.length());
+    }
+
+    @Override
+    public TitleWriter append(final CharSequence text,
+                              final int start,
+                              final int end) throws IOException
+    {
+        for (int index = start; index < end; index++)
+        {
+            append(text.charAt(index));
+        }
+
+        return this;
+    }
+
+    @Override
+    public TitleWriter append(final char character) throws IOException
+    {
+        if (!this.chars.hasRemaining())
+        {
+            encodeBufferedChars();
+        }
+
+        this.chars.put(character);
+
+        return this;
+    }
+
+    /**
+     * Writes everything buffered so far to the channel.
+     *
+     * @throws IOException if the channel cannot be written to
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        encodeBufferedChars();
+        writeBufferedBytes();
+    }
+
+    /*
+     * Encodes the buffered characters into the byte buffer, writing the byte buffer out whenever it fills. A high
+     * surrogate at the very end of the buffer is kept back until its low surrogate arrives.
+     */
+    private void encodeBufferedChars() throws IOException
+    {
+        this.chars.flip();
+
+        while (true)
+        {
+            final CoderResult result;
+            result = this.encoder.encode(this.chars, this.bytes, false);
+
+            if (result.isOverflow())
+            {
+                writeBufferedBytes();
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        this.chars.compact();
+    }
+
+    /*
+     * Writes the byte buffer to the channel and empties it.
+     */
+    private void writeBufferedBytes() throws IOException
+    {
+        this.bytes.flip();
+
+        while (this.bytes.hasRemaining())
+        {
+            this.channel.write(this.bytes);
+        }
+
+        this.bytes.clear();
+    }
+}
@@ -0,0 +1,186 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+/**
+ * Counts the Novels in a Bookstore by year of publication. Keeps a count for every year a Novel may be published
+ * in, plus a Fenwick tree over those counts, so membership is answered in constant time and range counts in
+ * logarithmic time regardless of the size of the inventory.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+final class YearIndex
+{
+    private static final int YEAR_SPAN = Novel.MAX_YEAR_PUBLISHED - Novel.MIN_YEAR_PUBLISHED + 1;
+    private static final int NO_BOOKS = 0;
+    private static final int ADDED = 1;
+    private static final int REMOVED = -1;
+
+    private final int[] countsByYear;
+    private final int[] fenwickTree;
+
+    /**
+     * Constructs a new, empty YearIndex.
+     */
+    YearIndex()
+    {
+        this.countsByYear = new int[YEAR_SPAN];
+        this.fenwickTree = new int[YEAR_SPAN + 1];
+    }
+
+    /*
+     * Constructs a YearIndex with the same counts as another.
+     *
+     * @param original the index to copy
+     */
+    private YearIndex(final YearIndex original)
+    {
+        this.countsByYear = original.countsByYear.clone();
+        this.fenwickTree = original.fenwickTree.clone();
+    }
+
+    /**
+     * Copies the index, so the copy can be changed without affecting this one.
+     *
+     * @return a new YearIndex with the same counts
+     */
+    YearIndex copy()
+    {
+        return new YearIndex(this);
+    }
+
+    /**
+     * Records a Novel being added to the inventory.
+     *
+     * @param novel the Novel that was added
+     */
+    void add(final Novel novel)
+    {
+        update(novel.getYearPublished(), ADDED);
+    }
+
+    /**
+     * Records a Novel being removed from the inventory.
+     *
+     * @param novel the Novel that was removed
+     */
+    void remove(final Novel novel)
+    {
+        update(novel.getYearPublished(), REMOVED);
+    }
+
+    /**
+     * Determines whether any indexed Novel was published in the given year.
+     *
+     * @param year the year to check
+     *
+     * @return true if at least one Novel was published that year, false otherwise
+     */
+    boolean contains(final int year)
+    {
+        if (year < Novel.MIN_YEAR_PUBLISHED ||
+            year > Novel.MAX_YEAR_PUBLISHED)
+        {
+            return false;
+        }
+
+        return this.countsByYear[year - Novel.MIN_YEAR_PUBLISHED] > NO_BOOKS;
+    }
+
+    /**
+     * Counts the indexed Novels published between firstYear and lastYear, inclusive.
+     *
+     * @param firstYear the beginning year of the range
+     * @param lastYear the final year of the range
+     *
+     * @return the number of Novels published within the range
+     */
+    int countBetween(final int firstYear,
+                     final int lastYear)
+    {
+        final int first;
+        final int last;
+
+        first = Math.max(firstYear, Novel.MIN_YEAR_PUBLISHED);
+        last = Math.min(lastYear, Novel.MAX_YEAR_PUBLISHED);
+
+        if (last < first)
+        {
+            return NO_BOOKS;
+        }
+
+        return countUpTo(last) - countUpTo(first - 1);
+    }
+
+    /**
+     * Finds the year of publication of the nth oldest indexed Novel, by descending the Fenwick tree.
+     *
+     * @param n how many Novels, counting from the oldest, the year must cover; between 1 and the number indexed
+     *
+     * @return the earliest year by which at least n indexed Novels had been published
+     */
+    int yearOfNthOldest(final int n)
+    {
+        int node;
+        int remaining;
+
+        node = 0;
+        remaining = n;
+
+        for (int step = Integer.highestOneBit(YEAR_SPAN); step > 0; step >>= 1)
+        {
+            final int nextNode;
+            nextNode = node + step;
+
+            if (nextNode <= YEAR_SPAN &&
+                this.fenwickTree[nextNode] < remaining)
+            {
+                node = nextNode;
+                remaining -= this.fenwickTree[nextNode];
+            }
+        }
+
+        return node + Novel.MIN_YEAR_PUBLISHED;
+    }
+
+    /*
+     * Adjusts the count for a year in both the per-year counts and the Fenwick tree.
+     *
+     * @param year the year to adjust
+     * @param delta the amount to adjust the count by
+     */
+    private void update(final int year,
+                        final int delta)
+    {
+        final int offset;
+        offset = year - Novel.MIN_YEAR_PUBLISHED;
+
+        this.countsByYear[offset] += delta;
+
+        for (int node = offset + 1; node <= YEAR_SPAN; node += node & -node)
+        {
+            this.fenwickTree[node] += delta;
+        }
+    }
+
+    /*
+     * Counts the indexed Novels published in or before the given year.
+     *
+     * @param year the last year to count, which may be one year before MIN_YEAR_PUBLISHED
+     *
+     * @return the number of Novels published up to and including the given year
+     */
+    private int countUpTo(final int year)
+    {
+        int count;
+        count = NO_BOOKS;
+
+        for (int node = year - Novel.MIN_YEAR_PUBLISHED + 1; node > 0; node -= node & -node)
+        {
+            count += this.fenwickTree[node];
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,58 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+/**
+ * A CatalogueShard's size and how many of its Novels were published in a range of years, read together so that
+ * neither count can include a change the other misses.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+public final class YearRangeCount
+{
+    private static final int MIN_COUNT = 0;
+
+    private final int totalBooks;
+    private final int booksInRange;
+
+    /**
+     * Constructs a new YearRangeCount.
+     *
+     * @param totalBooks the number of Novels in the shard
+     * @param booksInRange the number of those Novels published within the range
+     */
+    public YearRangeCount(final int totalBooks,
+                          final int booksInRange)
+    {
+        if (totalBooks < MIN_COUNT ||
+            booksInRange < MIN_COUNT ||
+            booksInRange > totalBooks)
+        {
+            throw new IllegalArgumentException("Invalid counts.");
+        }
+
+        this.totalBooks = totalBooks;
+        this.booksInRange = booksInRange;
+    }
+
+    /**
+     * Accessor for the number of Novels in the shard.
+     *
+     * @return the shard size
+     */
+    public int getTotalBooks()
+    {
+        return this.totalBooks;
+    }
+
+    /**
+     * Accessor for the number of Novels in the shard published within the range.
+     *
+     * @return the number of Novels in the range
+     */
+    public int getBooksInRange()
+    {
+        return this.booksInRange;
+    }
+}
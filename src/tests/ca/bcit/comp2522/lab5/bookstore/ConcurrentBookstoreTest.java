@@ -0,0 +1,425 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that every snapshot a ConcurrentBookstore publishes answers queries exactly as a Bookstore built from
+ * scratch with the same inventory would, and that readers never see a snapshot change under them while writers
+ * publish new ones.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+class ConcurrentBookstoreTest
+{
+    private static final String STORE_NAME = "Concurrent Books";
+    private static final String[] TITLE_WORDS = {"The", "Heart", "of", "Darkness", "sea", "Émile", "Ulysses", "é"};
+    private static final String[] AUTHORS = {"Joseph Conrad", "James Joyce", "Jean-Jacques Rousseau", "Toni Morrison"};
+    private static final int INITIAL_NOVEL_COUNT = 2000;
+    private static final int OPERATIONS = 6000;
+    private static final int SMALL_BATCH_SIZE = 37;
+    private static final int STRESS_BATCH_SIZE = 64;
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int OPERATIONS_PER_WRITER = 4000;
+    private static final int REMOVE_ONE_IN = 3;
+    private static final int FLUSH_ONE_IN = 500;
+    private static final int TOGGLE_ONE_IN = 1000;
+    private static final int MAX_TITLE_WORDS = 4;
+    private static final int FIRST_YEAR = 1800;
+    private static final int YEAR_RANGE = 220;
+    private static final double RELATIVE_ERROR = 0.01;
+    private static final double FAILURE_PROBABILITY = 0.01;
+    private static final int QUERY_CACHE_CAPACITY = 3;
+    private static final long SEED = 2522L;
+
+    @Test
+    void everyPublishedSnapshotMatchesARebuiltBookstore()
+    {
+        final Random random;
+        final ConcurrentBookstore concurrentBookstore;
+        final List<Novel> expectedInventory;
+
+        random = new Random(SEED);
+        expectedInventory = randomNovels(INITIAL_NOVEL_COUNT, random, AUTHORS);
+        concurrentBookstore = new ConcurrentBookstore(STORE_NAME, expectedInventory, SMALL_BATCH_SIZE);
+
+        for (int operation = 0; operation < OPERATIONS; operation++)
+        {
+            if (random.nextInt(REMOVE_ONE_IN) == 0)
+            {
+                final Novel novel;
+                novel = expectedInventory.remove(random.nextInt(expectedInventory.size()));
+
+                concurrentBookstore.removeNovel(novel);
+            }
+            else
+            {
+                final Novel novel;
+                novel = randomNovels(1, random, AUTHORS).getFirst();
+
+                expectedInventory.add(novel);
+                concurrentBookstore.addNovel(novel);
+            }
+
+            if (operation % SMALL_BATCH_SIZE == SMALL_BATCH_SIZE - 1)
+            {
+                concurrentBookstore.flush();
+
+                assertSameQueryResults(new Bookstore(STORE_NAME, expectedInventory),
+                                       concurrentBookstore.getSnapshot());
+            }
+        }
+    }
+
+    @Test
+    void queryCacheCapacityCarriesOverToEveryPublishedSnapshot()
+    {
+        final ConcurrentBookstore concurrentBookstore;
+        concurrentBookstore = new ConcurrentBookstore(STORE_NAME,
+                                                      randomNovels(INITIAL_NOVEL_COUNT, new Random(SEED), AUTHORS),
+                                                      SMALL_BATCH_SIZE);
+
+        concurrentBookstore.setQueryCacheCapacity(QUERY_CACHE_CAPACITY);
+
+        assertEquals(QUERY_CACHE_CAPACITY, concurrentBookstore.getQueryCacheStatistics().getCapacity());
+
+        for (final Novel novel : randomNovels(SMALL_BATCH_SIZE, new Random(SEED), AUTHORS))
+        {
+            concurrentBookstore.addNovel(novel);
+        }
+
+        assertEquals(QUERY_CACHE_CAPACITY, concurrentBookstore.getQueryCacheStatistics().getCapacity());
+
+        concurrentBookstore.enableApproximateAnalytics(RELATIVE_ERROR, FAILURE_PROBABILITY);
+        concurrentBookstore.setMetrics(new BookstoreMetrics());
+
+        assertEquals(QUERY_CACHE_CAPACITY, concurrentBookstore.getQueryCacheStatistics().getCapacity());
+    }
+
+    @Test
+    void disabledQueryCacheIsBypassedByReaders()
+    {
+        final ConcurrentBookstore concurrentBookstore;
+        final QueryCacheStatistics statistics;
+
+        concurrentBookstore = new ConcurrentBookstore(STORE_NAME,
+                                                      randomNovels(INITIAL_NOVEL_COUNT, new Random(SEED), AUTHORS),
+                                                      SMALL_BATCH_SIZE);
+        concurrentBookstore.setQueryCacheCapacity(0);
+
+        for (final String word : TITLE_WORDS)
+        {
+            concurrentBookstore.getSnapshot().howManyBooksContain(word);
+            concurrentBookstore.getSnapshot().howManyBooksContain(word);
+        }
+
+        statistics = concurrentBookstore.getQueryCacheStatistics();
+
+        assertEquals(0, statistics.getSize());
+        assertEquals(0, statistics.getHits());
+        assertEquals(0, statistics.getMisses());
+    }
+
+    @Test
+    void readersNeverSeeASnapshotChangeWhileWritersPublish() throws InterruptedException
+    {
+        final ConcurrentBookstore concurrentBookstore;
+        final AtomicBoolean writing;
+        final Queue<Throwable> failures;
+        final List<Thread> writers;
+        final List<Thread> readers;
+        final List<List<Novel>> stockedByWriter;
+
+        concurrentBookstore = new ConcurrentBookstore(STORE_NAME,
+                                                      randomNovels(INITIAL_NOVEL_COUNT, new Random(SEED), AUTHORS),
+                                                      STRESS_BATCH_SIZE);
+        writing = new AtomicBoolean(true);
+        failures = new ConcurrentLinkedQueue<>();
+        writers = new ArrayList<>();
+        readers = new ArrayList<>();
+        stockedByWriter = new ArrayList<>();
+
+        for (int writer = 0; writer < WRITERS; writer++)
+        {
+            final List<Novel> stocked;
+            final Random random;
+            final String[] writerAuthors;
+
+            stocked = new ArrayList<>();
+            random = new Random(SEED + writer + 1);
+            writerAuthors = new String[] {"Writer " + writer};
+
+            stockedByWriter.add(stocked);
+            writers.add(new Thread(() -> write(concurrentBookstore, random, writerAuthors, stocked)));
+        }
+
+        for (int reader = 0; reader < READERS; reader++)
+        {
+            readers.add(new Thread(() ->
+            {
+                try
+                {
+                    while (writing.get())
+                    {
+                        readOneSnapshot(concurrentBookstore.getSnapshot());
+                    }
+                }
+                catch (final AssertionError | RuntimeException e)
+                {
+                    failures.add(e);
+                }
+            }));
+        }
+
+        readers.forEach(Thread::start);
+        writers.forEach(Thread::start);
+
+        for (final Thread writer : writers)
+        {
+            writer.join();
+        }
+
+        writing.set(false);
+
+        for (final Thread reader : readers)
+        {
+            reader.join();
+        }
+
+        concurrentBookstore.flush();
+
+        assertTrue(failures.isEmpty(), () -> "Torn snapshot: " + failures.peek());
+
+        final Bookstore finalSnapshot;
+        final Set<Novel> finalInventory;
+
+        finalSnapshot = concurrentBookstore.getSnapshot();
+        finalInventory = Collections.newSetFromMap(new IdentityHashMap<>());
+        finalInventory.addAll(finalSnapshot.getInventory());
+
+        for (int writer = 0; writer < WRITERS; writer++)
+        {
+            assertEquals(stockedByWriter.get(writer).size(), finalSnapshot.howManyBooksBy("Writer " + writer));
+            assertTrue(finalInventory.containsAll(stockedByWriter.get(writer)));
+        }
+
+        assertSameQueryResults(new Bookstore(STORE_NAME, finalSnapshot.getInventory()), finalSnapshot);
+    }
+
+    /*
+     * Queues random additions and removals of one writer's own Novels, now and then flushing or switching
+     * analytics, which also publishes.
+     *
+     * @param concurrentBookstore the Bookstore to change
+     * @param random the source of Novels and operations
+     * @param authors the authors this writer's Novels are written by
+     * @param stocked the writer's Novels that are stocked or queued to be added, kept up to date
+     */
+    private static void write(final ConcurrentBookstore concurrentBookstore,
+                              final Random random,
+                              final String[] authors,
+                              final List<Novel> stocked)
+    {
+        for (int operation = 0; operation < OPERATIONS_PER_WRITER; operation++)
+        {
+            if (!stocked.isEmpty() &&
+                random.nextInt(REMOVE_ONE_IN) == 0)
+            {
+                concurrentBookstore.removeNovel(stocked.remove(random.nextInt(stocked.size())));
+            }
+            else
+            {
+                final Novel novel;
+                novel = randomNovels(1, random, authors).getFirst();
+
+                stocked.add(novel);
+                concurrentBookstore.addNovel(novel);
+            }
+
+            if (random.nextInt(FLUSH_ONE_IN) == 0)
+            {
+                concurrentBookstore.flush();
+            }
+
+            if (random.nextInt(TOGGLE_ONE_IN) == 0)
+            {
+                concurrentBookstore.enableApproximateAnalytics(RELATIVE_ERROR, FAILURE_PROBABILITY);
+            }
+            else if (random.nextInt(TOGGLE_ONE_IN) == 0)
+            {
+                concurrentBookstore.disableApproximateAnalytics();
+            }
+        }
+    }
+
+    /*
+     * Checks that a snapshot's indexes agree with its inventory, then checks again once writers have had time to
+     * publish more snapshots, so a later copy that changed this snapshot's shared structures is caught.
+     *
+     * @param snapshot the snapshot to read
+     */
+    private static void readOneSnapshot(final Bookstore snapshot)
+    {
+        final List<Novel> inventory;
+        final List<Novel> alphaOrder;
+        final Map<Integer, Integer> booksPerDecade;
+
+        inventory = List.copyOf(snapshot.getInventory());
+        alphaOrder = snapshot.getBooksInAlphaOrder(inventory.size());
+        booksPerDecade = snapshot.getBooksPerDecade(Novel.MIN_YEAR_PUBLISHED, Novel.MAX_YEAR_PUBLISHED);
+
+        assertEquals(inventory.size(), snapshot.size());
+        assertEquals(inventory.size(), alphaOrder.size());
+        assertEquals(inventory.size(), booksPerDecade.values().stream().mapToInt(Integer::intValue).sum());
+        assertIdentical(inventoryMatching(inventory, TITLE_WORDS[1]), snapshot.query()
+                                                                              .titleContains(TITLE_WORDS[1])
+                                                                              .toList());
+
+        for (int writer = 0; writer < WRITERS; writer++)
+        {
+            final String author;
+            author = "Writer " + writer;
+
+            assertIdentical(inventoryBy(inventory, author), snapshot.getBooksBy(author));
+        }
+
+        Thread.yield();
+
+        assertIdentical(inventory, snapshot.getInventory());
+        assertIdentical(alphaOrder, snapshot.getBooksInAlphaOrder(inventory.size()));
+        assertEquals(booksPerDecade, snapshot.getBooksPerDecade(Novel.MIN_YEAR_PUBLISHED, Novel.MAX_YEAR_PUBLISHED));
+    }
+
+    /*
+     * Builds Novels with titles drawn from a few words, so many titles repeat and share prefixes.
+     *
+     * @param count the number of Novels to build
+     * @param random the source of titles, authors and years
+     * @param authors the authors to choose from
+     *
+     * @return the Novels
+     */
+    private static List<Novel> randomNovels(final int count,
+                                            final Random random,
+                                            final String[] authors)
+    {
+        final List<Novel> novels;
+        novels = new ArrayList<>();
+
+        for (int novel = 0; novel < count; novel++)
+        {
+            final StringBuilder title;
+            final int words;
+
+            title = new StringBuilder(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+            words = random.nextInt(MAX_TITLE_WORDS);
+
+            for (int word = 0; word < words; word++)
+            {
+                title.append(' ').append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+            }
+
+            novels.add(new Novel(title.toString(),
+                                 authors[random.nextInt(authors.length)],
+                                 FIRST_YEAR + random.nextInt(YEAR_RANGE)));
+        }
+
+        return novels;
+    }
+
+    /*
+     * Checks that two Bookstores hold the same Novels in the same order and give the same result for every query.
+     *
+     * @param expected the Bookstore built from scratch
+     * @param actual the published snapshot
+     */
+    private static void assertSameQueryResults(final Bookstore expected,
+                                               final Bookstore actual)
+    {
+        assertIdentical(expected.getInventory(), actual.getInventory());
+        assertIdentical(expected.getBooksInAlphaOrder(expected.size()), actual.getBooksInAlphaOrder(actual.size()));
+        assertEquals(expected.getLongest(), actual.getLongest());
+        assertEquals(expected.getOldestBook(), actual.getOldestBook());
+        assertEquals(expected.getMostProlificAuthors(AUTHORS.length), actual.getMostProlificAuthors(AUTHORS.length));
+        assertEquals(expected.getBooksPerDecade(FIRST_YEAR, FIRST_YEAR + YEAR_RANGE),
+                     actual.getBooksPerDecade(FIRST_YEAR, FIRST_YEAR + YEAR_RANGE));
+
+        for (final String word : TITLE_WORDS)
+        {
+            assertEquals(expected.howManyBooksContain(word), actual.howManyBooksContain(word));
+            assertIdentical(expected.getBooksStartingWith(word), actual.getBooksStartingWith(word));
+            assertIdentical(expected.getBooksThisLength(word.length()), actual.getBooksThisLength(word.length()));
+        }
+
+        for (final String author : AUTHORS)
+        {
+            assertIdentical(expected.getBooksBy(author), actual.getBooksBy(author));
+        }
+    }
+
+    /*
+     * Checks that two Lists hold the same Novel instances in the same order, since Novel does not override equals.
+     *
+     * @param expected the expected Novels
+     * @param actual the actual Novels
+     */
+    private static void assertIdentical(final List<Novel> expected,
+                                        final List<Novel> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+
+        for (int position = 0; position < expected.size(); position++)
+        {
+            assertTrue(expected.get(position) == actual.get(position), "Different Novel at " + position);
+        }
+    }
+
+    /*
+     * Filters an inventory to the Novels whose titles contain a word.
+     *
+     * @param inventory the Novels to filter
+     * @param word the word to look for, matched with exact case
+     *
+     * @return the matching Novels, in inventory order
+     */
+    private static List<Novel> inventoryMatching(final List<Novel> inventory,
+                                                 final String word)
+    {
+        return inventory.stream()
+                        .filter(novel -> novel.getTitle().contains(word))
+                        .toList();
+    }
+
+    /*
+     * Filters an inventory to the Novels by an author.
+     *
+     * @param inventory the Novels to filter
+     * @param authorName the author to look for
+     *
+     * @return the matching Novels, in inventory order
+     */
+    private static List<Novel> inventoryBy(final List<Novel> inventory,
+                                           final String authorName)
+    {
+        return inventory.stream()
+                        .filter(novel -> novel.getAuthorName().equals(authorName))
+                        .toList();
+    }
+}
@@ -0,0 +1,336 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that an InventorySnapshot reads back exactly the Bookstore it was written from, and that truncated or
+ * corrupt files are reported as IOExceptions.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+class InventorySnapshotTest
+{
+    private static final String STORE_NAME = "Snapshot Books";
+    private static final String SURROGATE_STORE_NAME = "Snapshot \uDBFF Books";
+    private static final String[] TITLE_WORDS = {"The", "Heart", "of", "Darkness", "sea", "Émile", "Ulysses", "é"};
+    private static final String[] AUTHORS = {"Joseph Conrad", "James Joyce", "Jean-Jacques Rousseau", "Toni Morrison"};
+    private static final int HEADER_INTS = 5;
+    private static final int NOVEL_COUNT = 3000;
+    private static final int REMOVED_COUNT = 500;
+    private static final int SMALL_NOVEL_COUNT = 12;
+    private static final int MAX_TITLE_WORDS = 4;
+    private static final int FIRST_YEAR = 1800;
+    private static final int YEAR_RANGE = 220;
+    private static final int CORRUPTIONS = 2000;
+    private static final int BYTE_VALUES = 256;
+    private static final long SEED = 2522L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripKeepsEveryNovelAndQueryResult() throws IOException
+    {
+        final Bookstore original;
+        final Path snapshotFile;
+        final InventorySnapshot snapshot;
+        final Bookstore reloaded;
+        final List<Novel> originalInventory;
+
+        original = new Bookstore(STORE_NAME, randomNovels(NOVEL_COUNT, new Random(SEED)));
+        removeSome(original, new Random(SEED));
+
+        snapshotFile = this.directory.resolve("inventory.snapshot");
+        InventorySnapshot.write(original, snapshotFile);
+        snapshot = InventorySnapshot.open(snapshotFile);
+        reloaded = snapshot.toBookstore();
+        originalInventory = original.getInventory();
+
+        assertEquals(STORE_NAME, snapshot.getStoreName());
+        assertEquals(STORE_NAME, reloaded.getStoreName());
+        assertEquals(originalInventory.size(), snapshot.size());
+
+        for (int row = 0; row < originalInventory.size(); row++)
+        {
+            assertEquals(describe(originalInventory.get(row)), describe(snapshot.getNovel(row)));
+        }
+
+        assertEquals(describe(originalInventory), describe(reloaded.getInventory()));
+        assertSameQueryResults(original, reloaded);
+
+        for (int year = FIRST_YEAR - 1; year <= FIRST_YEAR + YEAR_RANGE; year++)
+        {
+            assertEquals(original.isThereABookWrittenIn(year), snapshot.isThereABookWrittenIn(year));
+            assertEquals(original.whichPercentWrittenBetween(FIRST_YEAR, year),
+                         snapshot.whichPercentWrittenBetween(FIRST_YEAR, year));
+        }
+    }
+
+    @Test
+    void inventoryWrittenWithoutItsTitleOrderIsSortedOnWrite() throws IOException
+    {
+        final Bookstore original;
+        final Path snapshotFile;
+        final Bookstore reloaded;
+
+        original = new Bookstore(STORE_NAME, randomNovels(NOVEL_COUNT, new Random(SEED)));
+        snapshotFile = this.directory.resolve("inventory.snapshot");
+
+        InventorySnapshot.write(STORE_NAME, original.getInventory(), snapshotFile);
+        reloaded = InventorySnapshot.open(snapshotFile).toBookstore();
+
+        assertSameQueryResults(original, reloaded);
+    }
+
+    @Test
+    void unpairedSurrogatesSurviveTheRoundTrip() throws IOException
+    {
+        final Bookstore original;
+        final Path snapshotFile;
+        final Bookstore reloaded;
+
+        original = new Bookstore(SURROGATE_STORE_NAME,
+                                 List.of(new Novel("Ab", AUTHORS[0], FIRST_YEAR),
+                                         new Novel("\uD800x", "\uDC00" + AUTHORS[1], FIRST_YEAR),
+                                         new Novel("x\uDC00", AUTHORS[1], FIRST_YEAR),
+                                         new Novel("Smile 😀\uD800", AUTHORS[2], FIRST_YEAR)));
+        snapshotFile = this.directory.resolve("inventory.snapshot");
+
+        InventorySnapshot.write(original, snapshotFile);
+        reloaded = InventorySnapshot.open(snapshotFile).toBookstore();
+
+        assertEquals(SURROGATE_STORE_NAME, reloaded.getStoreName());
+        assertEquals(describe(original.getInventory()), describe(reloaded.getInventory()));
+        assertEquals(describe(original.getBooksInAlphaOrder(original.size())),
+                     describe(reloaded.getBooksInAlphaOrder(reloaded.size())));
+    }
+
+    @Test
+    void truncatedFileThrowsIOException() throws IOException
+    {
+        final Path snapshotFile;
+        final byte[] contents;
+
+        snapshotFile = this.directory.resolve("inventory.snapshot");
+        InventorySnapshot.write(new Bookstore(STORE_NAME, randomNovels(SMALL_NOVEL_COUNT, new Random(SEED))),
+                                snapshotFile);
+        contents = Files.readAllBytes(snapshotFile);
+
+        for (int length = 0; length < contents.length; length++)
+        {
+            final Path truncatedFile;
+            truncatedFile = this.directory.resolve("truncated.snapshot");
+
+            Files.write(truncatedFile, Arrays.copyOf(contents, length));
+
+            assertThrows(IOException.class, () -> InventorySnapshot.open(truncatedFile).toBookstore(),
+                         "Truncated to " + length + " bytes");
+        }
+    }
+
+    @Test
+    void corruptFileThrowsOnlyIOException() throws IOException
+    {
+        final Path snapshotFile;
+        final byte[] contents;
+        final Random random;
+
+        snapshotFile = this.directory.resolve("inventory.snapshot");
+        InventorySnapshot.write(new Bookstore(STORE_NAME, randomNovels(SMALL_NOVEL_COUNT, new Random(SEED))),
+                                snapshotFile);
+        contents = Files.readAllBytes(snapshotFile);
+        random = new Random(SEED);
+
+        for (int corruption = 0; corruption < CORRUPTIONS; corruption++)
+        {
+            final byte[] corrupted;
+            final Path corruptFile;
+
+            corrupted = contents.clone();
+            corrupted[random.nextInt(corrupted.length)] = (byte) random.nextInt(BYTE_VALUES);
+            corruptFile = this.directory.resolve("corrupt.snapshot");
+
+            Files.write(corruptFile, corrupted);
+
+            try
+            {
+                final InventorySnapshot snapshot;
+                snapshot = InventorySnapshot.open(corruptFile);
+
+                for (int row = 0; row < snapshot.size(); row++)
+                {
+                    snapshot.getNovel(row);
+                }
+
+                snapshot.toBookstore();
+            }
+            catch (final IOException | UncheckedIOException e)
+            {
+                // A corrupt file may be rejected, but only as an IOException.
+            }
+        }
+    }
+
+    @Test
+    void corruptTitlePositionThrowsIOException() throws IOException
+    {
+        final Path snapshotFile;
+        final InventorySnapshot snapshot;
+        final long titlePositionColumn;
+
+        snapshotFile = this.directory.resolve("inventory.snapshot");
+        InventorySnapshot.write(new Bookstore(STORE_NAME, randomNovels(SMALL_NOVEL_COUNT, new Random(SEED))),
+                                snapshotFile);
+
+        // The first title position follows the header, store name, year counts, years and author IDs.
+        titlePositionColumn = (long) Integer.BYTES * HEADER_INTS + STORE_NAME.length() +
+                              (long) Integer.BYTES * (Novel.MAX_YEAR_PUBLISHED - Novel.MIN_YEAR_PUBLISHED + 1) +
+                              (long) SMALL_NOVEL_COUNT * (Short.BYTES + Integer.BYTES);
+
+        try (final FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.WRITE))
+        {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, Integer.MAX_VALUE),
+                          titlePositionColumn);
+        }
+
+        snapshot = InventorySnapshot.open(snapshotFile);
+
+        assertThrows(UncheckedIOException.class, () -> snapshot.getNovel(0));
+        assertThrows(IOException.class, snapshot::toBookstore);
+    }
+
+    /*
+     * Builds Novels with titles drawn from a few words, so many titles repeat and share prefixes.
+     *
+     * @param count the number of Novels to build
+     * @param random the source of titles, authors and years
+     *
+     * @return the Novels
+     */
+    private static List<Novel> randomNovels(final int count,
+                                            final Random random)
+    {
+        final List<Novel> novels;
+        novels = new ArrayList<>();
+
+        for (int novel = 0; novel < count; novel++)
+        {
+            final StringBuilder title;
+            final int words;
+
+            title = new StringBuilder(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+            words = random.nextInt(MAX_TITLE_WORDS);
+
+            for (int word = 0; word < words; word++)
+            {
+                title.append(' ').append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+            }
+
+            novels.add(new Novel(title.toString(),
+                                 AUTHORS[random.nextInt(AUTHORS.length)],
+                                 FIRST_YEAR + random.nextInt(YEAR_RANGE)));
+        }
+
+        return novels;
+    }
+
+    /*
+     * Removes random Novels, so the inventory order is not the order the Novels were first stocked in.
+     *
+     * @param bookstore the Bookstore to remove Novels from
+     * @param random the source of which Novels to remove
+     */
+    private static void removeSome(final Bookstore bookstore,
+                                   final Random random)
+    {
+        for (int removed = 0; removed < REMOVED_COUNT; removed++)
+        {
+            final List<Novel> inventory;
+            inventory = bookstore.getInventory();
+
+            bookstore.removeNovel(inventory.get(random.nextInt(inventory.size())));
+        }
+    }
+
+    /*
+     * Checks that two Bookstores give the same result for every query.
+     *
+     * @param expected the Bookstore that was written
+     * @param actual the Bookstore that was read back
+     */
+    private static void assertSameQueryResults(final Bookstore expected,
+                                               final Bookstore actual)
+    {
+        assertEquals(describe(expected.getBooksInAlphaOrder(expected.size())),
+                     describe(actual.getBooksInAlphaOrder(actual.size())));
+        assertEquals(expected.getLongest(), actual.getLongest());
+        assertEquals(describe(expected.getOldestBook()), describe(actual.getOldestBook()));
+        assertEquals(expected.getMostProlificAuthors(AUTHORS.length), actual.getMostProlificAuthors(AUTHORS.length));
+        assertEquals(expected.getBooksPerDecade(FIRST_YEAR, FIRST_YEAR + YEAR_RANGE),
+                     actual.getBooksPerDecade(FIRST_YEAR, FIRST_YEAR + YEAR_RANGE));
+
+        for (final String word : TITLE_WORDS)
+        {
+            assertEquals(expected.howManyBooksContain(word), actual.howManyBooksContain(word));
+            assertEquals(describe(expected.getBooksStartingWith(word)), describe(actual.getBooksStartingWith(word)));
+            assertEquals(describe(expected.getBooksThisLength(word.length())),
+                         describe(actual.getBooksThisLength(word.length())));
+        }
+
+        for (final String author : AUTHORS)
+        {
+            assertEquals(describe(expected.getBooksBy(author)), describe(actual.getBooksBy(author)));
+        }
+    }
+
+    /*
+     * Describes Novels by their title, author and year, since Novel does not override equals.
+     *
+     * @param novels the Novels to describe
+     *
+     * @return one description per Novel, in order
+     */
+    private static List<String> describe(final List<Novel> novels)
+    {
+        final List<String> descriptions;
+        descriptions = new ArrayList<>();
+
+        for (final Novel novel : novels)
+        {
+            descriptions.add(describe(novel));
+        }
+
+        return descriptions;
+    }
+
+    /*
+     * Describes a Novel by its title, author and year.
+     *
+     * @param novel the Novel to describe
+     *
+     * @return the description
+     */
+    private static String describe(final Novel novel)
+    {
+        return novel.getTitle() + " / " + novel.getAuthorName() + " / " + novel.getYearPublished();
+    }
+}
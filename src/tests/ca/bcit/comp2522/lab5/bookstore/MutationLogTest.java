@@ -0,0 +1,271 @@
+package ca.bcit.comp2522.lab5.bookstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a MutationLog recovers every change that reached its newest segment whole after a crash, cuts off a
+ * half-written record at the end of that segment, and reports a bad record in an older segment without changing it.
+ *
+ * @author June Pyle
+ * @author Damon Cao
+ *
+ * @version 0.1
+ */
+class MutationLogTest
+{
+    private static final String STORE_NAME = "Logged Books";
+    private static final String SEGMENT_PATTERN = "mutations-*.log";
+    private static final int NOVEL_COUNT = 12;
+    private static final int FIRST_YEAR = 1900;
+    private static final int SEGMENT_HEADER_BYTES = Integer.BYTES * 2;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void crashRecoversEverySyncedChange() throws IOException
+    {
+        final MutationLog crashedLog;
+        final Bookstore bookstore;
+        final List<String> expected;
+
+        crashedLog = MutationLog.open(this.directory);
+        bookstore = crashedLog.recover(STORE_NAME);
+        addNovels(bookstore, NOVEL_COUNT);
+        bookstore.removeNovel(bookstore.getInventory().getFirst());
+        crashedLog.sync();
+
+        // The crashed log is never closed, so recovery sees only what sync forced to disk.
+        expected = describe(bookstore.getInventory());
+
+        try (final MutationLog recoveredLog = MutationLog.open(this.directory))
+        {
+            assertEquals(expected, describe(recoveredLog.recover(STORE_NAME).getInventory()));
+        }
+    }
+
+    @Test
+    void unpairedSurrogatesSurviveReplayAndCompaction() throws IOException
+    {
+        final List<String> expected;
+
+        try (final MutationLog log = MutationLog.open(this.directory))
+        {
+            final Bookstore bookstore;
+            bookstore = log.recover(STORE_NAME);
+
+            bookstore.addNovel(new Novel("Ab", "Toni Morrison", FIRST_YEAR));
+            bookstore.addNovel(new Novel("\uD800x", "\uDC00Toni Morrison", FIRST_YEAR));
+            log.sync();
+            expected = describe(bookstore.getInventory());
+        }
+
+        try (final MutationLog log = MutationLog.open(this.directory))
+        {
+            final Bookstore bookstore;
+            bookstore = log.recover(STORE_NAME);
+
+            assertEquals(expected, describe(bookstore.getInventory()));
+
+            log.compact(Runnable::run).join();
+        }
+
+        try (final MutationLog log = MutationLog.open(this.directory))
+        {
+            assertEquals(expected, describe(log.recover(STORE_NAME).getInventory()));
+        }
+    }
+
+    @Test
+    void tornTailOfNewestSegmentIsCutOffAtEveryLength() throws IOException
+    {
+        final Path segmentFile;
+        final byte[] contents;
+        int previousCount;
+
+        writeLog(this.directory, NOVEL_COUNT);
+        segmentFile = onlySegment(this.directory);
+        contents = Files.readAllBytes(segmentFile);
+        previousCount = 0;
+
+        for (int length = 0; length <= contents.length; length++)
+        {
+            final Path tornDirectory;
+            final Path tornSegment;
+            final List<String> recovered;
+
+            tornDirectory = Files.createDirectory(this.directory.resolve("torn-" + length));
+            tornSegment = tornDirectory.resolve(segmentFile.getFileName());
+            Files.write(tornSegment, Arrays.copyOf(contents, length));
+
+            try (final MutationLog log = MutationLog.open(tornDirectory))
+            {
+                recovered = describe(log.recover(STORE_NAME).getInventory());
+            }
+
+            assertEquals(describe(novels(recovered.size())), recovered, "Torn at " + length + " bytes");
+            assertTrue(recovered.size() >= previousCount, "Torn at " + length + " bytes");
+            assertTrue(Files.notExists(tornSegment) || Files.size(tornSegment) <= length,
+                       "Torn at " + length + " bytes");
+
+            // The cut-off segment is now an older one, so recovering again must find nothing wrong with it.
+            try (final MutationLog log = MutationLog.open(tornDirectory))
+            {
+                assertEquals(recovered, describe(log.recover(STORE_NAME).getInventory()));
+            }
+
+            previousCount = recovered.size();
+        }
+
+        assertEquals(NOVEL_COUNT, previousCount);
+    }
+
+    @Test
+    void badRecordInOlderSegmentThrowsWithoutTruncating() throws IOException
+    {
+        final Path olderSegment;
+        final byte[] contents;
+
+        writeLog(this.directory, NOVEL_COUNT);
+        olderSegment = onlySegment(this.directory);
+        writeLog(this.directory, NOVEL_COUNT);
+
+        contents = Files.readAllBytes(olderSegment);
+        contents[contents.length - 1] ^= 1;
+        Files.write(olderSegment, contents);
+
+        try (final MutationLog log = MutationLog.open(this.directory))
+        {
+            assertThrows(IOException.class, () -> log.recover(STORE_NAME));
+        }
+
+        assertArrayEquals(contents, Files.readAllBytes(olderSegment));
+    }
+
+    @Test
+    void olderSegmentTooShortForItsHeaderThrows() throws IOException
+    {
+        final Path olderSegment;
+
+        writeLog(this.directory, NOVEL_COUNT);
+        olderSegment = onlySegment(this.directory);
+        writeLog(this.directory, NOVEL_COUNT);
+
+        Files.write(olderSegment, new byte[SEGMENT_HEADER_BYTES - 1]);
+
+        try (final MutationLog log = MutationLog.open(this.directory))
+        {
+            assertThrows(IOException.class, () -> log.recover(STORE_NAME));
+        }
+
+        assertEquals(SEGMENT_HEADER_BYTES - 1, Files.size(olderSegment));
+    }
+
+    /*
+     * Recovers the log in a directory, adds Novels to the recovered Bookstore, then closes the log.
+     *
+     * @param logDirectory the directory holding the log
+     * @param count the number of Novels to add
+     */
+    private static void writeLog(final Path logDirectory,
+                                 final int count) throws IOException
+    {
+        try (final MutationLog log = MutationLog.open(logDirectory))
+        {
+            addNovels(log.recover(STORE_NAME), count);
+        }
+    }
+
+    /*
+     * Adds the first Novels from novels to a Bookstore, in order.
+     *
+     * @param bookstore the Bookstore to add to
+     * @param count the number of Novels to add
+     */
+    private static void addNovels(final Bookstore bookstore,
+                                  final int count)
+    {
+        for (final Novel novel : novels(count))
+        {
+            bookstore.addNovel(novel);
+        }
+    }
+
+    /*
+     * Builds Novels with distinct titles, so that every prefix of them is told apart by its descriptions.
+     *
+     * @param count the number of Novels to build
+     *
+     * @return the Novels
+     */
+    private static List<Novel> novels(final int count)
+    {
+        final List<Novel> novels;
+        novels = new ArrayList<>();
+
+        for (int novel = 0; novel < count; novel++)
+        {
+            novels.add(new Novel("Volume " + novel, "Toni Morrison", FIRST_YEAR + novel));
+        }
+
+        return novels;
+    }
+
+    /*
+     * Finds the only segment in a directory.
+     *
+     * @param logDirectory the directory holding the log
+     *
+     * @return the segment's path
+     */
+    private static Path onlySegment(final Path logDirectory) throws IOException
+    {
+        final List<Path> segments;
+        segments = new ArrayList<>();
+
+        try (final Stream<Path> files = Files.list(logDirectory))
+        {
+            files.filter(file -> file.getFileSystem().getPathMatcher("glob:" + SEGMENT_PATTERN)
+                                     .matches(file.getFileName()))
+                 .forEach(segments::add);
+        }
+
+        assertEquals(1, segments.size());
+
+        return segments.getFirst();
+    }
+
+    /*
+     * Describes Novels by their title, author and year, since Novel does not override equals.
+     *
+     * @param novels the Novels to describe
+     *
+     * @return one description per Novel, in order
+     */
+    private static List<String> describe(final List<Novel> novels)
+    {
+        final List<String> descriptions;
+        descriptions = new ArrayList<>();
+
+        for (final Novel novel : novels)
+        {
+            descriptions.add(novel.getTitle() + " / " + novel.getAuthorName() + " / " + novel.getYearPublished());
+        }
+
+        return descriptions;
+    }
+}